@@ -1,6 +1,7 @@
 package com.flavory.userservice.dto.request;
 
 import com.flavory.userservice.validation.ValidPhone;
+import com.flavory.userservice.validation.ValidTimeZone;
 import jakarta.validation.constraints.*;
 import lombok.*;
 
@@ -25,4 +26,11 @@ public class UpdateUserRequest {
 
     @Size(max = 1000)
     private String cookDescription;
+
+    @ValidTimeZone
+    private String timeZone;
+
+    @Min(0)
+    @Max(23)
+    private Integer stockResetHour;
 }
\ No newline at end of file
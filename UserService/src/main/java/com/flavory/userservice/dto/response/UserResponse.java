@@ -24,6 +24,8 @@ public class UserResponse {
     private UserRole role;
     private UserStatus status;
     private Boolean isVerified;
+    private String timeZone;
+    private Integer stockResetHour;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 }
\ No newline at end of file
@@ -55,6 +55,12 @@ public class User {
     @Column(length = 500)
     private String profileImageUrl;
 
+    @Column(name = "time_zone", length = 50)
+    private String timeZone;
+
+    @Column(name = "stock_reset_hour")
+    private Integer stockResetHour;
+
     @Column(name = "is_verified")
     @Builder.Default
     private Boolean isVerified = false;
@@ -22,6 +22,10 @@ public class UserUpdatedEvent implements Serializable {
     private String profileImageUrl;
     private String role;
     private String status;
+    private Double latitude;
+    private Double longitude;
+    private String timeZone;
+    private Integer stockResetHour;
 
     private String eventId;
 }
\ No newline at end of file
@@ -2,7 +2,9 @@ package com.flavory.userservice.mapper;
 
 import com.flavory.userservice.dto.request.UpdateUserRequest;
 import com.flavory.userservice.dto.response.UserResponse;
+import com.flavory.userservice.entity.Address;
 import com.flavory.userservice.entity.User;
+import com.flavory.userservice.entity.enums.UserRole;
 import com.flavory.userservice.event.outbound.UserUpdatedEvent;
 import org.mapstruct.*;
 
@@ -32,5 +34,24 @@ public interface UserMapper {
     void updateEntityFromDto(UpdateUserRequest request, @MappingTarget User user);
 
     @Mapping(target = "eventId", expression = "java(UUID.randomUUID().toString())")
+    @Mapping(target = "latitude", ignore = true)
+    @Mapping(target = "longitude", ignore = true)
     UserUpdatedEvent toUserUpdatedEvent(User user);
+
+    @AfterMapping
+    default void mapPickupLocation(User user, @MappingTarget UserUpdatedEvent event) {
+        if (user.getRole() != UserRole.COOK || user.getAddresses() == null) {
+            return;
+        }
+
+        user.getAddresses().stream()
+                .filter(address -> Boolean.TRUE.equals(address.getIsDefault()))
+                .findFirst()
+                .ifPresent(address -> applyPickupLocation(event, address));
+    }
+
+    default void applyPickupLocation(UserUpdatedEvent event, Address address) {
+        event.setLatitude(address != null ? address.getLatitude() : null);
+        event.setLongitude(address != null ? address.getLongitude() : null);
+    }
 }
\ No newline at end of file
@@ -1,6 +1,7 @@
 package com.flavory.userservice.messaging.publisher;
 
 import com.flavory.userservice.config.RabbitMQConfig;
+import com.flavory.userservice.entity.Address;
 import com.flavory.userservice.entity.User;
 import com.flavory.userservice.event.outbound.UserUpdatedEvent;
 import com.flavory.userservice.mapper.UserMapper;
@@ -15,8 +16,16 @@ public class UserEventPublisher {
     private final UserMapper userMapper;
 
     public void publishUserUpdated(User user) {
+        send(userMapper.toUserUpdatedEvent(user));
+    }
+
+    public void publishPickupLocationChanged(User user, Address defaultAddress) {
         UserUpdatedEvent event = userMapper.toUserUpdatedEvent(user);
+        userMapper.applyPickupLocation(event, defaultAddress);
+        send(event);
+    }
 
+    private void send(UserUpdatedEvent event) {
         try {
             rabbitTemplate.convertAndSend(
                     RabbitMQConfig.USER_EXCHANGE,
@@ -5,10 +5,12 @@ import com.flavory.userservice.dto.request.UpdateAddressRequest;
 import com.flavory.userservice.dto.response.AddressResponse;
 import com.flavory.userservice.entity.Address;
 import com.flavory.userservice.entity.User;
+import com.flavory.userservice.entity.enums.UserRole;
 import com.flavory.userservice.exception.AddressNotFoundException;
 import com.flavory.userservice.exception.UnauthorizedAccessException;
 import com.flavory.userservice.exception.UserNotFoundException;
 import com.flavory.userservice.mapper.AddressMapper;
+import com.flavory.userservice.messaging.publisher.UserEventPublisher;
 import com.flavory.userservice.repository.AddressRepository;
 import com.flavory.userservice.repository.UserRepository;
 import com.flavory.userservice.service.AddressService;
@@ -26,6 +28,7 @@ public class AddressServiceImpl implements AddressService {
     private final AddressRepository addressRepository;
     private final UserRepository userRepository;
     private final AddressMapper addressMapper;
+    private final UserEventPublisher eventPublisher;
 
     @Override
     @Transactional
@@ -52,6 +55,10 @@ public class AddressServiceImpl implements AddressService {
         }
 
         Address savedAddress = addressRepository.save(address);
+
+        if (isDefault) {
+            publishPickupLocationChanged(user, savedAddress);
+        }
         return addressMapper.toResponse(savedAddress);
     }
 
@@ -90,7 +97,7 @@ public class AddressServiceImpl implements AddressService {
     @Override
     @Transactional
     public AddressResponse updateAddress(Long userId, Long addressId, UpdateAddressRequest request, String currentAuth0Id) {
-        getUserAndValidateAccess(userId, currentAuth0Id);
+        User user = getUserAndValidateAccess(userId, currentAuth0Id);
 
         Address address = addressRepository.findByIdAndUserId(addressId, userId)
                 .orElseThrow(AddressNotFoundException::new);
@@ -103,13 +110,17 @@ public class AddressServiceImpl implements AddressService {
         }
 
         Address updatedAddress = addressRepository.save(address);
+
+        if (Boolean.TRUE.equals(updatedAddress.getIsDefault())) {
+            publishPickupLocationChanged(user, updatedAddress);
+        }
         return addressMapper.toResponse(updatedAddress);
     }
 
     @Override
     @Transactional
     public AddressResponse setDefaultAddress(Long userId, Long addressId, String currentAuth0Id) {
-        getUserAndValidateAccess(userId, currentAuth0Id);
+        User user = getUserAndValidateAccess(userId, currentAuth0Id);
 
         Address address = addressRepository.findByIdAndUserId(addressId, userId)
                 .orElseThrow(AddressNotFoundException::new);
@@ -118,13 +129,14 @@ public class AddressServiceImpl implements AddressService {
         address.setIsDefault(true);
 
         Address updatedAddress = addressRepository.save(address);
+        publishPickupLocationChanged(user, updatedAddress);
         return addressMapper.toResponse(updatedAddress);
     }
 
     @Override
     @Transactional
     public void deleteAddress(Long userId, Long addressId, String currentAuth0Id) {
-        getUserAndValidateAccess(userId, currentAuth0Id);
+        User user = getUserAndValidateAccess(userId, currentAuth0Id);
 
         Address address = addressRepository.findByIdAndUserId(addressId, userId)
                 .orElseThrow(AddressNotFoundException::new);
@@ -134,11 +146,19 @@ public class AddressServiceImpl implements AddressService {
 
         if (wasDefault) {
             List<Address> remainingAddresses = addressRepository.findByUserId(userId);
+            Address newDefault = null;
             if (!remainingAddresses.isEmpty()) {
-                Address newDefault = remainingAddresses.getFirst();
+                newDefault = remainingAddresses.getFirst();
                 newDefault.setIsDefault(true);
                 addressRepository.save(newDefault);
             }
+            publishPickupLocationChanged(user, newDefault);
+        }
+    }
+
+    private void publishPickupLocationChanged(User user, Address defaultAddress) {
+        if (user.getRole() == UserRole.COOK) {
+            eventPublisher.publishPickupLocationChanged(user, defaultAddress);
         }
     }
 
@@ -0,0 +1,17 @@
+package com.flavory.userservice.validation;
+
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorContext;
+
+import java.time.ZoneId;
+
+public class TimeZoneValidator implements ConstraintValidator<ValidTimeZone, String> {
+
+    @Override
+    public boolean isValid(String timeZone, ConstraintValidatorContext context) {
+        if (timeZone == null || timeZone.isEmpty()) {
+            return true;
+        }
+        return ZoneId.getAvailableZoneIds().contains(timeZone);
+    }
+}
\ No newline at end of file
@@ -0,0 +1,16 @@
+package com.flavory.userservice.validation;
+
+import jakarta.validation.Constraint;
+import jakarta.validation.Payload;
+
+import java.lang.annotation.*;
+
+@Target({ElementType.FIELD, ElementType.PARAMETER})
+@Retention(RetentionPolicy.RUNTIME)
+@Constraint(validatedBy = TimeZoneValidator.class)
+@Documented
+public @interface ValidTimeZone {
+    String message() default "Invalid time zone";
+    Class<?>[] groups() default {};
+    Class<? extends Payload>[] payload() default {};
+}
\ No newline at end of file
@@ -10,6 +10,7 @@ import com.flavory.userservice.exception.AddressNotFoundException;
 import com.flavory.userservice.exception.UnauthorizedAccessException;
 import com.flavory.userservice.exception.UserNotFoundException;
 import com.flavory.userservice.mapper.AddressMapper;
+import com.flavory.userservice.messaging.publisher.UserEventPublisher;
 import com.flavory.userservice.repository.AddressRepository;
 import com.flavory.userservice.repository.UserRepository;
 import com.flavory.userservice.service.impl.AddressServiceImpl;
@@ -39,6 +40,7 @@ class AddressServiceImplTest {
     @Mock private AddressRepository addressRepository;
     @Mock private UserRepository userRepository;
     @Mock private AddressMapper addressMapper;
+    @Mock private UserEventPublisher eventPublisher;
 
     @InjectMocks
     private AddressServiceImpl addressService;
@@ -438,6 +440,24 @@ class AddressServiceImplTest {
 
             verify(addressRepository).clearDefaultAddress(USER_ID);
             assertThat(address.getIsDefault()).isTrue();
+            verify(eventPublisher, never()).publishPickupLocationChanged(any(), any());
+        }
+
+        @Test
+        @DisplayName("Should publish pickup location when cook changes default address")
+        void shouldPublishPickupLocationForCook() {
+            User cook = createUser();
+            cook.setRole(UserRole.COOK);
+            Address address = createAddress(ADDRESS_ID, false);
+
+            when(userRepository.findById(USER_ID)).thenReturn(Optional.of(cook));
+            when(addressRepository.findByIdAndUserId(ADDRESS_ID, USER_ID)).thenReturn(Optional.of(address));
+            when(addressRepository.save(address)).thenReturn(address);
+            when(addressMapper.toResponse(address)).thenReturn(createAddressResponse(ADDRESS_ID, true));
+
+            addressService.setDefaultAddress(USER_ID, ADDRESS_ID, AUTH0_ID);
+
+            verify(eventPublisher).publishPickupLocationChanged(cook, address);
         }
 
         @Test
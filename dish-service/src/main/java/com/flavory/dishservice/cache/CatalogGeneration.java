@@ -0,0 +1,70 @@
+package com.flavory.dishservice.cache;
+
+import jakarta.annotation.PostConstruct;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Catalog-wide change counter used as the validator for list endpoints. It is backed by a
+ * PostgreSQL sequence, so every replica sees the same value and advancing it never blocks
+ * a writer. The counter is advanced after the writing transaction commits; a reader racing
+ * with that step at worst revalidates once more than necessary.
+ */
+@Component
+public class CatalogGeneration {
+    private static final String SEQUENCE = "catalog_generation";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate requiresNew;
+
+    public CatalogGeneration(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    void createSequence() {
+        jdbcTemplate.execute("CREATE SEQUENCE IF NOT EXISTS " + SEQUENCE);
+    }
+
+    public long current() {
+        Long value = jdbcTemplate.queryForObject("SELECT last_value FROM " + SEQUENCE, Long.class);
+        return value != null ? value : 0L;
+    }
+
+    /**
+     * Advances the generation once the current transaction commits, or immediately when called
+     * outside a transaction. Several calls within one transaction advance it once.
+     */
+    public void markChanged() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            advance();
+            return;
+        }
+        if (TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(CatalogGeneration.this);
+                if (status == STATUS_COMMITTED) {
+                    advance();
+                }
+            }
+        });
+    }
+
+    private void advance() {
+        requiresNew.executeWithoutResult(status ->
+                jdbcTemplate.queryForObject("SELECT nextval('" + SEQUENCE + "')", Long.class));
+    }
+}
@@ -0,0 +1,188 @@
+package com.flavory.dishservice.cache;
+
+import com.flavory.dishservice.dto.response.DishStatsResponse;
+import com.flavory.dishservice.entity.Dish;
+import com.flavory.dishservice.repository.CookStatisticsView;
+import com.flavory.dishservice.repository.DishRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-cook dish statistics. An entry is loaded with a single aggregate query on first read and
+ * afterwards adjusted in place: every dish write reports the dish's contribution before and after
+ * the change, and the difference is applied once the transaction commits. Entries are reloaded
+ * after {@code ttl} to bound drift from writes that raced with the initial load.
+ */
+@Component
+public class CookStatisticsCache {
+    private final DishRepository dishRepository;
+    private final Duration ttl;
+    private final int maxEntries;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+
+    public CookStatisticsCache(DishRepository dishRepository,
+                               @Value("${app.stats.cache-ttl-minutes:10}") long ttlMinutes,
+                               @Value("${app.stats.cache-max-cooks:10000}") int maxEntries) {
+        this.dishRepository = dishRepository;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.maxEntries = maxEntries;
+    }
+
+    public DishStatsResponse get(String cookId) {
+        Entry entry = entries.get(cookId);
+        if (entry == null || entry.loadedAt().plus(ttl).isBefore(Instant.now())) {
+            entry = Entry.of(dishRepository.aggregateCookStatistics(cookId));
+            evictIfFull();
+            entries.put(cookId, entry);
+        }
+        return entry.toResponse();
+    }
+
+    /**
+     * Records a dish write. {@code before} is the dish's contribution captured before it was
+     * modified, or {@link Contribution#NONE} for a new dish.
+     */
+    public void recordChange(String cookId, Contribution before, Contribution after) {
+        if (!entries.containsKey(cookId)) {
+            return;
+        }
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(cookId, before, after);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(cookId, before, after);
+            }
+        });
+    }
+
+    /**
+     * Adds order totals that were written straight to the database rather than through the entity.
+     */
+    public void recordOrders(String cookId, long orders, BigDecimal revenue) {
+        entries.computeIfPresent(cookId, (id, entry) -> entry.withOrders(orders, revenue));
+    }
+
+    public void evict(String cookId) {
+        entries.remove(cookId);
+    }
+
+    private void apply(String cookId, Contribution before, Contribution after) {
+        entries.computeIfPresent(cookId, (id, entry) -> entry.minus(before).plus(after));
+    }
+
+    private void evictIfFull() {
+        if (entries.size() < maxEntries) {
+            return;
+        }
+        Iterator<String> iterator = entries.keySet().iterator();
+        if (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    /**
+     * What a single dish adds to its cook's aggregates.
+     */
+    public record Contribution(boolean active, boolean available, BigDecimal price, BigDecimal revenue,
+                               long orders, BigDecimal rating, boolean rated) {
+
+        public static final Contribution NONE =
+                new Contribution(false, false, BigDecimal.ZERO, BigDecimal.ZERO, 0, BigDecimal.ZERO, false);
+
+        public static Contribution of(Dish dish) {
+            boolean active = Boolean.TRUE.equals(dish.getIsActive());
+            return new Contribution(
+                    active,
+                    active && Boolean.TRUE.equals(dish.getAvailable()) && dish.hasStock(),
+                    nullToZero(dish.getPrice()),
+                    nullToZero(dish.getTotalRevenue()),
+                    dish.getTotalOrders() == null ? 0 : dish.getTotalOrders(),
+                    nullToZero(dish.getAverageRating()),
+                    dish.getTotalRatings() != null && dish.getTotalRatings() > 0
+            );
+        }
+
+        private static BigDecimal nullToZero(BigDecimal value) {
+            return value == null ? BigDecimal.ZERO : value;
+        }
+    }
+
+    private record Entry(long activeDishes, long availableDishes, BigDecimal totalRevenue, long totalOrders,
+                         BigDecimal ratingSum, long ratedDishes, BigDecimal priceSum, Instant loadedAt) {
+
+        static Entry of(CookStatisticsView view) {
+            return new Entry(
+                    view.getActiveDishes(),
+                    view.getAvailableDishes(),
+                    view.getTotalRevenue(),
+                    view.getTotalOrders(),
+                    view.getRatingSum(),
+                    view.getRatedDishes(),
+                    view.getPriceSum(),
+                    Instant.now()
+            );
+        }
+
+        Entry plus(Contribution c) {
+            return adjust(c, 1);
+        }
+
+        Entry minus(Contribution c) {
+            return adjust(c, -1);
+        }
+
+        private Entry adjust(Contribution c, int sign) {
+            BigDecimal factor = BigDecimal.valueOf(sign);
+            return new Entry(
+                    activeDishes + (c.active() ? sign : 0),
+                    availableDishes + (c.available() ? sign : 0),
+                    totalRevenue.add(c.revenue().multiply(factor)),
+                    totalOrders + sign * c.orders(),
+                    c.rated() ? ratingSum.add(c.rating().multiply(factor)) : ratingSum,
+                    ratedDishes + (c.rated() ? sign : 0),
+                    c.active() ? priceSum.add(c.price().multiply(factor)) : priceSum,
+                    loadedAt
+            );
+        }
+
+        Entry withOrders(long orders, BigDecimal revenue) {
+            return new Entry(activeDishes, availableDishes, totalRevenue.add(revenue), totalOrders + orders,
+                    ratingSum, ratedDishes, priceSum, loadedAt);
+        }
+
+        DishStatsResponse toResponse() {
+            return DishStatsResponse.builder()
+                    .totalDishes(activeDishes)
+                    .activeDishes(activeDishes)
+                    .availableDishes(availableDishes)
+                    .outOfStockDishes(activeDishes - availableDishes)
+                    .totalRevenue(totalRevenue)
+                    .totalOrders((int) totalOrders)
+                    .averageRating(average(ratingSum, ratedDishes))
+                    .averagePrice(average(priceSum, activeDishes))
+                    .build();
+        }
+
+        private static BigDecimal average(BigDecimal sum, long count) {
+            return count > 0
+                    ? sum.divide(BigDecimal.valueOf(count), 2, RoundingMode.HALF_UP)
+                    : BigDecimal.ZERO;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.flavory.dishservice.cache;
+
+import com.flavory.dishservice.dto.response.CookSummaryDto;
+import com.flavory.dishservice.entity.CookProfile;
+import com.flavory.dishservice.repository.CookProfileRepository;
+import com.flavory.dishservice.repository.CookSummaryView;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.mapstruct.Named;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Cook summaries shown next to every dish, keyed by {@code cookId}, so dish pages never touch
+ * {@code cook_profiles}. The cache is filled from all profiles at startup and kept current by
+ * the user events this replica consumes. Profiles updated through another replica are picked
+ * up by a periodic poll on {@code updated_at}. A cook without a profile gets an empty summary.
+ */
+@Slf4j
+@Component
+public class CookSummaryCache {
+    private static final CookSummaryDto EMPTY = CookSummaryDto.builder().fullName("").build();
+
+    // Profiles are stamped before their transaction commits, so re-read a window behind the watermark.
+    private static final Duration POLL_OVERLAP = Duration.ofMinutes(1);
+
+    private final CookProfileRepository cookProfileRepository;
+    private final Map<String, CookSummaryDto> summaries = new ConcurrentHashMap<>();
+    private volatile LocalDateTime watermark = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    public CookSummaryCache(CookProfileRepository cookProfileRepository) {
+        this.cookProfileRepository = cookProfileRepository;
+    }
+
+    @PostConstruct
+    public void warmUp() {
+        List<CookSummaryView> views = cookProfileRepository.findAllSummaries();
+        views.forEach(this::store);
+        log.info("Loaded {} cook summaries", views.size());
+    }
+
+    @Scheduled(fixedDelayString = "${app.cook-summary.refresh-interval-ms:30000}",
+            initialDelayString = "${app.cook-summary.refresh-interval-ms:30000}")
+    public void refresh() {
+        cookProfileRepository.findSummariesUpdatedAfter(watermark.minus(POLL_OVERLAP)).forEach(this::store);
+    }
+
+    @Named("cookSummary")
+    public CookSummaryDto get(String cookId) {
+        if (cookId == null) {
+            return EMPTY;
+        }
+        return summaries.getOrDefault(cookId, EMPTY);
+    }
+
+    /**
+     * Replaces the cook's summary once the current transaction commits, or immediately outside
+     * a transaction.
+     */
+    public void putAfterCommit(CookProfile profile) {
+        CookSummaryDto summary = toSummary(profile.getFirstName(), profile.getLastName(),
+                profile.getProfileImageUrl(), profile.getRole(), profile.getStatus());
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            summaries.put(profile.getCookId(), summary);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                summaries.put(profile.getCookId(), summary);
+            }
+        });
+    }
+
+    private void store(CookSummaryView view) {
+        summaries.put(view.getCookId(), toSummary(view.getFirstName(), view.getLastName(),
+                view.getProfileImageUrl(), view.getRole(), view.getStatus()));
+        if (view.getUpdatedAt() != null && view.getUpdatedAt().isAfter(watermark)) {
+            watermark = view.getUpdatedAt();
+        }
+    }
+
+    private static CookSummaryDto toSummary(String firstName, String lastName, String profileImageUrl,
+                                            String role, String status) {
+        String fullName = (firstName != null ? firstName : "") + " " + (lastName != null ? lastName : "");
+        return CookSummaryDto.builder()
+                .fullName(fullName.trim())
+                .profileImageUrl(profileImageUrl)
+                .role(role)
+                .status(status)
+                .build();
+    }
+}
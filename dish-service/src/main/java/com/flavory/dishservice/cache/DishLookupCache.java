@@ -0,0 +1,180 @@
+package com.flavory.dishservice.cache;
+
+import com.flavory.dishservice.dto.response.DishInternalResponse;
+import com.flavory.dishservice.mapper.DishMapper;
+import com.flavory.dishservice.repository.DishImageView;
+import com.flavory.dishservice.repository.DishLookupView;
+import com.flavory.dishservice.repository.DishRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Per-id cache behind the internal batch lookup used at checkout. Misses are read with a
+ * projection over the columns order-service needs instead of full entities. Ids that another
+ * request is already loading are not queried again: the caller waits for that load instead, so
+ * concurrent checkouts of the same menu share their reads. Dish writes invalidate their entry
+ * after commit; writes on other replicas are picked up once the entry expires after {@code ttl}.
+ */
+@Component
+public class DishLookupCache {
+    private final DishRepository dishRepository;
+    private final DishMapper dishMapper;
+    private final Duration ttl;
+    private final int maxEntries;
+    private final Map<Long, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<Long, CompletableFuture<Optional<DishInternalResponse>>> inFlight = new ConcurrentHashMap<>();
+    private final Map<Long, Long> invalidations = new ConcurrentHashMap<>();
+
+    public DishLookupCache(DishRepository dishRepository,
+                           DishMapper dishMapper,
+                           @Value("${app.dish.lookup-cache.ttl-seconds:30}") long ttlSeconds,
+                           @Value("${app.dish.lookup-cache.max-entries:50000}") int maxEntries) {
+        this.dishRepository = dishRepository;
+        this.dishMapper = dishMapper;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Returns the dishes with the given ids in request order, skipping ids that do not exist.
+     */
+    public List<DishInternalResponse> getAll(Collection<Long> ids) {
+        Map<Long, Optional<DishInternalResponse>> resolved = new HashMap<>();
+        Map<Long, CompletableFuture<Optional<DishInternalResponse>>> owned = new LinkedHashMap<>();
+        Map<Long, CompletableFuture<Optional<DishInternalResponse>>> awaited = new HashMap<>();
+        Instant now = Instant.now();
+
+        for (Long id : new LinkedHashSet<>(ids)) {
+            Entry entry = entries.get(id);
+            if (entry != null && entry.loadedAt().plus(ttl).isAfter(now)) {
+                resolved.put(id, entry.dish());
+                continue;
+            }
+            CompletableFuture<Optional<DishInternalResponse>> future = new CompletableFuture<>();
+            CompletableFuture<Optional<DishInternalResponse>> existing = inFlight.putIfAbsent(id, future);
+            if (existing == null) {
+                owned.put(id, future);
+            } else {
+                awaited.put(id, existing);
+            }
+        }
+
+        // Load our own share before waiting on others, so two overlapping requests never wait on each other.
+        if (!owned.isEmpty()) {
+            resolved.putAll(load(owned));
+        }
+        awaited.forEach((id, future) -> resolved.put(id, await(future)));
+
+        List<DishInternalResponse> result = new ArrayList<>(resolved.size());
+        for (Long id : new LinkedHashSet<>(ids)) {
+            resolved.getOrDefault(id, Optional.empty()).ifPresent(result::add);
+        }
+        return result;
+    }
+
+    /**
+     * Drops the entry once the current transaction commits, or immediately outside a transaction.
+     */
+    public void invalidateAfterCommit(Long dishId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidate(dishId);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidate(dishId);
+            }
+        });
+    }
+
+    public void invalidate(Long dishId) {
+        invalidations.merge(dishId, 1L, Long::sum);
+        entries.remove(dishId);
+        // Later callers must not join a load that may have read the row before the write committed.
+        inFlight.remove(dishId);
+    }
+
+    private Map<Long, Optional<DishInternalResponse>> load(
+            Map<Long, CompletableFuture<Optional<DishInternalResponse>>> owned) {
+        Map<Long, Long> invalidationsAtStart = new HashMap<>();
+        owned.keySet().forEach(id -> invalidationsAtStart.put(id, invalidations.getOrDefault(id, 0L)));
+        try {
+            Map<Long, Optional<DishInternalResponse>> loaded = query(owned.keySet());
+            Instant loadedAt = Instant.now();
+
+            loaded.forEach((id, dish) -> {
+                // A dish invalidated while we were reading may have been loaded before its write committed.
+                if (invalidations.getOrDefault(id, 0L).equals(invalidationsAtStart.get(id))) {
+                    evictIfFull();
+                    entries.put(id, new Entry(dish, loadedAt));
+                }
+                owned.get(id).complete(dish);
+            });
+            return loaded;
+        } catch (RuntimeException ex) {
+            owned.values().forEach(future -> future.completeExceptionally(ex));
+            throw ex;
+        } finally {
+            owned.forEach(inFlight::remove);
+        }
+    }
+
+    private Map<Long, Optional<DishInternalResponse>> query(Collection<Long> ids) {
+        Map<Long, List<String>> images = new HashMap<>();
+        for (DishImageView image : dishRepository.findImagesByDishIds(ids)) {
+            images.computeIfAbsent(image.getDishId(), id -> new ArrayList<>()).add(image.getUrl());
+        }
+
+        Map<Long, Optional<DishInternalResponse>> loaded = new HashMap<>();
+        ids.forEach(id -> loaded.put(id, Optional.empty()));
+        for (DishLookupView view : dishRepository.findLookupViewsByIds(ids)) {
+            loaded.put(view.getId(), Optional.of(
+                    dishMapper.toInternalResponse(view, images.getOrDefault(view.getId(), List.of()))));
+        }
+        return loaded;
+    }
+
+    private static Optional<DishInternalResponse> await(CompletableFuture<Optional<DishInternalResponse>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw ex;
+        }
+    }
+
+    private void evictIfFull() {
+        if (entries.size() < maxEntries) {
+            return;
+        }
+        Iterator<Long> iterator = entries.keySet().iterator();
+        if (iterator.hasNext()) {
+            iterator.next();
+            iterator.remove();
+        }
+    }
+
+    private record Entry(Optional<DishInternalResponse> dish, Instant loadedAt) {
+    }
+}
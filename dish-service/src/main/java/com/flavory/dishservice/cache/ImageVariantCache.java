@@ -0,0 +1,83 @@
+package com.flavory.dishservice.cache;
+
+import com.flavory.dishservice.dto.response.DishImageResponse;
+import com.flavory.dishservice.utils.ImageVariantUtil;
+import org.mapstruct.Named;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Image URLs for dish responses, pointing at a resized variant only once that variant has been
+ * written. Variants are generated asynchronously and not at all for images ImageIO cannot
+ * decode, so until then each size falls back to the original. A variant found on disk is
+ * remembered for {@code PRESENT_TTL}; the garbage collector may delete it together with an
+ * orphaned original, so the answer is checked again after that.
+ */
+@Component
+public class ImageVariantCache {
+    private static final Duration PRESENT_TTL = Duration.ofMinutes(10);
+
+    private final Path uploadDir;
+    private final Clock clock;
+    private final Map<String, Long> presentUntil = new ConcurrentHashMap<>();
+
+    public ImageVariantCache(@Value("${app.file.upload-dir:/uploads/dishes}") String uploadDir) {
+        this(Paths.get(uploadDir).toAbsolutePath().normalize(), Clock.systemUTC());
+    }
+
+    public ImageVariantCache(Path uploadDir, Clock clock) {
+        this.uploadDir = uploadDir;
+        this.clock = clock;
+    }
+
+    @Named("mapImageVariants")
+    public List<DishImageResponse> imagesOf(List<String> images) {
+        if (images == null || images.isEmpty()) {
+            return null;
+        }
+        return images.stream()
+                .map(url -> DishImageResponse.builder()
+                        .originalUrl(url)
+                        .thumbnailUrl(variantUrl(url, ImageVariantUtil.Variant.THUMBNAIL))
+                        .cardUrl(variantUrl(url, ImageVariantUtil.Variant.CARD))
+                        .fullUrl(variantUrl(url, ImageVariantUtil.Variant.FULL))
+                        .build())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Returns the URL of the given variant if its file exists, the original URL otherwise.
+     */
+    public String variantUrl(String originalUrl, ImageVariantUtil.Variant variant) {
+        String url = ImageVariantUtil.variantUrl(originalUrl, variant);
+        if (url == null || url.equals(originalUrl)) {
+            return url;
+        }
+        return isPresent(url.substring(url.lastIndexOf('/') + 1)) ? url : originalUrl;
+    }
+
+    private boolean isPresent(String filename) {
+        long now = clock.millis();
+        Long until = presentUntil.get(filename);
+        if (until != null && until > now) {
+            return true;
+        }
+
+        if (Files.exists(uploadDir.resolve(filename))) {
+            presentUntil.put(filename, now + PRESENT_TTL.toMillis());
+            return true;
+        }
+        presentUntil.remove(filename);
+        return false;
+    }
+}
@@ -0,0 +1,72 @@
+package com.flavory.dishservice.cache;
+
+import com.flavory.dishservice.entity.CookProfile;
+import com.flavory.dishservice.entity.Dish;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Evictions from Hibernate's second-level cache for writes it does not see itself: bulk SQL on
+ * this replica and entity writes on other replicas. Writes through the entity manager keep the
+ * local regions up to date on their own.
+ */
+@Component
+public class SecondLevelCache {
+    private static final List<String> DISH_COLLECTIONS = List.of(
+            Dish.class.getName() + ".allergens",
+            Dish.class.getName() + ".images",
+            Dish.class.getName() + ".tags");
+
+    private final Cache cache;
+    private final TaskScheduler taskScheduler;
+    private final Duration invalidationDelay;
+
+    public SecondLevelCache(EntityManagerFactory entityManagerFactory,
+                            TaskScheduler taskScheduler,
+                            @Value("${app.l2-cache.invalidation-delay-ms:2000}") long invalidationDelayMs) {
+        this.cache = entityManagerFactory.unwrap(SessionFactory.class).getCache();
+        this.taskScheduler = taskScheduler;
+        this.invalidationDelay = Duration.ofMillis(invalidationDelayMs);
+    }
+
+    public void evictDish(Long dishId) {
+        cache.evictEntityData(Dish.class, dishId);
+        DISH_COLLECTIONS.forEach(role -> cache.evictCollectionData(role, dishId));
+    }
+
+    public void evictDishes(Collection<Long> dishIds) {
+        dishIds.forEach(this::evictDish);
+    }
+
+    public void evictCookProfile(String cookId) {
+        cache.evictEntityData(CookProfile.class, cookId);
+    }
+
+    /**
+     * Evicts a dish written by another replica. Its event is sent before the writing transaction
+     * commits, so a read here in between can cache the old row again; the eviction is repeated
+     * once after {@code invalidation-delay-ms} to drop that copy.
+     */
+    public void evictDishChangedElsewhere(Long dishId) {
+        evictDish(dishId);
+        taskScheduler.schedule(() -> evictDish(dishId), Instant.now().plus(invalidationDelay));
+    }
+
+    /**
+     * Same as {@link #evictDishChangedElsewhere} for a cook profile updated from a user event by
+     * another replica.
+     */
+    public void evictCookProfileChangedElsewhere(String cookId) {
+        evictCookProfile(cookId);
+        taskScheduler.schedule(() -> evictCookProfile(cookId), Instant.now().plus(invalidationDelay));
+    }
+}
@@ -0,0 +1,63 @@
+package com.flavory.dishservice.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Publishes per-region second-level cache counters: {@code hibernate.second.level.cache.requests}
+ * tagged with {@code result=hit|miss}, {@code hibernate.second.level.cache.puts}, and the hit
+ * ratio since startup as {@code hibernate.second.level.cache.hit.ratio}. Needs
+ * {@code hibernate.generate_statistics}; without it every value stays at zero.
+ */
+@Component
+public class SecondLevelCacheMetrics implements MeterBinder {
+    private final Statistics statistics;
+
+    public SecondLevelCacheMetrics(EntityManagerFactory entityManagerFactory) {
+        this.statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            counter(registry, "hibernate.second.level.cache.requests", region, "hit",
+                    stats -> regionStatistics(region).getHitCount());
+            counter(registry, "hibernate.second.level.cache.requests", region, "miss",
+                    stats -> regionStatistics(region).getMissCount());
+            FunctionCounter.builder("hibernate.second.level.cache.puts", statistics,
+                            stats -> regionStatistics(region).getPutCount())
+                    .tag("region", region)
+                    .register(registry);
+            Gauge.builder("hibernate.second.level.cache.hit.ratio", statistics, stats -> hitRatio(region))
+                    .tag("region", region)
+                    .register(registry);
+        }
+    }
+
+    private void counter(MeterRegistry registry, String name, String region, String result,
+                         ToDoubleFunction<Statistics> count) {
+        FunctionCounter.builder(name, statistics, count)
+                .tag("region", region)
+                .tag("result", result)
+                .register(registry);
+    }
+
+    private double hitRatio(String region) {
+        CacheRegionStatistics stats = regionStatistics(region);
+        long requests = stats.getHitCount() + stats.getMissCount();
+        return requests > 0 ? (double) stats.getHitCount() / requests : 0.0;
+    }
+
+    private CacheRegionStatistics regionStatistics(String region) {
+        return statistics.getDomainDataRegionStatistics(region);
+    }
+}
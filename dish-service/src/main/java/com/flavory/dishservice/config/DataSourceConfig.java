@@ -0,0 +1,46 @@
+package com.flavory.dishservice.config;
+
+import com.flavory.dishservice.routing.ReadReplicas;
+import com.flavory.dishservice.routing.ReadYourWrites;
+import com.flavory.dishservice.routing.ReplicaRoutingDataSource;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+import javax.sql.DataSource;
+
+@Configuration
+public class DataSourceConfig {
+
+    /**
+     * The primary pool, configured from {@code spring.datasource.*} as before.
+     */
+    @Bean
+    @ConfigurationProperties("spring.datasource.hikari")
+    public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder()
+                .type(HikariDataSource.class)
+                .build();
+        dataSource.setPoolName("dish-primary");
+        return dataSource;
+    }
+
+    /**
+     * The data source JPA and {@code JdbcTemplate} use. Connections are fetched lazily so the
+     * router sees whether the transaction is read-only.
+     */
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource,
+                                 ReadReplicas readReplicas,
+                                 ReadYourWrites readYourWrites,
+                                 MeterRegistry meterRegistry) {
+        return new LazyConnectionDataSourceProxy(
+                new ReplicaRoutingDataSource(primaryDataSource, readReplicas, readYourWrites, meterRegistry));
+    }
+}
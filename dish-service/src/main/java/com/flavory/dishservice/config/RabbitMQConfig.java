@@ -1,10 +1,13 @@
 package com.flavory.dishservice.config;
 
 import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
 import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.retry.support.RetryTemplate;
@@ -31,6 +34,8 @@ public class RabbitMQConfig {
     public static final String DISH_DELETED_ROUTING_KEY = "dish.deleted";
     public static final String DISH_AVAILABILITY_CHANGED_ROUTING_KEY = "dish.availability.changed";
 
+    public static final String DISH_ANY_ROUTING_KEY = "dish.#";
+
     public static final String USER_UPDATED_ROUTING_KEY = "user.updated";
 
     public static final String ORDER_PLACED_ROUTING_KEY = "order.placed";
@@ -39,6 +44,8 @@ public class RabbitMQConfig {
 
     public static final String DLX_EXCHANGE = "dlx.exchange";
 
+    public static final String STATS_LISTENER_CONTAINER_FACTORY = "statsListenerContainerFactory";
+
     @Bean
     public TopicExchange dishExchange() {
         return ExchangeBuilder
@@ -144,6 +151,20 @@ public class RabbitMQConfig {
                 .build();
     }
 
+    /**
+     * Per-replica queue for second-level cache invalidation: every replica receives all dish
+     * events, and the queue is removed when the replica disconnects.
+     */
+    @Bean
+    public AnonymousQueue dishCacheInvalidationQueue() {
+        return new AnonymousQueue();
+    }
+
+    @Bean
+    public AnonymousQueue userCacheInvalidationQueue() {
+        return new AnonymousQueue();
+    }
+
     @Bean
     public Binding dishCreatedBinding(Queue dishCreatedQueue, TopicExchange dishExchange) {
         return BindingBuilder
@@ -186,6 +207,22 @@ public class RabbitMQConfig {
                 .with(USER_UPDATED_ROUTING_KEY);
     }
 
+    @Bean
+    public Binding dishCacheInvalidationBinding(Queue dishCacheInvalidationQueue, TopicExchange dishExchange) {
+        return BindingBuilder
+                .bind(dishCacheInvalidationQueue)
+                .to(dishExchange)
+                .with(DISH_ANY_ROUTING_KEY);
+    }
+
+    @Bean
+    public Binding userCacheInvalidationBinding(Queue userCacheInvalidationQueue, TopicExchange userExchange) {
+        return BindingBuilder
+                .bind(userCacheInvalidationQueue)
+                .to(userExchange)
+                .with(USER_UPDATED_ROUTING_KEY);
+    }
+
     @Bean
     public Binding orderPlacedBinding(Queue orderPlacedQueue, TopicExchange orderExchange) {
         return BindingBuilder
@@ -210,6 +247,22 @@ public class RabbitMQConfig {
                 .with(ORDER_CANCELLED_ROUTING_KEY);
     }
 
+    /**
+     * Listener factory for events consumed by the write-behind stats buffer. Messages are acked
+     * only after their flush commits, so the prefetch has to cover a whole flush interval.
+     */
+    @Bean(STATS_LISTENER_CONTAINER_FACTORY)
+    public SimpleRabbitListenerContainerFactory statsListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer,
+            ConnectionFactory connectionFactory,
+            @Value("${app.stats.prefetch:500}") int prefetch) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        factory.setPrefetchCount(prefetch);
+        return factory;
+    }
+
     @Bean
     public MessageConverter messageConverter() {
         return new Jackson2JsonMessageConverter();
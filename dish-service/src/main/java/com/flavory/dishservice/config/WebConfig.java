@@ -2,9 +2,13 @@ package com.flavory.dishservice.config;
 
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
 import org.springframework.web.servlet.config.annotation.ResourceHandlerRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class WebConfig implements WebMvcConfigurer {
 
@@ -14,6 +18,25 @@ public class WebConfig implements WebMvcConfigurer {
     @Override
     public void addResourceHandlers(ResourceHandlerRegistry registry) {
         registry.addResourceHandler("/uploads/dishes/**")
-                .addResourceLocations("file:" + uploadDir + "/");
+                .addResourceLocations("file:" + uploadDir + "/")
+                .setCacheControl(immutableCacheControl())
+                .setEtagGenerator(WebConfig::contentEtag);
+    }
+
+    static CacheControl immutableCacheControl() {
+        return CacheControl.maxAge(365, TimeUnit.DAYS).cachePublic().immutable();
+    }
+
+    /**
+     * Stored file names are content hashes (or random ids for legacy uploads) and never
+     * reused, so the name itself is a strong validator.
+     */
+    static String contentEtag(Resource resource) {
+        String filename = resource.getFilename();
+        if (filename == null) {
+            return null;
+        }
+        int dot = filename.lastIndexOf('.');
+        return "\"" + (dot > 0 ? filename.substring(0, dot) : filename) + "\"";
     }
-}
\ No newline at end of file
+}
@@ -5,27 +5,42 @@ import com.flavory.dishservice.dto.request.DishSearchCriteria;
 import com.flavory.dishservice.dto.request.UpdateDishRequest;
 import com.flavory.dishservice.dto.request.UpdateStockRequest;
 import com.flavory.dishservice.dto.response.ApiResponse;
+import com.flavory.dishservice.dto.response.CursorPageResponse;
+import com.flavory.dishservice.dto.response.DishImportResponse;
 import com.flavory.dishservice.dto.response.DishInternalResponse;
 import com.flavory.dishservice.dto.response.DishResponse;
 import com.flavory.dishservice.dto.response.DishStatsResponse;
+import com.flavory.dishservice.dto.response.DishSyncResponse;
+import com.flavory.dishservice.dto.response.FacetsResponse;
+import com.flavory.dishservice.dto.response.SuggestionResponse;
 import com.flavory.dishservice.entity.Dish;
+import com.flavory.dishservice.importer.DishImportReader;
+import com.flavory.dishservice.search.DishSort;
 import com.flavory.dishservice.security.JwtService;
 import com.flavory.dishservice.service.DishService;
 import com.flavory.dishservice.service.FileStorageService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.time.Duration;
+import java.time.ZoneId;
 import java.util.List;
+import java.util.function.Supplier;
 
 @RestController
 @RequestMapping("/api/dishes")
@@ -34,7 +49,13 @@ public class DishController {
     private final DishService dishService;
     private final JwtService jwtService;
     private final FileStorageService fileStorageService;
+    private final DishImportReader dishImportReader;
 
+    @Value("${app.http.cache.dish-max-age-seconds:60}")
+    private long dishMaxAgeSeconds;
+
+    @Value("${app.http.cache.list-max-age-seconds:30}")
+    private long listMaxAgeSeconds;
 
     @PostMapping(consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
     public ResponseEntity<ApiResponse<DishResponse>> createDish(
@@ -43,14 +64,32 @@ public class DishController {
             Authentication authentication) {
 
         String cookId = jwtService.extractAuth0Id(authentication);
-        List<String> imageUrls = fileStorageService.storeFiles(images);
-        DishResponse dish = dishService.createDish(request, cookId, imageUrls);
+        List<FileStorageService.StagedFile> stagedImages = fileStorageService.stageFiles(images);
+        DishResponse dish;
+        try {
+            dish = dishService.createDish(request, cookId, stagedImages);
+        } catch (RuntimeException ex) {
+            fileStorageService.discardStagedFiles(stagedImages);
+            throw ex;
+        }
 
         return ResponseEntity
                 .status(HttpStatus.CREATED)
                 .body(ApiResponse.success("Danie zostało utworzone pomyślnie", dish));
     }
 
+    @PostMapping(value = "/import", consumes = {MediaType.APPLICATION_JSON_VALUE, "text/csv"})
+    public ResponseEntity<ApiResponse<DishImportResponse>> importDishes(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType,
+            InputStream body,
+            Authentication authentication) {
+
+        String cookId = jwtService.extractAuth0Id(authentication);
+        DishImportResponse result = dishService.importDishes(dishImportReader.read(body, contentType), cookId);
+        return ResponseEntity.ok(ApiResponse.success(
+                String.format("Zaimportowano %d z %d dań", result.getCreated(), result.getReceived()), result));
+    }
+
     @PutMapping("/{dishId}")
     public ResponseEntity<ApiResponse<DishResponse>> updateDish(
             @PathVariable Long dishId,
@@ -64,9 +103,31 @@ public class DishController {
     }
 
     @GetMapping("/{dishId}")
-    public ResponseEntity<ApiResponse<DishResponse>> getDishById(@PathVariable Long dishId) {
-        DishResponse dish = dishService.getDishById(dishId);
-        return ResponseEntity.ok(ApiResponse.success(dish));
+    public ResponseEntity<ApiResponse<DishResponse>> getDishById(@PathVariable Long dishId, WebRequest webRequest) {
+        DishService.TaggedDish tagged = dishService.getTaggedDish(dishId, webRequest::checkNotModified);
+        String etag = tagged.etag();
+        CacheControl cacheControl = publicCache(dishMaxAgeSeconds);
+
+        if (tagged.dish() == null) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+
+        DishResponse dish = tagged.dish();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag).cacheControl(cacheControl);
+        if (dish.getUpdatedAt() != null) {
+            response.lastModified(dish.getUpdatedAt().atZone(ZoneId.systemDefault()));
+        }
+        return response.body(ApiResponse.success(dish));
+    }
+
+    @GetMapping("/{dishId}/goes-well-with")
+    public ResponseEntity<ApiResponse<List<DishResponse>>> getGoesWellWith(
+            @PathVariable Long dishId,
+            @RequestParam(defaultValue = "6") int limit,
+            WebRequest webRequest) {
+
+        int boundedLimit = Math.min(Math.max(limit, 1), 20);
+        return catalogListing(webRequest, () -> dishService.getGoesWellWith(dishId, boundedLimit));
     }
 
     @GetMapping("/my-dishes/{dishId}")
@@ -83,56 +144,67 @@ public class DishController {
     public ResponseEntity<ApiResponse<Page<DishResponse>>> getDishesByCook(
             @PathVariable String cookId,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            WebRequest webRequest) {
 
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "createdAt"));
-        Page<DishResponse> dishes = dishService.getDishesByCook(cookId, pageable);
-        return ResponseEntity.ok(ApiResponse.success(dishes));
+        return catalogListing(webRequest, () -> dishService.getDishesByCook(cookId, pageable));
     }
 
     @GetMapping("/featured")
     public ResponseEntity<ApiResponse<Page<DishResponse>>> getFeaturedDishes(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            WebRequest webRequest) {
 
         Pageable pageable = PageRequest.of(page, size);
-        Page<DishResponse> dishes = dishService.getFeaturedDishes(pageable);
-        return ResponseEntity.ok(ApiResponse.success(dishes));
+        return catalogListing(webRequest, () -> dishService.getFeaturedDishes(pageable));
     }
 
     @GetMapping("/top-rated")
     public ResponseEntity<ApiResponse<Page<DishResponse>>> getTopRatedDishes(
+            @RequestParam(required = false) Dish.DishCategory category,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            WebRequest webRequest) {
 
         Pageable pageable = PageRequest.of(page, size);
-        Page<DishResponse> dishes = dishService.getTopRatedDishes(pageable);
-        return ResponseEntity.ok(ApiResponse.success(dishes));
+        return catalogListing(webRequest, () -> dishService.getTopRatedDishes(category, pageable));
+    }
+
+    @GetMapping("/trending")
+    public ResponseEntity<ApiResponse<List<DishResponse>>> getTrendingDishes(
+            @RequestParam(defaultValue = "10") int limit) {
+
+        List<DishResponse> dishes = dishService.getTrendingDishes(Math.min(Math.max(limit, 1), 50));
+        return ResponseEntity.ok()
+                .cacheControl(publicCache(listMaxAgeSeconds))
+                .body(ApiResponse.success(dishes));
     }
 
     @GetMapping("/category/{category}")
     public ResponseEntity<ApiResponse<Page<DishResponse>>> getDishesByCategory(
             @PathVariable Dish.DishCategory category,
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "20") int size) {
+            @RequestParam(defaultValue = "20") int size,
+            WebRequest webRequest) {
 
         Pageable pageable = PageRequest.of(page, size, Sort.by(Sort.Direction.DESC, "averageRating"));
-        Page<DishResponse> dishes = dishService.getDishesByCategory(category, pageable);
-        return ResponseEntity.ok(ApiResponse.success(dishes));
+        return catalogListing(webRequest, () -> dishService.getDishesByCategory(category, pageable));
     }
 
     @GetMapping
     public ResponseEntity<ApiResponse<Page<DishResponse>>> getAllDishes(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
-            @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "DESC") String direction) {
+            @RequestParam(defaultValue = "newest") String sortBy,
+            @RequestParam(required = false) String direction,
+            WebRequest webRequest) {
 
-        Sort.Direction sortDirection = Sort.Direction.fromString(direction);
-        Pageable pageable = PageRequest.of(page, size, Sort.by(sortDirection, sortBy));
+        DishSort sort = DishSort.resolve(sortBy);
+        Pageable pageable = PageRequest.of(page, size, sort.toSort(sort.direction(direction)));
 
-        Page<DishResponse> dishes = dishService.getAllAvailableDishes(pageable);
-        return ResponseEntity.ok(ApiResponse.success(dishes));
+        return catalogListing(webRequest, () -> dishService.getAllAvailableDishes(pageable));
     }
 
     @GetMapping("/stats")
@@ -156,8 +228,84 @@ public class DishController {
             @RequestParam(required = false) Boolean onlyFeatured,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "20") int size,
-            @RequestParam(defaultValue = "averageRating") String sortBy,
-            @RequestParam(defaultValue = "DESC") String sortDirection) {
+            @RequestParam(defaultValue = "rating") String sortBy,
+            @RequestParam(required = false) String sortDirection,
+            WebRequest webRequest) {
+
+        DishSearchCriteria criteria = DishSearchCriteria.builder()
+                .searchTerm(q)
+                .category(category)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .excludedAllergens(excludedAllergens)
+                .maxPreparationTime(maxPreparationTime)
+                .minRating(minRating)
+                .onlyFeatured(onlyFeatured)
+                .build();
+
+        DishSort sort = DishSort.resolve(sortBy);
+        Pageable pageable = PageRequest.of(page, size, sort.toSort(sort.direction(sortDirection)));
+
+        return catalogListing(webRequest, () -> dishService.searchDishes(criteria, pageable));
+    }
+
+    @GetMapping("/scroll")
+    public ResponseEntity<ApiResponse<CursorPageResponse<DishResponse>>> scrollDishes(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Dish.DishCategory category,
+            @RequestParam(required = false) java.math.BigDecimal minPrice,
+            @RequestParam(required = false) java.math.BigDecimal maxPrice,
+            @RequestParam(required = false) java.util.Set<Dish.Allergen> excludedAllergens,
+            @RequestParam(required = false) Integer maxPreparationTime,
+            @RequestParam(required = false) java.math.BigDecimal minRating,
+            @RequestParam(required = false) Boolean onlyFeatured,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int size,
+            @RequestParam(defaultValue = "newest") String sortBy,
+            @RequestParam(required = false) String sortDirection,
+            WebRequest webRequest) {
+
+        DishSearchCriteria criteria = DishSearchCriteria.builder()
+                .searchTerm(q)
+                .category(category)
+                .minPrice(minPrice)
+                .maxPrice(maxPrice)
+                .excludedAllergens(excludedAllergens)
+                .maxPreparationTime(maxPreparationTime)
+                .minRating(minRating)
+                .onlyFeatured(onlyFeatured)
+                .build();
+
+        DishSort sort = DishSort.resolve(sortBy);
+        Sort.Direction direction = sort.direction(sortDirection);
+        int boundedSize = Math.min(Math.max(size, 1), 50);
+        return catalogListing(webRequest,
+                () -> dishService.scrollDishes(criteria, sort, direction, cursor, boundedSize));
+    }
+
+    @GetMapping("/sync")
+    public ResponseEntity<ApiResponse<DishSyncResponse>> syncDishes(
+            @RequestParam(required = false) String since,
+            @RequestParam(required = false) String cookId,
+            @RequestParam(defaultValue = "200") int limit) {
+
+        DishSyncResponse changes = dishService.syncDishes(since, cookId, Math.min(Math.max(limit, 1), 500));
+        return ResponseEntity.ok()
+                .cacheControl(CacheControl.noStore())
+                .body(ApiResponse.success(changes));
+    }
+
+    @GetMapping("/facets")
+    public ResponseEntity<ApiResponse<FacetsResponse>> getFacets(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) Dish.DishCategory category,
+            @RequestParam(required = false) java.math.BigDecimal minPrice,
+            @RequestParam(required = false) java.math.BigDecimal maxPrice,
+            @RequestParam(required = false) java.util.Set<Dish.Allergen> excludedAllergens,
+            @RequestParam(required = false) Integer maxPreparationTime,
+            @RequestParam(required = false) java.math.BigDecimal minRating,
+            @RequestParam(required = false) Boolean onlyFeatured,
+            WebRequest webRequest) {
 
         DishSearchCriteria criteria = DishSearchCriteria.builder()
                 .searchTerm(q)
@@ -170,11 +318,30 @@ public class DishController {
                 .onlyFeatured(onlyFeatured)
                 .build();
 
-        Sort.Direction direction = Sort.Direction.fromString(sortDirection);
-        Pageable pageable = PageRequest.of(page, size, Sort.by(direction, sortBy));
+        return catalogListing(webRequest, () -> dishService.getFacets(criteria));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<ApiResponse<List<SuggestionResponse>>> suggest(
+            @RequestParam String q,
+            @RequestParam(defaultValue = "8") int limit) {
+
+        List<SuggestionResponse> suggestions = dishService.suggest(q, Math.min(Math.max(limit, 1), 20));
+        return ResponseEntity.ok()
+                .cacheControl(publicCache(listMaxAgeSeconds))
+                .body(ApiResponse.success(suggestions));
+    }
+
+    @GetMapping("/nearby")
+    public ResponseEntity<ApiResponse<List<DishResponse>>> getNearbyDishes(
+            @RequestParam double lat,
+            @RequestParam double lng,
+            @RequestParam(defaultValue = "5") double radiusKm,
+            @RequestParam(defaultValue = "50") int limit,
+            WebRequest webRequest) {
 
-        Page<DishResponse> dishes = dishService.searchDishes(criteria, pageable);
-        return ResponseEntity.ok(ApiResponse.success(dishes));
+        int boundedLimit = Math.min(Math.max(limit, 1), 100);
+        return catalogListing(webRequest, () -> dishService.getNearbyDishes(lat, lng, radiusKm, boundedLimit));
     }
 
     @GetMapping("/batch")
@@ -212,4 +379,23 @@ public class DishController {
         dishService.deleteDish(dishId, cookId);
         return ResponseEntity.ok(ApiResponse.success("Danie zostało usunięte", dishId));
     }
+
+    private <T> ResponseEntity<ApiResponse<T>> catalogListing(WebRequest webRequest, Supplier<T> listing) {
+        String etag = dishService.getCatalogEtag();
+        CacheControl cacheControl = publicCache(listMaxAgeSeconds);
+
+        if (webRequest.checkNotModified(etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok()
+                .eTag(etag)
+                .cacheControl(cacheControl)
+                .body(ApiResponse.success(listing.get()));
+    }
+
+    private CacheControl publicCache(long maxAgeSeconds) {
+        return CacheControl.maxAge(Duration.ofSeconds(maxAgeSeconds))
+                .cachePublic()
+                .staleWhileRevalidate(Duration.ofSeconds(maxAgeSeconds));
+    }
 }
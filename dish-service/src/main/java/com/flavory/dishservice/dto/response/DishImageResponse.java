@@ -0,0 +1,17 @@
+package com.flavory.dishservice.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DishImageResponse {
+    private String originalUrl;
+    private String thumbnailUrl;
+    private String cardUrl;
+    private String fullUrl;
+}
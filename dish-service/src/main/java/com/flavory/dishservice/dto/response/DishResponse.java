@@ -31,6 +31,7 @@ public class DishResponse {
     private Integer preparationTime;
     private Integer servingSize;
     private List<String> images;
+    private List<DishImageResponse> imageVariants;
     private Boolean available;
     private Boolean featured;
     private Integer currentStock;
@@ -43,4 +44,5 @@ public class DishResponse {
     private Boolean isActive;
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private Double distanceKm;
 }
\ No newline at end of file
@@ -0,0 +1,20 @@
+package com.flavory.dishservice.dto.response;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class DishSyncResponse {
+    private String token;
+    private boolean reset;
+    private boolean hasMore;
+    private List<DishResponse> changed;
+    private List<Long> deleted;
+}
@@ -0,0 +1,24 @@
+package com.flavory.dishservice.entity;
+
+import com.flavory.dishservice.cache.CatalogGeneration;
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * Advances the {@link CatalogGeneration} whenever an entity shown in catalog responses is written.
+ */
+@Component
+@RequiredArgsConstructor
+public class CatalogChangeListener {
+    private final CatalogGeneration catalogGeneration;
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        catalogGeneration.markChanged();
+    }
+}
@@ -1,13 +1,25 @@
 package com.flavory.dishservice.entity;
 
+import com.flavory.dishservice.utils.GeoGridUtil;
 import jakarta.persistence.*;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 
 @Entity
-@Table(name = "cook_profiles")
+@Table(name = "cook_profiles", indexes = {
+        @Index(name = "idx_cook_geo_cell", columnList = "geo_cell"),
+        @Index(name = "idx_cook_updated_at", columnList = "updated_at")
+})
+@EntityListeners(CatalogChangeListener.class)
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "cook-profile")
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
@@ -33,6 +45,56 @@ public class CookProfile {
     @Column(nullable = false, length = 20)
     private String status;
 
+    @Column(name = "pickup_latitude")
+    private Double pickupLatitude;
+
+    @Column(name = "pickup_longitude")
+    private Double pickupLongitude;
+
+    @Column(name = "geo_cell")
+    private Long geoCell;
+
+    @Column(name = "time_zone", length = 64)
+    private String timeZone;
+
+    @Column(name = "stock_reset_hour")
+    private Integer stockResetHour;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public void updatePickupLocation(Double latitude, Double longitude) {
+        this.pickupLatitude = latitude;
+        this.pickupLongitude = longitude;
+        this.geoCell = (latitude != null && longitude != null)
+                ? GeoGridUtil.cellOf(latitude, longitude)
+                : null;
+    }
+
+    /**
+     * Stores the cook's local schedule for daily stock replenishment. A {@code null} argument keeps
+     * the stored value, since user events that do not carry the schedule leave it out. Unknown zone
+     * ids and hours outside 0-23 are dropped so the replenishment job falls back to its defaults.
+     */
+    public void updateStockSchedule(String timeZone, Integer resetHour) {
+        if (timeZone != null) {
+            this.timeZone = ZoneId.getAvailableZoneIds().contains(timeZone) ? timeZone : null;
+        }
+        if (resetHour != null) {
+            this.stockResetHour = resetHour >= 0 && resetHour < 24 ? resetHour : null;
+        }
+    }
+
+    @PrePersist
+    @PreUpdate
+    public void touch() {
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public boolean hasPickupLocation() {
+        return pickupLatitude != null && pickupLongitude != null;
+    }
+
     public String getFullName() {
         return (firstName != null ? firstName : "") + " " + (lastName != null ? lastName : "");
     }
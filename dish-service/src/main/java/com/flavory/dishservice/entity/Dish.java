@@ -2,11 +2,15 @@ package com.flavory.dishservice.entity;
 
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashSet;
@@ -17,9 +21,17 @@ import java.util.Set;
 @Table(name = "dishes", indexes = {
         @Index(name = "idx_cook_id", columnList = "cook_id"),
         @Index(name = "idx_category", columnList = "category"),
-        @Index(name = "idx_available", columnList = "available")
+        @Index(name = "idx_available", columnList = "available"),
+        @Index(name = "idx_rating_score", columnList = "rating_score DESC, id DESC"),
+        @Index(name = "idx_category_rating_score", columnList = "category, rating_score DESC, id DESC"),
+        @Index(name = "idx_created_at_id", columnList = "created_at, id"),
+        @Index(name = "idx_price_id", columnList = "price, id"),
+        @Index(name = "idx_total_orders_id", columnList = "total_orders, id")
 })
-@EntityListeners(AuditingEntityListener.class)
+@EntityListeners({AuditingEntityListener.class, CatalogChangeListener.class})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "dish")
+@DynamicUpdate
 @Getter
 @Setter
 @NoArgsConstructor
@@ -48,12 +60,17 @@ public class Dish {
     private DishCategory category;
 
     @ElementCollection(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "dish-allergens")
     @CollectionTable(name = "dish_allergens", joinColumns = @JoinColumn(name = "dish_id"))
     @Column(name = "allergen", length = 50)
     @Enumerated(EnumType.STRING)
     @Builder.Default
     private Set<Allergen> allergens = new HashSet<>();
 
+    @Column(nullable = false, name = "allergen_mask", columnDefinition = "integer default 0")
+    @Builder.Default
+    private Integer allergenMask = 0;
+
     @Column(nullable = false, name = "preparation_time")
     private Integer preparationTime;
 
@@ -61,6 +78,7 @@ public class Dish {
     private Integer servingSize;
 
     @ElementCollection(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "dish-images")
     @CollectionTable(name = "dish_images", joinColumns = @JoinColumn(name = "dish_id"))
     @Column(name = "image_url", length = 500)
     @OrderColumn(name = "image_order")
@@ -83,6 +101,18 @@ public class Dish {
     @Builder.Default
     private Integer maxDailyStock = 0;
 
+    @Column(name = "stock_replenished_on")
+    private LocalDate stockReplenishedOn;
+
+    /**
+     * Set when the dish went unavailable because its stock ran out, as opposed to the cook
+     * switching it off. Only sold out dishes are made available again by the daily restock.
+     * {@code null} on rows written before the column existed.
+     */
+    @Column(name = "sold_out")
+    @Builder.Default
+    private Boolean soldOut = false;
+
     @Column(nullable = false, name = "average_rating", precision = 3, scale = 2)
     @Builder.Default
     private BigDecimal averageRating = BigDecimal.ZERO;
@@ -91,6 +121,20 @@ public class Dish {
     @Builder.Default
     private Integer totalRatings = 0;
 
+    @Column(nullable = false, name = "rating_sum", precision = 12, scale = 2,
+            columnDefinition = "numeric(12,2) default 0")
+    @Builder.Default
+    private BigDecimal ratingSum = BigDecimal.ZERO;
+
+    /**
+     * Bayesian average {@code (C * m + ratingSum) / (C + totalRatings)}, maintained by
+     * {@code DishStatsAggregator} whenever ratings are flushed. Backs the top-rated ordering.
+     */
+    @Column(nullable = false, name = "rating_score", precision = 5, scale = 4,
+            columnDefinition = "numeric(5,4) default 0")
+    @Builder.Default
+    private BigDecimal ratingScore = BigDecimal.ZERO;
+
     @Column(nullable = false, name = "total_orders")
     @Builder.Default
     private Integer totalOrders = 0;
@@ -100,6 +144,7 @@ public class Dish {
     private BigDecimal totalRevenue = BigDecimal.ZERO;
 
     @ElementCollection(fetch = FetchType.EAGER)
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = "dish-tags")
     @CollectionTable(name = "dish_tags", joinColumns = @JoinColumn(name = "dish_id"))
     @Column(name = "tag", length = 50)
     @Builder.Default
@@ -140,7 +185,7 @@ public class Dish {
         this.currentStock -= quantity;
 
         if (this.currentStock == 0) {
-            this.available = false;
+            markSoldOut();
         }
     }
 
@@ -149,21 +194,32 @@ public class Dish {
 
         if (this.currentStock > 0 && this.isActive) {
             this.available = true;
+            this.soldOut = false;
         }
     }
 
+    public void markSoldOut() {
+        this.available = false;
+        this.soldOut = true;
+    }
+
+    /**
+     * Availability chosen by the cook; the daily restock leaves it alone.
+     */
+    public void setAvailableManually(boolean available) {
+        this.available = available;
+        this.soldOut = false;
+    }
+
     public void updateOrderStats(BigDecimal orderAmount) {
         this.totalOrders += 1;
         this.totalRevenue = this.totalRevenue.add(orderAmount);
     }
 
-    public void updateRating(BigDecimal newRating) {
-        BigDecimal totalRatingSum = this.averageRating
-                .multiply(BigDecimal.valueOf(this.totalRatings));
-        totalRatingSum = totalRatingSum.add(newRating);
-        this.totalRatings += 1;
-        this.averageRating = totalRatingSum
-                .divide(BigDecimal.valueOf(this.totalRatings), 2, BigDecimal.ROUND_HALF_UP);
+    @PrePersist
+    @PreUpdate
+    public void syncAllergenMask() {
+        this.allergenMask = Allergen.toMask(this.allergens);
     }
 
     public boolean hasStock() {
@@ -218,5 +274,24 @@ public class Dish {
             this.displayName = displayName;
         }
 
+        /**
+         * Bit used in {@code dishes.allergen_mask}. Derived from the ordinal, so new allergens
+         * must be appended at the end of the enum.
+         */
+        public int getMask() {
+            return 1 << ordinal();
+        }
+
+        public static int toMask(Set<Allergen> allergens) {
+            if (allergens == null || allergens.isEmpty()) {
+                return 0;
+            }
+            int mask = 0;
+            for (Allergen allergen : allergens) {
+                mask |= allergen.getMask();
+            }
+            return mask;
+        }
+
     }
 }
\ No newline at end of file
@@ -0,0 +1,27 @@
+package com.flavory.dishservice.event.inbound;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.io.Serial;
+import java.io.Serializable;
+
+/**
+ * The part of any outbound dish event that cache invalidation needs.
+ */
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonIgnoreProperties(ignoreUnknown = true)
+public class DishChangeNotice implements Serializable {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    private Long dishId;
+    private String cookId;
+}
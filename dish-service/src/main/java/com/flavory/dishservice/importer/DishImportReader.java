@@ -0,0 +1,265 @@
+package com.flavory.dishservice.importer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.flavory.dishservice.dto.request.CreateDishRequest;
+import com.flavory.dishservice.dto.request.NutritionInfoRequest;
+import com.flavory.dishservice.entity.Dish;
+import com.flavory.dishservice.exception.BusinessValidationException;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Reads a menu import document one dish at a time, so the document is never held in memory
+ * as a whole. Accepts a JSON array of dish objects or CSV with a header row. In CSV, allergens
+ * and tags are {@code |}-separated lists and the nutrition columns are optional. Every row is
+ * checked against the same constraints as a single dish; a row that fails is reported, not
+ * thrown, so the rest of the document still imports.
+ */
+@Component
+public class DishImportReader {
+    public static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private static final String LIST_SEPARATOR = "\\|";
+
+    private final ObjectMapper objectMapper;
+    private final Validator validator;
+    private final int maxRows;
+
+    public DishImportReader(ObjectMapper objectMapper,
+                            Validator validator,
+                            @Value("${app.import.max-rows:200}") int maxRows) {
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.maxRows = maxRows;
+    }
+
+    public List<ImportRow> read(InputStream body, MediaType contentType) {
+        try {
+            if (contentType != null && TEXT_CSV.isCompatibleWith(contentType)) {
+                return readCsv(new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8)));
+            }
+            if (contentType == null || MediaType.APPLICATION_JSON.isCompatibleWith(contentType)) {
+                return readJson(body);
+            }
+        } catch (IOException ex) {
+            throw new BusinessValidationException("file", "Nie udało się odczytać dokumentu importu");
+        }
+        throw new BusinessValidationException("contentType", "Obsługiwane formaty: application/json, text/csv");
+    }
+
+    private List<ImportRow> readJson(InputStream body) throws IOException {
+        List<ImportRow> rows = new ArrayList<>();
+        try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_ARRAY) {
+                throw new BusinessValidationException("file", "Oczekiwano tablicy JSON z daniami");
+            }
+            while (parser.nextToken() == JsonToken.START_OBJECT) {
+                int row = rows.size() + 1;
+                checkRowLimit(row);
+                // Bind from the tree so a bad field fails only this row and leaves the parser on the next one.
+                JsonNode node = objectMapper.readTree(parser);
+                try {
+                    rows.add(validated(row, objectMapper.treeToValue(node, CreateDishRequest.class), new HashMap<>()));
+                } catch (MismatchedInputException ex) {
+                    rows.add(new ImportRow(row, null, Map.of(fieldOf(ex), invalidValueMessage(ex))));
+                }
+            }
+        }
+        return rows;
+    }
+
+    private List<ImportRow> readCsv(BufferedReader reader) throws IOException {
+        List<String> header = nextRecord(reader);
+        if (header == null) {
+            return List.of();
+        }
+        Map<String, Integer> columns = new HashMap<>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(Locale.ROOT), i);
+        }
+
+        List<ImportRow> rows = new ArrayList<>();
+        List<String> record;
+        while ((record = nextRecord(reader)) != null) {
+            if (record.size() == 1 && record.get(0).isBlank()) {
+                continue;
+            }
+            int row = rows.size() + 1;
+            checkRowLimit(row);
+            Map<String, String> errors = new LinkedHashMap<>();
+            CsvRecord values = new CsvRecord(record, columns, errors);
+
+            CreateDishRequest request = CreateDishRequest.builder()
+                    .name(values.text("name"))
+                    .description(values.text("description"))
+                    .price(values.parse("price", BigDecimal::new))
+                    .category(values.parse("category", value -> Dish.DishCategory.valueOf(value.toUpperCase(Locale.ROOT))))
+                    .allergens(values.list("allergens", value -> Dish.Allergen.valueOf(value.toUpperCase(Locale.ROOT))))
+                    .preparationTime(values.parse("preparationtime", Integer::valueOf))
+                    .servingSize(values.parse("servingsize", Integer::valueOf))
+                    .currentStock(values.parse("currentstock", Integer::valueOf))
+                    .maxDailyStock(values.parse("maxdailystock", Integer::valueOf))
+                    .tags(values.list("tags", Function.identity()))
+                    .nutritionInfo(nutritionOf(values))
+                    .build();
+            rows.add(validated(row, request, errors));
+        }
+        return rows;
+    }
+
+    private NutritionInfoRequest nutritionOf(CsvRecord values) {
+        NutritionInfoRequest nutrition = NutritionInfoRequest.builder()
+                .calories(values.parse("calories", BigDecimal::new))
+                .protein(values.parse("protein", BigDecimal::new))
+                .carbohydrates(values.parse("carbohydrates", BigDecimal::new))
+                .fats(values.parse("fats", BigDecimal::new))
+                .fiber(values.parse("fiber", BigDecimal::new))
+                .sodium(values.parse("sodium", BigDecimal::new))
+                .sugar(values.parse("sugar", BigDecimal::new))
+                .build();
+        return nutrition.equals(new NutritionInfoRequest()) ? null : nutrition;
+    }
+
+    private ImportRow validated(int row, CreateDishRequest request, Map<String, String> errors) {
+        for (ConstraintViolation<CreateDishRequest> violation : validator.validate(request)) {
+            errors.putIfAbsent(violation.getPropertyPath().toString(), violation.getMessage());
+        }
+        return new ImportRow(row, request, errors);
+    }
+
+    private void checkRowLimit(int row) {
+        if (row > maxRows) {
+            throw new BusinessValidationException("file",
+                    String.format("Import może zawierać maksymalnie %d dań", maxRows));
+        }
+    }
+
+    private static String fieldOf(MismatchedInputException ex) {
+        return ex.getPath().stream()
+                .map(reference -> reference.getFieldName() != null
+                        ? reference.getFieldName()
+                        : "[" + reference.getIndex() + "]")
+                .collect(Collectors.joining("."));
+    }
+
+    private static String invalidValueMessage(MismatchedInputException ex) {
+        return ex instanceof InvalidFormatException invalid
+                ? "Nieprawidłowa wartość: " + invalid.getValue()
+                : "Nieprawidłowa wartość";
+    }
+
+    /**
+     * Next RFC 4180 record, or {@code null} at the end of input. Quoted fields may contain
+     * separators, doubled quotes and line breaks.
+     */
+    static List<String> nextRecord(BufferedReader reader) throws IOException {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        int c = reader.read();
+        if (c == -1) {
+            return null;
+        }
+        while (c != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    reader.mark(1);
+                    int next = reader.read();
+                    if (next == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        if (next == -1) {
+                            break;
+                        }
+                        reader.reset();
+                    }
+                } else {
+                    field.append((char) c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (c == '\n') {
+                break;
+            } else if (c != '\r') {
+                field.append((char) c);
+            }
+            c = reader.read();
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    private record CsvRecord(List<String> values, Map<String, Integer> columns, Map<String, String> errors) {
+
+        String text(String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= values.size()) {
+                return null;
+            }
+            String value = values.get(index).trim();
+            return value.isEmpty() ? null : value;
+        }
+
+        <T> T parse(String column, Function<String, T> parser) {
+            String value = text(column);
+            if (value == null) {
+                return null;
+            }
+            try {
+                return parser.apply(value);
+            } catch (IllegalArgumentException ex) {
+                errors.put(column, "Nieprawidłowa wartość: " + value);
+                return null;
+            }
+        }
+
+        <T> Set<T> list(String column, Function<String, T> parser) {
+            String value = text(column);
+            if (value == null) {
+                return null;
+            }
+            Set<T> items = new LinkedHashSet<>();
+            for (String item : Arrays.stream(value.split(LIST_SEPARATOR)).map(String::trim).toList()) {
+                if (item.isEmpty()) {
+                    continue;
+                }
+                try {
+                    items.add(parser.apply(item));
+                } catch (IllegalArgumentException ex) {
+                    errors.put(column, "Nieprawidłowa wartość: " + item);
+                }
+            }
+            return items;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.flavory.dishservice.importer;
+
+import com.flavory.dishservice.dto.request.CreateDishRequest;
+
+import java.util.Map;
+
+/**
+ * One dish read from an import document, numbered from 1 in document order. {@code errors}
+ * holds field-level problems found while parsing and validating it; the request is only
+ * usable when it is empty.
+ */
+public record ImportRow(int row, CreateDishRequest request, Map<String, String> errors) {
+
+    public boolean isValid() {
+        return errors.isEmpty();
+    }
+}
@@ -0,0 +1,33 @@
+package com.flavory.dishservice.messaging.listener;
+
+import com.flavory.dishservice.cache.SecondLevelCache;
+import com.flavory.dishservice.event.inbound.DishChangeNotice;
+import com.flavory.dishservice.event.inbound.UserUpdatedEvent;
+import lombok.RequiredArgsConstructor;
+import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Drops second-level cache entries written by other replicas. Each replica consumes its own copy
+ * of every dish and user event, including the ones it published itself; evicting those too
+ * costs one extra read.
+ */
+@Component
+@RequiredArgsConstructor
+public class CacheInvalidationListener {
+    private final SecondLevelCache secondLevelCache;
+
+    @RabbitListener(queues = "#{dishCacheInvalidationQueue.name}")
+    public void handleDishChanged(DishChangeNotice notice) {
+        if (notice.getDishId() != null) {
+            secondLevelCache.evictDishChangedElsewhere(notice.getDishId());
+        }
+    }
+
+    @RabbitListener(queues = "#{userCacheInvalidationQueue.name}")
+    public void handleUserUpdated(UserUpdatedEvent event) {
+        if (event.getAuth0Id() != null) {
+            secondLevelCache.evictCookProfileChangedElsewhere(event.getAuth0Id());
+        }
+    }
+}
@@ -5,19 +5,35 @@ import com.flavory.dishservice.entity.ProcessedEventEntity;
 import com.flavory.dishservice.event.inbound.OrderCancelledEvent;
 import com.flavory.dishservice.event.inbound.OrderCompletedEvent;
 import com.flavory.dishservice.event.inbound.OrderPlacedEvent;
+import com.flavory.dishservice.recommendation.CoOccurrenceModel;
 import com.flavory.dishservice.repository.ProcessedEventRepository;
 import com.flavory.dishservice.service.DishService;
+import com.flavory.dishservice.stats.DishStatsAggregator;
+import com.flavory.dishservice.stats.TrendingTracker;
 import com.flavory.dishservice.utils.EventProcessedUtil;
+import com.rabbitmq.client.AlreadyClosedException;
+import com.rabbitmq.client.Channel;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.annotation.RabbitListener;
+import org.springframework.amqp.support.AmqpHeaders;
+import org.springframework.messaging.handler.annotation.Header;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+
+@Slf4j
 @Component
 @RequiredArgsConstructor
 public class OrderEventListener {
     private final DishService dishService;
     private final EventProcessedUtil eventProcessedUtil;
+    private final DishStatsAggregator dishStatsAggregator;
+    private final CoOccurrenceModel coOccurrenceModel;
+    private final TrendingTracker trendingTracker;
 
     @Transactional
     @RabbitListener(queues = RabbitMQConfig.ORDER_PLACED_QUEUE)
@@ -26,6 +42,7 @@ public class OrderEventListener {
             return;
         }
 
+        Map<Long, Integer> quantities = new HashMap<>();
         for (OrderPlacedEvent.OrderItem item : event.getItems()) {
             try {
                 dishService.decreaseStock(item.getDishId(), item.getQuantity());
@@ -34,26 +51,28 @@ public class OrderEventListener {
                 throw new RuntimeException(
                         "Failed to decrease stock for dish " + item.getDishId(), e);
             }
+            quantities.merge(item.getDishId(), item.getQuantity(), Integer::sum);
         }
         eventProcessedUtil.markEventAsProcessed(event.getEventId());
+        trendingTracker.recordAfterCommit(quantities);
     }
 
-    @RabbitListener(queues = RabbitMQConfig.ORDER_COMPLETED_QUEUE)
-    @Transactional
-    public void handleOrderCompleted(OrderCompletedEvent event) {
-        if (eventProcessedUtil.isEventProcessed(event.getEventId())) {
-            return;
-        }
-
-        for (OrderCompletedEvent.OrderItem item : event.getItems()) {
-            dishService.updateOrderStats(item.getDishId(), item.getItemTotal());
-        }
-
-        if (event.getDishRating() != null && event.getRatedDishId() != null) {
-            dishService.updateDishRating(event.getRatedDishId(), event.getDishRating());
+    @RabbitListener(queues = RabbitMQConfig.ORDER_COMPLETED_QUEUE,
+            containerFactory = RabbitMQConfig.STATS_LISTENER_CONTAINER_FACTORY)
+    public void handleOrderCompleted(OrderCompletedEvent event,
+                                     Channel channel,
+                                     @Header(AmqpHeaders.DELIVERY_TAG) long deliveryTag) {
+        try {
+            dishStatsAggregator.record(event, eventProcessedUtil::isEventProcessed, counted -> {
+                if (counted) {
+                    coOccurrenceModel.record(event);
+                }
+                acknowledge(channel, deliveryTag);
+            });
+        } catch (IllegalArgumentException ex) {
+            log.error("Rejecting malformed order completed message {}", deliveryTag, ex);
+            reject(channel, deliveryTag);
         }
-
-        eventProcessedUtil.markEventAsProcessed(event.getEventId());
     }
 
     @RabbitListener(queues = RabbitMQConfig.ORDER_CANCELLED_QUEUE)
@@ -73,4 +92,22 @@ public class OrderEventListener {
         }
         eventProcessedUtil.markEventAsProcessed(event.getEventId());
     }
+
+    private void acknowledge(Channel channel, long deliveryTag) {
+        try {
+            channel.basicAck(deliveryTag, false);
+        } catch (IOException | AlreadyClosedException ex) {
+            // The broker redelivers the message, and processed_events drops it as a duplicate.
+            log.warn("Could not ack order completed message {}", deliveryTag, ex);
+        }
+    }
+
+    private void reject(Channel channel, long deliveryTag) {
+        try {
+            // Not requeued, so the queue dead-letters it to the DLX.
+            channel.basicReject(deliveryTag, false);
+        } catch (IOException | AlreadyClosedException ex) {
+            log.warn("Could not reject order completed message {}", deliveryTag, ex);
+        }
+    }
 }
@@ -1,5 +1,6 @@
 package com.flavory.dishservice.messaging.listener;
 
+import com.flavory.dishservice.cache.CookSummaryCache;
 import com.flavory.dishservice.config.RabbitMQConfig;
 import com.flavory.dishservice.entity.CookProfile;
 import com.flavory.dishservice.event.inbound.UserUpdatedEvent;
@@ -15,6 +16,7 @@ import org.springframework.transaction.annotation.Transactional;
 public class UserEventListener {
     private final CookProfileRepository cookProfileRepository;
     private final EventProcessedUtil eventProcessedUtil;
+    private final CookSummaryCache cookSummaryCache;
 
 
     @Transactional
@@ -32,7 +34,10 @@ public class UserEventListener {
         profile.setProfileImageUrl(event.getProfileImageUrl());
         profile.setRole(event.getRole());
         profile.setStatus(event.getStatus());
+        profile.updatePickupLocation(event.getLatitude(), event.getLongitude());
+        profile.updateStockSchedule(event.getTimeZone(), event.getStockResetHour());
         cookProfileRepository.save(profile);
+        cookSummaryCache.putAfterCommit(profile);
 
         eventProcessedUtil.markEventAsProcessed(event.getEventId());
     }
@@ -5,6 +5,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.UUID;
 
 @Component
@@ -24,6 +25,29 @@ public class DishEventPublisher {
         );
     }
 
+    /**
+     * Sends the created events of a bulk import over a single channel.
+     */
+    public void publishDishCreatedBatch(List<DishCreatedEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        rabbitTemplate.invoke(operations -> {
+            for (DishCreatedEvent event : events) {
+                if (event.getEventId() == null) {
+                    event.setEventId(UUID.randomUUID().toString());
+                }
+                operations.convertAndSend(
+                        RabbitMQConfig.DISH_EXCHANGE,
+                        RabbitMQConfig.DISH_CREATED_ROUTING_KEY,
+                        event
+                );
+            }
+            return null;
+        });
+    }
+
     public void publishDishUpdated(DishUpdatedEvent event) {
         if (event.getEventId() == null) {
             event.setEventId(UUID.randomUUID().toString());
@@ -59,4 +83,27 @@ public class DishEventPublisher {
                 event
         );
     }
+
+    /**
+     * Sends a batch of availability changes over a single channel instead of one checkout per event.
+     */
+    public void publishDishAvailabilityChangedBatch(List<DishAvailabilityChangedEvent> events) {
+        if (events.isEmpty()) {
+            return;
+        }
+
+        rabbitTemplate.invoke(operations -> {
+            for (DishAvailabilityChangedEvent event : events) {
+                if (event.getEventId() == null) {
+                    event.setEventId(UUID.randomUUID().toString());
+                }
+                operations.convertAndSend(
+                        RabbitMQConfig.DISH_EXCHANGE,
+                        RabbitMQConfig.DISH_AVAILABILITY_CHANGED_ROUTING_KEY,
+                        event
+                );
+            }
+            return null;
+        });
+    }
 }
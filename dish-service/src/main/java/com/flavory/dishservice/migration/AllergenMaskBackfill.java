@@ -0,0 +1,46 @@
+package com.flavory.dishservice.migration;
+
+import com.flavory.dishservice.entity.Dish;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Recomputes {@code dishes.allergen_mask} from {@code dish_allergens} for rows written before the
+ * column existed. Only rows whose mask differs are touched, so re-running it is a no-op.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "app.migration.allergen-mask-backfill.enabled", havingValue = "true", matchIfMissing = true)
+public class AllergenMaskBackfill implements ApplicationRunner {
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    @Transactional
+    public void run(ApplicationArguments args) {
+        int updated = jdbcTemplate.update(buildBackfillSql());
+        if (updated > 0) {
+            log.info("Backfilled allergen_mask for {} dishes", updated);
+        }
+    }
+
+    static String buildBackfillSql() {
+        StringBuilder bitCase = new StringBuilder("CASE da.allergen");
+        for (Dish.Allergen allergen : Dish.Allergen.values()) {
+            bitCase.append(" WHEN '").append(allergen.name()).append("' THEN ").append(allergen.getMask());
+        }
+        bitCase.append(" ELSE 0 END");
+
+        return "UPDATE dishes d SET allergen_mask = m.mask " +
+                "FROM (SELECT ds.id, COALESCE(bit_or(" + bitCase + "), 0) AS mask " +
+                "      FROM dishes ds LEFT JOIN dish_allergens da ON da.dish_id = ds.id " +
+                "      GROUP BY ds.id) m " +
+                "WHERE m.id = d.id AND d.allergen_mask IS DISTINCT FROM m.mask";
+    }
+}
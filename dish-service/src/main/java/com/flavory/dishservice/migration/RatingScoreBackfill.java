@@ -0,0 +1,52 @@
+package com.flavory.dishservice.migration;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+
+/**
+ * Derives {@code dishes.rating_sum} for rows rated before the column existed and brings
+ * {@code rating_score} in line with the configured prior. Only rows whose values differ are
+ * touched, so re-running it (or changing the prior) is cheap.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "app.migration.rating-score-backfill.enabled", havingValue = "true", matchIfMissing = true)
+public class RatingScoreBackfill implements ApplicationRunner {
+    private static final String SUM_SQL =
+            "UPDATE dishes SET rating_sum = average_rating * total_ratings " +
+            "WHERE total_ratings > 0 AND rating_sum = 0";
+
+    private static final String SCORE_SQL =
+            "UPDATE dishes SET rating_score = ROUND((? + rating_sum) / (? + total_ratings), 4) " +
+            "WHERE rating_score IS DISTINCT FROM ROUND((? + rating_sum) / (? + total_ratings), 4)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final BigDecimal priorWeight;
+    private final BigDecimal priorTotal;
+
+    public RatingScoreBackfill(JdbcTemplate jdbcTemplate,
+                               @Value("${app.rating.prior-mean:4.0}") BigDecimal priorMean,
+                               @Value("${app.rating.prior-weight:5}") BigDecimal priorWeight) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.priorWeight = priorWeight;
+        this.priorTotal = priorWeight.multiply(priorMean);
+    }
+
+    @Override
+    @Transactional
+    public void run(ApplicationArguments args) {
+        int sums = jdbcTemplate.update(SUM_SQL);
+        int scores = jdbcTemplate.update(SCORE_SQL, priorTotal, priorWeight, priorTotal, priorWeight);
+        if (sums + scores > 0) {
+            log.info("Backfilled rating_sum for {} and rating_score for {} dishes", sums, scores);
+        }
+    }
+}
@@ -0,0 +1,237 @@
+package com.flavory.dishservice.recommendation;
+
+import com.flavory.dishservice.event.inbound.OrderCompletedEvent;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * "Frequently ordered together" counts built from completed orders. Every pair of dishes in an
+ * order adds one to both directions. Each dish keeps at most {@code stored-per-dish} neighbours
+ * in memory; a new neighbour for a full dish replaces the weakest one and inherits its weight.
+ *
+ * <p>Increments are also buffered and added to {@code dish_cooccurrence} at every checkpoint.
+ * Weights there decay with the configured half-life, computed from each row's
+ * {@code updated_at}, so replicas can add concurrently and no decay pass is needed. After a
+ * checkpoint the rows are pruned to the strongest neighbours per dish and reloaded. This brings
+ * in the orders other replicas consumed and gives a warm start after a restart.
+ */
+@Slf4j
+@Component
+public class CoOccurrenceModel {
+    static final String CREATE_TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS dish_cooccurrence (" +
+            "dish_id BIGINT NOT NULL, " +
+            "neighbour_id BIGINT NOT NULL, " +
+            "weight DOUBLE PRECISION NOT NULL, " +
+            "updated_at TIMESTAMP NOT NULL DEFAULT now(), " +
+            "PRIMARY KEY (dish_id, neighbour_id))";
+
+    private static final String DECAYED_WEIGHT =
+            "weight * power(0.5, extract(epoch from (now() - updated_at))::float8 / ?)";
+
+    static final String UPSERT_SQL =
+            "INSERT INTO dish_cooccurrence (dish_id, neighbour_id, weight, updated_at) VALUES (?, ?, ?, now()) " +
+            "ON CONFLICT (dish_id, neighbour_id) DO UPDATE SET " +
+            "weight = dish_cooccurrence.weight * power(0.5, " +
+            "extract(epoch from (now() - dish_cooccurrence.updated_at))::float8 / ?) + EXCLUDED.weight, " +
+            "updated_at = now()";
+
+    static final String PRUNE_SQL =
+            "DELETE FROM dish_cooccurrence c USING (" +
+            "  SELECT dish_id, neighbour_id, " + DECAYED_WEIGHT + " AS decayed, " +
+            "         row_number() OVER (PARTITION BY dish_id ORDER BY " + DECAYED_WEIGHT + " DESC) AS rank " +
+            "  FROM dish_cooccurrence) r " +
+            "WHERE c.dish_id = r.dish_id AND c.neighbour_id = r.neighbour_id " +
+            "AND (r.rank > ? OR r.decayed < ?)";
+
+    static final String LOAD_SQL =
+            "SELECT dish_id, neighbour_id, " + DECAYED_WEIGHT + " AS decayed FROM dish_cooccurrence";
+
+    private static final int MAX_ITEMS_PER_ORDER = 20;
+    private static final double MIN_WEIGHT = 0.05;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final double halfLifeSeconds;
+    private final int storedPerDish;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile Map<Long, Neighbours> neighbours = new ConcurrentHashMap<>();
+    private Map<Pair, DoubleAdder> pending = new ConcurrentHashMap<>();
+
+    public CoOccurrenceModel(JdbcTemplate jdbcTemplate,
+                             PlatformTransactionManager transactionManager,
+                             @Value("${app.recommendations.half-life-days:14}") double halfLifeDays,
+                             @Value("${app.recommendations.stored-per-dish:30}") int storedPerDish) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.halfLifeSeconds = halfLifeDays * 24 * 3600;
+        this.storedPerDish = storedPerDish;
+    }
+
+    @PostConstruct
+    void initialize() {
+        jdbcTemplate.execute(CREATE_TABLE_SQL);
+        reload();
+    }
+
+    public void record(OrderCompletedEvent event) {
+        if (event.getItems() == null) {
+            return;
+        }
+        Set<Long> dishIds = new LinkedHashSet<>();
+        event.getItems().stream()
+                .map(OrderCompletedEvent.OrderItem::getDishId)
+                .filter(Objects::nonNull)
+                .limit(MAX_ITEMS_PER_ORDER)
+                .forEach(dishIds::add);
+        if (dishIds.size() < 2) {
+            return;
+        }
+
+        lock.readLock().lock();
+        try {
+            for (Long dishId : dishIds) {
+                for (Long neighbourId : dishIds) {
+                    if (!dishId.equals(neighbourId)) {
+                        neighboursOf(neighbours, dishId).add(neighbourId, 1.0);
+                        pending.computeIfAbsent(new Pair(dishId, neighbourId), pair -> new DoubleAdder()).add(1.0);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * The strongest neighbours of the dish, best first.
+     */
+    public List<Long> neighbours(Long dishId, int limit) {
+        Neighbours entry = neighbours.get(dishId);
+        return entry != null ? entry.top(limit) : List.of();
+    }
+
+    @Scheduled(fixedDelayString = "${app.recommendations.checkpoint-interval-ms:300000}",
+            initialDelayString = "${app.recommendations.checkpoint-interval-ms:300000}")
+    public void checkpoint() {
+        Map<Pair, DoubleAdder> flushing;
+        lock.writeLock().lock();
+        try {
+            flushing = pending;
+            pending = new ConcurrentHashMap<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (!flushing.isEmpty()) {
+                    List<Object[]> args = new ArrayList<>(flushing.size());
+                    flushing.forEach((pair, weight) -> args.add(new Object[]{
+                            pair.dishId(), pair.neighbourId(), weight.sum(), halfLifeSeconds}));
+                    jdbcTemplate.batchUpdate(UPSERT_SQL, args);
+                }
+                jdbcTemplate.update(PRUNE_SQL, halfLifeSeconds, halfLifeSeconds, storedPerDish, MIN_WEIGHT);
+            });
+        } catch (RuntimeException ex) {
+            log.error("Checkpointing {} co-occurrence pairs failed, keeping them for the next attempt",
+                    flushing.size(), ex);
+            lock.readLock().lock();
+            try {
+                flushing.forEach((pair, weight) ->
+                        pending.computeIfAbsent(pair, key -> new DoubleAdder()).add(weight.sum()));
+            } finally {
+                lock.readLock().unlock();
+            }
+            return;
+        }
+
+        reload();
+    }
+
+    @PreDestroy
+    public void checkpointOnShutdown() {
+        checkpoint();
+    }
+
+    private void reload() {
+        Map<Long, Neighbours> loaded = new ConcurrentHashMap<>();
+        jdbcTemplate.query(LOAD_SQL, rs -> {
+            neighboursOf(loaded, rs.getLong("dish_id")).add(rs.getLong("neighbour_id"), rs.getDouble("decayed"));
+        }, halfLifeSeconds);
+
+        // Orders recorded since the checkpoint started are not in the table yet.
+        lock.writeLock().lock();
+        try {
+            pending.forEach((pair, weight) -> neighboursOf(loaded, pair.dishId()).add(pair.neighbourId(), weight.sum()));
+            neighbours = loaded;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private Neighbours neighboursOf(Map<Long, Neighbours> model, Long dishId) {
+        return model.computeIfAbsent(dishId, id -> new Neighbours(storedPerDish));
+    }
+
+    private record Pair(Long dishId, Long neighbourId) {
+    }
+
+    /**
+     * Bounded neighbour weights of one dish, with space-saving eviction when full.
+     */
+    private static final class Neighbours {
+        private final int capacity;
+        private final Map<Long, Double> weights = new HashMap<>();
+
+        private Neighbours(int capacity) {
+            this.capacity = capacity;
+        }
+
+        synchronized void add(Long neighbourId, double weight) {
+            Double current = weights.get(neighbourId);
+            if (current != null) {
+                weights.put(neighbourId, current + weight);
+                return;
+            }
+            if (weights.size() < capacity) {
+                weights.put(neighbourId, weight);
+                return;
+            }
+            Map.Entry<Long, Double> weakest = weights.entrySet().stream()
+                    .min(Map.Entry.comparingByValue())
+                    .orElseThrow();
+            weights.remove(weakest.getKey());
+            weights.put(neighbourId, weakest.getValue() + weight);
+        }
+
+        synchronized List<Long> top(int limit) {
+            return weights.entrySet().stream()
+                    .sorted(Map.Entry.<Long, Double>comparingByValue(Comparator.reverseOrder())
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(limit)
+                    .map(Map.Entry::getKey)
+                    .toList();
+        }
+    }
+}
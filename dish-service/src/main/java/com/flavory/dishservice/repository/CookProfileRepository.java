@@ -2,6 +2,23 @@ package com.flavory.dishservice.repository;
 
 import com.flavory.dishservice.entity.CookProfile;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 
 public interface CookProfileRepository extends JpaRepository<CookProfile, String> {
+    List<CookProfile> findByGeoCellIn(Collection<Long> geoCells);
+
+    @Query("SELECT cp.cookId AS cookId, cp.firstName AS firstName, cp.lastName AS lastName, " +
+            "cp.profileImageUrl AS profileImageUrl, cp.role AS role, cp.status AS status, " +
+            "cp.updatedAt AS updatedAt FROM CookProfile cp")
+    List<CookSummaryView> findAllSummaries();
+
+    @Query("SELECT cp.cookId AS cookId, cp.firstName AS firstName, cp.lastName AS lastName, " +
+            "cp.profileImageUrl AS profileImageUrl, cp.role AS role, cp.status AS status, " +
+            "cp.updatedAt AS updatedAt FROM CookProfile cp WHERE cp.updatedAt > :since")
+    List<CookSummaryView> findSummariesUpdatedAfter(@Param("since") LocalDateTime since);
 }
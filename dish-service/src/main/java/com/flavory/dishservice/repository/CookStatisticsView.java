@@ -0,0 +1,17 @@
+package com.flavory.dishservice.repository;
+
+import java.math.BigDecimal;
+
+/**
+ * Raw per-cook aggregates returned by {@link DishRepository#aggregateCookStatistics(String)}.
+ * Averages are kept as sum and count so they can be adjusted incrementally.
+ */
+public interface CookStatisticsView {
+    Long getActiveDishes();
+    Long getAvailableDishes();
+    BigDecimal getTotalRevenue();
+    Long getTotalOrders();
+    BigDecimal getRatingSum();
+    Long getRatedDishes();
+    BigDecimal getPriceSum();
+}
@@ -0,0 +1,16 @@
+package com.flavory.dishservice.repository;
+
+import java.time.LocalDateTime;
+
+/**
+ * The cook profile columns shown next to a dish.
+ */
+public interface CookSummaryView {
+    String getCookId();
+    String getFirstName();
+    String getLastName();
+    String getProfileImageUrl();
+    String getRole();
+    String getStatus();
+    LocalDateTime getUpdatedAt();
+}
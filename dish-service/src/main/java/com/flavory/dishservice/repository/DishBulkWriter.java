@@ -0,0 +1,119 @@
+package com.flavory.dishservice.repository;
+
+import com.flavory.dishservice.entity.Dish;
+import com.flavory.dishservice.entity.NutritionInfo;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.GeneratedKeyHolder;
+import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inserts new dishes with JDBC batches. Identity ids keep Hibernate from batching inserts, so
+ * a menu import would otherwise cost one round trip per dish and per collection element.
+ * Bypasses the entity listeners: callers set the audit columns and advance the catalog
+ * generation themselves.
+ */
+@Repository
+@RequiredArgsConstructor
+public class DishBulkWriter {
+    static final String INSERT_DISH_SQL =
+            "INSERT INTO dishes (cook_id, name, description, price, category, allergen_mask, preparation_time, " +
+            "serving_size, available, featured, current_stock, max_daily_stock, average_rating, total_ratings, " +
+            "rating_sum, rating_score, total_orders, total_revenue, calories, protein, carbohydrates, fats, " +
+            "fiber, sodium, sugar, is_active, created_at, updated_at, version) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    static final String INSERT_ALLERGEN_SQL = "INSERT INTO dish_allergens (dish_id, allergen) VALUES (?, ?)";
+
+    static final String INSERT_TAG_SQL = "INSERT INTO dish_tags (dish_id, tag) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts the dishes with their allergens and tags and sets the generated ids on them.
+     */
+    public void insertAll(List<Dish> dishes) {
+        if (dishes.isEmpty()) {
+            return;
+        }
+
+        KeyHolder keys = new GeneratedKeyHolder();
+        jdbcTemplate.batchUpdate(con -> con.prepareStatement(INSERT_DISH_SQL, new String[]{"id"}),
+                new BatchPreparedStatementSetter() {
+                    @Override
+                    public void setValues(PreparedStatement ps, int i) throws SQLException {
+                        bindDish(ps, dishes.get(i));
+                    }
+
+                    @Override
+                    public int getBatchSize() {
+                        return dishes.size();
+                    }
+                }, keys);
+
+        List<Map<String, Object>> generated = keys.getKeyList();
+        for (int i = 0; i < dishes.size(); i++) {
+            dishes.get(i).setId(((Number) generated.get(i).get("id")).longValue());
+        }
+
+        List<Object[]> allergens = new ArrayList<>();
+        List<Object[]> tags = new ArrayList<>();
+        for (Dish dish : dishes) {
+            if (dish.getAllergens() != null) {
+                dish.getAllergens().forEach(allergen -> allergens.add(new Object[]{dish.getId(), allergen.name()}));
+            }
+            if (dish.getTags() != null) {
+                dish.getTags().forEach(tag -> tags.add(new Object[]{dish.getId(), tag}));
+            }
+        }
+        if (!allergens.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_ALLERGEN_SQL, allergens);
+        }
+        if (!tags.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_TAG_SQL, tags);
+        }
+    }
+
+    private static void bindDish(PreparedStatement ps, Dish dish) throws SQLException {
+        NutritionInfo nutrition = dish.getNutritionInfo();
+        int i = 1;
+        ps.setString(i++, dish.getCookId());
+        ps.setString(i++, dish.getName());
+        ps.setString(i++, dish.getDescription());
+        ps.setBigDecimal(i++, dish.getPrice());
+        ps.setString(i++, dish.getCategory().name());
+        ps.setInt(i++, dish.getAllergenMask());
+        ps.setInt(i++, dish.getPreparationTime());
+        ps.setInt(i++, dish.getServingSize());
+        ps.setBoolean(i++, dish.getAvailable());
+        ps.setBoolean(i++, dish.getFeatured());
+        ps.setInt(i++, dish.getCurrentStock());
+        ps.setInt(i++, dish.getMaxDailyStock());
+        ps.setBigDecimal(i++, dish.getAverageRating());
+        ps.setInt(i++, dish.getTotalRatings());
+        ps.setBigDecimal(i++, dish.getRatingSum());
+        ps.setBigDecimal(i++, dish.getRatingScore());
+        ps.setInt(i++, dish.getTotalOrders());
+        ps.setBigDecimal(i++, dish.getTotalRevenue());
+        ps.setBigDecimal(i++, nutrition != null ? nutrition.getCalories() : null);
+        ps.setBigDecimal(i++, nutrition != null ? nutrition.getProtein() : null);
+        ps.setBigDecimal(i++, nutrition != null ? nutrition.getCarbohydrates() : null);
+        ps.setBigDecimal(i++, nutrition != null ? nutrition.getFats() : null);
+        ps.setBigDecimal(i++, nutrition != null ? nutrition.getFiber() : null);
+        ps.setBigDecimal(i++, nutrition != null ? nutrition.getSodium() : null);
+        ps.setBigDecimal(i++, nutrition != null ? nutrition.getSugar() : null);
+        ps.setBoolean(i++, dish.getIsActive());
+        ps.setTimestamp(i++, Timestamp.valueOf(dish.getCreatedAt()));
+        ps.setTimestamp(i++, Timestamp.valueOf(dish.getUpdatedAt()));
+        ps.setLong(i, dish.getVersion());
+    }
+}
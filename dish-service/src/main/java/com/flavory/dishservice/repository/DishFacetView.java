@@ -0,0 +1,15 @@
+package com.flavory.dishservice.repository;
+
+import com.flavory.dishservice.entity.Dish;
+
+import java.math.BigDecimal;
+
+public interface DishFacetView {
+    Long getId();
+    Dish.DishCategory getCategory();
+    Integer getAllergenMask();
+    BigDecimal getPrice();
+    Integer getPreparationTime();
+    BigDecimal getAverageRating();
+    Boolean getFeatured();
+}
@@ -0,0 +1,6 @@
+package com.flavory.dishservice.repository;
+
+public interface DishImageView {
+    Long getDishId();
+    String getUrl();
+}
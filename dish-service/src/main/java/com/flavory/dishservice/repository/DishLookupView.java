@@ -0,0 +1,20 @@
+package com.flavory.dishservice.repository;
+
+import com.flavory.dishservice.entity.Dish;
+
+import java.math.BigDecimal;
+
+/**
+ * The scalar columns order-service needs to validate and price a checkout.
+ */
+public interface DishLookupView {
+    Long getId();
+    String getCookId();
+    String getName();
+    String getDescription();
+    BigDecimal getPrice();
+    Dish.DishCategory getCategory();
+    Integer getPreparationTime();
+    Boolean getAvailable();
+    Integer getCurrentStock();
+}
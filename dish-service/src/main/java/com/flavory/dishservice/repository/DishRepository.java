@@ -3,7 +3,6 @@ package com.flavory.dishservice.repository;
 import com.flavory.dishservice.entity.Dish;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
-import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
@@ -11,6 +10,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,7 +19,16 @@ public interface DishRepository extends JpaRepository<Dish, Long>, JpaSpecificat
     boolean existsByCookIdAndName(String cookId, String name);
     boolean existsByCookIdAndNameAndIdNot(String cookId, String name, Long id);
 
-    Optional<Dish> findByIdAndIsActiveTrue(Long id);
+    @Query("SELECT d.name FROM Dish d WHERE d.cookId = :cookId AND d.name IN :names")
+    List<String> findNamesByCookIdAndNameIn(@Param("cookId") String cookId, @Param("names") Collection<String> names);
+
+    /**
+     * Loads the dish from its row, never from the second-level cache. Stock changes made on other
+     * replicas are not broadcast, so stock writes must not start from a cached copy.
+     */
+    @Query("SELECT d FROM Dish d WHERE d.id = :id")
+    Optional<Dish> findCurrentById(@Param("id") Long id);
+
     Optional<Dish> findByIdAndCookId(Long id, String cookId);
     Page<Dish> findByCookIdAndIsActiveTrue(String cookId, Pageable pageable);
 
@@ -36,36 +45,67 @@ public interface DishRepository extends JpaRepository<Dish, Long>, JpaSpecificat
     Page<Dish> findByCategory(@Param("category") Dish.DishCategory category, Pageable pageable);
 
     @Query("SELECT d FROM Dish d WHERE d.isActive = true AND d.available = true " +
-            "AND d.currentStock > 0 AND d.totalRatings >= 5 " +
-            "ORDER BY d.averageRating DESC, d.totalRatings DESC")
+            "AND d.currentStock > 0 AND d.totalRatings > 0 " +
+            "ORDER BY d.ratingScore DESC, d.id DESC")
     Page<Dish> findTopRatedDishes(Pageable pageable);
 
-    @EntityGraph(attributePaths = {"images"})
-    @Query("SELECT DISTINCT d FROM Dish d WHERE d.id IN :ids")
-    List<Dish> findAllByIdsWithImages(@Param("ids") List<Long> ids);
+    @Query("SELECT d FROM Dish d WHERE d.category = :category " +
+            "AND d.isActive = true AND d.available = true " +
+            "AND d.currentStock > 0 AND d.totalRatings > 0 " +
+            "ORDER BY d.ratingScore DESC, d.id DESC")
+    Page<Dish> findTopRatedDishesByCategory(@Param("category") Dish.DishCategory category, Pageable pageable);
 
-    @Query("SELECT COUNT(d) FROM Dish d WHERE d.cookId = :cookId AND d.isActive = true")
-    Long countActiveDishesForCook(@Param("cookId") String cookId);
+    @Query("SELECT d FROM Dish d WHERE d.cookId IN :cookIds " +
+            "AND d.isActive = true AND d.available = true AND d.currentStock > 0")
+    List<Dish> findAvailableByCookIds(@Param("cookIds") Collection<String> cookIds);
 
-    @Query("SELECT COUNT(d) FROM Dish d WHERE d.cookId = :cookId AND d.isActive = true")
-    Long countTotalDishes(@Param("cookId") String cookId);
+    @Query("SELECT d.id AS id, d.cookId AS cookId, d.name AS name, d.description AS description, " +
+            "d.price AS price, d.category AS category, d.preparationTime AS preparationTime, " +
+            "d.available AS available, d.currentStock AS currentStock " +
+            "FROM Dish d WHERE d.id IN :ids")
+    List<DishLookupView> findLookupViewsByIds(@Param("ids") Collection<Long> ids);
 
-    @Query("SELECT COUNT(d) FROM Dish d WHERE d.cookId = :cookId " +
-            "AND d.isActive = true AND d.available = true AND d.currentStock > 0")
-    Long countAvailableDishes(@Param("cookId") String cookId);
+    @Query("SELECT d.id AS dishId, i AS url FROM Dish d JOIN d.images i " +
+            "WHERE d.id IN :ids ORDER BY d.id, INDEX(i)")
+    List<DishImageView> findImagesByDishIds(@Param("ids") Collection<Long> ids);
+
+    @Query("SELECT d.id AS id, d.name AS name, d.category AS category, d.totalOrders AS totalOrders " +
+            "FROM Dish d WHERE d.isActive = true AND d.available = true AND d.currentStock > 0")
+    List<DishSuggestionView> findSuggestionViews();
+
+    @Query("SELECT d.id AS dishId, t AS tag FROM Dish d JOIN d.tags t " +
+            "WHERE d.isActive = true AND d.available = true AND d.currentStock > 0")
+    List<DishTagView> findSuggestionTags();
+
+    @Query("SELECT d.id AS id, d.category AS category, d.allergenMask AS allergenMask, d.price AS price, " +
+            "d.preparationTime AS preparationTime, d.averageRating AS averageRating, d.featured AS featured " +
+            "FROM Dish d WHERE d.isActive = true AND d.available = true AND d.currentStock > 0")
+    List<DishFacetView> findFacetViews();
 
-    @Query("SELECT COALESCE(SUM(d.totalRevenue), 0) FROM Dish d WHERE d.cookId = :cookId")
-    BigDecimal getTotalRevenue(@Param("cookId") String cookId);
+    @Query("SELECT DISTINCT d.id FROM Dish d LEFT JOIN d.tags t " +
+            "WHERE d.isActive = true AND d.available = true AND d.currentStock > 0 " +
+            "AND (LOWER(d.name) LIKE :pattern OR LOWER(d.description) LIKE :pattern OR LOWER(t) LIKE :pattern)")
+    List<Long> findOrderableIdsMatching(@Param("pattern") String pattern);
 
-    @Query("SELECT COALESCE(SUM(d.totalOrders), 0) FROM Dish d WHERE d.cookId = :cookId")
-    Long getTotalOrders(@Param("cookId") String cookId);
+    @Query("SELECT DISTINCT i FROM Dish d JOIN d.images i WHERE i IN :urls AND d.id <> :dishId")
+    List<String> findImagesReferencedByOtherDishes(@Param("urls") Collection<String> urls,
+                                                   @Param("dishId") Long dishId);
 
-    @Query("SELECT COALESCE(AVG(d.averageRating), 0) FROM Dish d " +
-            "WHERE d.cookId = :cookId AND d.totalRatings > 0")
-    BigDecimal getAverageRating(@Param("cookId") String cookId);
+    @Query("SELECT DISTINCT i FROM Dish d JOIN d.images i WHERE i IN :urls")
+    List<String> findReferencedImages(@Param("urls") Collection<String> urls);
+
+    @Query("SELECT COUNT(d) FROM Dish d WHERE d.cookId = :cookId AND d.isActive = true")
+    Long countActiveDishesForCook(@Param("cookId") String cookId);
 
-    @Query("SELECT COALESCE(AVG(d.price), 0) FROM Dish d " +
-            "WHERE d.cookId = :cookId AND d.isActive = true")
-    BigDecimal getAveragePrice(@Param("cookId") String cookId);
+    @Query("SELECT COALESCE(SUM(CASE WHEN d.isActive = true THEN 1 ELSE 0 END), 0) AS activeDishes, " +
+            "COALESCE(SUM(CASE WHEN d.isActive = true AND d.available = true AND d.currentStock > 0 " +
+            "THEN 1 ELSE 0 END), 0) AS availableDishes, " +
+            "COALESCE(SUM(d.totalRevenue), 0) AS totalRevenue, " +
+            "COALESCE(SUM(d.totalOrders), 0) AS totalOrders, " +
+            "COALESCE(SUM(CASE WHEN d.totalRatings > 0 THEN d.averageRating END), 0) AS ratingSum, " +
+            "COALESCE(SUM(CASE WHEN d.totalRatings > 0 THEN 1 ELSE 0 END), 0) AS ratedDishes, " +
+            "COALESCE(SUM(CASE WHEN d.isActive = true THEN d.price END), 0) AS priceSum " +
+            "FROM Dish d WHERE d.cookId = :cookId")
+    CookStatisticsView aggregateCookStatistics(@Param("cookId") String cookId);
 }
 
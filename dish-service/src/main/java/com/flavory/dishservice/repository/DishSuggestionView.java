@@ -0,0 +1,10 @@
+package com.flavory.dishservice.repository;
+
+import com.flavory.dishservice.entity.Dish;
+
+public interface DishSuggestionView {
+    Long getId();
+    String getName();
+    Dish.DishCategory getCategory();
+    Integer getTotalOrders();
+}
@@ -0,0 +1,6 @@
+package com.flavory.dishservice.repository;
+
+public interface DishTagView {
+    Long getDishId();
+    String getTag();
+}
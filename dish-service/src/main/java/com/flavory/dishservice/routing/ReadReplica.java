@@ -0,0 +1,45 @@
+package com.flavory.dishservice.routing;
+
+import javax.sql.DataSource;
+
+/**
+ * One read replica with its own connection pool and its last measured replication lag.
+ */
+public class ReadReplica {
+    private final String name;
+    private final DataSource dataSource;
+    private volatile double lagMillis = Double.NaN;
+
+    public ReadReplica(String name, DataSource dataSource) {
+        this.name = name;
+        this.dataSource = dataSource;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public DataSource getDataSource() {
+        return dataSource;
+    }
+
+    /**
+     * Replay lag from the last check, or {@code NaN} when it is unknown because the replica has
+     * not been checked yet or could not be reached.
+     */
+    public double getLagMillis() {
+        return lagMillis;
+    }
+
+    public void updateLag(double lagMillis) {
+        this.lagMillis = lagMillis;
+    }
+
+    public void markUnavailable() {
+        this.lagMillis = Double.NaN;
+    }
+
+    public boolean isWithin(long maxLagMillis) {
+        return lagMillis <= maxLagMillis;
+    }
+}
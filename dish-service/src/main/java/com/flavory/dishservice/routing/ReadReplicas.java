@@ -0,0 +1,143 @@
+package com.flavory.dishservice.routing;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The configured read replicas, each with its own Hikari pool. Replication lag is measured
+ * every {@code lag-check-interval-ms}; a replica is only handed out while its lag is known and
+ * at most {@code max-lag-ms}. Keep {@code max-lag-ms} below
+ * {@code app.l2-cache.invalidation-delay-ms}, so a read from a replica cannot put a row back into
+ * the second-level cache after its second eviction. With no replica urls configured every read
+ * goes to the primary.
+ */
+@Slf4j
+@Component
+public class ReadReplicas {
+    static final String LAG_SQL =
+            "SELECT CASE " +
+            "WHEN NOT pg_is_in_recovery() THEN 0 " +
+            "WHEN pg_last_wal_receive_lsn() = pg_last_wal_replay_lsn() THEN 0 " +
+            "ELSE COALESCE(EXTRACT(EPOCH FROM now() - pg_last_xact_replay_timestamp()) * 1000, 'NaN') " +
+            "END::float8";
+
+    private final List<ReadReplica> replicas;
+    private final long maxLagMillis;
+    private final AtomicInteger next = new AtomicInteger();
+
+    @Autowired
+    public ReadReplicas(@Value("${app.datasource.replica.urls:}") String urls,
+                        @Value("${app.datasource.replica.username:${spring.datasource.username:}}") String username,
+                        @Value("${app.datasource.replica.password:${spring.datasource.password:}}") String password,
+                        @Value("${app.datasource.replica.maximum-pool-size:20}") int maximumPoolSize,
+                        @Value("${app.datasource.replica.minimum-idle:5}") int minimumIdle,
+                        @Value("${app.datasource.replica.connection-timeout-ms:2000}") long connectionTimeoutMs,
+                        @Value("${app.datasource.replica.max-lag-ms:1000}") long maxLagMillis,
+                        MeterRegistry meterRegistry) {
+        this(createPools(urls, username, password, maximumPoolSize, minimumIdle, connectionTimeoutMs, meterRegistry),
+                maxLagMillis);
+        replicas.forEach(replica -> Gauge.builder("dish.datasource.replica.lag", replica, ReadReplica::getLagMillis)
+                .tag("replica", replica.getName())
+                .baseUnit("milliseconds")
+                .register(meterRegistry));
+    }
+
+    public ReadReplicas(List<ReadReplica> replicas, long maxLagMillis) {
+        this.replicas = List.copyOf(replicas);
+        this.maxLagMillis = maxLagMillis;
+    }
+
+    public boolean isEmpty() {
+        return replicas.isEmpty();
+    }
+
+    /**
+     * The next replica in round-robin order whose lag is within bounds, or {@code null} when
+     * none is.
+     */
+    public ReadReplica pick() {
+        int size = replicas.size();
+        if (size == 0) {
+            return null;
+        }
+        int start = Math.floorMod(next.getAndIncrement(), size);
+        for (int i = 0; i < size; i++) {
+            ReadReplica replica = replicas.get((start + i) % size);
+            if (replica.isWithin(maxLagMillis)) {
+                return replica;
+            }
+        }
+        return null;
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.lag-check-interval-ms:1000}", initialDelay = 0)
+    public void checkLag() {
+        for (ReadReplica replica : replicas) {
+            try {
+                Double lag = new JdbcTemplate(replica.getDataSource()).queryForObject(LAG_SQL, Double.class);
+                replica.updateLag(lag != null ? lag : Double.NaN);
+            } catch (RuntimeException ex) {
+                if (!Double.isNaN(replica.getLagMillis())) {
+                    log.warn("Read replica {} is unreachable, reading from the primary", replica.getName(), ex);
+                }
+                replica.markUnavailable();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        for (ReadReplica replica : replicas) {
+            if (replica.getDataSource() instanceof Closeable closeable) {
+                try {
+                    closeable.close();
+                } catch (IOException ex) {
+                    log.warn("Closing pool of read replica {} failed", replica.getName(), ex);
+                }
+            }
+        }
+    }
+
+    private static List<ReadReplica> createPools(String urls, String username, String password,
+                                                 int maximumPoolSize, int minimumIdle, long connectionTimeoutMs,
+                                                 MeterRegistry meterRegistry) {
+        List<ReadReplica> replicas = new ArrayList<>();
+        List<String> jdbcUrls = Arrays.stream(urls.split(","))
+                .map(String::trim)
+                .filter(url -> !url.isEmpty())
+                .toList();
+        for (int i = 0; i < jdbcUrls.size(); i++) {
+            HikariConfig config = new HikariConfig();
+            config.setPoolName("dish-replica-" + (i + 1));
+            config.setJdbcUrl(jdbcUrls.get(i));
+            config.setUsername(username);
+            config.setPassword(password);
+            config.setReadOnly(true);
+            config.setMaximumPoolSize(maximumPoolSize);
+            config.setMinimumIdle(minimumIdle);
+            config.setConnectionTimeout(connectionTimeoutMs);
+            // Do not fail startup while a replica is still being provisioned.
+            config.setInitializationFailTimeout(-1);
+            config.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+            replicas.add(new ReadReplica(config.getPoolName(), new HikariDataSource(config)));
+        }
+        return replicas;
+    }
+}
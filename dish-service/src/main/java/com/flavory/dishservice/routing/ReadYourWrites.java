@@ -0,0 +1,79 @@
+package com.flavory.dishservice.routing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Sends a user's reads to the primary for {@code read-your-writes-ms} after they committed a
+ * write, so a cook sees their own change even while the replicas catch up. Pins are kept per
+ * authenticated user and per replica of this service; writes without a user, such as the event
+ * listeners, pin nothing.
+ */
+@Component
+public class ReadYourWrites {
+    private final Clock clock;
+    private final long windowMillis;
+    private final Map<String, Long> pinnedUntil = new ConcurrentHashMap<>();
+
+    public ReadYourWrites(@Value("${app.datasource.replica.read-your-writes-ms:5000}") long windowMillis) {
+        this(Clock.systemUTC(), windowMillis);
+    }
+
+    public ReadYourWrites(Clock clock, long windowMillis) {
+        this.clock = clock;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * Pins the current user once the current transaction commits. Several calls within one
+     * transaction register a single pin.
+     */
+    public void pinAfterCommit() {
+        String user = currentUser();
+        if (user == null || !TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(this)) {
+            return;
+        }
+
+        TransactionSynchronizationManager.bindResource(this, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(ReadYourWrites.this);
+                if (status == STATUS_COMMITTED) {
+                    pinnedUntil.put(user, clock.millis() + windowMillis);
+                }
+            }
+        });
+    }
+
+    public boolean isPinned() {
+        String user = currentUser();
+        if (user == null) {
+            return false;
+        }
+        Long until = pinnedUntil.get(user);
+        return until != null && until > clock.millis();
+    }
+
+    @Scheduled(fixedDelayString = "${app.datasource.replica.read-your-writes-ms:5000}")
+    public void expire() {
+        long now = clock.millis();
+        pinnedUntil.values().removeIf(until -> until <= now);
+    }
+
+    private static String currentUser() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
+}
@@ -0,0 +1,38 @@
+package com.flavory.dishservice.routing;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Marks the current read-only transaction as one that may be served by a read replica. Being
+ * read-only is not enough: a read whose validator or cursor is taken from the primary, such as
+ * the catalog listings and the sync feed, must not pair it with a body from a lagging replica.
+ *
+ * <p>Call {@link #allow()} before the transaction's first statement; the mark is dropped when
+ * the transaction completes.
+ */
+public final class ReplicaReads {
+    private static final Object KEY = new Object();
+
+    private ReplicaReads() {
+    }
+
+    public static void allow() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()
+                || TransactionSynchronizationManager.hasResource(KEY)) {
+            return;
+        }
+
+        TransactionSynchronizationManager.bindResource(KEY, Boolean.TRUE);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                TransactionSynchronizationManager.unbindResourceIfPossible(KEY);
+            }
+        });
+    }
+
+    public static boolean isAllowed() {
+        return TransactionSynchronizationManager.hasResource(KEY);
+    }
+}
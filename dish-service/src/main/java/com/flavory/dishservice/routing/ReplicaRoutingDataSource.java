@@ -0,0 +1,73 @@
+package com.flavory.dishservice.routing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Hands out replica connections to read-only transactions marked with {@link ReplicaReads} and
+ * primary connections to everything else. A marked read goes to the primary instead when the
+ * current user is pinned after a write, when no replica is within the lag bound, or when the
+ * chosen replica refuses the connection.
+ *
+ * <p>The transaction's read-only flag is only set once it has begun, so this data source must sit
+ * behind a {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, which asks
+ * for the connection at the first statement.
+ */
+@Slf4j
+public class ReplicaRoutingDataSource extends AbstractDataSource {
+    private final DataSource primary;
+    private final ReadReplicas replicas;
+    private final ReadYourWrites readYourWrites;
+    private final Counter replicaReads;
+    private final Counter primaryReads;
+
+    public ReplicaRoutingDataSource(DataSource primary, ReadReplicas replicas, ReadYourWrites readYourWrites,
+                                    MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = replicas;
+        this.readYourWrites = readYourWrites;
+        this.replicaReads = meterRegistry.counter("dish.datasource.reads", "target", "replica");
+        this.primaryReads = meterRegistry.counter("dish.datasource.reads", "target", "primary");
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        if (replicas.isEmpty() || !TransactionSynchronizationManager.isActualTransactionActive()) {
+            return primary.getConnection();
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            readYourWrites.pinAfterCommit();
+            return primary.getConnection();
+        }
+        if (!ReplicaReads.isAllowed()) {
+            primaryReads.increment();
+            return primary.getConnection();
+        }
+
+        ReadReplica replica = readYourWrites.isPinned() ? null : replicas.pick();
+        if (replica != null) {
+            try {
+                Connection connection = replica.getDataSource().getConnection();
+                replicaReads.increment();
+                return connection;
+            } catch (SQLException ex) {
+                log.warn("No connection from read replica {}, reading from the primary", replica.getName(), ex);
+                replica.markUnavailable();
+            }
+        }
+        primaryReads.increment();
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return primary.getConnection(username, password);
+    }
+}
@@ -0,0 +1,181 @@
+package com.flavory.dishservice.scheduler;
+
+import com.flavory.dishservice.repository.DishRepository;
+import com.flavory.dishservice.utils.ImageVariantUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Removes dish photos that no row in {@code dish_images} points at any more: files left behind
+ * by rolled back or crashed uploads, replaced images and variants whose original is gone.
+ * Each run only looks at one leading hex digit of the file names and at most {@code batch-size}
+ * files, so a single pass over the whole directory is spread across sixteen runs. Files are taken
+ * in name order from where the previous run of the same prefix stopped, so a prefix holding more
+ * than a batch of live files cannot hide the orphans sorted behind them.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.file.gc.enabled", havingValue = "true", matchIfMissing = true)
+public class ImageGarbageCollectionJob {
+    private static final String URL_PREFIX = "/uploads/dishes/";
+    private static final String HEX_DIGITS = "0123456789abcdef";
+    private static final String STAGING_KEY = "staging";
+
+    private final DishRepository dishRepository;
+    private final Path storageLocation;
+    private final Path stagingLocation;
+    private final int batchSize;
+    private final Duration gracePeriod;
+    private final AtomicInteger nextPrefix = new AtomicInteger();
+    private final Map<String, String> resumeAfter = new ConcurrentHashMap<>();
+
+    public ImageGarbageCollectionJob(DishRepository dishRepository,
+                                     @Value("${app.file.upload-dir:/uploads/dishes}") String uploadDir,
+                                     @Value("${app.file.staging-dir:/uploads/.staging/dishes}") String stagingDir,
+                                     @Value("${app.file.gc.batch-size:500}") int batchSize,
+                                     @Value("${app.file.gc.grace-period-minutes:60}") long gracePeriodMinutes) {
+        this.dishRepository = dishRepository;
+        this.storageLocation = Paths.get(uploadDir).toAbsolutePath().normalize();
+        this.stagingLocation = Paths.get(stagingDir).toAbsolutePath().normalize();
+        this.batchSize = batchSize;
+        this.gracePeriod = Duration.ofMinutes(gracePeriodMinutes);
+    }
+
+    @Scheduled(cron = "${app.file.gc.cron:0 */15 * * * *}")
+    public void collectGarbage() {
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        char prefix = HEX_DIGITS.charAt(Math.floorMod(nextPrefix.getAndIncrement(), HEX_DIGITS.length()));
+
+        try {
+            int staged = deleteAll(listStale(stagingLocation, "*", STAGING_KEY, cutoff));
+            int orphaned = purgeUnreferenced(prefix, cutoff);
+
+            if (staged + orphaned > 0) {
+                log.info("Image GC removed {} stale staged and {} unreferenced files (prefix '{}')",
+                        staged, orphaned, prefix);
+            }
+        } catch (IOException ex) {
+            log.error("Image GC failed for prefix '{}'", prefix, ex);
+        }
+    }
+
+    private int purgeUnreferenced(char prefix, Instant cutoff) throws IOException {
+        Map<String, Path> originalsByUrl = new LinkedHashMap<>();
+        List<Path> variants = new ArrayList<>();
+
+        for (Path file : listStale(storageLocation, prefix + "*", String.valueOf(prefix), cutoff)) {
+            String filename = file.getFileName().toString();
+            if (isVariant(filename)) {
+                variants.add(file);
+            } else {
+                originalsByUrl.put(URL_PREFIX + filename, file);
+            }
+        }
+
+        int deleted = 0;
+        if (!originalsByUrl.isEmpty()) {
+            Set<String> referenced = new HashSet<>(dishRepository.findReferencedImages(originalsByUrl.keySet()));
+            List<Path> orphans = originalsByUrl.entrySet().stream()
+                    .filter(entry -> !referenced.contains(entry.getKey()))
+                    .map(Map.Entry::getValue)
+                    .toList();
+            deleted += deleteAll(orphans);
+        }
+
+        List<Path> orphanVariants = new ArrayList<>();
+        for (Path variant : variants) {
+            if (!hasOriginal(variant)) {
+                orphanVariants.add(variant);
+            }
+        }
+        return deleted + deleteAll(orphanVariants);
+    }
+
+    /**
+     * Returns the stale files among the next {@code batch-size} names after the cursor stored under
+     * {@code cursorKey}, then moves the cursor past them, wrapping around once the listing runs out.
+     */
+    private List<Path> listStale(Path directory, String glob, String cursorKey, Instant cutoff) throws IOException {
+        List<Path> stale = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return stale;
+        }
+
+        String after = resumeAfter.get(cursorKey);
+        TreeSet<String> window = new TreeSet<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, glob)) {
+            for (Path file : stream) {
+                String filename = file.getFileName().toString();
+                if (after != null && filename.compareTo(after) <= 0) {
+                    continue;
+                }
+                window.add(filename);
+                if (window.size() > batchSize) {
+                    window.pollLast();
+                }
+            }
+        }
+
+        if (window.size() < batchSize) {
+            resumeAfter.remove(cursorKey);
+        } else {
+            resumeAfter.put(cursorKey, window.last());
+        }
+
+        for (String filename : window) {
+            Path file = directory.resolve(filename);
+            if (Files.isRegularFile(file) && Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                stale.add(file);
+            }
+        }
+        return stale;
+    }
+
+    private boolean isVariant(String filename) {
+        int underscore = filename.indexOf('_');
+        return underscore > 0 && ImageVariantUtil.isContentHashName(filename.substring(0, underscore));
+    }
+
+    private boolean hasOriginal(Path variant) throws IOException {
+        String filename = variant.getFileName().toString();
+        String hash = filename.substring(0, filename.indexOf('_'));
+
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(storageLocation, hash + ".*")) {
+            return stream.iterator().hasNext();
+        }
+    }
+
+    private int deleteAll(List<Path> files) {
+        int deleted = 0;
+        for (Path file : files) {
+            try {
+                if (Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            } catch (IOException ex) {
+                log.warn("Could not delete {}", file, ex);
+            }
+        }
+        return deleted;
+    }
+}
@@ -0,0 +1,148 @@
+package com.flavory.dishservice.scheduler;
+
+import com.flavory.dishservice.cache.CatalogGeneration;
+import com.flavory.dishservice.cache.CookStatisticsCache;
+import com.flavory.dishservice.cache.DishLookupCache;
+import com.flavory.dishservice.cache.SecondLevelCache;
+import com.flavory.dishservice.event.outbound.DishAvailabilityChangedEvent;
+import com.flavory.dishservice.messaging.publisher.DishEventPublisher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Restores {@code current_stock} from {@code max_daily_stock} once per local day, after the
+ * cook's reset hour in the cook's time zone (falling back to the configured defaults). Dishes
+ * are claimed in chunks with {@code FOR UPDATE SKIP LOCKED}, so replicas running the job at
+ * the same time split the work, and {@code stock_replenished_on} prevents a second reset on
+ * the same day. Only dishes that went unavailable by selling out are made available again; rows
+ * from before {@code sold_out} existed fall back to an empty stock as the sign.
+ */
+@Slf4j
+@Service
+@ConditionalOnProperty(name = "app.stock.replenish.enabled", havingValue = "true", matchIfMissing = true)
+public class StockReplenishmentJob {
+    static final String REPLENISH_SQL =
+            "WITH batch AS (" +
+            "  SELECT d.id, d.available AS was_available, " +
+            "         (now() AT TIME ZONE COALESCE(cp.time_zone, ?))::date AS local_date " +
+            "  FROM dishes d LEFT JOIN cook_profiles cp ON cp.cook_id = d.cook_id " +
+            "  WHERE d.is_active = true AND d.max_daily_stock > 0 " +
+            "    AND EXTRACT(HOUR FROM now() AT TIME ZONE COALESCE(cp.time_zone, ?)) " +
+            "        >= COALESCE(cp.stock_reset_hour, ?) " +
+            "    AND (d.stock_replenished_on IS NULL " +
+            "         OR d.stock_replenished_on < (now() AT TIME ZONE COALESCE(cp.time_zone, ?))::date) " +
+            "  ORDER BY d.id LIMIT ? " +
+            "  FOR UPDATE OF d SKIP LOCKED) " +
+            "UPDATE dishes d SET current_stock = d.max_daily_stock, " +
+            "  available = CASE WHEN COALESCE(d.sold_out, d.current_stock = 0) THEN true ELSE d.available END, " +
+            "  sold_out = false, " +
+            "  stock_replenished_on = b.local_date, " +
+            "  version = d.version + 1, " +
+            "  updated_at = now() " +
+            "FROM batch b WHERE d.id = b.id " +
+            "RETURNING d.id, d.cook_id, b.was_available, d.available, d.current_stock";
+
+    private static final RowMapper<ReplenishedDish> ROW_MAPPER = (rs, rowNum) -> new ReplenishedDish(
+            rs.getLong("id"),
+            rs.getString("cook_id"),
+            rs.getBoolean("was_available"),
+            rs.getBoolean("available"),
+            rs.getInt("current_stock")
+    );
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final DishEventPublisher eventPublisher;
+    private final CookStatisticsCache cookStatisticsCache;
+    private final CatalogGeneration catalogGeneration;
+    private final DishLookupCache dishLookupCache;
+    private final SecondLevelCache secondLevelCache;
+    private final String defaultTimeZone;
+    private final int defaultResetHour;
+    private final int chunkSize;
+
+    public StockReplenishmentJob(JdbcTemplate jdbcTemplate,
+                                 PlatformTransactionManager transactionManager,
+                                 DishEventPublisher eventPublisher,
+                                 CookStatisticsCache cookStatisticsCache,
+                                 CatalogGeneration catalogGeneration,
+                                 DishLookupCache dishLookupCache,
+                                 SecondLevelCache secondLevelCache,
+                                 @Value("${app.stock.replenish.default-time-zone:Europe/Warsaw}") String defaultTimeZone,
+                                 @Value("${app.stock.replenish.default-reset-hour:6}") int defaultResetHour,
+                                 @Value("${app.stock.replenish.chunk-size:500}") int chunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.eventPublisher = eventPublisher;
+        this.cookStatisticsCache = cookStatisticsCache;
+        this.catalogGeneration = catalogGeneration;
+        this.dishLookupCache = dishLookupCache;
+        this.secondLevelCache = secondLevelCache;
+        this.defaultTimeZone = defaultTimeZone;
+        this.defaultResetHour = defaultResetHour;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(cron = "${app.stock.replenish.cron:0 */15 * * * *}")
+    public void replenishDailyStock() {
+        List<DishAvailabilityChangedEvent> flipped = new ArrayList<>();
+        Set<String> touchedCooks = new HashSet<>();
+        int replenished = 0;
+
+        List<ReplenishedDish> chunk;
+        do {
+            chunk = transactionTemplate.execute(status -> jdbcTemplate.query(REPLENISH_SQL, ROW_MAPPER,
+                    defaultTimeZone, defaultTimeZone, defaultResetHour, defaultTimeZone, chunkSize));
+            if (chunk == null) {
+                break;
+            }
+
+            replenished += chunk.size();
+            for (ReplenishedDish dish : chunk) {
+                dishLookupCache.invalidate(dish.id());
+                secondLevelCache.evictDish(dish.id());
+                touchedCooks.add(dish.cookId());
+                if (dish.wasAvailable() != dish.available()) {
+                    flipped.add(toEvent(dish));
+                }
+            }
+        } while (chunk.size() == chunkSize);
+
+        if (replenished == 0) {
+            return;
+        }
+
+        touchedCooks.forEach(cookStatisticsCache::evict);
+        catalogGeneration.markChanged();
+        eventPublisher.publishDishAvailabilityChangedBatch(flipped);
+        log.info("Replenished stock for {} dishes, {} became available", replenished, flipped.size());
+    }
+
+    private DishAvailabilityChangedEvent toEvent(ReplenishedDish dish) {
+        return DishAvailabilityChangedEvent.builder()
+                .dishId(dish.id())
+                .cookId(dish.cookId())
+                .available(dish.available())
+                .currentStock(dish.currentStock())
+                .reason("DAILY_RESTOCK")
+                .changedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private record ReplenishedDish(Long id, String cookId, boolean wasAvailable, boolean available,
+                                   int currentStock) {
+    }
+}
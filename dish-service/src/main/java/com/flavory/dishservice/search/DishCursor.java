@@ -0,0 +1,42 @@
+package com.flavory.dishservice.search;
+
+import com.flavory.dishservice.entity.Dish;
+import com.flavory.dishservice.exception.BusinessValidationException;
+import org.springframework.data.domain.Sort;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position after the last dish of a keyset page: the sort it was taken under, the sort value and
+ * the id of that dish. Serialized as an opaque URL-safe token.
+ */
+public record DishCursor(DishSort sort, Sort.Direction direction, Comparable<?> value, Long id) {
+    private static final String SEPARATOR = "|";
+
+    public static DishCursor after(Dish dish, DishSort sort, Sort.Direction direction) {
+        return new DishCursor(sort, direction, sort.valueOf(dish), dish.getId());
+    }
+
+    public String encode() {
+        String raw = sort.getKey() + SEPARATOR + direction.name() + SEPARATOR + value + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a token issued for the given sort. A token from another sort or direction, or one
+     * that does not parse, is rejected rather than silently restarting the listing.
+     */
+    public static DishCursor decode(String token, DishSort sort, Sort.Direction direction) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\" + SEPARATOR, -1);
+            if (parts.length == 4 && parts[0].equals(sort.getKey()) && parts[1].equals(direction.name())) {
+                return new DishCursor(sort, direction, sort.parse(parts[2]), Long.valueOf(parts[3]));
+            }
+        } catch (RuntimeException ignored) {
+            // Reported below, like any other token that does not belong to this listing.
+        }
+        throw new BusinessValidationException("cursor", "Nieprawidłowy kursor dla wybranego sortowania");
+    }
+}
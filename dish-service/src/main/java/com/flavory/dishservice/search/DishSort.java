@@ -0,0 +1,80 @@
+package com.flavory.dishservice.search;
+
+import com.flavory.dishservice.entity.Dish;
+import com.flavory.dishservice.exception.BusinessValidationException;
+import lombok.Getter;
+import org.springframework.data.domain.Sort;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Sort orders the public catalog accepts. Each one orders by a single column with the id as
+ * tie-breaker, in the same direction, so it is served by the matching composite index on
+ * {@code dishes} in either direction and can be resumed from a {@link DishCursor}.
+ */
+@Getter
+public enum DishSort {
+    NEWEST("newest", "createdAt", Sort.Direction.DESC, Dish::getCreatedAt, LocalDateTime::parse),
+    PRICE("price", "price", Sort.Direction.ASC, Dish::getPrice, BigDecimal::new),
+    RATING("rating", "ratingScore", Sort.Direction.DESC, Dish::getRatingScore, BigDecimal::new),
+    POPULARITY("popularity", "totalOrders", Sort.Direction.DESC, Dish::getTotalOrders, Integer::valueOf);
+
+    private final String key;
+    private final String property;
+    private final Sort.Direction defaultDirection;
+    private final Function<Dish, ? extends Comparable<?>> extractor;
+    private final Function<String, ? extends Comparable<?>> parser;
+
+    DishSort(String key, String property, Sort.Direction defaultDirection,
+             Function<Dish, ? extends Comparable<?>> extractor,
+             Function<String, ? extends Comparable<?>> parser) {
+        this.key = key;
+        this.property = property;
+        this.defaultDirection = defaultDirection;
+        this.extractor = extractor;
+        this.parser = parser;
+    }
+
+    /**
+     * Resolves a client-supplied sort key. Entity property names are accepted as well, as
+     * earlier clients sent those; anything else is rejected.
+     */
+    public static DishSort resolve(String value) {
+        if (value == null || value.isBlank()) {
+            return NEWEST;
+        }
+        String normalized = value.trim().toLowerCase(Locale.ROOT);
+        if ("averagerating".equals(normalized)) {
+            return RATING;
+        }
+        return Arrays.stream(values())
+                .filter(sort -> sort.key.equals(normalized) || sort.property.equalsIgnoreCase(normalized))
+                .findFirst()
+                .orElseThrow(() -> new BusinessValidationException("sortBy",
+                        "Nieobsługiwane sortowanie, dozwolone: newest, price, rating, popularity"));
+    }
+
+    public Sort.Direction direction(String value) {
+        if (value == null || value.isBlank()) {
+            return defaultDirection;
+        }
+        return Sort.Direction.fromOptionalString(value)
+                .orElseThrow(() -> new BusinessValidationException("direction", "Dozwolone wartości: ASC, DESC"));
+    }
+
+    public Sort toSort(Sort.Direction direction) {
+        return Sort.by(direction, property).and(Sort.by(direction, "id"));
+    }
+
+    Comparable<?> valueOf(Dish dish) {
+        return extractor.apply(dish);
+    }
+
+    Comparable<?> parse(String value) {
+        return parser.apply(value);
+    }
+}
@@ -0,0 +1,280 @@
+package com.flavory.dishservice.search;
+
+import com.flavory.dishservice.dto.request.DishSearchCriteria;
+import com.flavory.dishservice.dto.response.FacetsResponse;
+import com.flavory.dishservice.entity.Dish;
+import com.flavory.dishservice.repository.DishFacetView;
+import com.flavory.dishservice.repository.DishRepository;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+
+/**
+ * Bitmap index over orderable dishes for filter counts. Every dish gets a dense slot. There is one
+ * bitmap per category, per allergen and for featured dishes. Price, preparation time and rating
+ * are kept in per-slot arrays. A facets query filters the candidates once and intersects bitmaps
+ * for each count. Every facet is counted with the filters on the other facets applied but not
+ * its own, so a client can show what each choice would yield.
+ *
+ * <p>The bitmaps are not safe to read while a change is applied, so queries take the read lock.
+ * Writes from this replica's dish changes are applied after commit. The whole index is rebuilt
+ * periodically off the lock, replaying the changes that arrived meanwhile, which picks up writes
+ * made through other replicas and by bulk SQL jobs.
+ */
+@Slf4j
+@Component
+public class FacetIndex {
+    private final DishRepository dishRepository;
+    private final int[] bucketEdgesCents;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final IndexGenerations<State> generations = new IndexGenerations<>(new State(), lock.writeLock());
+
+    public FacetIndex(DishRepository dishRepository,
+                      @Value("${app.facets.price-bucket-edges:10,20,30,50,80}") String priceBucketEdges) {
+        this.dishRepository = dishRepository;
+        this.bucketEdgesCents = Arrays.stream(priceBucketEdges.split(","))
+                .map(String::trim)
+                .mapToInt(edge -> toCents(new BigDecimal(edge)))
+                .sorted()
+                .toArray();
+    }
+
+    /**
+     * Counts for the given filters. {@code textMatches} restricts the candidates to dishes that
+     * matched the free-text term, or is {@code null} when there was none.
+     */
+    public FacetsResponse facets(DishSearchCriteria criteria, Collection<Long> textMatches) {
+        lock.readLock().lock();
+        try {
+            return generations.current().facets(criteria, textMatches, bucketEdgesCents);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Re-indexes the dish once the current transaction commits, or immediately outside a
+     * transaction. Dishes that cannot be ordered are removed.
+     */
+    public void indexAfterCommit(Dish dish) {
+        Long dishId = dish.getId();
+        FacetDoc doc = Boolean.TRUE.equals(dish.getIsActive()) && Boolean.TRUE.equals(dish.getAvailable())
+                && dish.hasStock()
+                ? new FacetDoc(dishId, dish.getCategory(), Dish.Allergen.toMask(dish.getAllergens()),
+                        toCents(dish.getPrice()), nullToZero(dish.getPreparationTime()),
+                        toCents(dish.getAverageRating()), Boolean.TRUE.equals(dish.getFeatured()))
+                : null;
+        Consumer<State> change = doc != null ? s -> s.put(doc) : s -> s.remove(dishId);
+        generations.applyAfterCommit(change);
+    }
+
+    @Scheduled(fixedDelayString = "${app.facets.rebuild-interval-ms:300000}", initialDelay = 0)
+    public void rebuild() {
+        try {
+            generations.rebuild(this::load);
+        } catch (RuntimeException ex) {
+            log.error("Rebuilding the facet index failed, keeping the current one", ex);
+        }
+    }
+
+    private State load() {
+        State fresh = new State();
+        for (DishFacetView view : dishRepository.findFacetViews()) {
+            fresh.put(new FacetDoc(view.getId(), view.getCategory(), nullToZero(view.getAllergenMask()),
+                    toCents(view.getPrice()), nullToZero(view.getPreparationTime()),
+                    toCents(view.getAverageRating()), Boolean.TRUE.equals(view.getFeatured())));
+        }
+        return fresh;
+    }
+
+    private static int toCents(BigDecimal value) {
+        return value != null ? value.movePointRight(2).intValue() : 0;
+    }
+
+    private static int nullToZero(Integer value) {
+        return value != null ? value : 0;
+    }
+
+    private record FacetDoc(Long id, Dish.DishCategory category, int allergenMask, int priceCents,
+                            int preparationTime, int ratingCents, boolean featured) {
+    }
+
+    /**
+     * One generation of the index. Mutated and read only under the lock.
+     */
+    private static final class State {
+        private final Map<Long, Integer> slots = new HashMap<>();
+        private final Deque<Integer> freeSlots = new ArrayDeque<>();
+        private final BitSet orderable = new BitSet();
+        private final BitSet featured = new BitSet();
+        private final Map<Dish.DishCategory, BitSet> categories = new EnumMap<>(Dish.DishCategory.class);
+        private final Map<Dish.Allergen, BitSet> allergens = new EnumMap<>(Dish.Allergen.class);
+        private int[] priceCents = new int[256];
+        private int[] preparationTimes = new int[256];
+        private int[] ratingCents = new int[256];
+        private int nextSlot;
+
+        State() {
+            for (Dish.DishCategory category : Dish.DishCategory.values()) {
+                categories.put(category, new BitSet());
+            }
+            for (Dish.Allergen allergen : Dish.Allergen.values()) {
+                allergens.put(allergen, new BitSet());
+            }
+        }
+
+        void put(FacetDoc doc) {
+            remove(doc.id());
+            int slot = freeSlots.isEmpty() ? nextSlot++ : freeSlots.pop();
+            ensureCapacity(slot);
+            slots.put(doc.id(), slot);
+
+            orderable.set(slot);
+            featured.set(slot, doc.featured());
+            if (doc.category() != null) {
+                categories.get(doc.category()).set(slot);
+            }
+            allergens.forEach((allergen, bits) -> bits.set(slot, (doc.allergenMask() & allergen.getMask()) != 0));
+            priceCents[slot] = doc.priceCents();
+            preparationTimes[slot] = doc.preparationTime();
+            ratingCents[slot] = doc.ratingCents();
+        }
+
+        void remove(Long dishId) {
+            Integer slot = slots.remove(dishId);
+            if (slot == null) {
+                return;
+            }
+            orderable.clear(slot);
+            featured.clear(slot);
+            categories.values().forEach(bits -> bits.clear(slot));
+            allergens.values().forEach(bits -> bits.clear(slot));
+            freeSlots.push(slot);
+        }
+
+        FacetsResponse facets(DishSearchCriteria criteria, Collection<Long> textMatches, int[] edges) {
+            BitSet candidates = (BitSet) orderable.clone();
+            if (textMatches != null) {
+                BitSet matched = new BitSet();
+                textMatches.forEach(id -> {
+                    Integer slot = slots.get(id);
+                    if (slot != null) {
+                        matched.set(slot);
+                    }
+                });
+                candidates.and(matched);
+            }
+
+            Set<Dish.Allergen> excluded = criteria.getExcludedAllergens() != null
+                    ? criteria.getExcludedAllergens()
+                    : Set.of();
+            excluded.forEach(allergen -> candidates.andNot(allergens.get(allergen)));
+            if (Boolean.TRUE.equals(criteria.getOnlyFeatured())) {
+                candidates.and(featured);
+            }
+
+            // One pass over the candidates for the range filters; price is kept apart for its own histogram.
+            int minPrice = criteria.getMinPrice() != null ? toCents(criteria.getMinPrice()) : Integer.MIN_VALUE;
+            int maxPrice = criteria.getMaxPrice() != null ? toCents(criteria.getMaxPrice()) : Integer.MAX_VALUE;
+            int maxTime = criteria.getMaxPreparationTime() != null ? criteria.getMaxPreparationTime() : Integer.MAX_VALUE;
+            int minRating = criteria.getMinRating() != null ? toCents(criteria.getMinRating()) : Integer.MIN_VALUE;
+            BitSet inPriceRange = new BitSet();
+            for (int slot = candidates.nextSetBit(0); slot >= 0; slot = candidates.nextSetBit(slot + 1)) {
+                if (preparationTimes[slot] > maxTime || ratingCents[slot] < minRating) {
+                    candidates.clear(slot);
+                } else if (priceCents[slot] >= minPrice && priceCents[slot] <= maxPrice) {
+                    inPriceRange.set(slot);
+                }
+            }
+
+            BitSet byCategory = criteria.getCategory() != null ? categories.get(criteria.getCategory()) : null;
+            BitSet matching = (BitSet) inPriceRange.clone();
+            if (byCategory != null) {
+                matching.and(byCategory);
+            }
+
+            return FacetsResponse.builder()
+                    .total(matching.cardinality())
+                    .categories(categoryCounts(inPriceRange))
+                    .priceBuckets(priceHistogram(candidates, byCategory, edges))
+                    .allergenFree(allergenFreeCounts(matching))
+                    .build();
+        }
+
+        private Map<String, Long> categoryCounts(BitSet withoutCategoryFilter) {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            BitSet scratch = new BitSet();
+            categories.forEach((category, bits) -> {
+                scratch.clear();
+                scratch.or(withoutCategoryFilter);
+                scratch.and(bits);
+                counts.put(category.name(), (long) scratch.cardinality());
+            });
+            return counts;
+        }
+
+        private List<FacetsResponse.PriceBucket> priceHistogram(BitSet withoutPriceFilter, BitSet byCategory,
+                                                                int[] edges) {
+            BitSet base = withoutPriceFilter;
+            if (byCategory != null) {
+                base = (BitSet) withoutPriceFilter.clone();
+                base.and(byCategory);
+            }
+
+            long[] counts = new long[edges.length + 1];
+            for (int slot = base.nextSetBit(0); slot >= 0; slot = base.nextSetBit(slot + 1)) {
+                int bucket = Arrays.binarySearch(edges, priceCents[slot]);
+                counts[bucket >= 0 ? bucket + 1 : -bucket - 1]++;
+            }
+
+            List<FacetsResponse.PriceBucket> buckets = new ArrayList<>(counts.length);
+            for (int i = 0; i < counts.length; i++) {
+                buckets.add(FacetsResponse.PriceBucket.builder()
+                        .from(i > 0 ? BigDecimal.valueOf(edges[i - 1], 2) : BigDecimal.ZERO.setScale(2))
+                        .to(i < edges.length ? BigDecimal.valueOf(edges[i], 2) : null)
+                        .count(counts[i])
+                        .build());
+            }
+            return buckets;
+        }
+
+        private Map<String, Long> allergenFreeCounts(BitSet matching) {
+            Map<String, Long> counts = new LinkedHashMap<>();
+            BitSet scratch = new BitSet();
+            allergens.forEach((allergen, bits) -> {
+                scratch.clear();
+                scratch.or(matching);
+                scratch.andNot(bits);
+                counts.put(allergen.name(), (long) scratch.cardinality());
+            });
+            return counts;
+        }
+
+        private void ensureCapacity(int slot) {
+            if (slot < priceCents.length) {
+                return;
+            }
+            int capacity = Math.max(slot + 1, priceCents.length * 2);
+            priceCents = Arrays.copyOf(priceCents, capacity);
+            preparationTimes = Arrays.copyOf(preparationTimes, capacity);
+            ratingCents = Arrays.copyOf(ratingCents, capacity);
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package com.flavory.dishservice.search;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * The current generation of an in-memory index together with the write path the indexes share.
+ * Changes are applied to the current generation under {@code writeLock} after the transaction
+ * that made them commits. A rebuild loads a fresh generation off the lock, replays the changes
+ * applied meanwhile and then swaps it in, so no committed change is lost to a concurrent rebuild.
+ */
+final class IndexGenerations<S> {
+    private final Lock writeLock;
+
+    private volatile S current;
+    private List<Consumer<S>> changesDuringRebuild;
+
+    IndexGenerations(S initial, Lock writeLock) {
+        this.current = initial;
+        this.writeLock = writeLock;
+    }
+
+    S current() {
+        return current;
+    }
+
+    /**
+     * Applies the change once the current transaction commits, or immediately outside a transaction.
+     */
+    void applyAfterCommit(Consumer<S> change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            apply(change);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                apply(change);
+            }
+        });
+    }
+
+    /**
+     * Replaces the current generation with the one {@code loader} builds. If loading or replaying
+     * throws, the current generation is kept and the exception is rethrown.
+     */
+    S rebuild(Supplier<S> loader) {
+        writeLock.lock();
+        try {
+            changesDuringRebuild = new ArrayList<>();
+        } finally {
+            writeLock.unlock();
+        }
+
+        S fresh;
+        try {
+            fresh = loader.get();
+        } catch (RuntimeException ex) {
+            writeLock.lock();
+            try {
+                changesDuringRebuild = null;
+            } finally {
+                writeLock.unlock();
+            }
+            throw ex;
+        }
+
+        writeLock.lock();
+        try {
+            changesDuringRebuild.forEach(change -> change.accept(fresh));
+            current = fresh;
+        } finally {
+            changesDuringRebuild = null;
+            writeLock.unlock();
+        }
+        return fresh;
+    }
+
+    private void apply(Consumer<S> change) {
+        writeLock.lock();
+        try {
+            change.accept(current);
+            if (changesDuringRebuild != null) {
+                changesDuringRebuild.add(change);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package com.flavory.dishservice.search;
+
+import com.flavory.dishservice.dto.response.SuggestionResponse;
+import com.flavory.dishservice.entity.Dish;
+import com.flavory.dishservice.repository.DishRepository;
+import com.flavory.dishservice.repository.DishSuggestionView;
+import com.flavory.dishservice.repository.DishTagView;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory prefix index for search-box suggestions over the names, tags and categories of
+ * orderable dishes. Text is folded to lower-case ASCII, so "zur" finds "Żurek". Every word of a
+ * name starts a term, so "rusk" finds "Pierogi ruskie". Each trie node keeps its top suggestions
+ * by popularity (orders, summed over the dishes of a tag or category), and a lookup is a walk
+ * down the prefix.
+ *
+ * <p>Readers never lock: node children and top lists are immutable and replaced on write. Writes
+ * from this replica's dish changes are applied after commit. The whole index is rebuilt
+ * periodically, which picks up popularity changes and writes made through other replicas.
+ */
+@Slf4j
+@Component
+public class SuggestionIndex {
+    public static final String TYPE_DISH = "DISH";
+    public static final String TYPE_TAG = "TAG";
+    public static final String TYPE_CATEGORY = "CATEGORY";
+
+    private static final Locale POLISH = Locale.forLanguageTag("pl");
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^a-z0-9]+");
+    private static final int MAX_TERM_LENGTH = 40;
+
+    private static final Comparator<Entry> RANKING = Comparator.comparingLong(Entry::score).reversed()
+            .thenComparing(Entry::text);
+
+    private final DishRepository dishRepository;
+    private final int maxSuggestions;
+    private final IndexGenerations<State> generations;
+
+    public SuggestionIndex(DishRepository dishRepository,
+                           @Value("${app.suggest.max-suggestions:10}") int maxSuggestions) {
+        this.dishRepository = dishRepository;
+        this.maxSuggestions = maxSuggestions;
+        this.generations = new IndexGenerations<>(new State(maxSuggestions), new ReentrantLock());
+    }
+
+    public List<SuggestionResponse> suggest(String query, int limit) {
+        String prefix = normalize(query);
+        if (prefix.isEmpty()) {
+            return List.of();
+        }
+
+        Node node = generations.current().root;
+        for (int i = 0; i < prefix.length() && node != null; i++) {
+            node = node.children.get(prefix.charAt(i));
+        }
+        if (node == null) {
+            return List.of();
+        }
+
+        List<Entry> top = node.top;
+        return top.subList(0, Math.min(Math.max(limit, 0), top.size())).stream()
+                .map(Entry::toResponse)
+                .toList();
+    }
+
+    /**
+     * Re-indexes the dish once the current transaction commits, or immediately outside a
+     * transaction. Dishes that cannot be ordered are removed.
+     */
+    public void indexAfterCommit(Dish dish) {
+        Long dishId = dish.getId();
+        DishDoc doc = Boolean.TRUE.equals(dish.getIsActive()) && Boolean.TRUE.equals(dish.getAvailable())
+                && dish.hasStock()
+                ? new DishDoc(dishId, dish.getName(), dish.getCategory(),
+                        dish.getTags() != null ? Set.copyOf(dish.getTags()) : Set.of(),
+                        dish.getTotalOrders() != null ? dish.getTotalOrders() : 0)
+                : null;
+        Consumer<State> change = doc != null ? s -> s.put(doc) : s -> s.remove(dishId);
+        generations.applyAfterCommit(change);
+    }
+
+    @Scheduled(fixedDelayString = "${app.suggest.rebuild-interval-ms:300000}", initialDelay = 0)
+    public void rebuild() {
+        try {
+            State fresh = generations.rebuild(this::load);
+            log.debug("Rebuilt suggestion index from {} dishes", fresh.docs.size());
+        } catch (RuntimeException ex) {
+            log.error("Rebuilding the suggestion index failed, keeping the current one", ex);
+        }
+    }
+
+    private State load() {
+        Map<Long, Set<String>> tags = new HashMap<>();
+        for (DishTagView tag : dishRepository.findSuggestionTags()) {
+            tags.computeIfAbsent(tag.getDishId(), id -> new HashSet<>()).add(tag.getTag());
+        }
+        List<DishDoc> docs = new ArrayList<>();
+        for (DishSuggestionView view : dishRepository.findSuggestionViews()) {
+            docs.add(new DishDoc(view.getId(), view.getName(), view.getCategory(),
+                    tags.getOrDefault(view.getId(), Set.of()),
+                    view.getTotalOrders() != null ? view.getTotalOrders() : 0));
+        }
+
+        State fresh = new State(maxSuggestions);
+        fresh.load(docs);
+        return fresh;
+    }
+
+    /**
+     * Lower-cases, strips Polish diacritics and collapses everything but letters and digits
+     * into single spaces.
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String lower = text.toLowerCase(POLISH).replace('ł', 'l');
+        String folded = COMBINING_MARKS.matcher(Normalizer.normalize(lower, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(folded).replaceAll(" ").trim();
+    }
+
+    private static List<String> termsOf(String text) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        Set<String> terms = new LinkedHashSet<>();
+        String[] words = normalized.split(" ");
+        for (int i = 0; i < words.length; i++) {
+            String term = String.join(" ", List.of(words).subList(i, words.length));
+            terms.add(term.length() > MAX_TERM_LENGTH ? term.substring(0, MAX_TERM_LENGTH) : term);
+        }
+        return List.copyOf(terms);
+    }
+
+    private record DishDoc(Long id, String name, Dish.DishCategory category, Set<String> tags, long orders) {
+    }
+
+    private record Entry(String key, String type, String text, Long dishId, Dish.DishCategory category,
+                         List<String> terms, long score, int dishes) {
+
+        static Entry dish(DishDoc doc) {
+            return new Entry("D:" + doc.id(), TYPE_DISH, doc.name(), doc.id(), doc.category(),
+                    termsOf(doc.name()), doc.orders(), 1);
+        }
+
+        Entry adjust(long orders, int sign) {
+            return new Entry(key, type, text, dishId, category, terms, score + sign * orders, dishes + sign);
+        }
+
+        SuggestionResponse toResponse() {
+            return SuggestionResponse.builder()
+                    .type(type)
+                    .text(text)
+                    .dishId(dishId)
+                    .category(category != null ? category.name() : null)
+                    .build();
+        }
+    }
+
+    private static final class Node {
+        private volatile Map<Character, Node> children = Map.of();
+        private volatile List<Entry> top = List.of();
+        private final Set<Entry> terminal = new HashSet<>();
+
+        boolean isEmpty() {
+            return terminal.isEmpty() && children.isEmpty();
+        }
+
+        Node child(char c) {
+            Node child = children.get(c);
+            if (child == null) {
+                child = new Node();
+                Map<Character, Node> copy = new HashMap<>(children);
+                copy.put(c, child);
+                children = copy;
+            }
+            return child;
+        }
+
+        void removeChild(char c) {
+            Map<Character, Node> copy = new HashMap<>(children);
+            copy.remove(c);
+            children = copy;
+        }
+
+        void recomputeTop(int limit) {
+            List<Entry> candidates = new ArrayList<>(terminal);
+            children.values().forEach(child -> candidates.addAll(child.top));
+            top = candidates.stream().distinct().sorted(RANKING).limit(limit).toList();
+        }
+
+        void recomputeAll(int limit) {
+            children.values().forEach(child -> child.recomputeAll(limit));
+            recomputeTop(limit);
+        }
+    }
+
+    /**
+     * One generation of the index. Mutated only under the write lock; readers see it through
+     * the volatile node fields.
+     */
+    private static final class State {
+        private final int limit;
+        private final Node root = new Node();
+        private final Map<Long, DishDoc> docs = new HashMap<>();
+        private final Map<String, Entry> entries = new HashMap<>();
+        private boolean loading;
+
+        State(int limit) {
+            this.limit = limit;
+        }
+
+        void load(List<DishDoc> dishes) {
+            loading = true;
+            dishes.forEach(this::put);
+            loading = false;
+            root.recomputeAll(limit);
+        }
+
+        void put(DishDoc doc) {
+            remove(doc.id());
+            docs.put(doc.id(), doc);
+            replace(null, Entry.dish(doc));
+            groupsOf(doc).forEach((key, text) -> {
+                Entry current = entries.get(key);
+                Entry updated = current != null
+                        ? current.adjust(doc.orders(), 1)
+                        : new Entry(key, key.startsWith("T:") ? TYPE_TAG : TYPE_CATEGORY, text, null,
+                                key.startsWith("C:") ? doc.category() : null, termsOf(text), doc.orders(), 1);
+                replace(current, updated);
+            });
+        }
+
+        void remove(Long dishId) {
+            DishDoc doc = docs.remove(dishId);
+            if (doc == null) {
+                return;
+            }
+            replace(entries.get("D:" + dishId), null);
+            groupsOf(doc).keySet().forEach(key -> {
+                Entry current = entries.get(key);
+                if (current != null) {
+                    Entry updated = current.adjust(doc.orders(), -1);
+                    replace(current, updated.dishes() > 0 ? updated : null);
+                }
+            });
+        }
+
+        private Map<String, String> groupsOf(DishDoc doc) {
+            Map<String, String> groups = new HashMap<>();
+            doc.tags().forEach(tag -> {
+                String normalized = normalize(tag);
+                if (!normalized.isEmpty()) {
+                    groups.putIfAbsent("T:" + normalized, tag);
+                }
+            });
+            if (doc.category() != null) {
+                groups.put("C:" + doc.category().name(), doc.category().getDisplayName());
+            }
+            return groups;
+        }
+
+        private void replace(Entry previous, Entry next) {
+            Set<String> touched = new LinkedHashSet<>();
+            if (previous != null) {
+                entries.remove(previous.key());
+                previous.terms().forEach(term -> terminalOf(term).terminal.remove(previous));
+                touched.addAll(previous.terms());
+            }
+            if (next != null) {
+                entries.put(next.key(), next);
+                next.terms().forEach(term -> terminalOf(term).terminal.add(next));
+                touched.addAll(next.terms());
+            }
+            if (!loading) {
+                touched.forEach(this::recomputePath);
+            }
+        }
+
+        private Node terminalOf(String term) {
+            Node node = root;
+            for (int i = 0; i < term.length(); i++) {
+                node = node.child(term.charAt(i));
+            }
+            return node;
+        }
+
+        private void recomputePath(String term) {
+            List<Node> path = new ArrayList<>(term.length() + 1);
+            Node node = root;
+            path.add(node);
+            for (int i = 0; i < term.length(); i++) {
+                node = node.children.get(term.charAt(i));
+                if (node == null) {
+                    break;
+                }
+                path.add(node);
+            }
+
+            for (int depth = path.size() - 1; depth >= 0; depth--) {
+                Node current = path.get(depth);
+                if (depth > 0 && current.isEmpty()) {
+                    path.get(depth - 1).removeChild(term.charAt(depth - 1));
+                    continue;
+                }
+                current.recomputeTop(limit);
+            }
+        }
+    }
+}
@@ -4,28 +4,47 @@ import com.flavory.dishservice.dto.request.CreateDishRequest;
 import com.flavory.dishservice.dto.request.DishSearchCriteria;
 import com.flavory.dishservice.dto.request.UpdateDishRequest;
 import com.flavory.dishservice.dto.request.UpdateStockRequest;
+import com.flavory.dishservice.dto.response.CursorPageResponse;
+import com.flavory.dishservice.dto.response.DishImportResponse;
 import com.flavory.dishservice.dto.response.DishInternalResponse;
 import com.flavory.dishservice.dto.response.DishResponse;
 import com.flavory.dishservice.dto.response.DishStatsResponse;
+import com.flavory.dishservice.dto.response.DishSyncResponse;
+import com.flavory.dishservice.dto.response.FacetsResponse;
+import com.flavory.dishservice.dto.response.SuggestionResponse;
 import com.flavory.dishservice.entity.Dish;
+import com.flavory.dishservice.importer.ImportRow;
+import com.flavory.dishservice.search.DishSort;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.math.BigDecimal;
 import java.util.List;
+import java.util.function.Predicate;
 
 public interface DishService {
-    DishResponse createDish(CreateDishRequest request, String cookId, List<String> imageUrls);
+    DishResponse createDish(CreateDishRequest request, String cookId, List<FileStorageService.StagedFile> images);
+    DishImportResponse importDishes(List<ImportRow> rows, String cookId);
     DishResponse updateDish(Long dishId, UpdateDishRequest request, String cookId, List<MultipartFile> newImages);
     DishResponse getDishById(Long dishId);
+    TaggedDish getTaggedDish(Long dishId, Predicate<String> notModified);
+    String getCatalogEtag();
     DishResponse getDishByIdForCook(Long dishId, String cookId);
     Page<DishResponse> getDishesByCook(String cookId, Pageable pageable);
     Page<DishResponse> getFeaturedDishes(Pageable pageable);
-    Page<DishResponse> getTopRatedDishes(Pageable pageable);
+    Page<DishResponse> getTopRatedDishes(Dish.DishCategory category, Pageable pageable);
     Page<DishResponse> getAllAvailableDishes(Pageable pageable);
     Page<DishResponse> getDishesByCategory(Dish.DishCategory category, Pageable pageable);
     Page<DishResponse> searchDishes(DishSearchCriteria criteria, Pageable pageable);
+    CursorPageResponse<DishResponse> scrollDishes(DishSearchCriteria criteria, DishSort sort,
+                                                  Sort.Direction direction, String cursor, int size);
+    DishSyncResponse syncDishes(String since, String cookId, int limit);
+    List<DishResponse> getGoesWellWith(Long dishId, int limit);
+    List<DishResponse> getTrendingDishes(int limit);
+    FacetsResponse getFacets(DishSearchCriteria criteria);
+    List<SuggestionResponse> suggest(String query, int limit);
+    List<DishResponse> getNearbyDishes(double latitude, double longitude, double radiusKm, int limit);
     List<DishInternalResponse> getDishesByIds(List<Long> ids);
     DishResponse updateStock(Long dishId, UpdateStockRequest request, String cookId);
     void increaseStock(Long dishId, Integer quantity);
@@ -33,6 +52,12 @@ public interface DishService {
     DishResponse toggleAvailability(Long dishId, String cookId);
     void deleteDish(Long dishId, String cookId);
     DishStatsResponse getCookStatistics(String cookId);
-    void updateOrderStats(Long dishId, BigDecimal itemTotal);
-    void updateDishRating(Long dishId, BigDecimal rating);
+
+    /**
+     * A dish together with the ETag computed from the same loaded instance, so the validator
+     * always describes the body it is sent with. The body is left {@code null} when the
+     * caller's copy is still current, so a 304 never maps it.
+     */
+    record TaggedDish(DishResponse dish, String etag) {
+    }
 }
@@ -7,9 +7,20 @@ public interface FileStorageService {
 
     String storeFile(MultipartFile file);
     List<String> storeFiles(List<MultipartFile> files);
+    List<StagedFile> stageFiles(List<MultipartFile> files);
+    void promoteStagedFiles(List<StagedFile> stagedFiles);
+    void discardStagedFiles(List<StagedFile> stagedFiles);
+    void deleteFilesAfterCommit(List<String> fileUrls);
     String updateFile(MultipartFile file, String existingFileUrl);
     List<String> updateFiles(List<MultipartFile> newFiles, List<String> existingFileUrls);
     void deleteFile(String fileUrl);
     void deleteFiles(List<String> fileUrls);
     boolean fileExists(String fileUrl);
-}
\ No newline at end of file
+
+    /**
+     * An upload written to the staging directory under a name unique to the request, together
+     * with the content-addressed URL it will be published under.
+     */
+    record StagedFile(String url, String stagedName) {
+    }
+}
@@ -0,0 +1,8 @@
+package com.flavory.dishservice.service;
+
+import java.nio.file.Path;
+
+public interface ImageVariantService {
+
+    void generateVariants(Path original);
+}
@@ -1,37 +1,67 @@
 package com.flavory.dishservice.service.impl;
 
+import com.flavory.dishservice.cache.CatalogGeneration;
+import com.flavory.dishservice.cache.CookStatisticsCache;
+import com.flavory.dishservice.cache.CookSummaryCache;
+import com.flavory.dishservice.cache.DishLookupCache;
 import com.flavory.dishservice.dto.request.CreateDishRequest;
 import com.flavory.dishservice.dto.request.DishSearchCriteria;
 import com.flavory.dishservice.dto.request.UpdateDishRequest;
 import com.flavory.dishservice.dto.request.UpdateStockRequest;
+import com.flavory.dishservice.dto.response.CookSummaryDto;
+import com.flavory.dishservice.dto.response.CursorPageResponse;
+import com.flavory.dishservice.dto.response.DishImportResponse;
 import com.flavory.dishservice.dto.response.DishInternalResponse;
 import com.flavory.dishservice.dto.response.DishResponse;
 import com.flavory.dishservice.dto.response.DishStatsResponse;
+import com.flavory.dishservice.dto.response.DishSyncResponse;
+import com.flavory.dishservice.dto.response.FacetsResponse;
+import com.flavory.dishservice.dto.response.SuggestionResponse;
+import com.flavory.dishservice.entity.CookProfile;
 import com.flavory.dishservice.entity.Dish;
 import com.flavory.dishservice.event.outbound.DishAvailabilityChangedEvent;
 import com.flavory.dishservice.event.outbound.DishCreatedEvent;
 import com.flavory.dishservice.event.outbound.DishDeletedEvent;
 import com.flavory.dishservice.event.outbound.DishUpdatedEvent;
 import com.flavory.dishservice.exception.*;
+import com.flavory.dishservice.importer.ImportRow;
 import com.flavory.dishservice.mapper.DishMapper;
 import com.flavory.dishservice.messaging.publisher.DishEventPublisher;
+import com.flavory.dishservice.recommendation.CoOccurrenceModel;
+import com.flavory.dishservice.repository.CookProfileRepository;
+import com.flavory.dishservice.repository.DishBulkWriter;
 import com.flavory.dishservice.repository.DishRepository;
+import com.flavory.dishservice.routing.ReplicaReads;
+import com.flavory.dishservice.search.DishCursor;
+import com.flavory.dishservice.search.DishSort;
+import com.flavory.dishservice.search.FacetIndex;
+import com.flavory.dishservice.search.SuggestionIndex;
 import com.flavory.dishservice.service.DishService;
 import com.flavory.dishservice.service.FileStorageService;
 import com.flavory.dishservice.specification.DishSpecification;
+import com.flavory.dishservice.stats.TrendingTracker;
+import com.flavory.dishservice.sync.DishChangeLog;
+import com.flavory.dishservice.utils.GeoGridUtil;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Service
@@ -41,24 +71,111 @@ public class DishServiceImpl implements DishService {
     private final DishMapper dishMapper;
     private final FileStorageService fileStorageService;
     private final DishEventPublisher eventPublisher;
+    private final CookProfileRepository cookProfileRepository;
+    private final CookStatisticsCache cookStatisticsCache;
+    private final CatalogGeneration catalogGeneration;
+    private final DishLookupCache dishLookupCache;
+    private final SuggestionIndex suggestionIndex;
+    private final FacetIndex facetIndex;
+    private final CoOccurrenceModel coOccurrenceModel;
+    private final TrendingTracker trendingTracker;
+    private final DishChangeLog dishChangeLog;
+    private final DishBulkWriter dishBulkWriter;
+    private final CookSummaryCache cookSummaryCache;
 
     @Value("${app.business.max-dishes-per-cook:50}")
     private Integer maxDishesPerCook;
 
+    @Value("${app.geo.max-radius-km:25}")
+    private double maxNearbyRadiusKm;
+
     @Override
     @Transactional
-    public DishResponse createDish(CreateDishRequest request, String cookId, List<String> imageUrls) {
+    public DishResponse createDish(CreateDishRequest request, String cookId, List<FileStorageService.StagedFile> images) {
         validateDishCreation(request, cookId);
 
         Dish dish = dishMapper.toEntity(request);
         dish.setCookId(cookId);
-        dish.setImages(imageUrls);
+        dish.setImages(images.stream()
+                .map(FileStorageService.StagedFile::url)
+                .collect(Collectors.toCollection(ArrayList::new)));
 
         Dish savedDish = dishRepository.save(dish);
+        fileStorageService.promoteStagedFiles(images);
+        recordChange(savedDish, CookStatisticsCache.Contribution.NONE);
         publishDishCreatedEvent(savedDish);
         return dishMapper.toResponse(savedDish);
     }
 
+    @Override
+    @Transactional
+    public DishImportResponse importDishes(List<ImportRow> rows, String cookId) {
+        List<DishImportResponse.RowError> errors = new ArrayList<>();
+        List<ImportRow> candidates = new ArrayList<>();
+        for (ImportRow row : rows) {
+            if (row.isValid()) {
+                candidates.add(row);
+            } else {
+                errors.add(rowError(row, row.errors()));
+            }
+        }
+
+        Set<String> takenNames = new HashSet<>();
+        long remaining = 0;
+        if (!candidates.isEmpty()) {
+            Set<String> names = candidates.stream().map(row -> row.request().getName()).collect(Collectors.toSet());
+            takenNames.addAll(dishRepository.findNamesByCookIdAndNameIn(cookId, names));
+            remaining = maxDishesPerCook - dishRepository.countActiveDishesForCook(cookId);
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        List<Dish> dishes = new ArrayList<>();
+        List<ImportRow> imported = new ArrayList<>();
+        for (ImportRow row : candidates) {
+            if (!takenNames.add(row.request().getName())) {
+                errors.add(rowError(row, Map.of("name", "Danie o tej nazwie już istnieje w Twoim menu")));
+                continue;
+            }
+            if (dishes.size() >= remaining) {
+                errors.add(rowError(row, Map.of("limit",
+                        String.format("Osiągnięto limit %d aktywnych dań", maxDishesPerCook))));
+                continue;
+            }
+
+            Dish dish = dishMapper.toEntity(row.request());
+            dish.setCookId(cookId);
+            dish.syncAllergenMask();
+            dish.setCreatedAt(now);
+            dish.setUpdatedAt(now);
+            dish.setVersion(0L);
+            dishes.add(dish);
+            imported.add(row);
+        }
+
+        dishBulkWriter.insertAll(dishes);
+        if (!dishes.isEmpty()) {
+            catalogGeneration.markChanged();
+        }
+        dishes.forEach(dish -> recordChange(dish, CookStatisticsCache.Contribution.NONE));
+        eventPublisher.publishDishCreatedBatch(dishes.stream().map(this::dishCreatedEvent).collect(Collectors.toList()));
+
+        List<DishImportResponse.ImportedDish> importedDishes = new ArrayList<>(dishes.size());
+        for (int i = 0; i < dishes.size(); i++) {
+            importedDishes.add(DishImportResponse.ImportedDish.builder()
+                    .row(imported.get(i).row())
+                    .dishId(dishes.get(i).getId())
+                    .name(dishes.get(i).getName())
+                    .build());
+        }
+        errors.sort(Comparator.comparingInt(DishImportResponse.RowError::getRow));
+        return DishImportResponse.builder()
+                .received(rows.size())
+                .created(dishes.size())
+                .dishes(importedDishes)
+                .errors(errors)
+                .build();
+    }
+
     @Override
     @Transactional
     public DishResponse updateDish(Long dishId, UpdateDishRequest request, String cookId, List<MultipartFile> newImages) {
@@ -74,15 +191,17 @@ public class DishServiceImpl implements DishService {
             }
         }
 
+        CookStatisticsCache.Contribution before = CookStatisticsCache.Contribution.of(dish);
         dishMapper.updateEntityFromRequest(request, dish);
+        dish.syncAllergenMask();
 
         if (newImages != null && !newImages.isEmpty()) {
-            List<String> oldImageUrls = dish.getImages();
-            List<String> newImageUrls = fileStorageService.updateFiles(newImages, oldImageUrls);
+            List<String> newImageUrls = fileStorageService.updateFiles(newImages, releasableImages(dish));
             dish.setImages(newImageUrls);
         }
 
         Dish updatedDish = dishRepository.save(dish);
+        recordChange(updatedDish, before);
         publishDishUpdatedEvent(updatedDish);
         return dishMapper.toResponse(updatedDish);
     }
@@ -90,15 +209,39 @@ public class DishServiceImpl implements DishService {
     @Override
     @Transactional(readOnly = true)
     public DishResponse getDishById(Long dishId) {
-        Dish dish = dishRepository.findByIdAndIsActiveTrue(dishId)
-                .orElseThrow(() -> new DishNotFoundException(dishId));
-        return dishMapper.toResponse(dish);
+        ReplicaReads.allow();
+        return dishMapper.toResponse(findActiveDish(dishId));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public TaggedDish getTaggedDish(Long dishId, Predicate<String> notModified) {
+        // The ETag is built from what the body shows, so a lagging replica yields an older but matching pair.
+        ReplicaReads.allow();
+        Dish dish = findActiveDish(dishId);
+        CookSummaryDto cook = cookSummaryCache.get(dish.getCookId());
+        String etag = dishEtag(dish, cook);
+        if (notModified.test(etag)) {
+            return new TaggedDish(null, etag);
+        }
+
+        DishResponse response = dishMapper.toResponse(dish);
+        response.setCook(cook);
+        return new TaggedDish(response, etag);
+    }
+
+    @Override
+    public String getCatalogEtag() {
+        // Read on the primary; the listings it validates are not marked for replicas either, so a
+        // body is never older than the generation sent with it.
+        return "W/\"g" + catalogGeneration.current() + "\"";
     }
 
     @Override
     @Transactional(readOnly = true)
     public DishResponse getDishByIdForCook(Long dishId, String cookId) {
-        Dish dish = dishRepository.findByIdAndCookId(dishId, cookId)
+        Dish dish = dishRepository.findById(dishId)
+                .filter(found -> found.getCookId().equals(cookId))
                 .orElseThrow(() -> new DishNotFoundException(dishId));
 
         return dishMapper.toResponse(dish);
@@ -120,9 +263,11 @@ public class DishServiceImpl implements DishService {
 
     @Override
     @Transactional(readOnly = true)
-    public Page<DishResponse> getTopRatedDishes(Pageable pageable) {
-        return dishRepository.findTopRatedDishes(pageable)
-                .map(dishMapper::toResponse);
+    public Page<DishResponse> getTopRatedDishes(Dish.DishCategory category, Pageable pageable) {
+        Page<Dish> dishes = category != null
+                ? dishRepository.findTopRatedDishesByCategory(category, pageable)
+                : dishRepository.findTopRatedDishes(pageable);
+        return dishes.map(dishMapper::toResponse);
     }
 
     @Override
@@ -142,6 +287,66 @@ public class DishServiceImpl implements DishService {
     @Override
     @Transactional(readOnly = true)
     public Page<DishResponse> searchDishes(DishSearchCriteria criteria, Pageable pageable) {
+        return dishRepository.findAll(searchSpecification(criteria), pageable)
+                .map(dishMapper::toResponse);
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPageResponse<DishResponse> scrollDishes(DishSearchCriteria criteria, DishSort sort,
+                                                         Sort.Direction direction, String cursor, int size) {
+        DishCursor after = cursor != null && !cursor.isBlank()
+                ? DishCursor.decode(cursor, sort, direction)
+                : null;
+        Specification<Dish> spec = searchSpecification(criteria).and(DishSpecification.after(after));
+
+        // One extra row tells whether another page exists without counting the whole listing.
+        List<Dish> dishes = dishRepository.findBy(spec, query -> query
+                .sortBy(sort.toSort(direction))
+                .limit(size + 1)
+                .all());
+        boolean hasNext = dishes.size() > size;
+        List<Dish> page = hasNext ? dishes.subList(0, size) : dishes;
+
+        return CursorPageResponse.<DishResponse>builder()
+                .content(page.stream().map(dishMapper::toResponse).collect(Collectors.toList()))
+                .nextCursor(hasNext ? DishCursor.after(page.get(page.size() - 1), sort, direction).encode() : null)
+                .hasNext(hasNext)
+                .build();
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public DishSyncResponse syncDishes(String since, String cookId, int limit) {
+        DishChangeLog.ChangeSet changeSet = dishChangeLog.changesSince(since, cookId, limit);
+
+        List<Long> changedIds = new ArrayList<>();
+        List<Long> deleted = new ArrayList<>();
+        changeSet.changes().forEach(change -> (change.deleted() ? deleted : changedIds).add(change.dishId()));
+
+        Map<Long, Dish> dishes = dishRepository.findAllById(changedIds).stream()
+                .collect(Collectors.toMap(Dish::getId, dish -> dish));
+        List<DishResponse> changed = new ArrayList<>(changedIds.size());
+        for (Long dishId : changedIds) {
+            Dish dish = dishes.get(dishId);
+            if (dish == null || !Boolean.TRUE.equals(dish.getIsActive())) {
+                // Deleted after the change log was read; the next sync brings its tombstone anyway.
+                deleted.add(dishId);
+            } else {
+                changed.add(dishMapper.toResponse(dish));
+            }
+        }
+
+        return DishSyncResponse.builder()
+                .token(changeSet.token())
+                .reset(changeSet.reset())
+                .hasMore(changeSet.hasMore())
+                .changed(changed)
+                .deleted(deleted)
+                .build();
+    }
+
+    private Specification<Dish> searchSpecification(DishSearchCriteria criteria) {
         Specification<Dish> spec = DishSpecification.searchWithFilters(
                 criteria.getSearchTerm(),
                 criteria.getCategory(),
@@ -159,21 +364,76 @@ public class DishServiceImpl implements DishService {
         if (criteria.getCookId() != null) {
             spec = spec.and(DishSpecification.hasCookId(criteria.getCookId()));
         }
+        return spec;
+    }
 
-        return dishRepository.findAll(spec, pageable)
-                .map(dishMapper::toResponse);
+    @Override
+    @Transactional(readOnly = true)
+    public List<DishResponse> getGoesWellWith(Long dishId, int limit) {
+        // Over-fetch so neighbours that went out of stock can be skipped.
+        return orderableInRankOrder(coOccurrenceModel.neighbours(dishId, limit * 2), limit);
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<DishInternalResponse> getDishesByIds(List<Long> ids) {
-        List<Dish> dishes = dishRepository.findAllByIdsWithImages(ids);
+    public List<DishResponse> getTrendingDishes(int limit) {
+        ReplicaReads.allow();
+        return orderableInRankOrder(trendingTracker.top(limit * 2), limit);
+    }
+
+    @Override
+    public FacetsResponse getFacets(DishSearchCriteria criteria) {
+        String term = criteria.getSearchTerm();
+        List<Long> textMatches = term != null && !term.trim().isEmpty()
+                ? dishRepository.findOrderableIdsMatching("%" + term.toLowerCase() + "%")
+                : null;
+        return facetIndex.facets(criteria, textMatches);
+    }
+
+    @Override
+    public List<SuggestionResponse> suggest(String query, int limit) {
+        return suggestionIndex.suggest(query, limit);
+    }
 
-        return dishes.stream()
-                .map(dishMapper::toInternalResponse)
+    @Override
+    @Transactional(readOnly = true)
+    public List<DishResponse> getNearbyDishes(double latitude, double longitude, double radiusKm, int limit) {
+        validateNearbyQuery(latitude, longitude, radiusKm);
+
+        Map<String, Double> cookDistances = new HashMap<>();
+        for (CookProfile cook : cookProfileRepository.findByGeoCellIn(
+                GeoGridUtil.coveringCells(latitude, longitude, radiusKm))) {
+            if (!cook.hasPickupLocation()) {
+                continue;
+            }
+            double distance = GeoGridUtil.distanceKm(
+                    latitude, longitude, cook.getPickupLatitude(), cook.getPickupLongitude());
+            if (distance <= radiusKm) {
+                cookDistances.put(cook.getCookId(), distance);
+            }
+        }
+
+        if (cookDistances.isEmpty()) {
+            return List.of();
+        }
+
+        return dishRepository.findAvailableByCookIds(cookDistances.keySet()).stream()
+                .sorted(Comparator.comparingDouble((Dish dish) -> cookDistances.get(dish.getCookId()))
+                        .thenComparing(Dish::getAverageRating, Comparator.reverseOrder()))
+                .limit(limit)
+                .map(dish -> {
+                    DishResponse response = dishMapper.toResponse(dish);
+                    response.setDistanceKm(Math.round(cookDistances.get(dish.getCookId()) * 100) / 100.0);
+                    return response;
+                })
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public List<DishInternalResponse> getDishesByIds(List<Long> ids) {
+        return dishLookupCache.getAll(ids);
+    }
+
     @Override
     @Transactional
     public DishResponse updateStock(Long dishId, UpdateStockRequest request, String cookId) {
@@ -181,6 +441,7 @@ public class DishServiceImpl implements DishService {
                 .orElseThrow(() -> new DishNotFoundException(dishId));
 
         boolean wasAvailable = dish.getAvailable();
+        CookStatisticsCache.Contribution before = CookStatisticsCache.Contribution.of(dish);
         dish.setCurrentStock(request.getCurrentStock());
 
         if (request.getMaxDailyStock() != null) {
@@ -188,12 +449,13 @@ public class DishServiceImpl implements DishService {
         }
 
         if (request.getCurrentStock() > 0 && dish.getIsActive()) {
-            dish.setAvailable(true);
+            dish.setAvailableManually(true);
         } else if (request.getCurrentStock() == 0) {
-            dish.setAvailable(false);
+            dish.markSoldOut();
         }
 
         Dish updatedDish = dishRepository.save(dish);
+        recordChange(updatedDish, before);
 
         if (wasAvailable != dish.getAvailable()) {
             publishDishAvailabilityChangedEvent(updatedDish);
@@ -204,16 +466,18 @@ public class DishServiceImpl implements DishService {
 
     @Override
     public void increaseStock(Long dishId, Integer quantity) {
-        Dish dish = dishRepository.findById(dishId)
+        Dish dish = dishRepository.findCurrentById(dishId)
                 .orElseThrow(() -> new DishNotFoundException(dishId));
 
+        CookStatisticsCache.Contribution before = CookStatisticsCache.Contribution.of(dish);
         dish.increaseStock(quantity);
         dishRepository.save(dish);
+        recordChange(dish, before);
     }
 
     @Override
     public void decreaseStock(Long dishId, Integer quantity) {
-        Dish dish = dishRepository.findById(dishId)
+        Dish dish = dishRepository.findCurrentById(dishId)
                 .orElseThrow(() -> new DishNotFoundException(dishId));
 
         if (!dish.canBeOrdered()) {
@@ -224,8 +488,10 @@ public class DishServiceImpl implements DishService {
             throw new InsufficientStockException(dishId, dish.getCurrentStock(), quantity);
         }
 
+        CookStatisticsCache.Contribution before = CookStatisticsCache.Contribution.of(dish);
         dish.decreaseStock(quantity);
         dishRepository.save(dish);
+        recordChange(dish, before);
 
         if (!dish.getAvailable()) {
             publishDishAvailabilityChangedEvent(dish);
@@ -238,8 +504,10 @@ public class DishServiceImpl implements DishService {
         Dish dish = dishRepository.findByIdAndCookId(dishId, cookId)
                 .orElseThrow(() -> new DishNotFoundException(dishId));
 
-        dish.setAvailable(!dish.getAvailable());
+        CookStatisticsCache.Contribution before = CookStatisticsCache.Contribution.of(dish);
+        dish.setAvailableManually(!dish.getAvailable());
         Dish updatedDish = dishRepository.save(dish);
+        recordChange(updatedDish, before);
 
         publishDishAvailabilityChangedEvent(updatedDish);
 
@@ -252,8 +520,9 @@ public class DishServiceImpl implements DishService {
         Dish dish = dishRepository.findByIdAndCookId(dishId, cookId)
                 .orElseThrow(() -> new DishNotFoundException(dishId));
 
+        CookStatisticsCache.Contribution before = CookStatisticsCache.Contribution.of(dish);
         if (dish.getImages() != null && !dish.getImages().isEmpty()) {
-            fileStorageService.deleteFiles(dish.getImages());
+            fileStorageService.deleteFilesAfterCommit(releasableImages(dish));
             dish.setImages(new ArrayList<>());
         }
 
@@ -261,42 +530,50 @@ public class DishServiceImpl implements DishService {
         dish.setAvailable(false);
         dish.setDeactivationReason("Usunięte przez kucharza");
         dishRepository.save(dish);
+        recordChange(dish, before);
         publishDishDeletedEvent(dish);
     }
 
     @Override
     @Transactional(readOnly = true)
     public DishStatsResponse getCookStatistics(String cookId) {
-        return DishStatsResponse.builder()
-                .totalDishes(dishRepository.countTotalDishes(cookId))
-                .activeDishes(dishRepository.countActiveDishesForCook(cookId))
-                .availableDishes(dishRepository.countAvailableDishes(cookId))
-                .outOfStockDishes(
-                        dishRepository.countTotalDishes(cookId) -
-                                dishRepository.countAvailableDishes(cookId)
-                )
-                .totalRevenue(dishRepository.getTotalRevenue(cookId))
-                .totalOrders(dishRepository.getTotalOrders(cookId).intValue())
-                .averageRating(dishRepository.getAverageRating(cookId))
-                .averagePrice(dishRepository.getAveragePrice(cookId))
-                .build();
+        return cookStatisticsCache.get(cookId);
     }
 
-    @Override
-    public void updateOrderStats(Long dishId, BigDecimal itemTotal) {
-        Dish dish = dishRepository.findById(dishId)
-                .orElseThrow(() -> new DishNotFoundException(dishId));
+    private List<DishResponse> orderableInRankOrder(List<Long> rankedIds, int limit) {
+        if (rankedIds.isEmpty()) {
+            return List.of();
+        }
 
-        dish.updateOrderStats(itemTotal);
-        dishRepository.save(dish);
+        Map<Long, Dish> orderable = dishRepository.findAllById(rankedIds).stream()
+                .filter(Dish::canBeOrdered)
+                .collect(Collectors.toMap(Dish::getId, dish -> dish));
+        return rankedIds.stream()
+                .map(orderable::get)
+                .filter(Objects::nonNull)
+                .limit(limit)
+                .map(dishMapper::toResponse)
+                .collect(Collectors.toList());
     }
 
-    @Override
-    public void updateDishRating(Long dishId, BigDecimal rating) {
-        Dish dish = dishRepository.findById(dishId)
+    private Dish findActiveDish(Long dishId) {
+        // By id rather than a query, so a hit in the second-level cache skips the database.
+        return dishRepository.findById(dishId)
+                .filter(found -> Boolean.TRUE.equals(found.getIsActive()))
                 .orElseThrow(() -> new DishNotFoundException(dishId));
-        dish.updateRating(rating);
-        dishRepository.save(dish);
+    }
+
+    /**
+     * Built from what the body shows: the entity version, the counters written around it by the
+     * stats flush, and the cook summary entry the body carries.
+     */
+    private static String dishEtag(Dish dish, CookSummaryDto cook) {
+        return String.format("W/\"d%d-%d.%d.%d.%x\"",
+                dish.getId(),
+                dish.getVersion(),
+                dish.getTotalOrders(),
+                dish.getTotalRatings(),
+                Objects.hashCode(cook));
     }
 
     private void validateDishCreation(CreateDishRequest request, String cookId) {
@@ -314,8 +591,57 @@ public class DishServiceImpl implements DishService {
         }
     }
 
+    /**
+     * Image files are content-addressed, so identical uploads on different dishes share a file.
+     * Only files no other dish points at may be deleted together with this dish's images.
+     */
+    private List<String> releasableImages(Dish dish) {
+        List<String> images = dish.getImages();
+        if (images == null || images.isEmpty()) {
+            return images;
+        }
+        List<String> shared = dishRepository.findImagesReferencedByOtherDishes(images, dish.getId());
+        return images.stream()
+                .filter(url -> !shared.contains(url))
+                .collect(Collectors.toList());
+    }
+
+    private void recordChange(Dish dish, CookStatisticsCache.Contribution before) {
+        cookStatisticsCache.recordChange(dish.getCookId(), before, CookStatisticsCache.Contribution.of(dish));
+        if (dish.getId() != null) {
+            dishLookupCache.invalidateAfterCommit(dish.getId());
+            suggestionIndex.indexAfterCommit(dish);
+            facetIndex.indexAfterCommit(dish);
+        }
+    }
+
+    private void validateNearbyQuery(double latitude, double longitude, double radiusKm) {
+        if (latitude < -90 || latitude > 90 || longitude < -180 || longitude > 180) {
+            throw new BusinessValidationException("location", "Nieprawidłowe współrzędne");
+        }
+
+        if (radiusKm <= 0 || radiusKm > maxNearbyRadiusKm) {
+            throw new BusinessValidationException(
+                    "radiusKm",
+                    String.format("Promień musi mieścić się w przedziale (0, %.0f] km", maxNearbyRadiusKm)
+            );
+        }
+    }
+
+    private DishImportResponse.RowError rowError(ImportRow row, Map<String, String> errors) {
+        return DishImportResponse.RowError.builder()
+                .row(row.row())
+                .name(row.request() != null ? row.request().getName() : null)
+                .errors(errors)
+                .build();
+    }
+
     private void publishDishCreatedEvent(Dish dish) {
-        DishCreatedEvent event = DishCreatedEvent.builder()
+        eventPublisher.publishDishCreated(dishCreatedEvent(dish));
+    }
+
+    private DishCreatedEvent dishCreatedEvent(Dish dish) {
+        return DishCreatedEvent.builder()
                 .dishId(dish.getId())
                 .cookId(dish.getCookId())
                 .dishName(dish.getName())
@@ -325,8 +651,6 @@ public class DishServiceImpl implements DishService {
                 .currentStock(dish.getCurrentStock())
                 .createdAt(dish.getCreatedAt())
                 .build();
-
-        eventPublisher.publishDishCreated(event);
     }
 
     private void publishDishUpdatedEvent(Dish dish) {
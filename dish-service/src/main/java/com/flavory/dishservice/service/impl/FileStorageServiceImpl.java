@@ -2,39 +2,66 @@ package com.flavory.dishservice.service.impl;
 
 import com.flavory.dishservice.exception.FileStorageException;
 import com.flavory.dishservice.service.FileStorageService;
+import com.flavory.dishservice.service.FileStorageService.StagedFile;
+import com.flavory.dishservice.service.ImageVariantService;
+import com.flavory.dishservice.utils.ImageVariantUtil;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.util.StringUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.HexFormat;
 import java.util.List;
 import java.util.Objects;
-import java.util.UUID;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 @Service
 public class FileStorageServiceImpl implements FileStorageService {
 
+    private static final String URL_PREFIX = "/uploads/dishes/";
+
     private final Path fileStorageLocation;
+    private final Path stagingLocation;
 
     @Value("${app.file.max-size:10485760}")
     private Long maxFileSize;
 
-    @Value("${app.file.allowed-extensions:jpg,jpeg,png,webp,gif}")
+    @Value("${app.file.allowed-extensions:jpg,jpeg,png,gif}")
     private String allowedExtensions;
 
     @Value("${app.file.base-url:http://localhost:8080}")
     private String baseUrl;
 
-    public FileStorageServiceImpl(@Value("${app.file.upload-dir:/uploads/dishes}") String uploadDir) {
+    private final ImageVariantService imageVariantService;
+
+    public FileStorageServiceImpl(@Value("${app.file.upload-dir:/uploads/dishes}") String uploadDir,
+                                  @Value("${app.file.staging-dir:/uploads/.staging/dishes}") String stagingDir,
+                                  ImageVariantService imageVariantService) {
+        this.imageVariantService = imageVariantService;
         try {
             this.fileStorageLocation = Paths.get(uploadDir).toAbsolutePath().normalize();
+            this.stagingLocation = Paths.get(stagingDir).toAbsolutePath().normalize();
             Files.createDirectories(this.fileStorageLocation);
+            Files.createDirectories(this.stagingLocation);
         } catch (Exception ex) {
             throw new FileStorageException("Nie można utworzyć katalogu do przechowywania plików", ex);
         }
@@ -43,55 +70,143 @@ public class FileStorageServiceImpl implements FileStorageService {
     @Override
     public String storeFile(MultipartFile file) {
         validateFile(file);
+        StagedFile stagedFile = writeToStaging(file);
+        promote(stagedFile);
+        return stagedFile.url();
+    }
 
-        String originalFilename = StringUtils.cleanPath(Objects.requireNonNull(file.getOriginalFilename()));
-        String fileExtension = getFileExtension(originalFilename);
-        String newFilename = generateUniqueFilename(fileExtension);
+    @Override
+    public List<String> storeFiles(List<MultipartFile> files) {
+        List<StagedFile> stagedFiles = stageFiles(files);
+        stagedFiles.forEach(this::promote);
+        return urlsOf(stagedFiles);
+    }
 
-        try {
-            Path targetLocation = this.fileStorageLocation.resolve(newFilename);
-            Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
+    @Override
+    public List<StagedFile> stageFiles(List<MultipartFile> files) {
+        if (files == null || files.isEmpty()) {
+            return new ArrayList<>();
+        }
 
-            return "/uploads/dishes/" + newFilename;
+        List<MultipartFile> nonEmptyFiles = files.stream()
+                .filter(file -> !file.isEmpty())
+                .toList();
+        nonEmptyFiles.forEach(this::validateFile);
 
-        } catch (IOException ex) {
-            throw new FileStorageException("Nie można zapisać pliku " + newFilename, ex);
+        if (nonEmptyFiles.size() <= 1) {
+            return nonEmptyFiles.stream()
+                    .map(this::writeToStaging)
+                    .collect(Collectors.toCollection(ArrayList::new));
+        }
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<StagedFile>> futures = nonEmptyFiles.stream()
+                    .map(file -> executor.submit(() -> writeToStaging(file)))
+                    .toList();
+
+            List<StagedFile> stagedFiles = new ArrayList<>();
+            FileStorageException failure = null;
+            for (Future<StagedFile> future : futures) {
+                try {
+                    stagedFiles.add(future.get());
+                } catch (ExecutionException ex) {
+                    failure = ex.getCause() instanceof FileStorageException fse
+                            ? fse
+                            : new FileStorageException("Nie można zapisać pliku", ex.getCause());
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    failure = new FileStorageException("Przerwano zapis plików", ex);
+                }
+            }
+
+            if (failure != null) {
+                discardStagedFiles(stagedFiles);
+                throw failure;
+            }
+            return stagedFiles;
         }
     }
 
     @Override
-    public List<String> storeFiles(List<MultipartFile> files) {
-        if (files == null || files.isEmpty()) {
-            return new ArrayList<>();
+    public void promoteStagedFiles(List<StagedFile> stagedFiles) {
+        if (stagedFiles == null || stagedFiles.isEmpty()) {
+            return;
         }
 
-        List<String> fileUrls = new ArrayList<>();
-        for (MultipartFile file : files) {
-            if (!file.isEmpty()) {
-                String fileUrl = storeFile(file);
-                fileUrls.add(fileUrl);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            stagedFiles.forEach(this::promote);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void beforeCommit(boolean readOnly) {
+                stagedFiles.forEach(FileStorageServiceImpl.this::promote);
             }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status != STATUS_COMMITTED) {
+                    discardStagedFiles(stagedFiles);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void discardStagedFiles(List<StagedFile> stagedFiles) {
+        if (stagedFiles == null) {
+            return;
+        }
+        for (StagedFile stagedFile : stagedFiles) {
+            deleteQuietly(resolveStaged(stagedFile));
+        }
+    }
+
+    @Override
+    public void deleteFilesAfterCommit(List<String> fileUrls) {
+        if (fileUrls == null || fileUrls.isEmpty()) {
+            return;
         }
 
-        return fileUrls;
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            deleteFiles(fileUrls);
+            return;
+        }
+
+        List<String> toDelete = List.copyOf(fileUrls);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                deleteFiles(toDelete);
+            }
+        });
     }
 
     @Override
     public String updateFile(MultipartFile file, String existingFileUrl) {
-        if (existingFileUrl != null && !existingFileUrl.isEmpty()) {
-            deleteFile(existingFileUrl);
+        String newFileUrl = storeFile(file);
+
+        if (existingFileUrl != null && !existingFileUrl.isEmpty() && !existingFileUrl.equals(newFileUrl)) {
+            deleteFilesAfterCommit(List.of(existingFileUrl));
         }
 
-        return storeFile(file);
+        return newFileUrl;
     }
 
     @Override
     public List<String> updateFiles(List<MultipartFile> newFiles, List<String> existingFileUrls) {
+        List<StagedFile> stagedFiles = stageFiles(newFiles);
+        promoteStagedFiles(stagedFiles);
+        List<String> newFileUrls = urlsOf(stagedFiles);
+
         if (existingFileUrls != null && !existingFileUrls.isEmpty()) {
-            deleteFiles(existingFileUrls);
+            deleteFilesAfterCommit(existingFileUrls.stream()
+                    .filter(url -> !newFileUrls.contains(url))
+                    .toList());
         }
 
-        return storeFiles(newFiles);
+        return newFileUrls;
     }
 
     @Override
@@ -105,7 +220,7 @@ public class FileStorageServiceImpl implements FileStorageService {
                 fileUrl = fileUrl.replace(baseUrl, "");
             }
 
-            String filename = fileUrl.replace("/uploads/dishes/", "");
+            String filename = fileUrl.replace(URL_PREFIX, "");
             Path filePath = this.fileStorageLocation.resolve(filename).normalize();
 
             if (!filePath.startsWith(this.fileStorageLocation)) {
@@ -115,6 +230,7 @@ public class FileStorageServiceImpl implements FileStorageService {
             if (Files.exists(filePath)) {
                 Files.delete(filePath);
             }
+            deleteVariants(filePath);
 
         } catch (IOException ex) {
             throw new FileStorageException("Nie można usunąć pliku: " + fileUrl, ex);
@@ -149,7 +265,7 @@ public class FileStorageServiceImpl implements FileStorageService {
                 fileUrl = fileUrl.replace(baseUrl, "");
             }
 
-            String filename = fileUrl.replace("/uploads/dishes/", "");
+            String filename = fileUrl.replace(URL_PREFIX, "");
             Path filePath = this.fileStorageLocation.resolve(filename).normalize();
 
             return Files.exists(filePath);
@@ -158,6 +274,112 @@ public class FileStorageServiceImpl implements FileStorageService {
         }
     }
 
+    /**
+     * Writes the upload to a file of its own in the staging directory; the content hash only
+     * decides the published name, so concurrent uploads of the same image never share a file.
+     */
+    private StagedFile writeToStaging(MultipartFile file) {
+        String originalFilename = StringUtils.cleanPath(Objects.requireNonNull(file.getOriginalFilename()));
+        String fileExtension = getFileExtension(originalFilename);
+        Path stagedPath = null;
+
+        try {
+            stagedPath = Files.createTempFile(this.stagingLocation, "upload-", "." + fileExtension);
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            try (InputStream inputStream = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(inputStream, stagedPath, StandardCopyOption.REPLACE_EXISTING);
+            }
+
+            String newFilename = HexFormat.of().formatHex(digest.digest()) + "." + fileExtension;
+            return new StagedFile(URL_PREFIX + newFilename, stagedPath.getFileName().toString());
+
+        } catch (IOException | NoSuchAlgorithmException ex) {
+            deleteQuietly(stagedPath);
+            throw new FileStorageException("Nie można zapisać pliku " + originalFilename, ex);
+        }
+    }
+
+    private void promote(StagedFile stagedFile) {
+        Path staged = resolveStaged(stagedFile);
+        String url = stagedFile.url();
+        Path target = this.fileStorageLocation.resolve(url.substring(url.lastIndexOf('/') + 1)).normalize();
+
+        if (!target.getParent().equals(this.fileStorageLocation)) {
+            throw new FileStorageException("Próba dostępu do pliku poza dozwolonym katalogiem");
+        }
+
+        try {
+            // A hard link publishes atomically and, unlike rename, fails instead of replacing the target.
+            try {
+                Files.createLink(target, staged);
+            } catch (FileAlreadyExistsException ex) {
+                // Same content published already (possibly by a concurrent upload): keep that copy and
+                // refresh its timestamp so the orphan GC grace period covers the new reference. Variants
+                // the first upload failed to write get another attempt.
+                Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                if (hasMissingVariants(target)) {
+                    imageVariantService.generateVariants(target);
+                }
+                return;
+            } finally {
+                Files.deleteIfExists(staged);
+            }
+            imageVariantService.generateVariants(target);
+
+        } catch (IOException ex) {
+            throw new FileStorageException("Nie można opublikować pliku " + url, ex);
+        }
+    }
+
+    private boolean hasMissingVariants(Path original) {
+        String filename = original.getFileName().toString();
+        String baseName = filename.substring(0, filename.lastIndexOf('.'));
+        for (ImageVariantUtil.Variant variant : ImageVariantUtil.Variant.values()) {
+            if (!Files.exists(original.resolveSibling(ImageVariantUtil.variantFilename(baseName, variant)))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Path resolveStaged(StagedFile stagedFile) {
+        Path staged = this.stagingLocation.resolve(stagedFile.stagedName()).normalize();
+
+        if (!staged.getParent().equals(this.stagingLocation)) {
+            throw new FileStorageException("Próba dostępu do pliku poza dozwolonym katalogiem");
+        }
+        return staged;
+    }
+
+    private List<String> urlsOf(List<StagedFile> stagedFiles) {
+        return stagedFiles.stream()
+                .map(StagedFile::url)
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private void deleteVariants(Path filePath) throws IOException {
+        String filename = filePath.getFileName().toString();
+        int dot = filename.lastIndexOf('.');
+        String baseName = dot > 0 ? filename.substring(0, dot) : filename;
+
+        if (!ImageVariantUtil.isContentHashName(baseName)) {
+            return;
+        }
+        for (ImageVariantUtil.Variant variant : ImageVariantUtil.Variant.values()) {
+            Files.deleteIfExists(filePath.resolveSibling(ImageVariantUtil.variantFilename(baseName, variant)));
+        }
+    }
+
+    private void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignored) {
+        }
+    }
+
     private void validateFile(MultipartFile file) {
         if (file == null || file.isEmpty()) {
             throw new FileStorageException("Nie można zapisać pustego pliku");
@@ -207,11 +429,4 @@ public class FileStorageServiceImpl implements FileStorageService {
         }
         return filename.substring(lastIndexOf + 1);
     }
-
-    private String generateUniqueFilename(String extension) {
-        return String.format("%s.%s",
-                UUID.randomUUID().toString(),
-                extension
-        );
-    }
 }
@@ -0,0 +1,87 @@
+package com.flavory.dishservice.service.impl;
+
+import com.flavory.dishservice.service.ImageVariantService;
+import com.flavory.dishservice.utils.ImageVariantUtil;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+@Slf4j
+@Service
+public class ImageVariantServiceImpl implements ImageVariantService {
+
+    @Value("${app.file.variant-quality:0.82}")
+    private float quality;
+
+    @Override
+    @Async("imageTaskExecutor")
+    public void generateVariants(Path original) {
+        String filename = original.getFileName().toString();
+        String baseName = filename.substring(0, filename.lastIndexOf('.'));
+
+        try {
+            BufferedImage source = ImageIO.read(original.toFile());
+            if (source == null) {
+                log.warn("No ImageIO reader for {}, variants will fall back to the original", filename);
+                return;
+            }
+
+            for (ImageVariantUtil.Variant variant : ImageVariantUtil.Variant.values()) {
+                Path target = original.resolveSibling(ImageVariantUtil.variantFilename(baseName, variant));
+                if (!Files.exists(target)) {
+                    writeVariant(source, variant.getMaxDimension(), target);
+                }
+            }
+        } catch (IOException ex) {
+            log.error("Failed to generate variants for {}", filename, ex);
+        }
+    }
+
+    private void writeVariant(BufferedImage source, int maxDimension, Path target) throws IOException {
+        double scale = Math.min(1.0, (double) maxDimension / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+
+        BufferedImage resized = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = resized.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.setColor(Color.WHITE);
+            graphics.fillRect(0, 0, width, height);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+
+        Path temp = Files.createTempFile(target.getParent(), ".variant-", ".tmp");
+        ImageWriter writer = ImageIO.getImageWritersByFormatName("jpeg").next();
+        try (ImageOutputStream output = ImageIO.createImageOutputStream(temp.toFile())) {
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionQuality(quality);
+            writer.setOutput(output);
+            writer.write(null, new IIOImage(resized, null, null), param);
+        } catch (IOException ex) {
+            Files.deleteIfExists(temp);
+            throw ex;
+        } finally {
+            writer.dispose();
+        }
+
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
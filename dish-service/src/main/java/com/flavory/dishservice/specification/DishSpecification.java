@@ -1,9 +1,13 @@
 package com.flavory.dishservice.specification;
 
 import com.flavory.dishservice.entity.Dish;
+import com.flavory.dishservice.search.DishCursor;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Expression;
 import jakarta.persistence.criteria.Join;
 import jakarta.persistence.criteria.JoinType;
 import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
 import org.springframework.data.jpa.domain.Specification;
 
 import java.math.BigDecimal;
@@ -101,14 +105,7 @@ public class DishSpecification {
                 return cb.conjunction();
             }
 
-            var subquery = query.subquery(Long.class);
-            var subRoot = subquery.from(Dish.class);
-            var subAllergensJoin = subRoot.join("allergens");
-
-            subquery.select(subRoot.get("id"))
-                    .where(subAllergensJoin.in(excludedAllergens));
-
-            return cb.not(root.get("id").in(subquery));
+            return cb.equal(allergenMaskAnd(root, cb, Dish.Allergen.toMask(excludedAllergens)), 0);
         };
     }
 
@@ -118,11 +115,14 @@ public class DishSpecification {
                 return cb.conjunction();
             }
 
-            Join<Dish, Dish.Allergen> allergensJoin = root.join("allergens", JoinType.INNER);
-            return cb.equal(allergensJoin, allergen);
+            return cb.notEqual(allergenMaskAnd(root, cb, allergen.getMask()), 0);
         };
     }
 
+    private static Expression<Integer> allergenMaskAnd(Root<Dish> root, CriteriaBuilder cb, int mask) {
+        return cb.function("bitand", Integer.class, root.get("allergenMask"), cb.literal(mask));
+    }
+
     public static Specification<Dish> hasMinimumRating(BigDecimal minRating) {
         return (root, query, cb) ->
                 minRating == null ? cb.conjunction() :
@@ -172,6 +172,36 @@ public class DishSpecification {
                 .and(hasStock());
     }
 
+    /**
+     * Keyset condition for the page after {@code cursor}, or no condition for the first page.
+     * The redundant bound on the sort column alone lets PostgreSQL start the index range scan
+     * at the cursor. Results are distinct because the tag join of a text search can repeat a
+     * dish, which would shift the page boundary.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static Specification<Dish> after(DishCursor cursor) {
+        return (root, query, cb) -> {
+            query.distinct(true);
+            if (cursor == null) {
+                return cb.conjunction();
+            }
+
+            Expression key = root.get(cursor.sort().getProperty());
+            Comparable value = cursor.value();
+            Expression<Long> id = root.get("id");
+            if (cursor.direction().isAscending()) {
+                return cb.and(
+                        cb.greaterThanOrEqualTo(key, value),
+                        cb.or(cb.greaterThan(key, value),
+                                cb.and(cb.equal(key, value), cb.greaterThan(id, cursor.id()))));
+            }
+            return cb.and(
+                    cb.lessThanOrEqualTo(key, value),
+                    cb.or(cb.lessThan(key, value),
+                            cb.and(cb.equal(key, value), cb.lessThan(id, cursor.id()))));
+        };
+    }
+
     public static Specification<Dish> searchWithFilters(
             String searchTerm,
             Dish.DishCategory category,
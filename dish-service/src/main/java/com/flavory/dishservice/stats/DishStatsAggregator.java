@@ -0,0 +1,309 @@
+package com.flavory.dishservice.stats;
+
+import com.flavory.dishservice.cache.CatalogGeneration;
+import com.flavory.dishservice.cache.CookStatisticsCache;
+import com.flavory.dishservice.cache.SecondLevelCache;
+import com.flavory.dishservice.event.inbound.OrderCompletedEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+
+/**
+ * Write-behind buffer for the order and rating counters on {@code dishes}. Completed orders are
+ * buffered in memory and written periodically as relative {@code UPDATE}s, one per dish, so hot
+ * dishes no longer race on the entity version. Rating deltas also refresh the stored Bayesian
+ * {@code rating_score} against the configured prior.
+ *
+ * <p>Each flush first inserts the ids of the buffered events into {@code processed_events} and
+ * only applies the orders whose id was actually inserted, so an event redelivered to another
+ * replica is counted by whichever transaction claims the id first. The ids stay visible to
+ * {@link #record} until that transaction has committed. The {@link Completion} of an event runs
+ * once its counters are committed, or once it turned out to be a duplicate, and reports which of
+ * the two happened. The listener acknowledges the message there, so a crash before the flush
+ * leaves it to be redelivered, and feeds only counted orders to other consumers.
+ */
+@Slf4j
+@Component
+public class DishStatsAggregator {
+    static final String UPDATE_COUNTERS_SQL =
+            "UPDATE dishes SET " +
+            "total_orders = total_orders + ?, " +
+            "total_revenue = total_revenue + ?, " +
+            "rating_sum = rating_sum + ?, " +
+            "total_ratings = total_ratings + ?, " +
+            "average_rating = CASE WHEN total_ratings + ? > 0 " +
+            "THEN ROUND((rating_sum + ?) / (total_ratings + ?), 2) ELSE average_rating END, " +
+            "rating_score = ROUND((? + rating_sum + ?) / (? + total_ratings + ?), 4) " +
+            "WHERE id = ?";
+
+    static final String INSERT_PROCESSED_SQL =
+            "INSERT INTO processed_events (event_id, processed_at) " +
+            "SELECT event_id, ? FROM unnest(?::varchar[]) AS ids(event_id) " +
+            "ON CONFLICT DO NOTHING RETURNING event_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final CookStatisticsCache cookStatisticsCache;
+    private final CatalogGeneration catalogGeneration;
+    private final SecondLevelCache secondLevelCache;
+    private final BigDecimal priorWeight;
+    private final BigDecimal priorTotal;
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Queue<BufferedEvent> pendingEvents = new ConcurrentLinkedQueue<>();
+    private Set<String> pendingEventIds = ConcurrentHashMap.newKeySet();
+    private Set<String> flushingEventIds = Set.of();
+
+    public DishStatsAggregator(JdbcTemplate jdbcTemplate,
+                               PlatformTransactionManager transactionManager,
+                               CookStatisticsCache cookStatisticsCache,
+                               CatalogGeneration catalogGeneration,
+                               SecondLevelCache secondLevelCache,
+                               @Value("${app.rating.prior-mean:4.0}") BigDecimal priorMean,
+                               @Value("${app.rating.prior-weight:5}") BigDecimal priorWeight) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.cookStatisticsCache = cookStatisticsCache;
+        this.catalogGeneration = catalogGeneration;
+        this.secondLevelCache = secondLevelCache;
+        this.priorWeight = priorWeight;
+        this.priorTotal = priorWeight.multiply(priorMean);
+    }
+
+    /**
+     * Buffers the counters of a completed order. Returns {@code false} without buffering anything,
+     * and completes {@code completion} right away as not counted, when the event is already waiting
+     * for a flush or {@code alreadyProcessed} reports it as persisted.
+     *
+     * @throws IllegalArgumentException if the event lacks the cook, its items, or an item's dish or
+     *         total; such an event would fail every flush it is part of, so it is never buffered
+     */
+    public boolean record(OrderCompletedEvent event, Predicate<String> alreadyProcessed, Completion completion) {
+        String problem = problemOf(event);
+        if (problem != null) {
+            throw new IllegalArgumentException("Order completed event " + event.getEventId() + " " + problem);
+        }
+        String eventId = event.getEventId();
+
+        lock.readLock().lock();
+        try {
+            if (eventId == null || !(flushingEventIds.contains(eventId) || alreadyProcessed.test(eventId)
+                    || !pendingEventIds.add(eventId))) {
+                pendingEvents.add(new BufferedEvent(event, completion));
+                return true;
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        completion.complete(false);
+        return false;
+    }
+
+    @Scheduled(fixedDelayString = "${app.stats.flush-interval-ms:2000}")
+    public void flush() {
+        List<BufferedEvent> batch;
+        Set<String> eventIds;
+
+        lock.writeLock().lock();
+        try {
+            if (pendingEvents.isEmpty()) {
+                return;
+            }
+            batch = new ArrayList<>(pendingEvents);
+            eventIds = pendingEventIds;
+            pendingEvents = new ConcurrentLinkedQueue<>();
+            pendingEventIds = ConcurrentHashMap.newKeySet();
+            flushingEventIds = eventIds;
+        } finally {
+            lock.writeLock().unlock();
+        }
+
+        List<OrderCompletedEvent> applied;
+        try {
+            applied = transactionTemplate.execute(status -> write(batch));
+        } catch (RuntimeException ex) {
+            log.error("Flushing stats for {} orders failed, keeping them for the next attempt", batch.size(), ex);
+            requeue(batch, eventIds);
+            return;
+        } finally {
+            lock.writeLock().lock();
+            try {
+                flushingEventIds = Set.of();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        Map<Long, DishDelta> deltas = deltasOf(applied);
+        if (!deltas.isEmpty()) {
+            try {
+                secondLevelCache.evictDishes(deltas.keySet());
+                publishToCache(deltas);
+                catalogGeneration.markChanged();
+            } catch (RuntimeException ex) {
+                log.warn("Refreshing caches after flushing stats for {} dishes failed", deltas.size(), ex);
+            }
+        }
+
+        Set<OrderCompletedEvent> counted = Collections.newSetFromMap(new IdentityHashMap<>());
+        counted.addAll(applied);
+        for (BufferedEvent buffered : batch) {
+            try {
+                buffered.completion().complete(counted.contains(buffered.event()));
+            } catch (RuntimeException ex) {
+                log.warn("Post-flush callback for event {} failed", buffered.event().getEventId(), ex);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    /**
+     * Claims the event ids and applies the counters of the events whose claim succeeded. Returns
+     * those events; the rest were already counted by an earlier flush here or on another replica.
+     */
+    private List<OrderCompletedEvent> write(List<BufferedEvent> batch) {
+        String[] eventIds = batch.stream()
+                .map(buffered -> buffered.event().getEventId())
+                .filter(Objects::nonNull)
+                .toArray(String[]::new);
+        Set<String> claimed = eventIds.length == 0
+                ? Set.of()
+                : new HashSet<>(jdbcTemplate.queryForList(INSERT_PROCESSED_SQL, String.class,
+                        Timestamp.valueOf(LocalDateTime.now()), eventIds));
+
+        List<OrderCompletedEvent> applied = batch.stream()
+                .map(BufferedEvent::event)
+                .filter(event -> event.getEventId() == null || claimed.contains(event.getEventId()))
+                .toList();
+
+        Map<Long, DishDelta> deltas = deltasOf(applied);
+        if (!deltas.isEmpty()) {
+            List<Object[]> counterArgs = new ArrayList<>(deltas.size());
+            deltas.forEach((dishId, delta) -> counterArgs.add(new Object[]{
+                    delta.orders, delta.revenue,
+                    delta.ratingSum, delta.ratingCount,
+                    delta.ratingCount, delta.ratingSum, delta.ratingCount,
+                    priorTotal, delta.ratingSum, priorWeight, delta.ratingCount,
+                    dishId
+            }));
+            jdbcTemplate.batchUpdate(UPDATE_COUNTERS_SQL, counterArgs);
+        }
+        return applied;
+    }
+
+    private Map<Long, DishDelta> deltasOf(List<OrderCompletedEvent> events) {
+        Map<Long, DishDelta> deltas = new HashMap<>();
+        for (OrderCompletedEvent event : events) {
+            for (OrderCompletedEvent.OrderItem item : event.getItems()) {
+                deltas.computeIfAbsent(item.getDishId(), id -> new DishDelta(event.getCookId()))
+                        .addOrder(item.getItemTotal());
+            }
+            if (event.getDishRating() != null && event.getRatedDishId() != null) {
+                deltas.computeIfAbsent(event.getRatedDishId(), id -> new DishDelta(event.getCookId()))
+                        .addRating(event.getDishRating());
+            }
+        }
+        return deltas;
+    }
+
+    private static String problemOf(OrderCompletedEvent event) {
+        if (event.getCookId() == null) {
+            return "has no cook";
+        }
+        if (event.getItems() == null) {
+            return "has no items";
+        }
+        for (OrderCompletedEvent.OrderItem item : event.getItems()) {
+            if (item == null || item.getDishId() == null || item.getItemTotal() == null) {
+                return "has an item without a dish or total";
+            }
+        }
+        return null;
+    }
+
+    private void publishToCache(Map<Long, DishDelta> deltas) {
+        Set<String> ratedCooks = new HashSet<>();
+        deltas.values().forEach(delta -> {
+            if (delta.orders > 0) {
+                cookStatisticsCache.recordOrders(delta.cookId, delta.orders, delta.revenue);
+            }
+            if (delta.ratingCount > 0) {
+                ratedCooks.add(delta.cookId);
+            }
+        });
+        // The new per-dish averages are only known to the database; reload those cooks on next read.
+        ratedCooks.forEach(cookStatisticsCache::evict);
+    }
+
+    private void requeue(List<BufferedEvent> batch, Set<String> eventIds) {
+        lock.readLock().lock();
+        try {
+            pendingEvents.addAll(batch);
+            pendingEventIds.addAll(eventIds);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Runs once per recorded event; {@code counted} is {@code false} for duplicates of events
+     * counted before, here or on another replica.
+     */
+    @FunctionalInterface
+    public interface Completion {
+        void complete(boolean counted);
+    }
+
+    private record BufferedEvent(OrderCompletedEvent event, Completion completion) {
+    }
+
+    private static final class DishDelta {
+        private final String cookId;
+        private long orders;
+        private BigDecimal revenue = BigDecimal.ZERO;
+        private BigDecimal ratingSum = BigDecimal.ZERO;
+        private long ratingCount;
+
+        private DishDelta(String cookId) {
+            this.cookId = cookId;
+        }
+
+        void addOrder(BigDecimal itemTotal) {
+            orders++;
+            revenue = revenue.add(itemTotal);
+        }
+
+        void addRating(BigDecimal rating) {
+            ratingSum = ratingSum.add(rating);
+            ratingCount++;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package com.flavory.dishservice.stats;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Orders per dish over a sliding window, kept as a ring of time buckets per dish (5-minute
+ * buckets over 24 hours by default). Dishes are also held in a set ordered by their window
+ * total, which is updated on every change, so the top of the ranking is read without
+ * scanning. At most {@code max-tracked-dishes} dishes are tracked. When a new dish arrives
+ * at capacity, it takes over the ring of the lowest-ranked dish, so memory is fixed no
+ * matter how large the catalog is.
+ *
+ * <p>Each replica only counts the orders it consumes. Its ranking is therefore a sample of the
+ * global one.
+ */
+@Component
+public class TrendingTracker {
+    private static final Comparator<DishWindow> RANKING = Comparator.comparingLong(DishWindow::total)
+            .thenComparing(window -> window.dishId);
+
+    private final Clock clock;
+    private final long bucketMillis;
+    private final int bucketCount;
+    private final int maxTracked;
+    private final Map<Long, DishWindow> windows = new HashMap<>();
+    private final TreeSet<DishWindow> ranking = new TreeSet<>(RANKING);
+
+    @Autowired
+    public TrendingTracker(@Value("${app.trending.bucket-minutes:5}") int bucketMinutes,
+                           @Value("${app.trending.window-hours:24}") int windowHours,
+                           @Value("${app.trending.max-tracked-dishes:5000}") int maxTracked) {
+        this(Clock.systemUTC(), bucketMinutes, windowHours, maxTracked);
+    }
+
+    public TrendingTracker(Clock clock, int bucketMinutes, int windowHours, int maxTracked) {
+        this.clock = clock;
+        this.bucketMillis = Duration.ofMinutes(bucketMinutes).toMillis();
+        this.bucketCount = (int) (Duration.ofHours(windowHours).toMillis() / bucketMillis);
+        this.maxTracked = maxTracked;
+    }
+
+    /**
+     * Counts the ordered quantities once the current transaction commits, or immediately
+     * outside a transaction.
+     */
+    public void recordAfterCommit(Map<Long, Integer> quantities) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            record(quantities);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                record(quantities);
+            }
+        });
+    }
+
+    public synchronized void record(Map<Long, Integer> quantities) {
+        long bucket = currentBucket();
+        quantities.forEach((dishId, quantity) -> {
+            if (dishId == null || quantity == null || quantity <= 0) {
+                return;
+            }
+            DishWindow window = windows.get(dishId);
+            if (window == null) {
+                window = track(dishId);
+            } else {
+                ranking.remove(window);
+            }
+            window.advanceTo(bucket);
+            window.add(bucket, quantity);
+            ranking.add(window);
+        });
+    }
+
+    /**
+     * Dish ids with the most orders in the window, best first.
+     */
+    public synchronized List<Long> top(int limit) {
+        List<Long> top = new ArrayList<>(limit);
+        Iterator<DishWindow> iterator = ranking.descendingIterator();
+        while (iterator.hasNext() && top.size() < limit) {
+            top.add(iterator.next().dishId);
+        }
+        return top;
+    }
+
+    /**
+     * Expires buckets that slid out of the window and stops tracking dishes with no orders left.
+     */
+    @Scheduled(fixedDelayString = "${app.trending.expire-interval-ms:60000}")
+    public synchronized void expire() {
+        long bucket = currentBucket();
+        for (Iterator<DishWindow> iterator = windows.values().iterator(); iterator.hasNext(); ) {
+            DishWindow window = iterator.next();
+            if (window.lastBucket == bucket) {
+                continue;
+            }
+            ranking.remove(window);
+            window.advanceTo(bucket);
+            if (window.total == 0) {
+                iterator.remove();
+            } else {
+                ranking.add(window);
+            }
+        }
+    }
+
+    private DishWindow track(Long dishId) {
+        DishWindow window;
+        if (windows.size() < maxTracked) {
+            window = new DishWindow(bucketCount);
+        } else {
+            window = ranking.pollFirst();
+            windows.remove(window.dishId);
+        }
+        window.dishId = dishId;
+        window.lastBucket = Long.MIN_VALUE;
+        windows.put(dishId, window);
+        return window;
+    }
+
+    private long currentBucket() {
+        return clock.millis() / bucketMillis;
+    }
+
+    private static final class DishWindow {
+        private final int[] buckets;
+        private Long dishId;
+        private long lastBucket = Long.MIN_VALUE;
+        private long total;
+
+        private DishWindow(int bucketCount) {
+            this.buckets = new int[bucketCount];
+        }
+
+        long total() {
+            return total;
+        }
+
+        void advanceTo(long bucket) {
+            if (lastBucket == Long.MIN_VALUE || bucket - lastBucket >= buckets.length) {
+                Arrays.fill(buckets, 0);
+                total = 0;
+            } else {
+                for (long expired = lastBucket + 1; expired <= bucket; expired++) {
+                    int slot = (int) (expired % buckets.length);
+                    total -= buckets[slot];
+                    buckets[slot] = 0;
+                }
+            }
+            lastBucket = bucket;
+        }
+
+        void add(long bucket, int quantity) {
+            buckets[(int) (bucket % buckets.length)] += quantity;
+            total += quantity;
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package com.flavory.dishservice.sync;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compact log of dish changes for client-side catalog sync: one row per dish holding the id of
+ * the transaction that last wrote it and whether that write deleted it. Rows are written by a
+ * trigger on {@code dishes}, so the bulk SQL jobs are covered as well as entity writes.
+ *
+ * <p>Transaction ids are assigned in start order, not commit order, so a reader cannot simply
+ * remember the highest id it has seen: a transaction that started earlier may still commit
+ * with a lower one. A token therefore never moves past the oldest transaction still running
+ * when the changes were read ({@code pg_snapshot_xmin}). Changes at or after that point are
+ * delivered again by the next sync, which clients apply as idempotent upserts.
+ *
+ * <p>Tombstones are pruned once they are older than the retention period. A token that
+ * has not caught up within that period can no longer be served incrementally, and the
+ * client gets a full sync instead.
+ */
+@Slf4j
+@Component
+public class DishChangeLog implements ApplicationRunner {
+    static final String CREATE_TABLE_SQL =
+            "CREATE TABLE IF NOT EXISTS dish_changes (" +
+            "dish_id BIGINT PRIMARY KEY, " +
+            "cook_id VARCHAR(255) NOT NULL, " +
+            "deleted BOOLEAN NOT NULL, " +
+            "txid xid8 NOT NULL, " +
+            "changed_at TIMESTAMP NOT NULL DEFAULT now())";
+
+    static final String CREATE_INDEXES_SQL =
+            "CREATE INDEX IF NOT EXISTS idx_dish_changes_txid ON dish_changes (txid, dish_id); " +
+            "CREATE INDEX IF NOT EXISTS idx_dish_changes_cook_txid ON dish_changes (cook_id, txid, dish_id)";
+
+    static final String CREATE_FUNCTION_SQL =
+            "CREATE OR REPLACE FUNCTION record_dish_change() RETURNS trigger AS $$ " +
+            "BEGIN " +
+            "  INSERT INTO dish_changes (dish_id, cook_id, deleted, txid, changed_at) " +
+            "  VALUES (NEW.id, NEW.cook_id, NOT NEW.is_active, pg_current_xact_id(), now()) " +
+            "  ON CONFLICT (dish_id) DO UPDATE SET deleted = EXCLUDED.deleted, txid = EXCLUDED.txid, " +
+            "    changed_at = EXCLUDED.changed_at; " +
+            "  RETURN NULL; " +
+            "END $$ LANGUAGE plpgsql";
+
+    static final String CREATE_TRIGGERS_SQL =
+            "CREATE OR REPLACE TRIGGER dish_change_on_insert AFTER INSERT ON dishes " +
+            "  FOR EACH ROW EXECUTE FUNCTION record_dish_change(); " +
+            "CREATE OR REPLACE TRIGGER dish_change_on_update AFTER UPDATE ON dishes " +
+            "  FOR EACH ROW WHEN (OLD.* IS DISTINCT FROM NEW.*) EXECUTE FUNCTION record_dish_change()";
+
+    static final String BACKFILL_SQL =
+            "INSERT INTO dish_changes (dish_id, cook_id, deleted, txid) " +
+            "SELECT id, cook_id, NOT is_active, pg_current_xact_id() FROM dishes " +
+            "ON CONFLICT (dish_id) DO NOTHING";
+
+    static final String HORIZON_SQL = "SELECT pg_snapshot_xmin(pg_current_snapshot())::text::bigint";
+
+    static final String CHANGES_SQL =
+            "SELECT dish_id, deleted, txid::text::bigint AS txid FROM dish_changes " +
+            "WHERE (txid, dish_id) > (?::text::xid8, ?)";
+
+    static final String PRUNE_SQL =
+            "DELETE FROM dish_changes WHERE deleted AND changed_at < now() - make_interval(secs => ?)";
+
+    private static final RowMapper<Change> ROW_MAPPER = (rs, rowNum) -> new Change(
+            rs.getLong("dish_id"),
+            rs.getBoolean("deleted"),
+            rs.getLong("txid")
+    );
+
+    // A transaction still running when a token was issued can commit a tombstone dated before
+    // the token. Tombstones are kept this much longer than tokens stay valid to cover it.
+    private static final Duration IN_FLIGHT_GRACE = Duration.ofHours(1);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration retention;
+
+    public DishChangeLog(JdbcTemplate jdbcTemplate,
+                         @Value("${app.sync.tombstone-retention-days:30}") int retentionDays) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.retention = Duration.ofDays(retentionDays);
+    }
+
+    @Override
+    @Transactional
+    public void run(ApplicationArguments args) {
+        jdbcTemplate.execute(CREATE_TABLE_SQL);
+        jdbcTemplate.execute(CREATE_INDEXES_SQL);
+        jdbcTemplate.execute(CREATE_FUNCTION_SQL);
+        jdbcTemplate.execute(CREATE_TRIGGERS_SQL);
+        int backfilled = jdbcTemplate.update(BACKFILL_SQL);
+        if (backfilled > 0) {
+            log.info("Seeded the dish change log with {} dishes", backfilled);
+        }
+    }
+
+    /**
+     * Up to {@code limit} changes after {@code since}, optionally for one cook. A missing or
+     * expired token starts over from the beginning and skips tombstones, since such a client
+     * has to replace its local copy anyway.
+     */
+    public ChangeSet changesSince(String since, String cookId, int limit) {
+        Instant now = Instant.now();
+        SyncToken token = since != null && !since.isBlank() ? SyncToken.decode(since) : null;
+        boolean reset = token == null || token.caughtUpAt().isBefore(now.minus(retention));
+        SyncToken from = reset ? SyncToken.START : token;
+
+        // Read the horizon first: every transaction below it has finished before the changes are read.
+        Long horizon = jdbcTemplate.queryForObject(HORIZON_SQL, Long.class);
+        long stableBelow = horizon != null ? horizon : 0L;
+
+        StringBuilder sql = new StringBuilder(CHANGES_SQL);
+        List<Object> args = new ArrayList<>(List.of(Long.toString(from.txid()), from.dishId()));
+        if (cookId != null) {
+            sql.append(" AND cook_id = ?");
+            args.add(cookId);
+        }
+        if (reset) {
+            sql.append(" AND NOT deleted");
+        }
+        sql.append(" ORDER BY txid, dish_id LIMIT ?");
+        args.add(limit + 1);
+        List<Change> rows = jdbcTemplate.query(sql.toString(), ROW_MAPPER, args.toArray());
+
+        List<Change> changes = rows;
+        SyncToken next = new SyncToken(stableBelow, 0, now);
+        if (rows.size() > limit) {
+            changes = rows.subList(0, limit);
+            Change last = changes.get(changes.size() - 1);
+            if (next.isAfter(last.txid(), last.dishId())) {
+                // Paging on; the client has not caught up yet. A full sync has nothing older to lose.
+                Instant caughtUpAt = reset ? now : from.caughtUpAt();
+                return new ChangeSet(changes, new SyncToken(last.txid(), last.dishId(), caughtUpAt).encode(),
+                        true, reset);
+            }
+            // The page runs into transactions that may still be running, so every stable change is in
+            // it. Stop at the horizon; the rest comes with the next sync.
+            changes = changes.stream()
+                    .filter(change -> next.isAfter(change.txid(), change.dishId()))
+                    .toList();
+        }
+        return new ChangeSet(changes, next.encode(), false, reset);
+    }
+
+    @Scheduled(cron = "${app.sync.prune-cron:0 30 3 * * *}")
+    public void pruneTombstones() {
+        int pruned = jdbcTemplate.update(PRUNE_SQL, retention.plus(IN_FLIGHT_GRACE).toSeconds());
+        if (pruned > 0) {
+            log.info("Pruned {} dish tombstones", pruned);
+        }
+    }
+
+    public record Change(Long dishId, boolean deleted, long txid) {
+    }
+
+    public record ChangeSet(List<Change> changes, String token, boolean hasMore, boolean reset) {
+    }
+}
@@ -0,0 +1,38 @@
+package com.flavory.dishservice.sync;
+
+import com.flavory.dishservice.exception.BusinessValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Base64;
+
+/**
+ * Where a client's copy of the catalog stands in the change log: the transaction id and dish id
+ * of the last change it has seen, and when it last caught up completely. Serialized as an
+ * opaque URL-safe token.
+ */
+public record SyncToken(long txid, long dishId, Instant caughtUpAt) {
+    public static final SyncToken START = new SyncToken(0, 0, Instant.EPOCH);
+
+    public boolean isAfter(long otherTxid, long otherDishId) {
+        return txid > otherTxid || (txid == otherTxid && dishId > otherDishId);
+    }
+
+    public String encode() {
+        String raw = txid + "." + dishId + "." + caughtUpAt.getEpochSecond();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SyncToken decode(String token) {
+        try {
+            String[] parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\\.");
+            if (parts.length == 3) {
+                return new SyncToken(Long.parseLong(parts[0]), Long.parseLong(parts[1]),
+                        Instant.ofEpochSecond(Long.parseLong(parts[2])));
+            }
+        } catch (RuntimeException ignored) {
+            // Reported below, like any other malformed token.
+        }
+        throw new BusinessValidationException("since", "Nieprawidłowy token synchronizacji");
+    }
+}
@@ -0,0 +1,61 @@
+package com.flavory.dishservice.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fixed lat/lon grid used to index cook pickup locations. Each point maps to a single
+ * {@code long} cell id stored in a B-tree indexed column; a radius query becomes an
+ * {@code IN} over the cells covering its bounding box followed by an exact distance check.
+ */
+public final class GeoGridUtil {
+
+    public static final double CELL_SIZE_DEGREES = 0.05;
+    private static final long LON_CELLS = (long) Math.ceil(360.0 / CELL_SIZE_DEGREES);
+    private static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE_LAT = 111.32;
+
+    private GeoGridUtil() {
+    }
+
+    public static long cellOf(double latitude, double longitude) {
+        return latIndex(latitude) * LON_CELLS + lonIndex(longitude);
+    }
+
+    public static List<Long> coveringCells(double latitude, double longitude, double radiusKm) {
+        double latDelta = radiusKm / KM_PER_DEGREE_LAT;
+        double cosLat = Math.max(Math.cos(Math.toRadians(latitude)), 0.01);
+        double lonDelta = Math.min(radiusKm / (KM_PER_DEGREE_LAT * cosLat), 180.0);
+
+        long minLat = latIndex(Math.max(latitude - latDelta, -90.0));
+        long maxLat = latIndex(Math.min(latitude + latDelta, 90.0));
+        long minLon = (long) Math.floor((longitude - lonDelta + 180.0) / CELL_SIZE_DEGREES);
+        long maxLon = (long) Math.floor((longitude + lonDelta + 180.0) / CELL_SIZE_DEGREES);
+
+        List<Long> cells = new ArrayList<>();
+        for (long lat = minLat; lat <= maxLat; lat++) {
+            for (long lon = minLon; lon <= maxLon && lon - minLon < LON_CELLS; lon++) {
+                cells.add(lat * LON_CELLS + Math.floorMod(lon, LON_CELLS));
+            }
+        }
+        return cells;
+    }
+
+    public static double distanceKm(double lat1, double lon1, double lat2, double lon2) {
+        double dLat = Math.toRadians(lat2 - lat1);
+        double dLon = Math.toRadians(lon2 - lon1);
+        double a = Math.sin(dLat / 2) * Math.sin(dLat / 2)
+                + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
+                * Math.sin(dLon / 2) * Math.sin(dLon / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(a)));
+    }
+
+    private static long latIndex(double latitude) {
+        long maxIndex = (long) Math.ceil(180.0 / CELL_SIZE_DEGREES) - 1;
+        return Math.min((long) Math.floor((latitude + 90.0) / CELL_SIZE_DEGREES), maxIndex);
+    }
+
+    private static long lonIndex(double longitude) {
+        return Math.floorMod((long) Math.floor((longitude + 180.0) / CELL_SIZE_DEGREES), LON_CELLS);
+    }
+}
@@ -0,0 +1,64 @@
+package com.flavory.dishservice.utils;
+
+import lombok.Getter;
+
+import java.util.regex.Pattern;
+
+/**
+ * Naming scheme for resized copies of uploaded dish photos. Originals are stored as
+ * {@code <sha256>.<ext>}; each variant is written next to it as {@code <sha256>_<suffix>.jpg}.
+ * Both names are derived from the content, so they can be served as immutable.
+ */
+public final class ImageVariantUtil {
+
+    private static final Pattern CONTENT_HASH_NAME = Pattern.compile("[0-9a-f]{64}");
+    public static final String VARIANT_EXTENSION = "jpg";
+
+    private ImageVariantUtil() {
+    }
+
+    @Getter
+    public enum Variant {
+        THUMBNAIL("thumb", 200),
+        CARD("card", 600),
+        FULL("full", 1600);
+
+        private final String suffix;
+        private final int maxDimension;
+
+        Variant(String suffix, int maxDimension) {
+            this.suffix = suffix;
+            this.maxDimension = maxDimension;
+        }
+    }
+
+    public static boolean isContentHashName(String baseName) {
+        return baseName != null && CONTENT_HASH_NAME.matcher(baseName).matches();
+    }
+
+    public static String variantFilename(String baseName, Variant variant) {
+        return baseName + "_" + variant.getSuffix() + "." + VARIANT_EXTENSION;
+    }
+
+    /**
+     * Returns the URL of the given variant, or the original URL when the file predates
+     * content-hash naming and therefore has no variants.
+     */
+    public static String variantUrl(String originalUrl, Variant variant) {
+        if (originalUrl == null) {
+            return null;
+        }
+
+        int slash = originalUrl.lastIndexOf('/');
+        int dot = originalUrl.lastIndexOf('.');
+        if (dot <= slash) {
+            return originalUrl;
+        }
+
+        String baseName = originalUrl.substring(slash + 1, dot);
+        if (!isContentHashName(baseName)) {
+            return originalUrl;
+        }
+        return originalUrl.substring(0, slash + 1) + variantFilename(baseName, variant);
+    }
+}
@@ -0,0 +1,97 @@
+package com.flavory.dishservice.serviceTests;
+
+import com.flavory.dishservice.event.inbound.OrderCompletedEvent;
+import com.flavory.dishservice.recommendation.CoOccurrenceModel;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CoOccurrenceModel Tests")
+class CoOccurrenceModelTest {
+
+    @Mock private JdbcTemplate jdbcTemplate;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private CoOccurrenceModel model;
+
+    @BeforeEach
+    void setUp() {
+        model = new CoOccurrenceModel(jdbcTemplate, transactionManager, 14, 2);
+    }
+
+    private OrderCompletedEvent order(Long... dishIds) {
+        return OrderCompletedEvent.builder()
+                .items(Arrays.stream(dishIds)
+                        .map(id -> OrderCompletedEvent.OrderItem.builder().dishId(id).build())
+                        .toList())
+                .build();
+    }
+
+    @Test
+    @DisplayName("Should rank neighbours by how often they were ordered together")
+    void shouldRankNeighbours() {
+        model.record(order(1L, 2L, 3L));
+        model.record(order(1L, 3L));
+        model.record(order(1L, 1L));
+
+        assertThat(model.neighbours(1L, 5)).containsExactly(3L, 2L);
+        assertThat(model.neighbours(2L, 5)).containsExactly(1L, 3L);
+        assertThat(model.neighbours(1L, 1)).containsExactly(3L);
+        assertThat(model.neighbours(9L, 5)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should replace the weakest neighbour when a dish is full")
+    void shouldBoundNeighbours() {
+        model.record(order(1L, 2L));
+        model.record(order(1L, 2L));
+        model.record(order(1L, 3L));
+        model.record(order(1L, 4L));
+
+        assertThat(model.neighbours(1L, 5)).containsExactlyInAnyOrder(2L, 4L);
+    }
+
+    @Test
+    @DisplayName("Should checkpoint buffered pairs and keep them when the write fails")
+    @SuppressWarnings("unchecked")
+    void shouldCheckpoint() {
+        model.record(order(1L, 2L));
+        doThrow(new DataAccessResourceFailureException("down"))
+                .doReturn(new int[0])
+                .when(jdbcTemplate).batchUpdate(contains("dish_cooccurrence"), anyList());
+
+        model.checkpoint();
+        model.checkpoint();
+
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate, times(2)).batchUpdate(contains("ON CONFLICT"), captor.capture());
+        assertThat(captor.getValue()).hasSize(2)
+                .allSatisfy(args -> assertThat(args[2]).isEqualTo(1.0));
+        verify(jdbcTemplate).update(contains("DELETE FROM dish_cooccurrence"), any(), any(), eq(2), any());
+    }
+
+    @Test
+    @DisplayName("Should not record orders with a single dish")
+    void shouldIgnoreSingleDishOrders() {
+        model.record(order(1L));
+        model.checkpoint();
+
+        verify(jdbcTemplate, never()).batchUpdate(anyString(), anyList());
+    }
+}
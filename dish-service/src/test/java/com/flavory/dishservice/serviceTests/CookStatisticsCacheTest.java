@@ -0,0 +1,111 @@
+package com.flavory.dishservice.serviceTests;
+
+import com.flavory.dishservice.cache.CookStatisticsCache;
+import com.flavory.dishservice.dto.response.DishStatsResponse;
+import com.flavory.dishservice.entity.Dish;
+import com.flavory.dishservice.repository.CookStatisticsView;
+import com.flavory.dishservice.repository.DishRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CookStatisticsCache Tests")
+class CookStatisticsCacheTest {
+
+    private static final String COOK_ID = "cook123";
+
+    @Mock private DishRepository dishRepository;
+    @Mock private CookStatisticsView view;
+
+    private CookStatisticsCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new CookStatisticsCache(dishRepository, 10, 100);
+        lenient().when(view.getActiveDishes()).thenReturn(2L);
+        lenient().when(view.getAvailableDishes()).thenReturn(1L);
+        lenient().when(view.getTotalRevenue()).thenReturn(new BigDecimal("100.00"));
+        lenient().when(view.getTotalOrders()).thenReturn(4L);
+        lenient().when(view.getRatingSum()).thenReturn(new BigDecimal("9.00"));
+        lenient().when(view.getRatedDishes()).thenReturn(2L);
+        lenient().when(view.getPriceSum()).thenReturn(new BigDecimal("50.00"));
+        lenient().when(dishRepository.aggregateCookStatistics(COOK_ID)).thenReturn(view);
+    }
+
+    private Dish dish(int stock, int orders, String revenue) {
+        return Dish.builder()
+                .cookId(COOK_ID)
+                .price(new BigDecimal("25.00"))
+                .isActive(true)
+                .available(stock > 0)
+                .currentStock(stock)
+                .totalOrders(orders)
+                .totalRevenue(new BigDecimal(revenue))
+                .averageRating(new BigDecimal("4.50"))
+                .totalRatings(1)
+                .build();
+    }
+
+    @Test
+    @DisplayName("Should load statistics with one query and serve repeats from memory")
+    void shouldLoadOnce() {
+        DishStatsResponse first = cache.get(COOK_ID);
+        cache.get(COOK_ID);
+
+        verify(dishRepository, times(1)).aggregateCookStatistics(COOK_ID);
+        assertThat(first.getTotalDishes()).isEqualTo(2L);
+        assertThat(first.getOutOfStockDishes()).isEqualTo(1L);
+        assertThat(first.getAverageRating()).isEqualByComparingTo("4.50");
+        assertThat(first.getAveragePrice()).isEqualByComparingTo("25.00");
+    }
+
+    @Test
+    @DisplayName("Should apply order and stock changes incrementally")
+    void shouldApplyDeltas() {
+        cache.get(COOK_ID);
+        Dish before = dish(1, 2, "50.00");
+        Dish after = dish(0, 3, "75.00");
+
+        cache.recordChange(COOK_ID, CookStatisticsCache.Contribution.of(before), CookStatisticsCache.Contribution.of(after));
+        DishStatsResponse stats = cache.get(COOK_ID);
+
+        assertThat(stats.getAvailableDishes()).isZero();
+        assertThat(stats.getOutOfStockDishes()).isEqualTo(2L);
+        assertThat(stats.getTotalOrders()).isEqualTo(5);
+        assertThat(stats.getTotalRevenue()).isEqualByComparingTo("125.00");
+        verify(dishRepository, times(1)).aggregateCookStatistics(COOK_ID);
+    }
+
+    @Test
+    @DisplayName("Should count a new dish")
+    void shouldAddNewDish() {
+        cache.get(COOK_ID);
+
+        cache.recordChange(COOK_ID, CookStatisticsCache.Contribution.NONE,
+                CookStatisticsCache.Contribution.of(dish(5, 0, "0")));
+        DishStatsResponse stats = cache.get(COOK_ID);
+
+        assertThat(stats.getActiveDishes()).isEqualTo(3L);
+        assertThat(stats.getAvailableDishes()).isEqualTo(2L);
+        assertThat(stats.getAveragePrice()).isEqualByComparingTo("25.00");
+        assertThat(stats.getAverageRating()).isEqualByComparingTo("4.50");
+    }
+
+    @Test
+    @DisplayName("Should ignore changes for cooks that are not cached")
+    void shouldIgnoreUncachedCook() {
+        cache.recordChange(COOK_ID, CookStatisticsCache.Contribution.NONE,
+                CookStatisticsCache.Contribution.of(dish(5, 0, "0")));
+
+        assertThat(cache.get(COOK_ID).getActiveDishes()).isEqualTo(2L);
+    }
+}
@@ -0,0 +1,89 @@
+package com.flavory.dishservice.serviceTests;
+
+import com.flavory.dishservice.cache.CookSummaryCache;
+import com.flavory.dishservice.dto.response.CookSummaryDto;
+import com.flavory.dishservice.entity.CookProfile;
+import com.flavory.dishservice.repository.CookProfileRepository;
+import com.flavory.dishservice.repository.CookSummaryView;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("CookSummaryCache Tests")
+class CookSummaryCacheTest {
+
+    private static final String COOK_ID = "cook123";
+    private static final LocalDateTime UPDATED_AT = LocalDateTime.of(2026, 3, 1, 12, 0);
+
+    @Mock private CookProfileRepository cookProfileRepository;
+
+    private CookSummaryCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new CookSummaryCache(cookProfileRepository);
+    }
+
+    private CookSummaryView view(String cookId, String firstName, LocalDateTime updatedAt) {
+        CookSummaryView view = mock(CookSummaryView.class);
+        when(view.getCookId()).thenReturn(cookId);
+        when(view.getFirstName()).thenReturn(firstName);
+        when(view.getLastName()).thenReturn("Kowalska");
+        when(view.getRole()).thenReturn("COOK");
+        when(view.getUpdatedAt()).thenReturn(updatedAt);
+        return view;
+    }
+
+    @Test
+    @DisplayName("Should serve summaries loaded at startup")
+    void shouldWarmUp() {
+        List<CookSummaryView> views = List.of(view(COOK_ID, "Anna", UPDATED_AT));
+        when(cookProfileRepository.findAllSummaries()).thenReturn(views);
+
+        cache.warmUp();
+        CookSummaryDto summary = cache.get(COOK_ID);
+
+        assertThat(summary.getFullName()).isEqualTo("Anna Kowalska");
+        assertThat(summary.getRole()).isEqualTo("COOK");
+    }
+
+    @Test
+    @DisplayName("Should return an empty summary for unknown cooks without querying")
+    void shouldReturnEmptyForUnknownCook() {
+        assertThat(cache.get("unknown").getFullName()).isEmpty();
+
+        verifyNoInteractions(cookProfileRepository);
+    }
+
+    @Test
+    @DisplayName("Should replace the summary from a profile update")
+    void shouldApplyProfileUpdate() {
+        cache.putAfterCommit(CookProfile.builder().cookId(COOK_ID).firstName("Ewa").build());
+
+        assertThat(cache.get(COOK_ID).getFullName()).isEqualTo("Ewa");
+    }
+
+    @Test
+    @DisplayName("Should poll for profiles changed since the newest one seen")
+    void shouldPollFromWatermark() {
+        List<CookSummaryView> views = List.of(view(COOK_ID, "Anna", UPDATED_AT));
+        when(cookProfileRepository.findAllSummaries()).thenReturn(views);
+        cache.warmUp();
+
+        List<CookSummaryView> changed = List.of(view(COOK_ID, "Zofia", UPDATED_AT.plusMinutes(5)));
+        when(cookProfileRepository.findSummariesUpdatedAfter(UPDATED_AT.minusMinutes(1))).thenReturn(changed);
+        cache.refresh();
+
+        assertThat(cache.get(COOK_ID).getFullName()).isEqualTo("Zofia Kowalska");
+    }
+}
@@ -0,0 +1,118 @@
+package com.flavory.dishservice.serviceTests;
+
+import com.flavory.dishservice.exception.BusinessValidationException;
+import com.flavory.dishservice.sync.DishChangeLog;
+import com.flavory.dishservice.sync.SyncToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DishChangeLog Tests")
+class DishChangeLogTest {
+
+    @Mock private JdbcTemplate jdbcTemplate;
+
+    private DishChangeLog changeLog;
+
+    @BeforeEach
+    void setUp() {
+        changeLog = new DishChangeLog(jdbcTemplate, 30);
+    }
+
+    private void givenChanges(long horizon, DishChangeLog.Change... changes) {
+        when(jdbcTemplate.queryForObject(anyString(), eq(Long.class))).thenReturn(horizon);
+        doReturn(List.of(changes)).when(jdbcTemplate).query(anyString(), ArgumentMatchers.<RowMapper<DishChangeLog.Change>>any(), any(Object[].class));
+    }
+
+    @Test
+    @DisplayName("Should not move the token past transactions still running")
+    void shouldStopAtHorizon() {
+        givenChanges(100L, new DishChangeLog.Change(1L, false, 90L), new DishChangeLog.Change(2L, false, 120L));
+
+        DishChangeLog.ChangeSet changeSet = changeLog.changesSince(null, null, 10);
+
+        SyncToken next = SyncToken.decode(changeSet.token());
+        assertThat(changeSet.changes()).hasSize(2);
+        assertThat(changeSet.hasMore()).isFalse();
+        assertThat(changeSet.reset()).isTrue();
+        assertThat(next.txid()).isEqualTo(100L);
+        assertThat(next.dishId()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should continue after the last change of a full page")
+    void shouldPageFromLastChange() {
+        givenChanges(100L, new DishChangeLog.Change(1L, false, 50L), new DishChangeLog.Change(2L, true, 60L),
+                new DishChangeLog.Change(3L, false, 70L));
+        Instant caughtUpAt = Instant.now().minus(1, ChronoUnit.DAYS).truncatedTo(ChronoUnit.SECONDS);
+        String since = new SyncToken(40L, 0L, caughtUpAt).encode();
+
+        DishChangeLog.ChangeSet changeSet = changeLog.changesSince(since, "cook", 2);
+
+        SyncToken next = SyncToken.decode(changeSet.token());
+        assertThat(changeSet.changes()).extracting(DishChangeLog.Change::dishId).containsExactly(1L, 2L);
+        assertThat(changeSet.hasMore()).isTrue();
+        assertThat(changeSet.reset()).isFalse();
+        assertThat(next).isEqualTo(new SyncToken(60L, 2L, caughtUpAt));
+
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sql.capture(), ArgumentMatchers.<RowMapper<DishChangeLog.Change>>any(), eq("40"), eq(0L), eq("cook"), eq(3));
+        assertThat(sql.getValue()).contains("cook_id = ?").doesNotContain("NOT deleted");
+    }
+
+    @Test
+    @DisplayName("Should stop at the horizon when a full page reaches running transactions")
+    void shouldNotRepeatPageAtHorizon() {
+        givenChanges(100L, new DishChangeLog.Change(1L, false, 90L), new DishChangeLog.Change(2L, false, 120L),
+                new DishChangeLog.Change(3L, false, 130L));
+        String since = new SyncToken(80L, 0L, Instant.now().minus(1, ChronoUnit.DAYS)).encode();
+
+        DishChangeLog.ChangeSet changeSet = changeLog.changesSince(since, null, 2);
+
+        SyncToken next = SyncToken.decode(changeSet.token());
+        assertThat(changeSet.changes()).extracting(DishChangeLog.Change::dishId).containsExactly(1L);
+        assertThat(changeSet.hasMore()).isFalse();
+        assertThat(next.txid()).isEqualTo(100L);
+        assertThat(next.dishId()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should fall back to a full sync once tombstones may have been pruned")
+    void shouldResetExpiredToken() {
+        givenChanges(100L);
+        String since = new SyncToken(40L, 0L, Instant.now().minus(31, ChronoUnit.DAYS)).encode();
+
+        DishChangeLog.ChangeSet changeSet = changeLog.changesSince(since, null, 10);
+
+        assertThat(changeSet.reset()).isTrue();
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(jdbcTemplate).query(sql.capture(), ArgumentMatchers.<RowMapper<DishChangeLog.Change>>any(), eq("0"), eq(0L), eq(11));
+        assertThat(sql.getValue()).contains("NOT deleted");
+    }
+
+    @Test
+    @DisplayName("Should reject malformed tokens")
+    void shouldRejectMalformedToken() {
+        assertThatThrownBy(() -> changeLog.changesSince("not-a-token", null, 10))
+                .isInstanceOf(BusinessValidationException.class);
+    }
+}
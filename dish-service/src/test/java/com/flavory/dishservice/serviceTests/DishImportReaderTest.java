@@ -0,0 +1,113 @@
+package com.flavory.dishservice.serviceTests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flavory.dishservice.entity.Dish;
+import com.flavory.dishservice.exception.BusinessValidationException;
+import com.flavory.dishservice.importer.DishImportReader;
+import com.flavory.dishservice.importer.ImportRow;
+import com.flavory.dishservice.validation.PriceValidator;
+import jakarta.validation.ConstraintValidator;
+import jakarta.validation.ConstraintValidatorFactory;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("DishImportReader Tests")
+class DishImportReaderTest {
+
+    private static final String DESCRIPTION = "Opis dania dłuższy niż dwadzieścia znaków";
+
+    private DishImportReader reader;
+
+    @BeforeEach
+    void setUp() {
+        ConstraintValidatorFactory defaults = Validation.buildDefaultValidatorFactory().getConstraintValidatorFactory();
+        ConstraintValidatorFactory withPriceLimits = new ConstraintValidatorFactory() {
+            @Override
+            public <T extends ConstraintValidator<?, ?>> T getInstance(Class<T> key) {
+                T validator = defaults.getInstance(key);
+                if (validator instanceof PriceValidator) {
+                    ReflectionTestUtils.setField(validator, "minPrice", new BigDecimal("5.00"));
+                    ReflectionTestUtils.setField(validator, "maxPrice", new BigDecimal("500.00"));
+                }
+                return validator;
+            }
+
+            @Override
+            public void releaseInstance(ConstraintValidator<?, ?> instance) {
+                defaults.releaseInstance(instance);
+            }
+        };
+        Validator validator = Validation.byDefaultProvider().configure()
+                .constraintValidatorFactory(withPriceLimits)
+                .buildValidatorFactory()
+                .getValidator();
+        reader = new DishImportReader(new ObjectMapper(), validator, 3);
+    }
+
+    private List<ImportRow> read(String body, MediaType contentType) {
+        return reader.read(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)), contentType);
+    }
+
+    @Test
+    @DisplayName("Should read JSON rows and report invalid ones without dropping the rest")
+    void shouldReadJsonRows() {
+        String json = "[" +
+                "{\"name\":\"Pierogi ruskie\",\"description\":\"" + DESCRIPTION + "\",\"price\":25.00," +
+                "\"category\":\"MAIN_COURSE\",\"preparationTime\":30,\"servingSize\":1,\"allergens\":[\"GLUTEN\"]}," +
+                "{\"name\":\"Zupa\",\"description\":\"" + DESCRIPTION + "\",\"price\":12.00," +
+                "\"category\":\"NOT_A_CATEGORY\",\"preparationTime\":20,\"servingSize\":1}," +
+                "{\"name\":\"X\",\"description\":\"" + DESCRIPTION + "\",\"price\":12.00," +
+                "\"category\":\"DESSERT\",\"preparationTime\":20,\"servingSize\":1}" +
+                "]";
+
+        List<ImportRow> rows = read(json, MediaType.APPLICATION_JSON);
+
+        assertThat(rows).hasSize(3);
+        assertThat(rows.get(0).isValid()).isTrue();
+        assertThat(rows.get(0).request().getAllergens()).containsExactly(Dish.Allergen.GLUTEN);
+        assertThat(rows.get(1).errors()).containsKey("category");
+        assertThat(rows.get(2).errors()).containsKey("name");
+    }
+
+    @Test
+    @DisplayName("Should read CSV with quoted fields and list columns")
+    void shouldReadCsvRows() {
+        String csv = "name,description,price,category,preparationTime,servingSize,allergens,tags,calories\r\n" +
+                "\"Pierogi, ruskie\",\"" + DESCRIPTION + " \"\"domowe\"\"\",25.00,main_course,30,1,GLUTEN|EGGS,obiad|polskie,450\r\n" +
+                "Sernik,\"" + DESCRIPTION + "\",abc,DESSERT,20,1,,,\r\n";
+
+        List<ImportRow> rows = read(csv, MediaType.parseMediaType("text/csv; charset=UTF-8"));
+
+        assertThat(rows).hasSize(2);
+        ImportRow first = rows.get(0);
+        assertThat(first.isValid()).isTrue();
+        assertThat(first.request().getName()).isEqualTo("Pierogi, ruskie");
+        assertThat(first.request().getDescription()).endsWith("\"domowe\"");
+        assertThat(first.request().getAllergens()).containsExactly(Dish.Allergen.GLUTEN, Dish.Allergen.EGGS);
+        assertThat(first.request().getTags()).containsExactly("obiad", "polskie");
+        assertThat(first.request().getNutritionInfo().getCalories()).isEqualByComparingTo(new BigDecimal("450"));
+        assertThat(rows.get(1).errors()).containsKey("price");
+    }
+
+    @Test
+    @DisplayName("Should reject documents over the row limit")
+    void shouldRejectTooManyRows() {
+        String csv = "name\nA\nB\nC\nD\n";
+
+        assertThatThrownBy(() -> read(csv, MediaType.parseMediaType("text/csv")))
+                .isInstanceOf(BusinessValidationException.class);
+    }
+}
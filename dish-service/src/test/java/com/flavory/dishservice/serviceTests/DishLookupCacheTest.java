@@ -0,0 +1,150 @@
+package com.flavory.dishservice.serviceTests;
+
+import com.flavory.dishservice.cache.DishLookupCache;
+import com.flavory.dishservice.dto.response.DishInternalResponse;
+import com.flavory.dishservice.mapper.DishMapper;
+import com.flavory.dishservice.repository.DishLookupView;
+import com.flavory.dishservice.repository.DishRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DishLookupCache Tests")
+class DishLookupCacheTest {
+
+    @Mock private DishRepository dishRepository;
+    @Mock private DishMapper dishMapper;
+
+    private DishLookupCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new DishLookupCache(dishRepository, dishMapper, 30, 100);
+        lenient().when(dishRepository.findImagesByDishIds(anyCollection())).thenReturn(List.of());
+        lenient().when(dishMapper.toInternalResponse(any(DishLookupView.class), anyList()))
+                .thenAnswer(invocation -> DishInternalResponse.builder()
+                        .id(((DishLookupView) invocation.getArgument(0)).getId())
+                        .build());
+    }
+
+    private void stubDishes() {
+        when(dishRepository.findLookupViewsByIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.stream().filter(id -> id < 100).map(this::view).toList();
+        });
+    }
+
+    private DishLookupView view(Long id) {
+        DishLookupView view = mock(DishLookupView.class);
+        when(view.getId()).thenReturn(id);
+        return view;
+    }
+
+    private List<Long> ids(List<DishInternalResponse> dishes) {
+        return dishes.stream().map(DishInternalResponse::getId).toList();
+    }
+
+    @Test
+    @DisplayName("Should return dishes in request order and skip unknown ids")
+    void shouldKeepRequestOrder() {
+        stubDishes();
+
+        List<DishInternalResponse> dishes = cache.getAll(List.of(3L, 1L, 404L, 3L));
+
+        assertThat(ids(dishes)).containsExactly(3L, 1L);
+    }
+
+    @Test
+    @DisplayName("Should only query ids that are not cached yet")
+    void shouldServeRepeatsFromMemory() {
+        stubDishes();
+
+        cache.getAll(List.of(1L, 2L));
+        cache.getAll(List.of(1L, 2L, 404L));
+        cache.getAll(List.of(2L, 404L));
+
+        verify(dishRepository).findLookupViewsByIds(Set.of(1L, 2L));
+        verify(dishRepository).findLookupViewsByIds(Set.of(404L));
+        verify(dishRepository, times(2)).findLookupViewsByIds(anyCollection());
+    }
+
+    @Test
+    @DisplayName("Should reload a dish after it was invalidated")
+    void shouldReloadAfterInvalidation() {
+        stubDishes();
+
+        cache.getAll(List.of(1L, 2L));
+        cache.invalidateAfterCommit(2L);
+        cache.getAll(List.of(1L, 2L));
+
+        verify(dishRepository).findLookupViewsByIds(Set.of(2L));
+    }
+
+    @Test
+    @DisplayName("Should only skip caching dishes invalidated during the load")
+    void shouldDropOnlyDishesInvalidatedDuringLoad() {
+        when(dishRepository.findLookupViewsByIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            cache.invalidate(2L);
+            return ids.stream().map(this::view).toList();
+        });
+
+        cache.getAll(List.of(1L, 2L));
+        cache.getAll(List.of(1L, 2L));
+
+        verify(dishRepository).findLookupViewsByIds(Set.of(1L, 2L));
+        verify(dishRepository).findLookupViewsByIds(Set.of(2L));
+    }
+
+    @Test
+    @DisplayName("Should share an in-flight load between overlapping requests")
+    void shouldCoalesceConcurrentLoads() throws Exception {
+        CountDownLatch firstLoadStarted = new CountDownLatch(1);
+        CountDownLatch secondLoadDone = new CountDownLatch(1);
+        when(dishRepository.findLookupViewsByIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            if (ids.contains(1L)) {
+                firstLoadStarted.countDown();
+                assertThat(secondLoadDone.await(5, TimeUnit.SECONDS)).isTrue();
+            } else {
+                secondLoadDone.countDown();
+            }
+            return ids.stream().map(this::view).toList();
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<DishInternalResponse>> first = executor.submit(() -> cache.getAll(List.of(1L, 2L)));
+            assertThat(firstLoadStarted.await(5, TimeUnit.SECONDS)).isTrue();
+            Future<List<DishInternalResponse>> second = executor.submit(() -> cache.getAll(List.of(2L, 3L)));
+
+            assertThat(ids(first.get(5, TimeUnit.SECONDS))).containsExactly(1L, 2L);
+            assertThat(ids(second.get(5, TimeUnit.SECONDS))).containsExactly(2L, 3L);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        verify(dishRepository).findLookupViewsByIds(Set.of(1L, 2L));
+        verify(dishRepository).findLookupViewsByIds(Set.of(3L));
+        verify(dishRepository, times(2)).findLookupViewsByIds(anyCollection());
+    }
+}
@@ -1,17 +1,38 @@
 package com.flavory.dishservice.serviceTests;
 
+import com.flavory.dishservice.cache.CatalogGeneration;
+import com.flavory.dishservice.cache.CookStatisticsCache;
+import com.flavory.dishservice.cache.CookSummaryCache;
+import com.flavory.dishservice.cache.DishLookupCache;
 import com.flavory.dishservice.dto.request.CreateDishRequest;
+import com.flavory.dishservice.dto.request.DishSearchCriteria;
 import com.flavory.dishservice.dto.request.UpdateDishRequest;
 import com.flavory.dishservice.dto.request.UpdateStockRequest;
+import com.flavory.dishservice.dto.response.CookSummaryDto;
+import com.flavory.dishservice.dto.response.CursorPageResponse;
+import com.flavory.dishservice.dto.response.DishImportResponse;
 import com.flavory.dishservice.dto.response.DishResponse;
 import com.flavory.dishservice.dto.response.DishStatsResponse;
+import com.flavory.dishservice.dto.response.DishSyncResponse;
+import com.flavory.dishservice.entity.CookProfile;
 import com.flavory.dishservice.entity.Dish;
 import com.flavory.dishservice.exception.*;
+import com.flavory.dishservice.importer.ImportRow;
 import com.flavory.dishservice.mapper.DishMapper;
 import com.flavory.dishservice.messaging.publisher.DishEventPublisher;
+import com.flavory.dishservice.recommendation.CoOccurrenceModel;
+import com.flavory.dishservice.repository.CookProfileRepository;
+import com.flavory.dishservice.repository.DishBulkWriter;
 import com.flavory.dishservice.repository.DishRepository;
+import com.flavory.dishservice.search.DishCursor;
+import com.flavory.dishservice.search.DishSort;
+import com.flavory.dishservice.search.FacetIndex;
+import com.flavory.dishservice.search.SuggestionIndex;
+import com.flavory.dishservice.service.DishService;
 import com.flavory.dishservice.service.FileStorageService;
 import com.flavory.dishservice.service.impl.DishServiceImpl;
+import com.flavory.dishservice.stats.TrendingTracker;
+import com.flavory.dishservice.sync.DishChangeLog;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
@@ -19,17 +40,27 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.math.BigDecimal;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -40,6 +71,17 @@ class DishServiceImplTest {
     @Mock private DishMapper dishMapper;
     @Mock private FileStorageService fileStorageService;
     @Mock private DishEventPublisher eventPublisher;
+    @Mock private CookProfileRepository cookProfileRepository;
+    @Mock private CookStatisticsCache cookStatisticsCache;
+    @Mock private CatalogGeneration catalogGeneration;
+    @Mock private DishLookupCache dishLookupCache;
+    @Mock private SuggestionIndex suggestionIndex;
+    @Mock private FacetIndex facetIndex;
+    @Mock private CoOccurrenceModel coOccurrenceModel;
+    @Mock private TrendingTracker trendingTracker;
+    @Mock private DishChangeLog dishChangeLog;
+    @Mock private DishBulkWriter dishBulkWriter;
+    @Mock private CookSummaryCache cookSummaryCache;
 
     @InjectMocks
     private DishServiceImpl dishService;
@@ -116,7 +158,9 @@ class DishServiceImplTest {
             ReflectionTestUtils.setField(dishService, "maxDishesPerCook", MAX_DISHES);
             CreateDishRequest request = createDishRequest("New Dish");
             Dish dish = createActiveDish();
-            List<String> imageUrls = List.of("image1.jpg", "image2.jpg");
+            List<FileStorageService.StagedFile> images = List.of(
+                    new FileStorageService.StagedFile("/uploads/dishes/image1.jpg", "upload-1.jpg"),
+                    new FileStorageService.StagedFile("/uploads/dishes/image2.jpg", "upload-2.jpg"));
 
             when(dishRepository.countActiveDishesForCook(COOK_ID)).thenReturn(10L);
             when(dishRepository.existsByCookIdAndName(COOK_ID, "New Dish")).thenReturn(false);
@@ -124,10 +168,11 @@ class DishServiceImplTest {
             when(dishRepository.save(any(Dish.class))).thenReturn(dish);
             when(dishMapper.toResponse(dish)).thenReturn(createDishResponse("New Dish"));
 
-            DishResponse result = dishService.createDish(request, COOK_ID, imageUrls);
+            DishResponse result = dishService.createDish(request, COOK_ID, images);
 
             assertThat(result.getName()).isEqualTo("New Dish");
             verify(dishRepository).save(any(Dish.class));
+            verify(fileStorageService).promoteStagedFiles(images);
             verify(eventPublisher).publishDishCreated(any());
         }
 
@@ -161,6 +206,68 @@ class DishServiceImplTest {
         }
     }
 
+    @Nested
+    @DisplayName("importDishes")
+    class ImportDishesTests {
+
+        private Dish entityFor(CreateDishRequest request) {
+            Dish dish = createDish(request.getName(), 5, true);
+            dish.setId(null);
+            return dish;
+        }
+
+        @Test
+        @DisplayName("Should insert valid rows in one batch and report the others")
+        void shouldImportValidRowsAndReportErrors() {
+            CreateDishRequest pierogi = createDishRequest("Pierogi");
+            CreateDishRequest existing = createDishRequest("Bigos");
+            CreateDishRequest repeated = createDishRequest("Pierogi");
+            List<ImportRow> rows = List.of(
+                    new ImportRow(1, pierogi, Map.of()),
+                    new ImportRow(2, existing, Map.of()),
+                    new ImportRow(3, null, Map.of("price", "Cena jest wymagana")),
+                    new ImportRow(4, repeated, Map.of()));
+            ReflectionTestUtils.setField(dishService, "maxDishesPerCook", MAX_DISHES);
+            when(dishRepository.findNamesByCookIdAndNameIn(eq(COOK_ID), any())).thenReturn(List.of("Bigos"));
+            when(dishRepository.countActiveDishesForCook(COOK_ID)).thenReturn(3L);
+            when(dishMapper.toEntity(pierogi)).thenReturn(entityFor(pierogi));
+            doAnswer(invocation -> {
+                List<Dish> dishes = invocation.getArgument(0);
+                dishes.get(0).setId(7L);
+                return null;
+            }).when(dishBulkWriter).insertAll(any());
+
+            DishImportResponse response = dishService.importDishes(rows, COOK_ID);
+
+            assertThat(response.getReceived()).isEqualTo(4);
+            assertThat(response.getCreated()).isEqualTo(1);
+            assertThat(response.getDishes()).singleElement()
+                    .satisfies(dish -> assertThat(dish.getDishId()).isEqualTo(7L));
+            assertThat(response.getErrors()).extracting(DishImportResponse.RowError::getRow).containsExactly(2, 3, 4);
+            verify(eventPublisher).publishDishCreatedBatch(argThat(events -> events.size() == 1));
+            verify(catalogGeneration).markChanged();
+            verify(dishRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("Should stop at the per-cook dish limit")
+        void shouldRespectDishLimit() {
+            CreateDishRequest first = createDishRequest("Pierogi");
+            CreateDishRequest second = createDishRequest("Bigos");
+            ReflectionTestUtils.setField(dishService, "maxDishesPerCook", MAX_DISHES);
+            when(dishRepository.findNamesByCookIdAndNameIn(eq(COOK_ID), any())).thenReturn(List.of());
+            when(dishRepository.countActiveDishesForCook(COOK_ID)).thenReturn((long) MAX_DISHES - 1);
+            when(dishMapper.toEntity(first)).thenReturn(entityFor(first));
+
+            DishImportResponse response = dishService.importDishes(
+                    List.of(new ImportRow(1, first, Map.of()), new ImportRow(2, second, Map.of())), COOK_ID);
+
+            assertThat(response.getCreated()).isEqualTo(1);
+            assertThat(response.getErrors()).singleElement()
+                    .satisfies(error -> assertThat(error.getErrors()).containsKey("limit"));
+        }
+    }
+
     @Nested
     @DisplayName("updateDish")
     class UpdateDishTests {
@@ -204,6 +311,23 @@ class DishServiceImplTest {
             verify(dishRepository).save(dish);
         }
 
+        @Test
+        @DisplayName("Should recompute allergen mask after allergens change")
+        void shouldRecomputeAllergenMask() {
+            Dish dish = createActiveDish();
+            dish.setAllergens(new HashSet<>(Set.of(Dish.Allergen.GLUTEN, Dish.Allergen.EGGS)));
+            UpdateDishRequest request = updateDishRequest();
+
+            when(dishRepository.findByIdAndCookId(DISH_ID, COOK_ID)).thenReturn(Optional.of(dish));
+            when(dishRepository.save(dish)).thenReturn(dish);
+            when(dishMapper.toResponse(dish)).thenReturn(createDishResponse("Updated Dish"));
+
+            dishService.updateDish(DISH_ID, request, COOK_ID, null);
+
+            assertThat(dish.getAllergenMask())
+                    .isEqualTo(Dish.Allergen.GLUTEN.getMask() | Dish.Allergen.EGGS.getMask());
+        }
+
         @Test
         @DisplayName("Should throw exception when dish not found")
         void shouldThrowWhenDishNotFound() {
@@ -240,7 +364,7 @@ class DishServiceImplTest {
         void shouldReturnActiveDish() {
             Dish dish = createActiveDish();
 
-            when(dishRepository.findByIdAndIsActiveTrue(DISH_ID)).thenReturn(Optional.of(dish));
+            when(dishRepository.findById(DISH_ID)).thenReturn(Optional.of(dish));
             when(dishMapper.toResponse(dish)).thenReturn(createDishResponse("Test Dish"));
 
             DishResponse result = dishService.getDishById(DISH_ID);
@@ -251,13 +375,72 @@ class DishServiceImplTest {
         @Test
         @DisplayName("Should throw exception when dish not found")
         void shouldThrowWhenNotFound() {
-            when(dishRepository.findByIdAndIsActiveTrue(DISH_ID)).thenReturn(Optional.empty());
+            when(dishRepository.findById(DISH_ID)).thenReturn(Optional.empty());
+
+            assertThatThrownBy(() -> dishService.getDishById(DISH_ID))
+                    .isInstanceOf(DishNotFoundException.class);
+        }
+
+        @Test
+        @DisplayName("Should throw exception when dish is inactive")
+        void shouldThrowWhenInactive() {
+            Dish dish = createActiveDish();
+            dish.setIsActive(false);
+
+            when(dishRepository.findById(DISH_ID)).thenReturn(Optional.of(dish));
 
             assertThatThrownBy(() -> dishService.getDishById(DISH_ID))
                     .isInstanceOf(DishNotFoundException.class);
         }
     }
 
+    @Nested
+    @DisplayName("getNearbyDishes")
+    class GetNearbyDishesTests {
+
+        private CookProfile cookAt(String cookId, double latitude, double longitude) {
+            CookProfile cook = CookProfile.builder().cookId(cookId).role("COOK").status("ACTIVE").build();
+            cook.updatePickupLocation(latitude, longitude);
+            return cook;
+        }
+
+        @Test
+        @DisplayName("Should return dishes within radius sorted by distance")
+        void shouldReturnDishesSortedByDistance() {
+            ReflectionTestUtils.setField(dishService, "maxNearbyRadiusKm", 25.0);
+            CookProfile near = cookAt("near", 52.2300, 21.0120);
+            CookProfile far = cookAt("far", 52.2600, 21.0500);
+            CookProfile outside = cookAt("outside", 52.4000, 21.0120);
+
+            Dish nearDish = createActiveDish();
+            nearDish.setCookId("near");
+            Dish farDish = createDish("Far Dish", 5, true);
+            farDish.setId(2L);
+            farDish.setCookId("far");
+
+            when(cookProfileRepository.findByGeoCellIn(any())).thenReturn(List.of(far, near, outside));
+            when(dishRepository.findAvailableByCookIds(Set.of("near", "far"))).thenReturn(List.of(farDish, nearDish));
+            when(dishMapper.toResponse(any(Dish.class)))
+                    .thenAnswer(invocation -> createDishResponse(((Dish) invocation.getArgument(0)).getName()));
+
+            List<DishResponse> result = dishService.getNearbyDishes(52.2297, 21.0122, 5, 10);
+
+            assertThat(result).extracting(DishResponse::getName).containsExactly("Test Dish", "Far Dish");
+            assertThat(result.get(0).getDistanceKm()).isLessThan(result.get(1).getDistanceKm());
+        }
+
+        @Test
+        @DisplayName("Should reject radius above limit")
+        void shouldRejectRadiusAboveLimit() {
+            ReflectionTestUtils.setField(dishService, "maxNearbyRadiusKm", 25.0);
+
+            assertThatThrownBy(() -> dishService.getNearbyDishes(52.2297, 21.0122, 100, 10))
+                    .isInstanceOf(BusinessValidationException.class);
+
+            verifyNoInteractions(cookProfileRepository);
+        }
+    }
+
     @Nested
     @DisplayName("updateStock")
     class UpdateStockTests {
@@ -327,7 +510,7 @@ class DishServiceImplTest {
         void shouldDecreaseStock() {
             Dish dish = createActiveDish();
 
-            when(dishRepository.findById(DISH_ID)).thenReturn(Optional.of(dish));
+            when(dishRepository.findCurrentById(DISH_ID)).thenReturn(Optional.of(dish));
             when(dishRepository.save(dish)).thenReturn(dish);
 
             dishService.decreaseStock(DISH_ID, 2);
@@ -342,7 +525,7 @@ class DishServiceImplTest {
             Dish dish = createActiveDish();
             dish.setCurrentStock(2);
 
-            when(dishRepository.findById(DISH_ID)).thenReturn(Optional.of(dish));
+            when(dishRepository.findCurrentById(DISH_ID)).thenReturn(Optional.of(dish));
             when(dishRepository.save(dish)).thenReturn(dish);
 
             dishService.decreaseStock(DISH_ID, 2);
@@ -356,7 +539,7 @@ class DishServiceImplTest {
         void shouldThrowWhenDishNotAvailable() {
             Dish dish = createDish("Test", 5, false);
 
-            when(dishRepository.findById(DISH_ID)).thenReturn(Optional.of(dish));
+            when(dishRepository.findCurrentById(DISH_ID)).thenReturn(Optional.of(dish));
 
             assertThatThrownBy(() -> dishService.decreaseStock(DISH_ID, 2))
                     .isInstanceOf(DishNotAvailableException.class);
@@ -368,7 +551,7 @@ class DishServiceImplTest {
             Dish dish = createActiveDish();
             dish.setCurrentStock(3);
 
-            when(dishRepository.findById(DISH_ID)).thenReturn(Optional.of(dish));
+            when(dishRepository.findCurrentById(DISH_ID)).thenReturn(Optional.of(dish));
 
             assertThatThrownBy(() -> dishService.decreaseStock(DISH_ID, 5))
                     .isInstanceOf(InsufficientStockException.class);
@@ -384,7 +567,7 @@ class DishServiceImplTest {
         void shouldIncreaseStockAndSetAvailable() {
             Dish dish = createDish("Test", 0, false);
 
-            when(dishRepository.findById(DISH_ID)).thenReturn(Optional.of(dish));
+            when(dishRepository.findCurrentById(DISH_ID)).thenReturn(Optional.of(dish));
             when(dishRepository.save(dish)).thenReturn(dish);
 
             dishService.increaseStock(DISH_ID, 5);
@@ -399,7 +582,7 @@ class DishServiceImplTest {
             Dish dish = createDish("Test", 0, false);
             dish.setIsActive(false);
 
-            when(dishRepository.findById(DISH_ID)).thenReturn(Optional.of(dish));
+            when(dishRepository.findCurrentById(DISH_ID)).thenReturn(Optional.of(dish));
             when(dishRepository.save(dish)).thenReturn(dish);
 
             dishService.increaseStock(DISH_ID, 5);
@@ -427,6 +610,24 @@ class DishServiceImplTest {
             verify(eventPublisher).publishDishAvailabilityChanged(any());
         }
 
+        @Test
+        @DisplayName("Should keep a dish switched off by the cook out of the daily restock")
+        void shouldClearSoldOutWhenSwitchedOff() {
+            Dish dish = createActiveDish();
+            dish.decreaseStock(dish.getCurrentStock());
+            assertThat(dish.getSoldOut()).isTrue();
+
+            when(dishRepository.findByIdAndCookId(DISH_ID, COOK_ID)).thenReturn(Optional.of(dish));
+            when(dishRepository.save(dish)).thenReturn(dish);
+            when(dishMapper.toResponse(dish)).thenReturn(createDishResponse("Test"));
+
+            dishService.toggleAvailability(DISH_ID, COOK_ID);
+            dishService.toggleAvailability(DISH_ID, COOK_ID);
+
+            assertThat(dish.getAvailable()).isFalse();
+            assertThat(dish.getSoldOut()).isFalse();
+        }
+
         @Test
         @DisplayName("Should toggle availability from false to true")
         void shouldToggleFromFalseToTrue() {
@@ -461,7 +662,7 @@ class DishServiceImplTest {
             assertThat(dish.getIsActive()).isFalse();
             assertThat(dish.getAvailable()).isFalse();
             assertThat(dish.getDeactivationReason()).isNotNull();
-            verify(fileStorageService).deleteFiles(any());
+            verify(fileStorageService).deleteFilesAfterCommit(any());
             verify(eventPublisher).publishDishDeleted(any());
         }
 
@@ -475,48 +676,171 @@ class DishServiceImplTest {
 
             dishService.deleteDish(DISH_ID, COOK_ID);
 
-            verify(fileStorageService, never()).deleteFiles(any());
+            verify(fileStorageService, never()).deleteFilesAfterCommit(any());
             verify(eventPublisher).publishDishDeleted(any());
         }
     }
 
     @Nested
-    @DisplayName("updateOrderStats")
-    class UpdateOrderStatsTests {
+    @DisplayName("ETags")
+    class EtagTests {
 
         @Test
-        @DisplayName("Should update order statistics")
-        void shouldUpdateOrderStats() {
+        @DisplayName("Should build dish ETag from the instance and cook summary the body is mapped from")
+        void shouldBuildDishEtag() {
             Dish dish = createActiveDish();
-            BigDecimal orderAmount = new BigDecimal("50.00");
+            dish.setVersion(3L);
+            dish.setTotalOrders(7);
+            dish.setTotalRatings(2);
+            CookSummaryDto cook = CookSummaryDto.builder().fullName("Anna Nowak").build();
+            DishResponse response = createDishResponse("Test Dish");
+            when(dishRepository.findById(DISH_ID)).thenReturn(Optional.of(dish));
+            when(cookSummaryCache.get(COOK_ID)).thenReturn(cook);
+            when(dishMapper.toResponse(dish)).thenReturn(response);
+
+            DishService.TaggedDish tagged = dishService.getTaggedDish(DISH_ID, etag -> false);
+
+            assertThat(tagged.dish()).isSameAs(response);
+            assertThat(tagged.dish().getCook()).isSameAs(cook);
+            assertThat(tagged.etag()).isEqualTo("W/\"d1-3.7.2.%x\"".formatted(cook.hashCode()));
+            verify(dishRepository, times(1)).findById(DISH_ID);
+        }
 
+        @Test
+        @DisplayName("Should change the dish ETag with the cook summary")
+        void shouldIncludeCookSummaryInEtag() {
+            Dish dish = createActiveDish();
             when(dishRepository.findById(DISH_ID)).thenReturn(Optional.of(dish));
-            when(dishRepository.save(dish)).thenReturn(dish);
+            when(cookSummaryCache.get(COOK_ID))
+                    .thenReturn(CookSummaryDto.builder().fullName("Anna Nowak").build())
+                    .thenReturn(CookSummaryDto.builder().fullName("Anna Kowalska").build());
+
+            String before = dishService.getTaggedDish(DISH_ID, etag -> true).etag();
+            String after = dishService.getTaggedDish(DISH_ID, etag -> true).etag();
+
+            assertThat(after).isNotEqualTo(before);
+        }
+
+        @Test
+        @DisplayName("Should not map the body when the client's copy is current")
+        void shouldSkipMappingWhenNotModified() {
+            Dish dish = createActiveDish();
+            when(dishRepository.findById(DISH_ID)).thenReturn(Optional.of(dish));
+
+            DishService.TaggedDish tagged = dishService.getTaggedDish(DISH_ID, etag -> true);
+
+            assertThat(tagged.dish()).isNull();
+            assertThat(tagged.etag()).startsWith("W/\"d1-");
+            verifyNoInteractions(dishMapper);
+        }
+
+        @Test
+        @DisplayName("Should throw for missing dish instead of building an ETag")
+        void shouldThrowForMissingDish() {
+            when(dishRepository.findById(DISH_ID)).thenReturn(Optional.empty());
+
+            assertThatThrownBy(() -> dishService.getTaggedDish(DISH_ID, etag -> false))
+                    .isInstanceOf(DishNotFoundException.class);
+        }
 
-            dishService.updateOrderStats(DISH_ID, orderAmount);
+        @Test
+        @DisplayName("Should build list ETag from catalog generation")
+        void shouldBuildCatalogEtag() {
+            when(catalogGeneration.current()).thenReturn(42L);
 
-            assertThat(dish.getTotalOrders()).isEqualTo(1);
-            assertThat(dish.getTotalRevenue()).isEqualByComparingTo(orderAmount);
+            assertThat(dishService.getCatalogEtag()).isEqualTo("W/\"g42\"");
         }
     }
 
     @Nested
-    @DisplayName("updateDishRating")
-    class UpdateDishRatingTests {
+    @DisplayName("getTopRatedDishes")
+    class GetTopRatedDishesTests {
 
         @Test
-        @DisplayName("Should update dish rating")
-        void shouldUpdateRating() {
-            Dish dish = createActiveDish();
-            BigDecimal newRating = new BigDecimal("4.5");
+        @DisplayName("Should use the per-category ranking when a category is given")
+        void shouldFilterByCategory() {
+            Pageable pageable = PageRequest.of(0, 10);
+            when(dishRepository.findTopRatedDishesByCategory(Dish.DishCategory.DESSERT, pageable))
+                    .thenReturn(new PageImpl<>(List.of(createActiveDish())));
 
-            when(dishRepository.findById(DISH_ID)).thenReturn(Optional.of(dish));
-            when(dishRepository.save(dish)).thenReturn(dish);
+            Page<DishResponse> result = dishService.getTopRatedDishes(Dish.DishCategory.DESSERT, pageable);
+
+            assertThat(result.getContent()).hasSize(1);
+            verify(dishRepository, never()).findTopRatedDishes(any());
+        }
+    }
+
+    @Nested
+    @DisplayName("scrollDishes")
+    class ScrollDishesTests {
+
+        @Test
+        @DisplayName("Should return a cursor after the last dish when more remain")
+        void shouldReturnNextCursor() {
+            Dish first = createActiveDish();
+            Dish second = createDish("Second", 5, true);
+            second.setId(2L);
+            second.setPrice(new BigDecimal("30.00"));
+            Dish extra = createDish("Extra", 5, true);
+            extra.setId(3L);
+            doReturn(List.of(first, second, extra)).when(dishRepository).findBy(any(Specification.class), any());
+            when(dishMapper.toResponse(any(Dish.class))).thenReturn(createDishResponse("Dish"));
+
+            CursorPageResponse<DishResponse> page = dishService.scrollDishes(
+                    DishSearchCriteria.builder().build(), DishSort.PRICE, Sort.Direction.ASC, null, 2);
+
+            assertThat(page.getContent()).hasSize(2);
+            assertThat(page.isHasNext()).isTrue();
+            DishCursor cursor = DishCursor.decode(page.getNextCursor(), DishSort.PRICE, Sort.Direction.ASC);
+            assertThat(cursor.value()).isEqualTo(new BigDecimal("30.00"));
+            assertThat(cursor.id()).isEqualTo(2L);
+        }
 
-            dishService.updateDishRating(DISH_ID, newRating);
+        @Test
+        @DisplayName("Should reject a cursor issued for another sort")
+        void shouldRejectForeignCursor() {
+            String cursor = new DishCursor(DishSort.POPULARITY, Sort.Direction.DESC, 10, 5L).encode();
 
-            assertThat(dish.getAverageRating()).isEqualByComparingTo(newRating);
-            assertThat(dish.getTotalRatings()).isEqualTo(1);
+            assertThatThrownBy(() -> dishService.scrollDishes(
+                    DishSearchCriteria.builder().build(), DishSort.PRICE, Sort.Direction.ASC, cursor, 20))
+                    .isInstanceOf(BusinessValidationException.class);
+            verifyNoInteractions(dishRepository);
+        }
+
+        @Test
+        @DisplayName("Should reject unknown sort keys")
+        void shouldRejectUnknownSort() {
+            assertThat(DishSort.resolve("createdAt")).isEqualTo(DishSort.NEWEST);
+            assertThatThrownBy(() -> DishSort.resolve("description"))
+                    .isInstanceOf(BusinessValidationException.class);
+        }
+    }
+
+    @Nested
+    @DisplayName("syncDishes")
+    class SyncDishesTests {
+
+        @Test
+        @DisplayName("Should split changes into dishes and tombstones")
+        void shouldSplitChangesAndTombstones() {
+            Dish changed = createActiveDish();
+            Dish deactivated = createDish("Gone", 0, false);
+            deactivated.setId(3L);
+            deactivated.setIsActive(false);
+            when(dishChangeLog.changesSince("token", COOK_ID, 50)).thenReturn(new DishChangeLog.ChangeSet(
+                    List.of(new DishChangeLog.Change(DISH_ID, false, 10L),
+                            new DishChangeLog.Change(2L, true, 11L),
+                            new DishChangeLog.Change(3L, false, 12L)),
+                    "next", false, false));
+            when(dishRepository.findAllById(List.of(DISH_ID, 3L))).thenReturn(List.of(changed, deactivated));
+            when(dishMapper.toResponse(changed)).thenReturn(createDishResponse("Test Dish"));
+
+            DishSyncResponse response = dishService.syncDishes("token", COOK_ID, 50);
+
+            assertThat(response.getChanged()).extracting(DishResponse::getId).containsExactly(DISH_ID);
+            assertThat(response.getDeleted()).containsExactly(2L, 3L);
+            assertThat(response.getToken()).isEqualTo("next");
+            assertThat(response.isHasMore()).isFalse();
         }
     }
 
@@ -525,24 +849,35 @@ class DishServiceImplTest {
     class GetCookStatisticsTests {
 
         @Test
-        @DisplayName("Should return cook statistics")
+        @DisplayName("Should return cook statistics from cache")
         void shouldReturnCookStats() {
-            when(dishRepository.countTotalDishes(COOK_ID)).thenReturn(10L);
-            when(dishRepository.countActiveDishesForCook(COOK_ID)).thenReturn(8L);
-            when(dishRepository.countAvailableDishes(COOK_ID)).thenReturn(6L);
-            when(dishRepository.getTotalRevenue(COOK_ID)).thenReturn(new BigDecimal("1000.00"));
-            when(dishRepository.getTotalOrders(COOK_ID)).thenReturn(50L);
-            when(dishRepository.getAverageRating(COOK_ID)).thenReturn(new BigDecimal("4.5"));
-            when(dishRepository.getAveragePrice(COOK_ID)).thenReturn(new BigDecimal("25.00"));
+            DishStatsResponse cached = DishStatsResponse.builder()
+                    .totalDishes(8L)
+                    .activeDishes(8L)
+                    .availableDishes(6L)
+                    .outOfStockDishes(2L)
+                    .totalRevenue(new BigDecimal("1000.00"))
+                    .totalOrders(50)
+                    .build();
+            when(cookStatisticsCache.get(COOK_ID)).thenReturn(cached);
 
             DishStatsResponse stats = dishService.getCookStatistics(COOK_ID);
 
-            assertThat(stats.getTotalDishes()).isEqualTo(10L);
-            assertThat(stats.getActiveDishes()).isEqualTo(8L);
-            assertThat(stats.getAvailableDishes()).isEqualTo(6L);
-            assertThat(stats.getOutOfStockDishes()).isEqualTo(4L);
-            assertThat(stats.getTotalRevenue()).isEqualByComparingTo(new BigDecimal("1000.00"));
-            assertThat(stats.getTotalOrders()).isEqualTo(50);
+            assertThat(stats).isSameAs(cached);
+            verifyNoInteractions(dishRepository);
+        }
+
+        @Test
+        @DisplayName("Should report stats delta when stock runs out")
+        void shouldRecordStockChange() {
+            Dish dish = createDish("Pierogi", 2, true);
+            when(dishRepository.findCurrentById(DISH_ID)).thenReturn(Optional.of(dish));
+
+            dishService.decreaseStock(DISH_ID, 2);
+
+            verify(cookStatisticsCache).recordChange(eq(COOK_ID),
+                    argThat(CookStatisticsCache.Contribution::available),
+                    argThat(after -> after.active() && !after.available()));
         }
     }
 }
\ No newline at end of file
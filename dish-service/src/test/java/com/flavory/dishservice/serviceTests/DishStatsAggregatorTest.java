@@ -0,0 +1,195 @@
+package com.flavory.dishservice.serviceTests;
+
+import com.flavory.dishservice.cache.CatalogGeneration;
+import com.flavory.dishservice.cache.CookStatisticsCache;
+import com.flavory.dishservice.cache.SecondLevelCache;
+import com.flavory.dishservice.event.inbound.OrderCompletedEvent;
+import com.flavory.dishservice.stats.DishStatsAggregator;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DishStatsAggregator Tests")
+class DishStatsAggregatorTest {
+
+    private static final String COOK_ID = "cook123";
+
+    @Mock private JdbcTemplate jdbcTemplate;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Mock private CookStatisticsCache cookStatisticsCache;
+    @Mock private CatalogGeneration catalogGeneration;
+    @Mock private SecondLevelCache secondLevelCache;
+
+    private DishStatsAggregator aggregator;
+
+    @BeforeEach
+    void setUp() {
+        aggregator = new DishStatsAggregator(jdbcTemplate, transactionManager, cookStatisticsCache, catalogGeneration,
+                secondLevelCache, new BigDecimal("4.0"), new BigDecimal("5"));
+    }
+
+    private void claimAllEventIds() {
+        when(jdbcTemplate.queryForList(contains("processed_events"), eq(String.class), any(), any()))
+                .thenAnswer(invocation -> List.of((String[]) invocation.getArgument(3)));
+    }
+
+    private OrderCompletedEvent event(String eventId, BigDecimal rating) {
+        return OrderCompletedEvent.builder()
+                .eventId(eventId)
+                .cookId(COOK_ID)
+                .items(List.of(
+                        OrderCompletedEvent.OrderItem.builder().dishId(1L).itemTotal(new BigDecimal("20.00")).build(),
+                        OrderCompletedEvent.OrderItem.builder().dishId(2L).itemTotal(new BigDecimal("15.00")).build()))
+                .ratedDishId(rating != null ? 1L : null)
+                .dishRating(rating)
+                .build();
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Object[]> capturedCounterUpdates() {
+        ArgumentCaptor<List<Object[]>> captor = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(contains("UPDATE dishes"), captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    @DisplayName("Should merge events into one relative update per dish")
+    void shouldMergeDeltasPerDish() {
+        claimAllEventIds();
+        aggregator.record(event("e1", new BigDecimal("4.0")), id -> false, counted -> {});
+        aggregator.record(event("e2", new BigDecimal("5.0")), id -> false, counted -> {});
+
+        aggregator.flush();
+
+        List<Object[]> updates = capturedCounterUpdates();
+        assertThat(updates).hasSize(2);
+        Object[] dish1 = updates.stream().filter(args -> args[11].equals(1L)).findFirst().orElseThrow();
+        assertThat(dish1[0]).isEqualTo(2L);
+        assertThat((BigDecimal) dish1[1]).isEqualByComparingTo("40.00");
+        assertThat((BigDecimal) dish1[2]).isEqualByComparingTo("9.0");
+        assertThat(dish1[3]).isEqualTo(2L);
+        assertThat((BigDecimal) dish1[7]).isEqualByComparingTo("20.0");
+        verify(secondLevelCache).evictDishes(Set.of(1L, 2L));
+        verify(cookStatisticsCache).evict(COOK_ID);
+    }
+
+    @Test
+    @DisplayName("Should drop duplicates of buffered and persisted events")
+    void shouldDeduplicateEvents() {
+        claimAllEventIds();
+        DishStatsAggregator.Completion duplicateAck = mock(DishStatsAggregator.Completion.class);
+        assertThat(aggregator.record(event("e1", null), id -> false, counted -> {})).isTrue();
+        assertThat(aggregator.record(event("e1", null), id -> false, duplicateAck)).isFalse();
+        assertThat(aggregator.record(event("e2", null), "e2"::equals, duplicateAck)).isFalse();
+        verify(duplicateAck, times(2)).complete(false);
+
+        aggregator.flush();
+
+        assertThat(capturedCounterUpdates())
+                .allSatisfy(args -> assertThat(args[0]).isEqualTo(1L));
+    }
+
+    @Test
+    @DisplayName("Should only apply events whose id this flush claimed")
+    void shouldSkipEventsClaimedElsewhere() {
+        when(jdbcTemplate.queryForList(contains("processed_events"), eq(String.class), any(), any()))
+                .thenReturn(List.of("e2"));
+        DishStatsAggregator.Completion firstAck = mock(DishStatsAggregator.Completion.class);
+        aggregator.record(event("e1", null), id -> false, firstAck);
+        DishStatsAggregator.Completion secondAck = mock(DishStatsAggregator.Completion.class);
+        aggregator.record(event("e2", null), id -> false, secondAck);
+
+        aggregator.flush();
+
+        assertThat(capturedCounterUpdates())
+                .allSatisfy(args -> assertThat(args[0]).isEqualTo(1L));
+        verify(firstAck).complete(false);
+        verify(secondAck).complete(true);
+    }
+
+    @Test
+    @DisplayName("Should ack events only after their flush committed")
+    void shouldAckAfterFlush() {
+        claimAllEventIds();
+        DishStatsAggregator.Completion ack = mock(DishStatsAggregator.Completion.class);
+        aggregator.record(event("e1", null), id -> false, ack);
+        verifyNoInteractions(ack);
+
+        aggregator.flush();
+
+        InOrder inOrder = inOrder(transactionManager, ack);
+        inOrder.verify(transactionManager).commit(any());
+        inOrder.verify(ack).complete(true);
+    }
+
+    @Test
+    @DisplayName("Should keep deltas for the next flush when the write fails")
+    void shouldRequeueOnFailure() {
+        claimAllEventIds();
+        DishStatsAggregator.Completion ack = mock(DishStatsAggregator.Completion.class);
+        aggregator.record(event("e1", null), id -> false, ack);
+        doThrow(new DataAccessResourceFailureException("down"))
+                .doReturn(new int[0])
+                .when(jdbcTemplate).batchUpdate(contains("UPDATE dishes"), anyList());
+
+        aggregator.flush();
+        verifyNoInteractions(ack);
+        assertThat(aggregator.record(event("e1", null), id -> false, counted -> {})).isFalse();
+        aggregator.flush();
+
+        verify(jdbcTemplate, times(2)).batchUpdate(contains("UPDATE dishes"), anyList());
+        verify(cookStatisticsCache, times(2)).recordOrders(eq(COOK_ID), eq(1L), any(BigDecimal.class));
+        verify(ack).complete(true);
+    }
+
+    @Test
+    @DisplayName("Should refuse malformed events so they cannot block later flushes")
+    void shouldRejectMalformedEvents() {
+        claimAllEventIds();
+        DishStatsAggregator.Completion rejectedAck = mock(DishStatsAggregator.Completion.class);
+        OrderCompletedEvent withoutItems = event("e1", null);
+        withoutItems.setItems(null);
+        OrderCompletedEvent withoutTotal = event("e2", null);
+        withoutTotal.setItems(List.of(OrderCompletedEvent.OrderItem.builder().dishId(1L).build()));
+
+        assertThatThrownBy(() -> aggregator.record(withoutItems, id -> false, rejectedAck))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> aggregator.record(withoutTotal, id -> false, rejectedAck))
+                .isInstanceOf(IllegalArgumentException.class);
+        DishStatsAggregator.Completion ack = mock(DishStatsAggregator.Completion.class);
+        aggregator.record(event("e3", null), id -> false, ack);
+
+        aggregator.flush();
+
+        assertThat(capturedCounterUpdates()).hasSize(2);
+        verify(ack).complete(true);
+        verifyNoInteractions(rejectedAck);
+    }
+
+    @Test
+    @DisplayName("Should not touch the database when nothing is buffered")
+    void shouldSkipEmptyFlush() {
+        aggregator.flush();
+
+        verifyNoInteractions(jdbcTemplate, transactionManager);
+    }
+}
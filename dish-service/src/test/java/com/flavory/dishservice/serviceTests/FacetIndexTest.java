@@ -0,0 +1,102 @@
+package com.flavory.dishservice.serviceTests;
+
+import com.flavory.dishservice.dto.request.DishSearchCriteria;
+import com.flavory.dishservice.dto.response.FacetsResponse;
+import com.flavory.dishservice.entity.Dish;
+import com.flavory.dishservice.repository.DishRepository;
+import com.flavory.dishservice.search.FacetIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("FacetIndex Tests")
+class FacetIndexTest {
+
+    @Mock private DishRepository dishRepository;
+
+    private FacetIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new FacetIndex(dishRepository, "20,40");
+        index.indexAfterCommit(dish(1L, Dish.DishCategory.SOUP, "15.00", Dish.Allergen.GLUTEN));
+        index.indexAfterCommit(dish(2L, Dish.DishCategory.SOUP, "25.00", Dish.Allergen.DAIRY));
+        index.indexAfterCommit(dish(3L, Dish.DishCategory.MAIN_COURSE, "40.00", Dish.Allergen.GLUTEN, Dish.Allergen.DAIRY));
+        index.indexAfterCommit(dish(4L, Dish.DishCategory.DESSERT, "18.00"));
+    }
+
+    private Dish dish(Long id, Dish.DishCategory category, String price, Dish.Allergen... allergens) {
+        return Dish.builder()
+                .id(id)
+                .category(category)
+                .price(new BigDecimal(price))
+                .allergens(new HashSet<>(Set.of(allergens)))
+                .preparationTime(30)
+                .averageRating(new BigDecimal("4.50"))
+                .featured(false)
+                .isActive(true)
+                .available(true)
+                .currentStock(3)
+                .build();
+    }
+
+    private List<Long> bucketCounts(FacetsResponse facets) {
+        return facets.getPriceBuckets().stream().map(FacetsResponse.PriceBucket::getCount).toList();
+    }
+
+    @Test
+    @DisplayName("Should count categories, price buckets and allergen-free dishes")
+    void shouldCountAllFacets() {
+        FacetsResponse facets = index.facets(new DishSearchCriteria(), null);
+
+        assertThat(facets.getTotal()).isEqualTo(4);
+        assertThat(facets.getCategories()).containsEntry("SOUP", 2L).containsEntry("MAIN_COURSE", 1L)
+                .containsEntry("SALAD", 0L);
+        assertThat(bucketCounts(facets)).containsExactly(2L, 1L, 1L);
+        assertThat(facets.getPriceBuckets().get(1).getFrom()).isEqualByComparingTo("20");
+        assertThat(facets.getPriceBuckets().get(2).getTo()).isNull();
+        assertThat(facets.getAllergenFree()).containsEntry("GLUTEN", 2L).containsEntry("DAIRY", 2L)
+                .containsEntry("EGGS", 4L);
+    }
+
+    @Test
+    @DisplayName("Should leave a facet's own filter out of its counts")
+    void shouldApplyOtherFiltersOnly() {
+        DishSearchCriteria criteria = DishSearchCriteria.builder()
+                .category(Dish.DishCategory.SOUP)
+                .maxPrice(new BigDecimal("20.00"))
+                .excludedAllergens(Set.of(Dish.Allergen.DAIRY))
+                .build();
+
+        FacetsResponse facets = index.facets(criteria, null);
+
+        assertThat(facets.getTotal()).isEqualTo(1);
+        assertThat(facets.getCategories()).containsEntry("SOUP", 1L).containsEntry("DESSERT", 1L);
+        assertThat(bucketCounts(facets)).containsExactly(1L, 0L, 0L);
+        assertThat(facets.getAllergenFree()).containsEntry("GLUTEN", 0L);
+    }
+
+    @Test
+    @DisplayName("Should restrict counts to text matches and follow dish changes")
+    void shouldFollowTextMatchesAndChanges() {
+        Dish soldOut = dish(2L, Dish.DishCategory.SOUP, "25.00", Dish.Allergen.DAIRY);
+        soldOut.setCurrentStock(0);
+        index.indexAfterCommit(soldOut);
+
+        FacetsResponse facets = index.facets(new DishSearchCriteria(), List.of(1L, 2L, 3L));
+
+        assertThat(facets.getTotal()).isEqualTo(2);
+        assertThat(facets.getCategories()).containsEntry("SOUP", 1L).containsEntry("DESSERT", 0L);
+    }
+}
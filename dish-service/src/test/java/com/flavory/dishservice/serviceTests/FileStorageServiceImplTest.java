@@ -1,7 +1,10 @@
 package com.flavory.dishservice.serviceTests;
 
 import com.flavory.dishservice.exception.FileStorageException;
+import com.flavory.dishservice.service.FileStorageService.StagedFile;
+import com.flavory.dishservice.service.ImageVariantService;
 import com.flavory.dishservice.service.impl.FileStorageServiceImpl;
+import com.flavory.dishservice.utils.ImageVariantUtil;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -12,6 +15,8 @@ import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.ValueSource;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
@@ -21,21 +26,26 @@ import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
 
 @DisplayName("FileStorageServiceImpl Tests")
 class FileStorageServiceImplTest {
 
     @TempDir Path tempDir;
+    @TempDir Path stagingDir;
 
     private FileStorageServiceImpl fileStorageService;
+    private ImageVariantService imageVariantService;
 
     private static final long MAX_FILE_SIZE = 10 * 1024 * 1024;
-    private static final String ALLOWED_EXTENSIONS = "jpg,jpeg,png,webp,gif";
+    private static final String ALLOWED_EXTENSIONS = "jpg,jpeg,png,gif";
     private static final String BASE_URL = "http://localhost:8080";
 
     @BeforeEach
     void setUp() {
-        fileStorageService = new FileStorageServiceImpl(tempDir.toString());
+        imageVariantService = mock(ImageVariantService.class);
+        fileStorageService = new FileStorageServiceImpl(tempDir.toString(), stagingDir.toString(), imageVariantService);
         ReflectionTestUtils.setField(fileStorageService, "maxFileSize", MAX_FILE_SIZE);
         ReflectionTestUtils.setField(fileStorageService, "allowedExtensions", ALLOWED_EXTENSIONS);
         ReflectionTestUtils.setField(fileStorageService, "baseUrl", BASE_URL);
@@ -65,6 +75,18 @@ class FileStorageServiceImplTest {
         return createJpegFile(filename, "test content");
     }
 
+    private void writeVariantsWhenGenerated() {
+        doAnswer(invocation -> {
+            Path original = invocation.getArgument(0);
+            String filename = original.getFileName().toString();
+            String baseName = filename.substring(0, filename.lastIndexOf('.'));
+            for (ImageVariantUtil.Variant variant : ImageVariantUtil.Variant.values()) {
+                Files.writeString(original.resolveSibling(ImageVariantUtil.variantFilename(baseName, variant)), "variant");
+            }
+            return null;
+        }).when(imageVariantService).generateVariants(any());
+    }
+
     private Path getPathFromUrl(String fileUrl) {
         String filename = fileUrl.replace("/uploads/dishes/", "");
         return tempDir.resolve(filename);
@@ -79,7 +101,7 @@ class FileStorageServiceImplTest {
         void shouldCreateStorageDirectory() {
             Path newDir = tempDir.resolve("new-uploads");
 
-            new FileStorageServiceImpl(newDir.toString());
+            new FileStorageServiceImpl(newDir.toString(), stagingDir.toString(), imageVariantService);
 
             assertThat(newDir).exists().isDirectory();
         }
@@ -87,7 +109,7 @@ class FileStorageServiceImplTest {
         @Test
         @DisplayName("Should throw exception when cannot create directory")
         void shouldThrowWhenCannotCreateDirectory() {
-            assertThatThrownBy(() -> new FileStorageServiceImpl("\0invalid"))
+            assertThatThrownBy(() -> new FileStorageServiceImpl("\0invalid", stagingDir.toString(), imageVariantService))
                     .isInstanceOf(FileStorageException.class)
                     .hasMessageContaining("Nie można utworzyć katalogu");
         }
@@ -104,7 +126,7 @@ class FileStorageServiceImplTest {
 
             String fileUrl = fileStorageService.storeFile(file);
 
-            assertThat(fileUrl).startsWith("/uploads/dishes/").endsWith(".jpg").contains("-");
+            assertThat(fileUrl).matches("/uploads/dishes/[0-9a-f]{64}\\.jpg");
 
             Path savedFile = getPathFromUrl(fileUrl);
             assertThat(savedFile).exists();
@@ -113,7 +135,7 @@ class FileStorageServiceImplTest {
 
         @ParameterizedTest
         @DisplayName("Should accept all allowed extensions")
-        @ValueSource(strings = {"jpg", "jpeg", "png", "webp", "gif"})
+        @ValueSource(strings = {"jpg", "jpeg", "png", "gif"})
         void shouldAcceptAllowedExtensions(String extension) {
             MockMultipartFile file = createImageFile("test." + extension, "image/" + extension, "content".getBytes());
 
@@ -134,6 +156,30 @@ class FileStorageServiceImplTest {
             assertThat(url1).isNotEqualTo(url2);
         }
 
+        @Test
+        @DisplayName("Should store identical content once")
+        void shouldStoreIdenticalContentOnce() throws IOException {
+            writeVariantsWhenGenerated();
+            String url1 = fileStorageService.storeFile(createJpegFile("first.jpg", "same content"));
+            String url2 = fileStorageService.storeFile(createJpegFile("second.jpg", "same content"));
+
+            assertThat(url1).isEqualTo(url2);
+            try (var files = Files.list(tempDir)) {
+                assertThat(files.filter(Files::isRegularFile)).hasSize(4);
+            }
+            verify(imageVariantService, times(1)).generateVariants(any());
+        }
+
+        @Test
+        @DisplayName("Should retry missing variants when identical content is uploaded again")
+        void shouldRetryMissingVariantsOnDedupe() {
+            String url1 = fileStorageService.storeFile(createJpegFile("first.jpg", "same content"));
+            String url2 = fileStorageService.storeFile(createJpegFile("second.jpg", "same content"));
+
+            assertThat(url1).isEqualTo(url2);
+            verify(imageVariantService, times(2)).generateVariants(getPathFromUrl(url1));
+        }
+
         @Test
         @DisplayName("Should preserve extension case")
         void shouldPreserveExtensionCase() {
@@ -195,7 +241,7 @@ class FileStorageServiceImplTest {
 
         @ParameterizedTest
         @DisplayName("Should reject disallowed extensions")
-        @ValueSource(strings = {"txt", "pdf", "exe", "bat", "sh", "zip"})
+        @ValueSource(strings = {"txt", "pdf", "exe", "bat", "sh", "zip", "webp"})
         void shouldRejectDisallowedExtensions(String extension) {
             MockMultipartFile file = createJpegFile("file." + extension);
 
@@ -328,14 +374,14 @@ class FileStorageServiceImplTest {
         @DisplayName("Should update multiple files")
         void shouldUpdateMultipleFiles() {
             List<String> oldUrls = List.of(
-                    fileStorageService.storeFile(createJpegFile("old1.jpg")),
-                    fileStorageService.storeFile(createJpegFile("old2.jpg"))
+                    fileStorageService.storeFile(createJpegFile("old1.jpg", "old1")),
+                    fileStorageService.storeFile(createJpegFile("old2.jpg", "old2"))
             );
 
             List<MultipartFile> newFiles = List.of(
-                    createJpegFile("new1.jpg"),
-                    createJpegFile("new2.jpg"),
-                    createJpegFile("new3.jpg")
+                    createJpegFile("new1.jpg", "new1"),
+                    createJpegFile("new2.jpg", "new2"),
+                    createJpegFile("new3.jpg", "new3")
             );
 
             List<String> newUrls = fileStorageService.updateFiles(newFiles, oldUrls);
@@ -365,6 +411,147 @@ class FileStorageServiceImplTest {
         }
     }
 
+    @Nested
+    @DisplayName("staged uploads")
+    class StagedUploadTests {
+
+        @AfterEach
+        void clearSynchronization() {
+            if (TransactionSynchronizationManager.isSynchronizationActive()) {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        }
+
+        private List<String> urlsOf(List<StagedFile> stagedFiles) {
+            return stagedFiles.stream().map(StagedFile::url).toList();
+        }
+
+        @Test
+        @DisplayName("Should keep staged files out of the public directory and preserve order")
+        void shouldStageFilesInOrder() {
+            List<MultipartFile> files = List.of(
+                    createJpegFile("a.jpg", "first"),
+                    createJpegFile("b.jpg", "second"),
+                    createJpegFile("c.jpg", "third")
+            );
+
+            List<StagedFile> staged = fileStorageService.stageFiles(files);
+
+            assertThat(staged).hasSize(3);
+            assertThat(staged.get(0).url())
+                    .isEqualTo(fileStorageService.stageFiles(List.of(createJpegFile("x.jpg", "first"))).get(0).url());
+            urlsOf(staged).forEach(url -> assertThat(getPathFromUrl(url)).doesNotExist());
+            staged.forEach(file -> assertThat(stagingDir.resolve(file.stagedName())).exists());
+            verifyNoInteractions(imageVariantService);
+        }
+
+        @Test
+        @DisplayName("Should stage identical uploads separately and publish them once")
+        void shouldDedupeConcurrentUploadsOnPromote() throws IOException {
+            writeVariantsWhenGenerated();
+            List<StagedFile> first = fileStorageService.stageFiles(List.of(createJpegFile("a.jpg", "same")));
+            List<StagedFile> second = fileStorageService.stageFiles(List.of(createJpegFile("b.jpg", "same")));
+            assertThat(first.get(0).url()).isEqualTo(second.get(0).url());
+            assertThat(first.get(0).stagedName()).isNotEqualTo(second.get(0).stagedName());
+
+            fileStorageService.discardStagedFiles(first);
+            fileStorageService.promoteStagedFiles(second);
+
+            assertThat(getPathFromUrl(second.get(0).url())).exists();
+            fileStorageService.promoteStagedFiles(fileStorageService.stageFiles(List.of(createJpegFile("c.jpg", "same"))));
+            try (var stream = Files.list(stagingDir)) {
+                assertThat(stream).isEmpty();
+            }
+            verify(imageVariantService, times(1)).generateVariants(any());
+        }
+
+        @Test
+        @DisplayName("Should not write anything when one of the files is invalid")
+        void shouldRejectBatchBeforeWriting() throws IOException {
+            List<MultipartFile> files = List.of(
+                    createJpegFile("ok.jpg", "ok"),
+                    createImageFile("bad.exe", "image/jpeg", "bad".getBytes())
+            );
+
+            assertThatThrownBy(() -> fileStorageService.stageFiles(files))
+                    .isInstanceOf(FileStorageException.class);
+            try (var stream = Files.walk(stagingDir)) {
+                assertThat(stream.filter(Files::isRegularFile)).isEmpty();
+            }
+        }
+
+        @Test
+        @DisplayName("Should promote immediately outside a transaction")
+        void shouldPromoteWithoutTransaction() {
+            List<StagedFile> staged = fileStorageService.stageFiles(List.of(createJpegFile("a.jpg")));
+            List<String> urls = urlsOf(staged);
+
+            fileStorageService.promoteStagedFiles(staged);
+
+            assertThat(getPathFromUrl(urls.get(0))).exists();
+            verify(imageVariantService).generateVariants(getPathFromUrl(urls.get(0)));
+        }
+
+        @Test
+        @DisplayName("Should promote before commit")
+        void shouldPromoteBeforeCommit() {
+            TransactionSynchronizationManager.initSynchronization();
+            List<StagedFile> staged = fileStorageService.stageFiles(List.of(createJpegFile("a.jpg")));
+            List<String> urls = urlsOf(staged);
+
+            fileStorageService.promoteStagedFiles(staged);
+            assertThat(getPathFromUrl(urls.get(0))).doesNotExist();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.beforeCommit(false));
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+            assertThat(getPathFromUrl(urls.get(0))).exists();
+        }
+
+        @Test
+        @DisplayName("Should discard staged files on rollback")
+        void shouldDiscardOnRollback() throws IOException {
+            TransactionSynchronizationManager.initSynchronization();
+            List<StagedFile> staged = fileStorageService.stageFiles(List.of(createJpegFile("a.jpg")));
+
+            fileStorageService.promoteStagedFiles(staged);
+            TransactionSynchronizationManager.getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+            assertThat(getPathFromUrl(staged.get(0).url())).doesNotExist();
+            try (var stream = Files.walk(stagingDir)) {
+                assertThat(stream.filter(Files::isRegularFile)).isEmpty();
+            }
+        }
+
+        @Test
+        @DisplayName("Should delete old files only after commit")
+        void shouldDeleteAfterCommit() {
+            String oldUrl = fileStorageService.storeFile(createJpegFile("old.jpg", "old"));
+            TransactionSynchronizationManager.initSynchronization();
+
+            fileStorageService.updateFiles(List.of(createJpegFile("new.jpg", "new")), List.of(oldUrl));
+            assertThat(getPathFromUrl(oldUrl)).exists();
+
+            TransactionSynchronizationManager.getSynchronizations().forEach(sync -> sync.beforeCommit(false));
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            assertThat(getPathFromUrl(oldUrl)).doesNotExist();
+        }
+
+        @Test
+        @DisplayName("Should keep an old file that is uploaded again")
+        void shouldKeepReuploadedFile() {
+            String oldUrl = fileStorageService.storeFile(createJpegFile("same.jpg", "same"));
+
+            List<String> newUrls = fileStorageService.updateFiles(List.of(createJpegFile("again.jpg", "same")), List.of(oldUrl));
+
+            assertThat(newUrls).containsExactly(oldUrl);
+            assertThat(getPathFromUrl(oldUrl)).exists();
+        }
+    }
+
     @Nested
     @DisplayName("deleteFile")
     class DeleteFileTests {
@@ -381,6 +568,18 @@ class FileStorageServiceImplTest {
             assertThat(filePath).doesNotExist();
         }
 
+        @Test
+        @DisplayName("Should delete generated variants together with original")
+        void shouldDeleteVariants() throws IOException {
+            String fileUrl = fileStorageService.storeFile(createJpegFile("photo.jpg"));
+            String hash = fileUrl.substring("/uploads/dishes/".length(), fileUrl.lastIndexOf('.'));
+            Path thumbnail = Files.createFile(tempDir.resolve(hash + "_thumb.jpg"));
+
+            fileStorageService.deleteFile(fileUrl);
+
+            assertThat(thumbnail).doesNotExist();
+        }
+
         @Test
         @DisplayName("Should handle non-existent file")
         void shouldHandleNonExistentFile() {
@@ -530,7 +729,7 @@ class FileStorageServiceImplTest {
 
         @ParameterizedTest
         @DisplayName("Should handle different extension cases")
-        @ValueSource(strings = {"PNG", "JpG", "jpeg", "WebP"})
+        @ValueSource(strings = {"PNG", "JpG", "jpeg", "Gif"})
         void shouldHandleDifferentExtensionCases(String extension) {
             MockMultipartFile file = createImageFile("test." + extension, "image/jpeg", "content".getBytes());
 
@@ -554,14 +753,14 @@ class FileStorageServiceImplTest {
         @DisplayName("Should complete full lifecycle with multiple files")
         void shouldCompleteFullLifecycle() throws IOException {
             List<MultipartFile> files = List.of(
-                    createJpegFile("file1.jpg"),
-                    createJpegFile("file2.jpg")
+                    createJpegFile("file1.jpg", "content1"),
+                    createJpegFile("file2.jpg", "content2")
             );
             List<String> urls = fileStorageService.storeFiles(files);
             assertThat(urls).hasSize(2);
             urls.forEach(url -> assertThat(getPathFromUrl(url)).exists());
 
-            List<MultipartFile> newFiles = List.of(createJpegFile("file3.jpg"));
+            List<MultipartFile> newFiles = List.of(createJpegFile("file3.jpg", "content3"));
             List<String> newUrls = fileStorageService.updateFiles(newFiles, urls);
             assertThat(newUrls).hasSize(1);
             urls.forEach(url -> assertThat(getPathFromUrl(url)).doesNotExist());
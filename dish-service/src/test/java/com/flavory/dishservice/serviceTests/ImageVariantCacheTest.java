@@ -0,0 +1,119 @@
+package com.flavory.dishservice.serviceTests;
+
+import com.flavory.dishservice.cache.ImageVariantCache;
+import com.flavory.dishservice.dto.response.DishImageResponse;
+import com.flavory.dishservice.utils.ImageVariantUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("ImageVariantCache Tests")
+class ImageVariantCacheTest {
+
+    private static final String HASH = "a".repeat(64);
+    private static final String ORIGINAL_URL = "/uploads/dishes/" + HASH + ".png";
+
+    @TempDir Path uploadDir;
+
+    private MutableClock clock;
+    private ImageVariantCache cache;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2026-10-19T10:00:00Z"));
+        cache = new ImageVariantCache(uploadDir, clock);
+    }
+
+    private Path writeVariant(ImageVariantUtil.Variant variant) throws IOException {
+        return Files.writeString(uploadDir.resolve(ImageVariantUtil.variantFilename(HASH, variant)), "variant");
+    }
+
+    @Test
+    @DisplayName("Should link variants that were written")
+    void shouldLinkWrittenVariants() throws IOException {
+        writeVariant(ImageVariantUtil.Variant.THUMBNAIL);
+        writeVariant(ImageVariantUtil.Variant.CARD);
+        writeVariant(ImageVariantUtil.Variant.FULL);
+
+        DishImageResponse image = cache.imagesOf(List.of(ORIGINAL_URL)).get(0);
+
+        assertThat(image.getOriginalUrl()).isEqualTo(ORIGINAL_URL);
+        assertThat(image.getThumbnailUrl()).isEqualTo("/uploads/dishes/" + HASH + "_thumb.jpg");
+        assertThat(image.getCardUrl()).isEqualTo("/uploads/dishes/" + HASH + "_card.jpg");
+        assertThat(image.getFullUrl()).isEqualTo("/uploads/dishes/" + HASH + "_full.jpg");
+    }
+
+    @Test
+    @DisplayName("Should fall back to the original for variants that are missing")
+    void shouldFallBackForMissingVariants() throws IOException {
+        writeVariant(ImageVariantUtil.Variant.THUMBNAIL);
+
+        DishImageResponse image = cache.imagesOf(List.of(ORIGINAL_URL)).get(0);
+
+        assertThat(image.getThumbnailUrl()).isEqualTo("/uploads/dishes/" + HASH + "_thumb.jpg");
+        assertThat(image.getCardUrl()).isEqualTo(ORIGINAL_URL);
+        assertThat(image.getFullUrl()).isEqualTo(ORIGINAL_URL);
+    }
+
+    @Test
+    @DisplayName("Should keep legacy names without looking for variants")
+    void shouldKeepLegacyNames() {
+        String legacyUrl = "/uploads/dishes/photo.jpg";
+
+        assertThat(cache.variantUrl(legacyUrl, ImageVariantUtil.Variant.CARD)).isEqualTo(legacyUrl);
+        assertThat(cache.imagesOf(List.of())).isNull();
+    }
+
+    @Test
+    @DisplayName("Should notice a deleted variant once the remembered answer expires")
+    void shouldRecheckAfterTtl() throws IOException {
+        Path thumbnail = writeVariant(ImageVariantUtil.Variant.THUMBNAIL);
+        cache.variantUrl(ORIGINAL_URL, ImageVariantUtil.Variant.THUMBNAIL);
+        Files.delete(thumbnail);
+
+        assertThat(cache.variantUrl(ORIGINAL_URL, ImageVariantUtil.Variant.THUMBNAIL)).endsWith("_thumb.jpg");
+
+        clock.advance(Duration.ofMinutes(11));
+        assertThat(cache.variantUrl(ORIGINAL_URL, ImageVariantUtil.Variant.THUMBNAIL)).isEqualTo(ORIGINAL_URL);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.flavory.dishservice.serviceTests;
+
+import com.flavory.dishservice.event.inbound.OrderCompletedEvent;
+import com.flavory.dishservice.messaging.listener.OrderEventListener;
+import com.flavory.dishservice.recommendation.CoOccurrenceModel;
+import com.flavory.dishservice.service.DishService;
+import com.flavory.dishservice.stats.DishStatsAggregator;
+import com.flavory.dishservice.stats.TrendingTracker;
+import com.flavory.dishservice.utils.EventProcessedUtil;
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("OrderEventListener Tests")
+class OrderEventListenerTest {
+
+    @Mock private DishService dishService;
+    @Mock private EventProcessedUtil eventProcessedUtil;
+    @Mock private DishStatsAggregator dishStatsAggregator;
+    @Mock private CoOccurrenceModel coOccurrenceModel;
+    @Mock private TrendingTracker trendingTracker;
+    @Mock private Channel channel;
+
+    @InjectMocks
+    private OrderEventListener listener;
+
+    @Test
+    @DisplayName("Should dead-letter an order completed event the stats buffer refuses")
+    void shouldRejectMalformedOrderCompleted() throws IOException {
+        OrderCompletedEvent event = OrderCompletedEvent.builder().eventId("e1").build();
+        when(dishStatsAggregator.record(eq(event), any(), any()))
+                .thenThrow(new IllegalArgumentException("Order completed event e1 has no cook"));
+
+        listener.handleOrderCompleted(event, channel, 7L);
+
+        verify(channel).basicReject(7L, false);
+        verify(channel, never()).basicAck(anyLong(), anyBoolean());
+        verifyNoInteractions(coOccurrenceModel);
+    }
+
+    @Test
+    @DisplayName("Should ack an order completed event once the stats buffer completes it")
+    void shouldAckCompletedOrder() throws IOException {
+        OrderCompletedEvent event = OrderCompletedEvent.builder().eventId("e1").build();
+        when(dishStatsAggregator.record(eq(event), any(), any())).thenAnswer(invocation -> {
+            invocation.<DishStatsAggregator.Completion>getArgument(2).complete(true);
+            return true;
+        });
+
+        listener.handleOrderCompleted(event, channel, 7L);
+
+        verify(coOccurrenceModel).record(event);
+        verify(channel).basicAck(7L, false);
+        verify(channel, never()).basicReject(anyLong(), anyBoolean());
+    }
+}
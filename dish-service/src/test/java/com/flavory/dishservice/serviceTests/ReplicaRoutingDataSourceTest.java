@@ -0,0 +1,141 @@
+package com.flavory.dishservice.serviceTests;
+
+import com.flavory.dishservice.routing.ReadReplica;
+import com.flavory.dishservice.routing.ReadReplicas;
+import com.flavory.dishservice.routing.ReadYourWrites;
+import com.flavory.dishservice.routing.ReplicaReads;
+import com.flavory.dishservice.routing.ReplicaRoutingDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.security.authentication.TestingAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("ReplicaRoutingDataSource Tests")
+class ReplicaRoutingDataSourceTest {
+
+    @Mock private DataSource primary;
+    @Mock private DataSource replicaPool;
+    @Mock private Connection primaryConnection;
+    @Mock private Connection replicaConnection;
+
+    private ReadReplica replica;
+    private ReplicaRoutingDataSource dataSource;
+
+    @BeforeEach
+    void setUp() {
+        replica = new ReadReplica("dish-replica-1", replicaPool);
+        replica.updateLag(20);
+        dataSource = new ReplicaRoutingDataSource(primary, new ReadReplicas(List.of(replica), 1000),
+                new ReadYourWrites(5000), new SimpleMeterRegistry());
+
+        SecurityContextHolder.getContext().setAuthentication(
+                new TestingAuthenticationToken("cook123", null, "ROLE_COOK"));
+        TransactionSynchronizationManager.initSynchronization();
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        TransactionSynchronizationManager.clear();
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    @DisplayName("Should send marked read-only transactions to a replica and writes to the primary")
+    void shouldRouteByReadOnlyFlag() throws SQLException {
+        when(replicaPool.getConnection()).thenReturn(replicaConnection);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        ReplicaReads.allow();
+        assertThat(dataSource.getConnection()).isSameAs(replicaConnection);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(false);
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+    }
+
+    @Test
+    @DisplayName("Should keep read-only transactions on the primary unless they are marked")
+    void shouldKeepUnmarkedReadsOnPrimary() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+        verifyNoInteractions(replicaPool);
+    }
+
+    @Test
+    @DisplayName("Should drop the mark when the transaction completes")
+    void shouldDropMarkAfterCompletion() {
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        ReplicaReads.allow();
+
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        assertThat(ReplicaReads.isAllowed()).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should read from the primary after the user committed a write")
+    void shouldPinAfterWrite() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        dataSource.getConnection();
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        ReplicaReads.allow();
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+        verifyNoInteractions(replicaPool);
+    }
+
+    @Test
+    @DisplayName("Should read from the primary while the replica lags")
+    void shouldFallBackWhenLagging() throws SQLException {
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        replica.updateLag(5000);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        ReplicaReads.allow();
+
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+        verifyNoInteractions(replicaPool);
+    }
+
+    @Test
+    @DisplayName("Should read from the primary and skip the replica when it refuses connections")
+    void shouldFallBackWhenReplicaIsDown() throws SQLException {
+        when(replicaPool.getConnection()).thenThrow(new SQLException("connection refused"));
+        when(primary.getConnection()).thenReturn(primaryConnection);
+
+        TransactionSynchronizationManager.setCurrentTransactionReadOnly(true);
+        ReplicaReads.allow();
+
+        assertThat(dataSource.getConnection()).isSameAs(primaryConnection);
+        assertThat(replica.getLagMillis()).isNaN();
+        dataSource.getConnection();
+        verify(replicaPool, times(1)).getConnection();
+    }
+}
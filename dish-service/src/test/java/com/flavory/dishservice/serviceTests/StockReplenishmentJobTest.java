@@ -0,0 +1,154 @@
+package com.flavory.dishservice.serviceTests;
+
+import com.flavory.dishservice.cache.CatalogGeneration;
+import com.flavory.dishservice.cache.CookStatisticsCache;
+import com.flavory.dishservice.cache.DishLookupCache;
+import com.flavory.dishservice.cache.SecondLevelCache;
+import com.flavory.dishservice.event.outbound.DishAvailabilityChangedEvent;
+import com.flavory.dishservice.messaging.publisher.DishEventPublisher;
+import com.flavory.dishservice.scheduler.StockReplenishmentJob;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.stubbing.Answer;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("StockReplenishmentJob Tests")
+class StockReplenishmentJobTest {
+
+    private static final String COOK_ID = "cook123";
+    private static final int CHUNK_SIZE = 2;
+
+    @Mock private JdbcTemplate jdbcTemplate;
+    @Mock private PlatformTransactionManager transactionManager;
+    @Mock private DishEventPublisher eventPublisher;
+    @Mock private CookStatisticsCache cookStatisticsCache;
+    @Mock private CatalogGeneration catalogGeneration;
+    @Mock private DishLookupCache dishLookupCache;
+    @Mock private SecondLevelCache secondLevelCache;
+
+    private StockReplenishmentJob job;
+
+    @BeforeEach
+    void setUp() {
+        job = new StockReplenishmentJob(jdbcTemplate, transactionManager, eventPublisher, cookStatisticsCache,
+                catalogGeneration, dishLookupCache, secondLevelCache, "Europe/Warsaw", 6, CHUNK_SIZE);
+    }
+
+    private record Row(long id, boolean wasAvailable, boolean available) {
+    }
+
+    private static Answer<List<Object>> chunk(Row... rows) {
+        return invocation -> {
+            RowMapper<?> rowMapper = invocation.getArgument(1);
+            List<Object> mapped = new ArrayList<>();
+            for (Row row : rows) {
+                mapped.add(rowMapper.mapRow(resultSet(row), mapped.size()));
+            }
+            return mapped;
+        };
+    }
+
+    private static ResultSet resultSet(Row row) throws SQLException {
+        ResultSet rs = mock(ResultSet.class);
+        when(rs.getLong("id")).thenReturn(row.id());
+        when(rs.getString("cook_id")).thenReturn(COOK_ID);
+        when(rs.getBoolean("was_available")).thenReturn(row.wasAvailable());
+        when(rs.getBoolean("available")).thenReturn(row.available());
+        when(rs.getInt("current_stock")).thenReturn(10);
+        return rs;
+    }
+
+    private void replenishInChunks(Answer<?> first, Answer<?>... rest) {
+        var stubbing = when(jdbcTemplate.query(contains("FOR UPDATE OF d SKIP LOCKED"), any(RowMapper.class),
+                any(Object[].class))).thenAnswer(first);
+        for (Answer<?> next : rest) {
+            stubbing = stubbing.thenAnswer(next);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<DishAvailabilityChangedEvent> publishedBatch() {
+        ArgumentCaptor<List<DishAvailabilityChangedEvent>> captor = ArgumentCaptor.forClass(List.class);
+        verify(eventPublisher).publishDishAvailabilityChangedBatch(captor.capture());
+        return captor.getValue();
+    }
+
+    @Test
+    @DisplayName("Should claim chunks in separate transactions until one comes back short")
+    void shouldReplenishInChunks() {
+        replenishInChunks(
+                chunk(new Row(1L, true, true), new Row(2L, true, true)),
+                chunk(new Row(3L, true, true)));
+
+        job.replenishDailyStock();
+
+        verify(jdbcTemplate, times(2)).query(contains("FOR UPDATE OF d SKIP LOCKED"), any(RowMapper.class),
+                eq("Europe/Warsaw"), eq("Europe/Warsaw"), eq(6), eq("Europe/Warsaw"), eq(CHUNK_SIZE));
+        verify(transactionManager, times(2)).commit(any());
+        verify(dishLookupCache).invalidate(3L);
+        verify(secondLevelCache).evictDish(3L);
+        verify(cookStatisticsCache).evict(COOK_ID);
+        verify(catalogGeneration).markChanged();
+    }
+
+    @Test
+    @DisplayName("Should publish only the dishes the restock made available again")
+    void shouldPublishOnlyFlippedDishes() {
+        replenishInChunks(
+                chunk(new Row(1L, false, true), new Row(2L, true, true)),
+                chunk(new Row(3L, false, true)));
+
+        job.replenishDailyStock();
+
+        assertThat(publishedBatch())
+                .extracting(DishAvailabilityChangedEvent::getDishId)
+                .containsExactly(1L, 3L);
+        assertThat(publishedBatch())
+                .allSatisfy(event -> {
+                    assertThat(event.getAvailable()).isTrue();
+                    assertThat(event.getReason()).isEqualTo("DAILY_RESTOCK");
+                });
+    }
+
+    @Test
+    @DisplayName("Should leave dishes the cook switched off unavailable and unannounced")
+    void shouldNotAnnounceDishesSwitchedOffByCook() {
+        replenishInChunks(chunk(new Row(1L, false, false)));
+
+        job.replenishDailyStock();
+
+        assertThat(publishedBatch()).isEmpty();
+        verify(dishLookupCache).invalidate(1L);
+        verify(catalogGeneration).markChanged();
+    }
+
+    @Test
+    @DisplayName("Should do nothing when no dish is due")
+    void shouldSkipWhenNothingIsDue() {
+        replenishInChunks(chunk());
+
+        job.replenishDailyStock();
+
+        verify(jdbcTemplate, times(1)).query(contains("FOR UPDATE OF d SKIP LOCKED"), any(RowMapper.class),
+                any(Object[].class));
+        verifyNoInteractions(eventPublisher, catalogGeneration, cookStatisticsCache);
+    }
+}
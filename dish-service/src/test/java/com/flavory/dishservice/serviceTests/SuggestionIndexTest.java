@@ -0,0 +1,142 @@
+package com.flavory.dishservice.serviceTests;
+
+import com.flavory.dishservice.dto.response.SuggestionResponse;
+import com.flavory.dishservice.entity.Dish;
+import com.flavory.dishservice.repository.DishRepository;
+import com.flavory.dishservice.repository.DishSuggestionView;
+import com.flavory.dishservice.repository.DishTagView;
+import com.flavory.dishservice.search.SuggestionIndex;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("SuggestionIndex Tests")
+class SuggestionIndexTest {
+
+    @Mock private DishRepository dishRepository;
+
+    private SuggestionIndex index;
+
+    @BeforeEach
+    void setUp() {
+        index = new SuggestionIndex(dishRepository, 10);
+    }
+
+    private Dish dish(Long id, String name, int orders, String... tags) {
+        return Dish.builder()
+                .id(id)
+                .name(name)
+                .category(Dish.DishCategory.SOUP)
+                .tags(new HashSet<>(Set.of(tags)))
+                .totalOrders(orders)
+                .isActive(true)
+                .available(true)
+                .currentStock(5)
+                .build();
+    }
+
+    private List<String> texts(List<SuggestionResponse> suggestions) {
+        return suggestions.stream().map(SuggestionResponse::getText).toList();
+    }
+
+    @Test
+    @DisplayName("Should match without Polish diacritics and from any word of a name")
+    void shouldFoldDiacritics() {
+        index.indexAfterCommit(dish(1L, "Żurek staropolski", 3));
+        index.indexAfterCommit(dish(2L, "Pierogi ruskie", 1));
+
+        assertThat(texts(index.suggest("zur", 5))).containsExactly("Żurek staropolski");
+        assertThat(texts(index.suggest("ŻUREK STARO", 5))).containsExactly("Żurek staropolski");
+        assertThat(texts(index.suggest("rusk", 5))).containsExactly("Pierogi ruskie");
+    }
+
+    @Test
+    @DisplayName("Should rank suggestions by popularity and include tags and categories")
+    void shouldRankByPopularity() {
+        index.indexAfterCommit(dish(1L, "Zupa pomidorowa", 2));
+        index.indexAfterCommit(dish(2L, "Zupa ogórkowa", 9, "zupa dnia"));
+
+        List<SuggestionResponse> suggestions = index.suggest("zup", 10);
+
+        assertThat(texts(suggestions)).containsExactly("Zupy", "Zupa ogórkowa", "zupa dnia", "Zupa pomidorowa");
+        assertThat(suggestions.get(0).getType()).isEqualTo(SuggestionIndex.TYPE_CATEGORY);
+        assertThat(suggestions.get(0).getCategory()).isEqualTo("SOUP");
+        assertThat(suggestions.get(1).getDishId()).isEqualTo(2L);
+        assertThat(texts(index.suggest("zup", 2))).hasSize(2);
+    }
+
+    @Test
+    @DisplayName("Should follow renames and drop dishes that can no longer be ordered")
+    void shouldUpdateIncrementally() {
+        index.indexAfterCommit(dish(1L, "Bigos", 1, "kapusta"));
+        index.indexAfterCommit(dish(1L, "Bigos myśliwski", 1, "kapusta"));
+
+        assertThat(texts(index.suggest("mysl", 5))).containsExactly("Bigos myśliwski");
+        assertThat(texts(index.suggest("bigos", 5))).containsExactly("Bigos myśliwski");
+
+        Dish soldOut = dish(1L, "Bigos myśliwski", 1, "kapusta");
+        soldOut.setCurrentStock(0);
+        index.indexAfterCommit(soldOut);
+
+        assertThat(index.suggest("bigos", 5)).isEmpty();
+        assertThat(index.suggest("kap", 5)).isEmpty();
+        assertThat(index.suggest("zupy", 5)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should rebuild from the database")
+    void shouldRebuild() {
+        DishSuggestionView view = mock(DishSuggestionView.class);
+        when(view.getId()).thenReturn(7L);
+        when(view.getName()).thenReturn("Sałatka grecka");
+        when(view.getCategory()).thenReturn(Dish.DishCategory.SALAD);
+        when(view.getTotalOrders()).thenReturn(4);
+        DishTagView tag = mock(DishTagView.class);
+        when(tag.getDishId()).thenReturn(7L);
+        when(tag.getTag()).thenReturn("wege");
+        when(dishRepository.findSuggestionViews()).thenReturn(List.of(view));
+        when(dishRepository.findSuggestionTags()).thenReturn(List.of(tag));
+
+        index.rebuild();
+
+        assertThat(texts(index.suggest("sala", 5))).containsExactly("Sałatka grecka", "Sałatki");
+        assertThat(texts(index.suggest("we", 5))).containsExactly("wege");
+    }
+
+    @Test
+    @DisplayName("Should replay changes committed while a rebuild was loading")
+    void shouldReplayChangesDuringRebuild() {
+        when(dishRepository.findSuggestionTags()).thenReturn(List.of());
+        when(dishRepository.findSuggestionViews()).thenAnswer(invocation -> {
+            index.indexAfterCommit(dish(3L, "Barszcz czerwony", 2));
+            return List.of();
+        });
+
+        index.rebuild();
+
+        assertThat(texts(index.suggest("barsz", 5))).containsExactly("Barszcz czerwony");
+    }
+
+    @Test
+    @DisplayName("Should keep the current index when a rebuild fails")
+    void shouldKeepIndexWhenRebuildFails() {
+        index.indexAfterCommit(dish(1L, "Gulasz", 1));
+        when(dishRepository.findSuggestionTags()).thenThrow(new IllegalStateException("down"));
+
+        index.rebuild();
+        index.indexAfterCommit(dish(2L, "Gołąbki", 1));
+
+        assertThat(texts(index.suggest("g", 5))).containsExactlyInAnyOrder("Gulasz", "Gołąbki");
+    }
+}
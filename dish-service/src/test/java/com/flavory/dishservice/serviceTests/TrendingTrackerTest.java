@@ -0,0 +1,93 @@
+package com.flavory.dishservice.serviceTests;
+
+import com.flavory.dishservice.stats.TrendingTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("TrendingTracker Tests")
+class TrendingTrackerTest {
+
+    private MutableClock clock;
+    private TrendingTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        clock = new MutableClock(Instant.parse("2026-01-01T12:00:00Z"));
+        tracker = new TrendingTracker(clock, 5, 1, 3);
+    }
+
+    @Test
+    @DisplayName("Should rank dishes by ordered quantity in the window")
+    void shouldRankByQuantity() {
+        tracker.record(Map.of(1L, 2, 2L, 1));
+        clock.advance(Duration.ofMinutes(10));
+        tracker.record(Map.of(2L, 3, 3L, 1));
+
+        assertThat(tracker.top(10)).containsExactly(2L, 1L, 3L);
+        assertThat(tracker.top(1)).containsExactly(2L);
+    }
+
+    @Test
+    @DisplayName("Should drop orders that slid out of the window")
+    void shouldExpireOldBuckets() {
+        tracker.record(Map.of(1L, 5));
+        clock.advance(Duration.ofMinutes(40));
+        tracker.record(Map.of(2L, 2));
+        clock.advance(Duration.ofMinutes(25));
+
+        tracker.expire();
+
+        assertThat(tracker.top(10)).containsExactly(2L);
+
+        clock.advance(Duration.ofHours(1));
+        tracker.expire();
+
+        assertThat(tracker.top(10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should evict the lowest ranked dish when at capacity")
+    void shouldEvictLowestRanked() {
+        tracker.record(Map.of(1L, 5, 2L, 3, 3L, 1));
+        tracker.record(Map.of(4L, 2));
+
+        assertThat(tracker.top(10)).containsExactly(1L, 2L, 4L);
+    }
+
+    private static final class MutableClock extends Clock {
+        private Instant now;
+
+        private MutableClock(Instant now) {
+            this.now = now;
+        }
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
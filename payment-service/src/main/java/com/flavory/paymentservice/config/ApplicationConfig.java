@@ -7,6 +7,7 @@ import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 import java.util.concurrent.Executor;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 @EnableAsync
@@ -25,4 +26,19 @@ public class ApplicationConfig {
         executor.initialize();
         return executor;
     }
+
+    @Bean(name = "paymentCleanupExecutor")
+    public Executor paymentCleanupExecutor(PaymentProperties paymentProperties) {
+        PaymentProperties.Cleanup cleanup = paymentProperties.getCleanup();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(cleanup.getParallelism());
+        executor.setMaxPoolSize(cleanup.getParallelism());
+        executor.setQueueCapacity(cleanup.getChunkSize());
+        executor.setThreadNamePrefix("payment-cleanup-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+        return executor;
+    }
 }
\ No newline at end of file
@@ -15,12 +15,17 @@ public class PaymentProperties {
 
     private Processing processing = new Processing();
     private Fees fees = new Fees();
+    private Webhooks webhooks = new Webhooks();
+    private Cleanup cleanup = new Cleanup();
 
     @Getter
     @Setter
     public static class Processing {
         private Long timeoutMillis = 30000L;
+        private Long connectTimeoutMillis = 5000L;
         private Retry retry = new Retry();
+        private Bulkhead bulkhead = new Bulkhead();
+        private Recovery recovery = new Recovery();
 
         @Getter
         @Setter
@@ -28,6 +33,21 @@ public class PaymentProperties {
             private Integer maxAttempts = 3;
             private Long delayMillis = 1000L;
         }
+
+        @Getter
+        @Setter
+        public static class Bulkhead {
+            private Integer maxConcurrentCalls = 20;
+            private Long maxWaitMillis = 500L;
+        }
+
+        @Getter
+        @Setter
+        public static class Recovery {
+            private Long intervalMillis = 60000L;
+            private Long staleAfterMillis = 120000L;
+            private Integer batchSize = 100;
+        }
     }
 
     @Getter
@@ -37,4 +57,23 @@ public class PaymentProperties {
         private BigDecimal minPlatformFee = new BigDecimal("2.00");
         private BigDecimal maxPlatformFee = new BigDecimal("50.00");
     }
+
+    @Getter
+    @Setter
+    public static class Webhooks {
+        private Integer maxAttempts = 5;
+        private Long sweepIntervalMillis = 30000L;
+        private Long sweepGraceMillis = 10000L;
+        private Integer sweepBatchSize = 200;
+        private Integer retentionDays = 30;
+    }
+
+    @Getter
+    @Setter
+    public static class Cleanup {
+        private Long pendingExpiryMinutes = 30L;
+        private Integer chunkSize = 50;
+        private Integer parallelism = 8;
+        private Integer maxChunksPerRun = 40;
+    }
 }
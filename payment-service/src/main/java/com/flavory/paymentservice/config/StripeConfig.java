@@ -18,8 +18,18 @@ public class StripeConfig {
     private String key;
     private String webhookSecret;
 
+    /**
+     * Where API calls go instead of api.stripe.com, such as the local stripe-mock.
+     */
+    private String baseUrl;
+
     @PostConstruct
     public void init() {
         Stripe.apiKey = this.key;
+
+        if (baseUrl != null && !baseUrl.isBlank()) {
+            Stripe.overrideApiBase(baseUrl);
+            log.warn("Wywołania Stripe kierowane są do {}", baseUrl);
+        }
     }
 }
@@ -0,0 +1,63 @@
+package com.flavory.paymentservice.config;
+
+import com.flavory.paymentservice.stripe.StripeBulkhead;
+import com.flavory.paymentservice.stripe.StripeHttpClient;
+import com.stripe.net.ApiResource;
+import com.stripe.net.LiveStripeResponseGetter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+
+@Configuration
+@Slf4j
+public class StripeHttpClientConfig {
+
+    @Bean
+    public StripeHttpClient stripeHttpClient(PaymentProperties paymentProperties, StripeBulkhead bulkhead,
+                                             MeterRegistry meterRegistry) {
+        PaymentProperties.Processing processing = paymentProperties.getProcessing();
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(processing.getConnectTimeoutMillis()))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+
+        warnIfRecoveryMayOverlap(processing);
+
+        return new StripeHttpClient(
+                client,
+                Duration.ofMillis(processing.getTimeoutMillis()),
+                processing.getRetry().getMaxAttempts(),
+                processing.getRetry().getDelayMillis(),
+                bulkhead,
+                meterRegistry
+        );
+    }
+
+    /**
+     * Routes every stripe-java call made through the static API ({@code PaymentIntent.create}
+     * and the like) through {@link StripeHttpClient}.
+     */
+    @Bean
+    public LiveStripeResponseGetter stripeResponseGetter(StripeHttpClient stripeHttpClient) {
+        LiveStripeResponseGetter responseGetter = new LiveStripeResponseGetter(stripeHttpClient);
+        ApiResource.setStripeResponseGetter(responseGetter);
+        return responseGetter;
+    }
+
+    private void warnIfRecoveryMayOverlap(PaymentProperties.Processing processing) {
+        int attempts = processing.getRetry().getMaxAttempts();
+        long backoff = processing.getRetry().getDelayMillis() * ((1L << Math.max(attempts - 1, 0)) - 1);
+        long longestCall = attempts * (processing.getConnectTimeoutMillis() + processing.getTimeoutMillis()) + backoff;
+
+        if (processing.getRecovery().getStaleAfterMillis() <= longestCall) {
+            log.warn("payment.processing.recovery.stale-after-millis ({}) nie przekracza najdłuższego wywołania Stripe ({} ms)",
+                    processing.getRecovery().getStaleAfterMillis(), longestCall);
+        }
+    }
+}
@@ -8,6 +8,8 @@ import org.springframework.data.jpa.domain.support.AuditingEntityListener;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Locale;
 
 @Entity
 @Table(name = "payments", indexes = {
@@ -15,7 +17,8 @@ import java.time.LocalDateTime;
         @Index(name = "idx_customer_id", columnList = "customer_id"),
         @Index(name = "idx_stripe_payment_intent_id", columnList = "stripe_payment_intent_id"),
         @Index(name = "idx_status", columnList = "status"),
-        @Index(name = "idx_created_at", columnList = "created_at")
+        @Index(name = "idx_created_at", columnList = "created_at"),
+        @Index(name = "idx_pending_operation", columnList = "pending_operation, operation_started_at")
 })
 @EntityListeners(AuditingEntityListener.class)
 @Getter
@@ -104,6 +107,13 @@ public class Payment {
     @Column(name = "cancelled_at")
     private LocalDateTime cancelledAt;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "pending_operation", length = 20)
+    private PaymentOperation pendingOperation;
+
+    @Column(name = "operation_started_at")
+    private LocalDateTime operationStartedAt;
+
     @CreatedDate
     @Column(nullable = false, updatable = false, name = "created_at")
     private LocalDateTime createdAt;
@@ -140,20 +150,67 @@ public class Payment {
         this.refundedAt = LocalDateTime.now();
     }
 
+    /**
+     * Records that a Stripe call is about to be made for this payment. The marker is committed
+     * before the call, so a call interrupted by a crash can be found and resumed.
+     */
+    public void beginOperation(PaymentOperation operation) {
+        this.pendingOperation = operation;
+        this.operationStartedAt = LocalDateTime.now().truncatedTo(ChronoUnit.MILLIS);
+    }
+
+    public void beginRefund(BigDecimal amount, String reason) {
+        beginOperation(PaymentOperation.REFUND);
+        this.refundAmount = amount;
+        this.refundReason = reason;
+    }
+
+    public void completeOperation() {
+        this.pendingOperation = null;
+        this.operationStartedAt = null;
+    }
+
+    /**
+     * Drops the marker of an operation Stripe definitely did not carry out.
+     */
+    public void abandonOperation() {
+        if (this.pendingOperation == PaymentOperation.REFUND) {
+            this.refundAmount = null;
+            this.refundReason = null;
+        }
+        completeOperation();
+    }
+
+    public boolean hasPendingOperation() {
+        return this.pendingOperation != null;
+    }
+
+    /**
+     * Stripe idempotency key of the pending operation. It stays the same when the operation is
+     * resumed, and differs between attempts, so a retry after a definite failure is not
+     * answered with the cached error.
+     */
+    public String stripeIdempotencyKey() {
+        return "payment-" + id + "-" + pendingOperation.name().toLowerCase(Locale.ROOT)
+                + "-" + operationStartedAt;
+    }
+
     public void updateStatus(PaymentStatus newStatus) {
         this.status = newStatus;
     }
 
     public boolean canBeRefunded() {
         return this.status == PaymentStatus.SUCCEEDED &&
+                this.pendingOperation == null &&
                 this.refundedAt == null &&
                 this.paidAt != null &&
                 this.paidAt.plusDays(30).isAfter(LocalDateTime.now());
     }
 
     public boolean canBeCancelled() {
-        return this.status == PaymentStatus.PENDING ||
-                this.status == PaymentStatus.REQUIRES_ACTION;
+        return this.pendingOperation == null &&
+                (this.status == PaymentStatus.PENDING ||
+                        this.status == PaymentStatus.REQUIRES_ACTION);
     }
 
     public boolean isSuccessful() {
@@ -0,0 +1,16 @@
+package com.flavory.paymentservice.entity;
+
+import lombok.Getter;
+
+@Getter
+public enum PaymentOperation {
+    CREATE("Tworzenie"),
+    CANCEL("Anulowanie"),
+    REFUND("Zwrot");
+
+    private final String displayName;
+
+    PaymentOperation(String displayName) {
+        this.displayName = displayName;
+    }
+}
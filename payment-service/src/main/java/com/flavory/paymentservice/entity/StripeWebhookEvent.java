@@ -0,0 +1,73 @@
+package com.flavory.paymentservice.entity;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * A verified Stripe event waiting in, or already handled by, the webhook inbox. The Stripe
+ * event id is unique, so a redelivered event is stored once.
+ */
+@Entity
+@Table(name = "stripe_webhook_events", indexes = {
+        @Index(name = "idx_webhook_intent_status", columnList = "payment_intent_id, status"),
+        @Index(name = "idx_webhook_status_received", columnList = "status, received_at")
+})
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class StripeWebhookEvent {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, name = "event_id", length = 100, unique = true)
+    private String eventId;
+
+    @Column(nullable = false, name = "event_type", length = 100)
+    private String eventType;
+
+    @Column(nullable = false, name = "payment_intent_id", length = 100)
+    private String paymentIntentId;
+
+    @Column(nullable = false, columnDefinition = "TEXT")
+    private String payload;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    @Builder.Default
+    private WebhookEventStatus status = WebhookEventStatus.RECEIVED;
+
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer attempts = 0;
+
+    @Column(name = "last_error", length = 500)
+    private String lastError;
+
+    @Column(nullable = false, name = "stripe_created_at")
+    private Long stripeCreatedAt;
+
+    @Column(nullable = false, name = "received_at")
+    private LocalDateTime receivedAt;
+
+    @Column(name = "processed_at")
+    private LocalDateTime processedAt;
+
+    public void markProcessed() {
+        this.status = WebhookEventStatus.PROCESSED;
+        this.processedAt = LocalDateTime.now();
+    }
+
+    public void recordFailure(String error, int maxAttempts) {
+        this.attempts++;
+        this.lastError = error != null && error.length() > 500 ? error.substring(0, 500) : error;
+        if (this.attempts >= maxAttempts) {
+            this.status = WebhookEventStatus.FAILED;
+        }
+    }
+}
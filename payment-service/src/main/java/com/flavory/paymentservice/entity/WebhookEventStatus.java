@@ -0,0 +1,16 @@
+package com.flavory.paymentservice.entity;
+
+import lombok.Getter;
+
+@Getter
+public enum WebhookEventStatus {
+    RECEIVED("Odebrane"),
+    PROCESSED("Przetworzone"),
+    FAILED("Nieudane");
+
+    private final String displayName;
+
+    WebhookEventStatus(String displayName) {
+        this.displayName = displayName;
+    }
+}
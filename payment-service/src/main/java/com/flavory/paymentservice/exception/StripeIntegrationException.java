@@ -1,5 +1,8 @@
 package com.flavory.paymentservice.exception;
 
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.StripeException;
+
 public class StripeIntegrationException extends PaymentException {
     public StripeIntegrationException(String message) {
         super(message);
@@ -8,4 +11,17 @@ public class StripeIntegrationException extends PaymentException {
     public StripeIntegrationException(String message, Throwable cause) {
         super(message, cause);
     }
-}
\ No newline at end of file
+
+    /**
+     * Whether Stripe may have carried out the call despite the error: the connection failed
+     * mid-request or Stripe answered with a server error.
+     */
+    public boolean isOutcomeUnknown() {
+        if (getCause() instanceof ApiConnectionException) {
+            return true;
+        }
+        return getCause() instanceof StripeException stripeException
+                && stripeException.getStatusCode() != null
+                && stripeException.getStatusCode() >= 500;
+    }
+}
@@ -2,9 +2,11 @@ package com.flavory.paymentservice.repository;
 
 import com.flavory.paymentservice.entity.Payment;
 import com.flavory.paymentservice.entity.PaymentStatus;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -18,10 +20,32 @@ public interface PaymentRepository extends JpaRepository<Payment, Long> {
     boolean existsByOrderId(Long orderId);
     Optional<Payment> findByStripePaymentIntentId(String stripePaymentIntentId);
     Optional<Payment> findByOrderId(Long orderId);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Payment p WHERE p.stripePaymentIntentId = :paymentIntentId")
+    Optional<Payment> findForUpdateByStripePaymentIntentId(@Param("paymentIntentId") String paymentIntentId);
     Page<Payment> findByCustomerId(String customerId, Pageable pageable);
     Page<Payment> findByCookId(String cookId, Pageable pageable);
     List<Payment> findByStatus(PaymentStatus status);
 
-    @Query("SELECT p FROM Payment p WHERE p.status = 'PENDING' AND p.createdAt < :expiryTime")
-    List<Payment> findExpiredPendingPayments(@Param("expiryTime") LocalDateTime expiryTime);
+    /**
+     * Locks up to {@code limit} expired pending payments after the {@code (created_at, id)}
+     * cursor, skipping rows another transaction holds, so concurrent instances claim disjoint
+     * chunks and one run never claims the same payment twice.
+     */
+    @Query(value = "SELECT * FROM payments WHERE status = 'PENDING' AND pending_operation IS NULL " +
+            "AND created_at < :expiryTime AND (created_at, id) > (:afterCreatedAt, :afterId) " +
+            "ORDER BY created_at, id LIMIT :limit FOR UPDATE SKIP LOCKED",
+            nativeQuery = true)
+    List<Payment> claimExpiredPendingPayments(@Param("expiryTime") LocalDateTime expiryTime,
+                                              @Param("afterCreatedAt") LocalDateTime afterCreatedAt,
+                                              @Param("afterId") long afterId,
+                                              @Param("limit") int limit);
+
+    @Query("SELECT COUNT(p) FROM Payment p WHERE p.status = 'PENDING' AND p.pendingOperation IS NULL AND p.createdAt < :expiryTime")
+    long countExpiredPendingPayments(@Param("expiryTime") LocalDateTime expiryTime);
+
+    @Query("SELECT p FROM Payment p WHERE p.pendingOperation IS NOT NULL AND p.operationStartedAt < :startedBefore " +
+            "ORDER BY p.operationStartedAt")
+    List<Payment> findInterruptedOperations(@Param("startedBefore") LocalDateTime startedBefore, Pageable pageable);
 }
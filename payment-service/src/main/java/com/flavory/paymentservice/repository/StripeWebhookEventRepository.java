@@ -0,0 +1,50 @@
+package com.flavory.paymentservice.repository;
+
+import com.flavory.paymentservice.entity.StripeWebhookEvent;
+import com.flavory.paymentservice.entity.WebhookEventStatus;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StripeWebhookEventRepository extends JpaRepository<StripeWebhookEvent, Long> {
+
+    /**
+     * Stores the event unless one with the same Stripe id is already there.
+     *
+     * @return 1 when stored, 0 for a redelivery
+     */
+    @Modifying
+    @Query(value = "INSERT INTO stripe_webhook_events " +
+            "(event_id, event_type, payment_intent_id, payload, status, attempts, stripe_created_at, received_at) " +
+            "VALUES (:eventId, :eventType, :paymentIntentId, :payload, 'RECEIVED', 0, :stripeCreatedAt, :receivedAt) " +
+            "ON CONFLICT (event_id) DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("eventId") String eventId,
+                       @Param("eventType") String eventType,
+                       @Param("paymentIntentId") String paymentIntentId,
+                       @Param("payload") String payload,
+                       @Param("stripeCreatedAt") Long stripeCreatedAt,
+                       @Param("receivedAt") LocalDateTime receivedAt);
+
+    List<StripeWebhookEvent> findByPaymentIntentIdAndStatusOrderByStripeCreatedAtAscIdAsc(
+            String paymentIntentId, WebhookEventStatus status);
+
+    Optional<StripeWebhookEvent> findFirstByPaymentIntentIdAndStatusOrderByStripeCreatedAtAscIdAsc(
+            String paymentIntentId, WebhookEventStatus status);
+
+    @Query("SELECT DISTINCT e.paymentIntentId FROM StripeWebhookEvent e " +
+            "WHERE e.status = 'RECEIVED' AND e.receivedAt < :receivedBefore")
+    List<String> findPaymentIntentsWithWaitingEvents(@Param("receivedBefore") LocalDateTime receivedBefore,
+                                                     Pageable pageable);
+
+    @Modifying
+    @Query("DELETE FROM StripeWebhookEvent e WHERE e.status = 'PROCESSED' AND e.processedAt < :processedBefore")
+    int deleteProcessedBefore(@Param("processedBefore") LocalDateTime processedBefore);
+}
@@ -1,45 +1,195 @@
 package com.flavory.paymentservice.scheduler;
 
+import com.flavory.paymentservice.config.PaymentProperties;
 import com.flavory.paymentservice.entity.Payment;
+import com.flavory.paymentservice.entity.PaymentOperation;
 import com.flavory.paymentservice.entity.PaymentStatus;
+import com.flavory.paymentservice.exception.StripeIntegrationException;
 import com.flavory.paymentservice.messaging.publisher.PaymentEventPublisher;
 import com.flavory.paymentservice.repository.PaymentRepository;
 import com.flavory.paymentservice.service.StripeService;
-import lombok.RequiredArgsConstructor;
+import com.stripe.model.PaymentIntent;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.time.LocalDateTime;
 import java.util.List;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cancels pending payments the customer never paid for, in chunks. A chunk is claimed in a
+ * short transaction: its rows are locked with {@code SKIP LOCKED}, so instances running the job
+ * at the same time take different payments, and marked with a CANCEL operation. The Stripe
+ * cancellations then run on {@code paymentCleanupExecutor} outside any transaction, and a
+ * second transaction records the chunk's results. A cancellation whose outcome is unknown
+ * keeps its marker and is finished by {@link StripeOperationRecoveryJob}.
+ *
+ * <p>Chunks are claimed after a {@code (created_at, id)} cursor kept for the run, so payments
+ * released within a run, such as cancellations Stripe refused, are not claimed again ahead of
+ * the rest of the backlog.
+ */
+@Slf4j
 @Service
-@RequiredArgsConstructor
 public class PaymentCleanupJob {
     private final PaymentRepository paymentRepository;
     private final StripeService stripeService;
     private final PaymentEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor executor;
+    private final PaymentProperties paymentProperties;
+    private final MeterRegistry meterRegistry;
+    private final AtomicLong backlog = new AtomicLong();
+
+    public PaymentCleanupJob(PaymentRepository paymentRepository,
+                             StripeService stripeService,
+                             PaymentEventPublisher eventPublisher,
+                             TransactionTemplate transactionTemplate,
+                             @Qualifier("paymentCleanupExecutor") Executor executor,
+                             PaymentProperties paymentProperties,
+                             MeterRegistry meterRegistry) {
+        this.paymentRepository = paymentRepository;
+        this.stripeService = stripeService;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = executor;
+        this.paymentProperties = paymentProperties;
+        this.meterRegistry = meterRegistry;
+
+        Gauge.builder("payment.cleanup.backlog", backlog, AtomicLong::get)
+                .description("Expired pending payments left after the last cleanup run")
+                .register(meterRegistry);
+    }
 
-    @Transactional
     @Scheduled(cron = "0 */10 * * * *")
     public void cancelExpiredPendingPayments() {
-        LocalDateTime expiryTime = LocalDateTime.now().minusMinutes(30);
-        List<Payment> expiredPayments = paymentRepository.findExpiredPendingPayments(expiryTime);
+        PaymentProperties.Cleanup cleanup = paymentProperties.getCleanup();
+        LocalDateTime expiryTime = LocalDateTime.now().minusMinutes(cleanup.getPendingExpiryMinutes());
+
+        int cancelled = 0;
+        Cursor cursor = Cursor.START;
+        for (int chunk = 0; chunk < cleanup.getMaxChunksPerRun(); chunk++) {
+            ChunkResult result = cancelChunk(expiryTime, cursor, cleanup.getChunkSize());
+            cancelled += result.cancelled();
+            if (result.claimed() < cleanup.getChunkSize()) {
+                break;
+            }
+            cursor = result.next();
+        }
+
+        backlog.set(paymentRepository.countExpiredPendingPayments(expiryTime));
+        if (cancelled > 0 || backlog.get() > 0) {
+            log.info("Anulowano {} przeterminowanych płatności, pozostało {}", cancelled, backlog.get());
+        }
+    }
+
+    private ChunkResult cancelChunk(LocalDateTime expiryTime, Cursor cursor, int chunkSize) {
+        Timer.Sample sample = Timer.start(meterRegistry);
+
+        List<Payment> claimed = transactionTemplate.execute(status -> {
+            List<Payment> payments = paymentRepository.claimExpiredPendingPayments(
+                    expiryTime, cursor.createdAt(), cursor.id(), chunkSize);
+            payments.forEach(payment -> payment.beginOperation(PaymentOperation.CANCEL));
+            return paymentRepository.saveAll(payments);
+        });
+        if (claimed == null || claimed.isEmpty()) {
+            return new ChunkResult(0, 0, cursor);
+        }
+
+        List<CompletableFuture<CancelOutcome>> calls = claimed.stream()
+                .map(payment -> CompletableFuture.supplyAsync(() -> cancelInStripe(payment), executor))
+                .toList();
+        List<CancelOutcome> outcomes = calls.stream().map(CompletableFuture::join).toList();
+
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int i = 0; i < claimed.size(); i++) {
+                record(claimed.get(i), outcomes.get(i));
+            }
+        });
+
+        outcomes.forEach(outcome -> meterRegistry.counter("payment.cleanup.payments", "outcome", outcome.name()).increment());
+        sample.stop(Timer.builder("payment.cleanup.chunks")
+                .description("Claiming, cancelling and recording one chunk of expired payments")
+                .register(meterRegistry));
+
+        int cancelled = (int) outcomes.stream().filter(outcome -> outcome == CancelOutcome.CANCELLED).count();
+        Payment last = claimed.get(claimed.size() - 1);
+        return new ChunkResult(claimed.size(), cancelled, new Cursor(last.getCreatedAt(), last.getId()));
+    }
 
-        if (expiredPayments.isEmpty()) {
-            return;
+    private CancelOutcome cancelInStripe(Payment payment) {
+        if (payment.getStripePaymentIntentId() == null) {
+            return CancelOutcome.CANCELLED;
         }
 
-        for (Payment payment : expiredPayments) {
+        try {
             stripeService.cancelPaymentIntent(payment.getStripePaymentIntentId());
+            return CancelOutcome.CANCELLED;
+        } catch (StripeIntegrationException e) {
+            if (e.isOutcomeUnknown()) {
+                log.warn("Wynik anulowania płatności {} jest nieznany, zostanie wznowione później", payment.getId(), e);
+                return CancelOutcome.UNKNOWN;
+            }
+            log.warn("Stripe odrzucił anulowanie płatności {}: {}", payment.getId(), e.getMessage());
+            return checkRejected(payment);
+        } catch (RuntimeException e) {
+            log.error("Anulowanie płatności {} nie powiodło się", payment.getId(), e);
+            return CancelOutcome.UNKNOWN;
+        }
+    }
 
-            payment.markAsCancelled();
-            paymentRepository.save(payment);
+    /**
+     * A refused cancellation most often means the intent was cancelled or paid in the meantime.
+     * Like the recovery of an interrupted cancellation, the intent decides: a cancelled one is
+     * recorded as such, anything else is released and left to the webhook.
+     */
+    private CancelOutcome checkRejected(Payment payment) {
+        try {
+            PaymentIntent paymentIntent = stripeService.retrievePaymentIntent(payment.getStripePaymentIntentId());
+            return "canceled".equals(paymentIntent.getStatus()) ? CancelOutcome.CANCELLED : CancelOutcome.REJECTED;
+        } catch (RuntimeException e) {
+            log.warn("Nie udało się sprawdzić płatności {} po odrzuconym anulowaniu: {}", payment.getId(), e.getMessage());
+            return CancelOutcome.REJECTED;
+        }
+    }
 
-            eventPublisher.publishPaymentCancelled(payment);
+    private void record(Payment payment, CancelOutcome outcome) {
+        switch (outcome) {
+            case CANCELLED -> {
+                payment.markAsCancelled();
+                payment.completeOperation();
+                Payment saved = paymentRepository.save(payment);
+                eventPublisher.publishPaymentCancelled(saved);
+            }
+            case REJECTED -> {
+                // Paid or otherwise moved on in Stripe; the webhook settles it.
+                payment.abandonOperation();
+                paymentRepository.save(payment);
+            }
+            case UNKNOWN -> {
+            }
         }
     }
 
+    private enum CancelOutcome {
+        CANCELLED, REJECTED, UNKNOWN
+    }
+
+    private record ChunkResult(int claimed, int cancelled, Cursor next) {
+    }
+
+    private record Cursor(LocalDateTime createdAt, long id) {
+        static final Cursor START = new Cursor(LocalDateTime.of(1970, 1, 1, 0, 0), 0L);
+    }
+
     @Scheduled(cron = "0 0 3 * * *")
     @Transactional
     public void synchronizePaymentStatuses() {
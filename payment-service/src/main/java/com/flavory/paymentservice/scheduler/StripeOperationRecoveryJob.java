@@ -0,0 +1,49 @@
+package com.flavory.paymentservice.scheduler;
+
+import com.flavory.paymentservice.config.PaymentProperties;
+import com.flavory.paymentservice.entity.Payment;
+import com.flavory.paymentservice.repository.PaymentRepository;
+import com.flavory.paymentservice.service.PaymentService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Resumes Stripe operations whose marker outlived any call still in flight, which means the
+ * instance making the call died or lost the outcome. {@code stale-after-millis} must stay above
+ * the longest a Stripe call can take, so a live call is never resumed next to itself.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class StripeOperationRecoveryJob {
+    private final PaymentRepository paymentRepository;
+    private final PaymentService paymentService;
+    private final PaymentProperties paymentProperties;
+
+    @Scheduled(fixedDelayString = "${payment.processing.recovery.interval-millis:60000}")
+    public void resumeInterruptedOperations() {
+        PaymentProperties.Processing.Recovery recovery = paymentProperties.getProcessing().getRecovery();
+        LocalDateTime startedBefore = LocalDateTime.now().minus(recovery.getStaleAfterMillis(), ChronoUnit.MILLIS);
+
+        List<Payment> interrupted = paymentRepository.findInterruptedOperations(
+                startedBefore,
+                PageRequest.of(0, recovery.getBatchSize())
+        );
+
+        for (Payment payment : interrupted) {
+            try {
+                paymentService.resumeInterruptedOperation(payment);
+            } catch (RuntimeException e) {
+                log.error("Nie udało się wznowić operacji {} dla płatności {}",
+                        payment.getPendingOperation(), payment.getId(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+package com.flavory.paymentservice.scheduler;
+
+import com.flavory.paymentservice.config.PaymentProperties;
+import com.flavory.paymentservice.repository.StripeWebhookEventRepository;
+import com.flavory.paymentservice.service.WebhookInboxService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+/**
+ * Re-dispatches inbox events still waiting after the grace period, for instance after a crash,
+ * a full executor or a failed attempt. Also drops processed events once Stripe can no longer
+ * redeliver them.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class WebhookInboxSweeper {
+    private final StripeWebhookEventRepository webhookEventRepository;
+    private final WebhookInboxService webhookInboxService;
+    private final PaymentProperties paymentProperties;
+
+    @Scheduled(fixedDelayString = "${payment.webhooks.sweep-interval-millis:30000}")
+    public void dispatchWaitingEvents() {
+        PaymentProperties.Webhooks webhooks = paymentProperties.getWebhooks();
+        LocalDateTime receivedBefore = LocalDateTime.now().minus(webhooks.getSweepGraceMillis(), ChronoUnit.MILLIS);
+
+        List<String> paymentIntentIds = webhookEventRepository.findPaymentIntentsWithWaitingEvents(
+                receivedBefore,
+                PageRequest.of(0, webhooks.getSweepBatchSize())
+        );
+
+        paymentIntentIds.forEach(webhookInboxService::dispatch);
+    }
+
+    @Scheduled(cron = "0 30 3 * * *")
+    @Transactional
+    public void purgeProcessedEvents() {
+        LocalDateTime processedBefore = LocalDateTime.now().minusDays(paymentProperties.getWebhooks().getRetentionDays());
+        int purged = webhookEventRepository.deleteProcessedBefore(processedBefore);
+        log.info("Usunięto {} przetworzonych zdarzeń Stripe", purged);
+    }
+}
@@ -5,6 +5,7 @@ import com.flavory.paymentservice.dto.request.RefundRequest;
 import com.flavory.paymentservice.dto.response.PaymentIntentResponse;
 import com.flavory.paymentservice.dto.response.PaymentResponse;
 import com.flavory.paymentservice.dto.response.RefundResponse;
+import com.flavory.paymentservice.entity.Payment;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 
@@ -18,4 +19,5 @@ public interface PaymentService {
     Page<PaymentResponse> getCookPayments(String cookId, Pageable pageable);
     RefundResponse refundPayment(Long paymentId, RefundRequest refundRequest);
     PaymentResponse markPaymentAsFailed(String paymentIntentId, String failureCode, String failureMessage);
+    void resumeInterruptedOperation(Payment payment);
 }
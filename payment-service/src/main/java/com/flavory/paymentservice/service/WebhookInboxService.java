@@ -0,0 +1,9 @@
+package com.flavory.paymentservice.service;
+
+import com.stripe.model.Event;
+
+public interface WebhookInboxService {
+    void receive(Event event, String payload);
+    void dispatch(String paymentIntentId);
+    void processWaitingEvents(String paymentIntentId);
+}
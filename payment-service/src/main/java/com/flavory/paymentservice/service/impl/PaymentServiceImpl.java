@@ -6,6 +6,7 @@ import com.flavory.paymentservice.dto.response.PaymentIntentResponse;
 import com.flavory.paymentservice.dto.response.PaymentResponse;
 import com.flavory.paymentservice.dto.response.RefundResponse;
 import com.flavory.paymentservice.entity.Payment;
+import com.flavory.paymentservice.entity.PaymentOperation;
 import com.flavory.paymentservice.entity.PaymentStatus;
 import com.flavory.paymentservice.exception.*;
 import com.flavory.paymentservice.mapper.PaymentMapper;
@@ -13,19 +14,28 @@ import com.flavory.paymentservice.messaging.publisher.PaymentEventPublisher;
 import com.flavory.paymentservice.repository.PaymentRepository;
 import com.flavory.paymentservice.service.PaymentService;
 import com.flavory.paymentservice.service.StripeService;
-import com.stripe.exception.StripeException;
 import com.stripe.model.Charge;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.Refund;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 
+/**
+ * Stripe calls are made with no transaction open, so a slow Stripe does not hold database
+ * connections. Each mutating operation commits a pending-operation marker first, calls Stripe,
+ * then applies the result in a second short transaction. Markers left behind by a crash are
+ * picked up by {@link com.flavory.paymentservice.scheduler.StripeOperationRecoveryJob}.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class PaymentServiceImpl implements PaymentService {
@@ -34,101 +44,103 @@ public class PaymentServiceImpl implements PaymentService {
     private final StripeService stripeService;
     private final PaymentMapper paymentMapper;
     private final PaymentEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
 
+    private static final String STRIPE_CURRENCY = "pln";
     private static final BigDecimal MIN_PAYMENT_AMOUNT = new BigDecimal("1.00");
     private static final BigDecimal MAX_PAYMENT_AMOUNT = new BigDecimal("10000.00");
 
-    @Transactional
     @Override
     public PaymentIntentResponse createPaymentIntent(CreatePaymentIntentRequest request) {
         validatePaymentAmount(request.getAmount());
         checkForDuplicatePayment(request.getOrderId());
 
+        BigDecimal platformFee = stripeService.calculatePlatformFee(request.getAmount());
+        BigDecimal cookPayout = stripeService.calculateCookPayout(request.getAmount(), platformFee);
+
+        Payment reserved = reservePayment(Payment.builder()
+                .orderId(request.getOrderId())
+                .customerId(request.getCustomerId())
+                .cookId(request.getCookId())
+                .amount(request.getAmount())
+                .currency("PLN")
+                .status(PaymentStatus.PENDING)
+                .paymentMethod(request.getPaymentMethod())
+                .platformFee(platformFee)
+                .cookPayout(cookPayout)
+                .metadata(request.getMetadata())
+                .build());
+
+        PaymentIntent paymentIntent;
         try {
-            BigDecimal platformFee = stripeService.calculatePlatformFee(request.getAmount());
-            BigDecimal cookPayout = stripeService.calculateCookPayout(request.getAmount(), platformFee);
-
-            PaymentIntent paymentIntent = stripeService.createPaymentIntent(
-                    request.getAmount(),
-                    "pln",
-                    request.getCustomerId(),
-                    request.getOrderId(),
-                    request.getPaymentMethod()
-            );
-
-            Payment payment = Payment.builder()
-                    .orderId(request.getOrderId())
-                    .customerId(request.getCustomerId())
-                    .cookId(request.getCookId())
-                    .amount(request.getAmount())
-                    .currency("PLN")
-                    .status(PaymentStatus.PENDING)
-                    .paymentMethod(request.getPaymentMethod())
-                    .stripePaymentIntentId(paymentIntent.getId())
-                    .stripeClientSecret(paymentIntent.getClientSecret())
-                    .platformFee(platformFee)
-                    .cookPayout(cookPayout)
-                    .metadata(request.getMetadata())
-                    .build();
-
-            payment = paymentRepository.save(payment);
-
-            eventPublisher.publishPaymentCreated(payment);
-
-            return paymentMapper.toPaymentIntentResponse(payment);
-
+            paymentIntent = createStripePaymentIntent(reserved);
         } catch (StripeIntegrationException e) {
+            abandonOperation(reserved, PaymentOperation.CREATE, e);
             throw new PaymentProcessingException("Nie udało się przetworzyć płatności", e);
         }
+
+        Payment payment = transactionTemplate.execute(status -> completeCreate(reserved, paymentIntent));
+        return paymentMapper.toPaymentIntentResponse(payment);
     }
 
     @Override
-    @Transactional
     public PaymentResponse confirmPayment(String paymentIntentId) {
         Payment payment = paymentRepository.findByStripePaymentIntentId(paymentIntentId)
                 .orElseThrow(() -> new PaymentNotFoundException(paymentIntentId));
 
-        PaymentIntent paymentIntent = stripeService.retrievePaymentIntent(paymentIntentId);
-
-        switch (paymentIntent.getStatus()) {
-            case "succeeded":
-                handlePaymentSuccess(payment, paymentIntent);
-                break;
-            case "requires_action":
-                payment.updateStatus(PaymentStatus.REQUIRES_ACTION);
-                payment = paymentRepository.save(payment);
-                break;
-            case "processing":
-                payment.updateStatus(PaymentStatus.PROCESSING);
-                payment = paymentRepository.save(payment);
-                break;
-            default:
+        if (payment.isFinal()) {
+            return paymentMapper.toPaymentResponse(payment);
         }
 
-        return paymentMapper.toPaymentResponse(payment);
+        PaymentIntent paymentIntent = stripeService.retrievePaymentIntent(paymentIntentId);
+        Charge charge = "succeeded".equals(paymentIntent.getStatus())
+                ? retrieveChargeQuietly(paymentIntent.getLatestCharge())
+                : null;
+
+        Payment confirmed = transactionTemplate.execute(status -> {
+            switch (paymentIntent.getStatus()) {
+                case "succeeded":
+                    return handlePaymentSuccess(payment, paymentIntent, charge);
+                case "requires_action":
+                    payment.updateStatus(PaymentStatus.REQUIRES_ACTION);
+                    return paymentRepository.save(payment);
+                case "processing":
+                    payment.updateStatus(PaymentStatus.PROCESSING);
+                    return paymentRepository.save(payment);
+                default:
+                    return payment;
+            }
+        });
+
+        return paymentMapper.toPaymentResponse(confirmed);
     }
 
     @Override
-    @Transactional
     public PaymentResponse cancelPayment(Long paymentId) {
-        Payment payment = paymentRepository.findById(paymentId)
-                .orElseThrow(() -> new PaymentNotFoundException(paymentId));
-
-        if (!payment.canBeCancelled()) {
-            throw new InvalidPaymentStateException(
-                    paymentId,
-                    payment.getStatus(),
-                    "anulowanie"
-            );
-        }
-
-        stripeService.cancelPaymentIntent(payment.getStripePaymentIntentId());
+        Payment reserved = transactionTemplate.execute(status -> {
+            Payment payment = paymentRepository.findById(paymentId)
+                    .orElseThrow(() -> new PaymentNotFoundException(paymentId));
+
+            if (!payment.canBeCancelled()) {
+                throw new InvalidPaymentStateException(
+                        paymentId,
+                        payment.getStatus(),
+                        "anulowanie"
+                );
+            }
 
-        payment.markAsCancelled();
-        payment = paymentRepository.save(payment);
+            payment.beginOperation(PaymentOperation.CANCEL);
+            return paymentRepository.save(payment);
+        });
 
-        eventPublisher.publishPaymentCancelled(payment);
+        try {
+            stripeService.cancelPaymentIntent(reserved.getStripePaymentIntentId());
+        } catch (StripeIntegrationException e) {
+            abandonOperation(reserved, PaymentOperation.CANCEL, e);
+            throw e;
+        }
 
+        Payment payment = transactionTemplate.execute(status -> completeCancel(reserved));
         return paymentMapper.toPaymentResponse(payment);
     }
 
@@ -163,33 +175,34 @@ public class PaymentServiceImpl implements PaymentService {
     }
 
     @Override
-    @Transactional
     public RefundResponse refundPayment(Long paymentId, RefundRequest refundRequest) {
-        Payment payment = paymentRepository.findById(paymentId)
-                .orElseThrow(() -> new PaymentNotFoundException(paymentId));
+        Payment reserved = transactionTemplate.execute(status -> {
+            Payment payment = paymentRepository.findById(paymentId)
+                    .orElseThrow(() -> new PaymentNotFoundException(paymentId));
 
-        if (!payment.canBeRefunded()) {
-            throw new RefundNotAllowedException(paymentId, payment.getStatus());
-        }
+            if (!payment.canBeRefunded()) {
+                throw new RefundNotAllowedException(paymentId, payment.getStatus());
+            }
 
-        if (refundRequest.getAmount().compareTo(payment.getAmount()) > 0) {
-            throw new RefundNotAllowedException(
-                    "Kwota zwrotu nie może przekraczać kwoty płatności"
-            );
-        }
+            if (refundRequest.getAmount().compareTo(payment.getAmount()) > 0) {
+                throw new RefundNotAllowedException(
+                        "Kwota zwrotu nie może przekraczać kwoty płatności"
+                );
+            }
 
-        Refund refund = stripeService.createRefund(
-                payment.getStripePaymentIntentId(),
-                refundRequest
-        );
+            payment.beginRefund(refundRequest.getAmount(), refundRequest.getReason());
+            return paymentRepository.save(payment);
+        });
 
-        payment.markAsRefunded(
-                refund.getId(),
-                refundRequest.getAmount(),
-                refundRequest.getReason()
-        );
-        payment = paymentRepository.save(payment);
-        eventPublisher.publishPaymentRefunded(payment);
+        Refund refund;
+        try {
+            refund = createStripeRefund(reserved);
+        } catch (StripeIntegrationException e) {
+            abandonOperation(reserved, PaymentOperation.REFUND, e);
+            throw e;
+        }
+
+        Payment payment = transactionTemplate.execute(status -> completeRefund(reserved, refund));
 
         return RefundResponse.builder()
                 .paymentId(payment.getId())
@@ -232,30 +245,159 @@ public class PaymentServiceImpl implements PaymentService {
         }
     }
 
-    private void handlePaymentSuccess(Payment payment, PaymentIntent paymentIntent) {
-        payment.markAsPaid(
-                paymentIntent.getLatestCharge(),
-                LocalDateTime.now()
+    /**
+     * Finishes an operation whose Stripe call was interrupted, by repeating the call with the
+     * same idempotency key (Stripe answers with the original result) or, for a cancellation,
+     * by checking the intent first. An operation Stripe definitely rejected is dropped; one
+     * whose outcome is still unknown is left for the next attempt.
+     */
+    @Override
+    public void resumeInterruptedOperation(Payment payment) {
+        PaymentOperation operation = payment.getPendingOperation();
+        log.info("Wznawianie przerwanej operacji {} dla płatności {}", operation, payment.getId());
+
+        try {
+            switch (operation) {
+                case CREATE -> {
+                    PaymentIntent paymentIntent = createStripePaymentIntent(payment);
+                    transactionTemplate.execute(status -> completeCreate(payment, paymentIntent));
+                }
+                case CANCEL -> {
+                    PaymentIntent paymentIntent = stripeService.retrievePaymentIntent(payment.getStripePaymentIntentId());
+                    if (!"canceled".equals(paymentIntent.getStatus())) {
+                        stripeService.cancelPaymentIntent(payment.getStripePaymentIntentId());
+                    }
+                    transactionTemplate.execute(status -> completeCancel(payment));
+                }
+                case REFUND -> {
+                    Refund refund = createStripeRefund(payment);
+                    transactionTemplate.execute(status -> completeRefund(payment, refund));
+                }
+            }
+        } catch (StripeIntegrationException e) {
+            abandonOperation(payment, operation, e);
+        }
+    }
+
+    private Payment reservePayment(Payment payment) {
+        try {
+            return transactionTemplate.execute(status -> {
+                payment.beginOperation(PaymentOperation.CREATE);
+                return paymentRepository.save(payment);
+            });
+        } catch (DataIntegrityViolationException e) {
+            throw new DuplicatePaymentException(payment.getOrderId());
+        }
+    }
+
+    private PaymentIntent createStripePaymentIntent(Payment payment) {
+        return stripeService.createPaymentIntent(
+                payment.getAmount(),
+                STRIPE_CURRENCY,
+                payment.getCustomerId(),
+                payment.getOrderId(),
+                payment.getPaymentMethod(),
+                payment.stripeIdempotencyKey()
+        );
+    }
+
+    private Refund createStripeRefund(Payment payment) {
+        RefundRequest refundRequest = RefundRequest.builder()
+                .amount(payment.getRefundAmount())
+                .reason(payment.getRefundReason())
+                .build();
+
+        return stripeService.createRefund(
+                payment.getStripePaymentIntentId(),
+                refundRequest,
+                payment.stripeIdempotencyKey()
         );
+    }
 
-        String chargeId = paymentIntent.getLatestCharge();
+    private Payment completeCreate(Payment payment, PaymentIntent paymentIntent) {
+        payment.setStripePaymentIntentId(paymentIntent.getId());
+        payment.setStripeClientSecret(paymentIntent.getClientSecret());
+        payment.completeOperation();
+        Payment saved = paymentRepository.save(payment);
 
-        if (chargeId != null) {
-            try {
-                Charge charge = Charge.retrieve(chargeId);
+        eventPublisher.publishPaymentCreated(saved);
 
-                if (charge.getPaymentMethodDetails() != null &&
-                        charge.getPaymentMethodDetails().getCard() != null) {
+        return saved;
+    }
 
-                    payment.setCardLast4(charge.getPaymentMethodDetails().getCard().getLast4());
-                    payment.setCardBrand(charge.getPaymentMethodDetails().getCard().getBrand());
+    private Payment completeCancel(Payment payment) {
+        payment.markAsCancelled();
+        payment.completeOperation();
+        Payment saved = paymentRepository.save(payment);
+
+        eventPublisher.publishPaymentCancelled(saved);
+
+        return saved;
+    }
+
+    private Payment completeRefund(Payment payment, Refund refund) {
+        payment.markAsRefunded(
+                refund.getId(),
+                payment.getRefundAmount(),
+                payment.getRefundReason()
+        );
+        payment.completeOperation();
+        Payment saved = paymentRepository.save(payment);
+
+        eventPublisher.publishPaymentRefunded(saved);
+
+        return saved;
+    }
+
+    private void abandonOperation(Payment payment, PaymentOperation operation, StripeIntegrationException e) {
+        if (e.isOutcomeUnknown()) {
+            log.warn("Wynik operacji {} dla płatności {} jest nieznany, zostanie wznowiona później",
+                    operation, payment.getId(), e);
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                if (operation == PaymentOperation.CREATE) {
+                    paymentRepository.delete(payment);
+                } else {
+                    payment.abandonOperation();
+                    paymentRepository.save(payment);
                 }
-            } catch (StripeException ignored) {
-            }
+            });
+        } catch (RuntimeException ex) {
+            log.error("Nie udało się wycofać operacji {} dla płatności {}", operation, payment.getId(), ex);
+        }
+    }
+
+    private Charge retrieveChargeQuietly(String chargeId) {
+        if (chargeId == null) {
+            return null;
+        }
+        try {
+            return stripeService.retrieveCharge(chargeId);
+        } catch (StripeIntegrationException ignored) {
+            return null;
+        }
+    }
+
+    private Payment handlePaymentSuccess(Payment payment, PaymentIntent paymentIntent, Charge charge) {
+        payment.markAsPaid(
+                paymentIntent.getLatestCharge(),
+                LocalDateTime.now()
+        );
+
+        if (charge != null && charge.getPaymentMethodDetails() != null &&
+                charge.getPaymentMethodDetails().getCard() != null) {
+
+            payment.setCardLast4(charge.getPaymentMethodDetails().getCard().getLast4());
+            payment.setCardBrand(charge.getPaymentMethodDetails().getCard().getBrand());
         }
 
         payment = paymentRepository.save(payment);
 
         eventPublisher.publishPaymentSucceeded(payment);
+
+        return payment;
     }
 }
@@ -6,8 +6,10 @@ import com.flavory.paymentservice.entity.PaymentMethod;
 import com.flavory.paymentservice.exception.StripeIntegrationException;
 import com.flavory.paymentservice.service.StripeService;
 import com.stripe.exception.StripeException;
+import com.stripe.model.Charge;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.Refund;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.PaymentIntentCancelParams;
 import com.stripe.param.PaymentIntentCreateParams;
 import com.stripe.param.RefundCreateParams;
@@ -26,7 +28,7 @@ public class StripeServiceImpl implements StripeService {
     private final PaymentProperties paymentProperties;
 
     @Override
-    public PaymentIntent createPaymentIntent(BigDecimal amount, String currency, String customerId, Long orderId, PaymentMethod paymentMethod) {
+    public PaymentIntent createPaymentIntent(BigDecimal amount, String currency, String customerId, Long orderId, PaymentMethod paymentMethod, String idempotencyKey) {
         try {
             Long amountInCents = amount.multiply(BigDecimal.valueOf(100)).longValue();
 
@@ -45,7 +47,12 @@ public class StripeServiceImpl implements StripeService {
                                     .build()
                     );
 
-            return PaymentIntent.create(paramsBuilder.build());
+            PaymentIntentCreateParams params = paramsBuilder.build();
+            RequestOptions options = RequestOptions.builder()
+                    .setIdempotencyKey(idempotencyKey)
+                    .build();
+
+            return PaymentIntent.create(params, options);
 
         } catch (StripeException e) {
             throw new StripeIntegrationException(
@@ -57,12 +64,10 @@ public class StripeServiceImpl implements StripeService {
     @Override
     public PaymentIntent cancelPaymentIntent(String paymentIntentId) {
         try {
-            PaymentIntent paymentIntent = PaymentIntent.retrieve(paymentIntentId);
-
             PaymentIntentCancelParams params = PaymentIntentCancelParams.builder()
                     .build();
 
-            return paymentIntent.cancel(params);
+            return PaymentIntent.retrieve(paymentIntentId).cancel(params);
 
         } catch (StripeException e) {
             throw new StripeIntegrationException(
@@ -84,7 +89,19 @@ public class StripeServiceImpl implements StripeService {
     }
 
     @Override
-    public Refund createRefund(String paymentIntentId, RefundRequest refundRequest) {
+    public Charge retrieveCharge(String chargeId) {
+        try {
+            return Charge.retrieve(chargeId);
+
+        } catch (StripeException e) {
+            throw new StripeIntegrationException(
+                    "Nie udało się pobrać obciążenia: " + e.getUserMessage(), e
+            );
+        }
+    }
+
+    @Override
+    public Refund createRefund(String paymentIntentId, RefundRequest refundRequest, String idempotencyKey) {
         try {
             Long amountInCents = refundRequest.getAmount()
                     .multiply(BigDecimal.valueOf(100))
@@ -99,7 +116,11 @@ public class StripeServiceImpl implements StripeService {
                     .putAllMetadata(metadata)
                     .build();
 
-            return Refund.create(params);
+            RequestOptions options = RequestOptions.builder()
+                    .setIdempotencyKey(idempotencyKey)
+                    .build();
+
+            return Refund.create(params, options);
 
         } catch (StripeException e) {
             throw new StripeIntegrationException(
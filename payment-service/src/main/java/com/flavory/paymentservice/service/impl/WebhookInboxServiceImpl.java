@@ -0,0 +1,239 @@
+package com.flavory.paymentservice.service.impl;
+
+import com.flavory.paymentservice.config.PaymentProperties;
+import com.flavory.paymentservice.entity.Payment;
+import com.flavory.paymentservice.entity.PaymentStatus;
+import com.flavory.paymentservice.entity.StripeWebhookEvent;
+import com.flavory.paymentservice.entity.WebhookEventStatus;
+import com.flavory.paymentservice.exception.PaymentNotFoundException;
+import com.flavory.paymentservice.exception.WebhookVerificationException;
+import com.flavory.paymentservice.messaging.publisher.PaymentEventPublisher;
+import com.flavory.paymentservice.repository.PaymentRepository;
+import com.flavory.paymentservice.repository.StripeWebhookEventRepository;
+import com.flavory.paymentservice.service.WebhookInboxService;
+import com.stripe.model.Charge;
+import com.stripe.model.Event;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.StripeObject;
+import com.stripe.net.ApiResource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Webhook inbox. A verified event is stored, deduplicated by its Stripe id, and the webhook is
+ * answered straight away. The events of one PaymentIntent are then applied from their payloads
+ * on {@code paymentTaskExecutor}, oldest first, with the payment row locked. The lock keeps
+ * them in order across instances. On one instance, a single task drains each intent at a time.
+ * Events left waiting by a crash or a full executor are picked up by
+ * {@link com.flavory.paymentservice.scheduler.WebhookInboxSweeper}.
+ */
+@Slf4j
+@Service
+public class WebhookInboxServiceImpl implements WebhookInboxService {
+
+    static final Set<String> HANDLED_EVENT_TYPES = Set.of(
+            "payment_intent.succeeded",
+            "payment_intent.payment_failed",
+            "payment_intent.canceled",
+            "payment_intent.requires_action",
+            "payment_intent.processing",
+            "charge.succeeded"
+    );
+
+    private final StripeWebhookEventRepository webhookEventRepository;
+    private final PaymentRepository paymentRepository;
+    private final PaymentEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Executor executor;
+    private final PaymentProperties paymentProperties;
+
+    // Dispatches per intent since its drain task started; the task loops until none are new.
+    private final ConcurrentMap<String, Integer> lanes = new ConcurrentHashMap<>();
+
+    public WebhookInboxServiceImpl(StripeWebhookEventRepository webhookEventRepository,
+                                   PaymentRepository paymentRepository,
+                                   PaymentEventPublisher eventPublisher,
+                                   TransactionTemplate transactionTemplate,
+                                   @Qualifier("paymentTaskExecutor") Executor executor,
+                                   PaymentProperties paymentProperties) {
+        this.webhookEventRepository = webhookEventRepository;
+        this.paymentRepository = paymentRepository;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = transactionTemplate;
+        this.executor = executor;
+        this.paymentProperties = paymentProperties;
+    }
+
+    @Override
+    public void receive(Event event, String payload) {
+        if (!HANDLED_EVENT_TYPES.contains(event.getType())) {
+            return;
+        }
+
+        String paymentIntentId = paymentIntentIdOf(dataObjectOf(event));
+        if (paymentIntentId == null) {
+            return;
+        }
+
+        Integer stored = transactionTemplate.execute(status -> webhookEventRepository.insertIfAbsent(
+                event.getId(),
+                event.getType(),
+                paymentIntentId,
+                payload,
+                event.getCreated(),
+                LocalDateTime.now()
+        ));
+
+        if (stored != null && stored > 0) {
+            dispatch(paymentIntentId);
+        } else {
+            log.debug("Zdarzenie Stripe {} zostało już odebrane", event.getId());
+        }
+    }
+
+    @Override
+    public void dispatch(String paymentIntentId) {
+        if (lanes.merge(paymentIntentId, 1, Integer::sum) > 1) {
+            return;
+        }
+
+        try {
+            executor.execute(() -> drain(paymentIntentId));
+        } catch (RejectedExecutionException e) {
+            lanes.remove(paymentIntentId);
+            log.warn("Kolejka zdarzeń Stripe jest pełna, zdarzenia dla {} poczekają na ponowienie", paymentIntentId);
+        }
+    }
+
+    @Override
+    public void processWaitingEvents(String paymentIntentId) {
+        try {
+            transactionTemplate.executeWithoutResult(status -> applyInOrder(paymentIntentId));
+        } catch (RuntimeException e) {
+            log.error("Przetwarzanie zdarzeń Stripe dla {} nie powiodło się", paymentIntentId, e);
+            int maxAttempts = paymentProperties.getWebhooks().getMaxAttempts();
+            transactionTemplate.executeWithoutResult(status -> webhookEventRepository
+                    .findFirstByPaymentIntentIdAndStatusOrderByStripeCreatedAtAscIdAsc(
+                            paymentIntentId, WebhookEventStatus.RECEIVED)
+                    .ifPresent(event -> event.recordFailure(e.getMessage(), maxAttempts)));
+        }
+    }
+
+    private void drain(String paymentIntentId) {
+        try {
+            Integer seen;
+            do {
+                seen = lanes.get(paymentIntentId);
+                processWaitingEvents(paymentIntentId);
+                Integer drained = seen;
+                seen = lanes.compute(paymentIntentId, (key, count) -> count.equals(drained) ? null : count);
+            } while (seen != null);
+        } catch (RuntimeException e) {
+            lanes.remove(paymentIntentId);
+            log.error("Zdarzenia Stripe dla {} poczekają na ponowienie", paymentIntentId, e);
+        }
+    }
+
+    private void applyInOrder(String paymentIntentId) {
+        Payment payment = paymentRepository.findForUpdateByStripePaymentIntentId(paymentIntentId)
+                .orElseThrow(() -> new PaymentNotFoundException(paymentIntentId));
+
+        List<StripeWebhookEvent> events = webhookEventRepository
+                .findByPaymentIntentIdAndStatusOrderByStripeCreatedAtAscIdAsc(paymentIntentId, WebhookEventStatus.RECEIVED);
+
+        for (StripeWebhookEvent event : events) {
+            if (payment.hasPendingOperation()) {
+                // The operation's own finalizing transaction must see the row it reserved.
+                return;
+            }
+            apply(payment, event);
+            event.markProcessed();
+        }
+    }
+
+    private void apply(Payment payment, StripeWebhookEvent webhookEvent) {
+        StripeObject object = dataObjectOf(ApiResource.GSON.fromJson(webhookEvent.getPayload(), Event.class));
+
+        if (object instanceof Charge charge) {
+            applyCardDetails(payment, charge);
+            paymentRepository.save(payment);
+            return;
+        }
+
+        // A redelivered or late event must not move a settled payment back.
+        if (payment.isFinal()) {
+            return;
+        }
+
+        PaymentIntent paymentIntent = (PaymentIntent) object;
+        switch (webhookEvent.getEventType()) {
+            case "payment_intent.succeeded":
+                payment.markAsPaid(paymentIntent.getLatestCharge(), LocalDateTime.now());
+                paymentRepository.save(payment);
+                eventPublisher.publishPaymentSucceeded(payment);
+                break;
+
+            case "payment_intent.payment_failed":
+                String failureCode = null;
+                String failureMessage = "Płatność nie powiodła się";
+                if (paymentIntent.getLastPaymentError() != null) {
+                    failureCode = paymentIntent.getLastPaymentError().getCode();
+                    failureMessage = paymentIntent.getLastPaymentError().getMessage();
+                }
+                payment.markAsFailed(failureCode, failureMessage);
+                paymentRepository.save(payment);
+                eventPublisher.publishPaymentFailed(payment);
+                break;
+
+            case "payment_intent.canceled":
+                payment.markAsFailed("canceled", "Płatność została anulowana");
+                paymentRepository.save(payment);
+                eventPublisher.publishPaymentFailed(payment);
+                break;
+
+            case "payment_intent.requires_action":
+                payment.updateStatus(PaymentStatus.REQUIRES_ACTION);
+                paymentRepository.save(payment);
+                break;
+
+            case "payment_intent.processing":
+                payment.updateStatus(PaymentStatus.PROCESSING);
+                paymentRepository.save(payment);
+                break;
+
+            default:
+        }
+    }
+
+    private static void applyCardDetails(Payment payment, Charge charge) {
+        if (charge.getPaymentMethodDetails() != null && charge.getPaymentMethodDetails().getCard() != null) {
+            payment.setCardLast4(charge.getPaymentMethodDetails().getCard().getLast4());
+            payment.setCardBrand(charge.getPaymentMethodDetails().getCard().getBrand());
+        }
+    }
+
+    private static StripeObject dataObjectOf(Event event) {
+        return event.getDataObjectDeserializer().getObject()
+                .orElseThrow(() -> new WebhookVerificationException("Nieprawidłowe dane zdarzenia " + event.getId()));
+    }
+
+    private static String paymentIntentIdOf(StripeObject object) {
+        if (object instanceof PaymentIntent paymentIntent) {
+            return paymentIntent.getId();
+        }
+        if (object instanceof Charge charge) {
+            return charge.getPaymentIntent();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,79 @@
+package com.flavory.paymentservice.stripe;
+
+import com.flavory.paymentservice.config.PaymentProperties;
+import com.flavory.paymentservice.exception.StripeIntegrationException;
+import com.stripe.exception.StripeException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Caps how many Stripe requests are in flight at once. A caller waits up to
+ * {@code max-wait-millis} for a permit and is then turned away, so a slow Stripe ties up a
+ * bounded number of threads instead of all of them. {@link StripeHttpClient} takes a permit per
+ * attempt, so retries and their backoff do not count against the limit.
+ */
+@Component
+public class StripeBulkhead {
+
+    private final Semaphore permits;
+    private final int maxConcurrentCalls;
+    private final long maxWaitMillis;
+    private final Counter rejected;
+
+    @Autowired
+    public StripeBulkhead(PaymentProperties paymentProperties, MeterRegistry meterRegistry) {
+        this(paymentProperties.getProcessing().getBulkhead().getMaxConcurrentCalls(),
+                paymentProperties.getProcessing().getBulkhead().getMaxWaitMillis(),
+                meterRegistry);
+    }
+
+    public StripeBulkhead(int maxConcurrentCalls, long maxWaitMillis, MeterRegistry meterRegistry) {
+        this.permits = new Semaphore(maxConcurrentCalls, true);
+        this.maxConcurrentCalls = maxConcurrentCalls;
+        this.maxWaitMillis = maxWaitMillis;
+        this.rejected = Counter.builder("payment.stripe.bulkhead.rejected")
+                .description("Stripe requests turned away because the bulkhead was full")
+                .register(meterRegistry);
+        Gauge.builder("payment.stripe.bulkhead.in.use", this, StripeBulkhead::inUse)
+                .description("Stripe requests currently in flight")
+                .register(meterRegistry);
+    }
+
+    public <T> T execute(StripeCall<T> call) throws StripeException {
+        acquire();
+        try {
+            return call.execute();
+        } finally {
+            permits.release();
+        }
+    }
+
+    public int inUse() {
+        return maxConcurrentCalls - permits.availablePermits();
+    }
+
+    private void acquire() {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new StripeIntegrationException("Przerwano oczekiwanie na połączenie z systemem płatności", e);
+        }
+        if (!acquired) {
+            rejected.increment();
+            throw new StripeIntegrationException("Zbyt wiele równoczesnych żądań do systemu płatności");
+        }
+    }
+
+    @FunctionalInterface
+    public interface StripeCall<T> {
+        T execute() throws StripeException;
+    }
+}
@@ -0,0 +1,218 @@
+package com.flavory.paymentservice.stripe;
+
+import com.flavory.paymentservice.exception.StripeIntegrationException;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.StripeException;
+import com.stripe.net.HttpClient;
+import com.stripe.net.HttpContent;
+import com.stripe.net.HttpHeaders;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URISyntaxException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.regex.Pattern;
+
+/**
+ * stripe-java transport on the JDK HTTP client. The client keeps connections alive and
+ * reuses them, and negotiates HTTP/2 where Stripe offers it. The number of open connections
+ * follows the number of concurrent attempts, which {@link StripeBulkhead} caps.
+ *
+ * <p>Every attempt has the configured response timeout. Failed attempts are retried up to
+ * {@code max-attempts} with exponential, jittered backoff. Retries happen on connection
+ * errors, 409, 429 and 5xx, or whenever Stripe's {@code Stripe-Should-Retry} header says so.
+ * A POST without an idempotency key gets one before the first attempt, so every retry of
+ * a mutating call is safe.
+ *
+ * <p>Each attempt takes its own bulkhead permit, so no permit is held while backing off. A
+ * retry the bulkhead turns away ends the call with the previous attempt's response or error,
+ * which keeps an unknown outcome unknown to the caller.
+ *
+ * <p>Each attempt is timed as {@code payment.stripe.requests}, tagged with the operation
+ * (method and path with object ids masked), outcome and status.
+ */
+@Slf4j
+public class StripeHttpClient extends HttpClient {
+
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+    private static final String SHOULD_RETRY = "Stripe-Should-Retry";
+    private static final Set<String> RESTRICTED_HEADERS = Set.of("connection", "content-length", "expect", "host", "upgrade");
+    private static final Pattern OBJECT_ID = Pattern.compile("(?<=/)[a-z]+_(?=[A-Za-z0-9_]*[0-9A-Z])[A-Za-z0-9_]+(?=/|$)");
+
+    private final java.net.http.HttpClient client;
+    private final Duration requestTimeout;
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final StripeBulkhead bulkhead;
+    private final MeterRegistry meterRegistry;
+
+    public StripeHttpClient(java.net.http.HttpClient client,
+                            Duration requestTimeout,
+                            int maxAttempts,
+                            long baseDelayMillis,
+                            StripeBulkhead bulkhead,
+                            MeterRegistry meterRegistry) {
+        this.client = client;
+        this.requestTimeout = requestTimeout;
+        this.maxAttempts = Math.max(maxAttempts, 1);
+        this.baseDelayMillis = baseDelayMillis;
+        this.bulkhead = bulkhead;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public StripeResponse request(StripeRequest request) throws StripeException {
+        String operation = operationOf(request);
+        return bulkhead.execute(() -> send(request, operation));
+    }
+
+    @Override
+    public StripeResponse requestWithRetries(StripeRequest request) throws StripeException {
+        StripeRequest keyed = withIdempotencyKey(request);
+        String operation = operationOf(keyed);
+
+        StripeResponse response = null;
+        ApiConnectionException error = null;
+        for (int attempt = 1; ; attempt++) {
+            try {
+                response = bulkhead.execute(() -> send(keyed, operation));
+                error = null;
+            } catch (ApiConnectionException e) {
+                response = null;
+                error = e;
+            } catch (StripeIntegrationException e) {
+                if (attempt == 1) {
+                    throw e;
+                }
+                log.warn("Ponowienie {} odrzucone przez bulkhead (próba {})", operation, attempt);
+                return lastOutcome(response, error);
+            }
+
+            if (attempt >= maxAttempts || (error == null && !shouldRetry(response))) {
+                return lastOutcome(response, error);
+            }
+            backOff(operation, attempt);
+        }
+    }
+
+    private static StripeResponse lastOutcome(StripeResponse response, ApiConnectionException error)
+            throws ApiConnectionException {
+        if (error != null) {
+            throw error;
+        }
+        return response;
+    }
+
+    private StripeResponse send(StripeRequest request, String operation) throws StripeException {
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            HttpResponse<String> response = client.send(toHttpRequest(request),
+                    HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8));
+            sample.stop(timer(operation, outcomeOf(response.statusCode()), String.valueOf(response.statusCode())));
+            return new StripeResponse(response.statusCode(), HttpHeaders.of(response.headers().map()), response.body());
+
+        } catch (IOException e) {
+            sample.stop(timer(operation, "CONNECTION_ERROR", "IO_ERROR"));
+            throw new ApiConnectionException("Błąd połączenia z systemem płatności: " + e.getMessage(), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            sample.stop(timer(operation, "CONNECTION_ERROR", "INTERRUPTED"));
+            throw new ApiConnectionException("Przerwano żądanie do systemu płatności", e);
+        }
+    }
+
+    private HttpRequest toHttpRequest(StripeRequest request) throws ApiConnectionException {
+        HttpRequest.Builder builder;
+        try {
+            builder = HttpRequest.newBuilder(request.url().toURI()).timeout(requestTimeout);
+        } catch (URISyntaxException e) {
+            throw new ApiConnectionException("Nieprawidłowy adres żądania: " + request.url(), e);
+        }
+
+        request.headers().map().forEach((name, values) -> {
+            if (!RESTRICTED_HEADERS.contains(name.toLowerCase())) {
+                values.forEach(value -> builder.header(name, value));
+            }
+        });
+
+        HttpContent content = request.content();
+        if (content == null) {
+            return builder.method(request.method().name(), HttpRequest.BodyPublishers.noBody()).build();
+        }
+        return builder
+                .header("Content-Type", content.contentType())
+                .method(request.method().name(), HttpRequest.BodyPublishers.ofByteArray(content.byteArrayContent()))
+                .build();
+    }
+
+    private static StripeRequest withIdempotencyKey(StripeRequest request) {
+        if (!"POST".equals(request.method().name())
+                || request.headers().firstValue(IDEMPOTENCY_KEY).isPresent()) {
+            return request;
+        }
+        return request.withAdditionalHeader(IDEMPOTENCY_KEY, UUID.randomUUID().toString());
+    }
+
+    private static boolean shouldRetry(StripeResponse response) {
+        String shouldRetry = response.headers().firstValue(SHOULD_RETRY).orElse(null);
+        if (shouldRetry != null) {
+            return Boolean.parseBoolean(shouldRetry);
+        }
+        int status = response.code();
+        return status == 409 || status == 429 || status >= 500;
+    }
+
+    private void backOff(String operation, int attempt) throws ApiConnectionException {
+        Counter.builder("payment.stripe.retries")
+                .description("Stripe attempts that were retried")
+                .tag("operation", operation)
+                .register(meterRegistry)
+                .increment();
+
+        // Equal jitter: half of the exponential delay is fixed, the other half random.
+        long ceiling = baseDelayMillis << Math.min(attempt - 1, 16);
+        long delay = ceiling / 2 + ThreadLocalRandom.current().nextLong(ceiling / 2 + 1);
+        log.debug("Ponawianie {} po {} ms (próba {})", operation, delay, attempt + 1);
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ApiConnectionException("Przerwano oczekiwanie na ponowienie żądania", e);
+        }
+    }
+
+    private Timer timer(String operation, String outcome, String status) {
+        return Timer.builder("payment.stripe.requests")
+                .description("Attempts of Stripe API calls")
+                .tag("operation", operation)
+                .tag("outcome", outcome)
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+    }
+
+    private static String outcomeOf(int status) {
+        if (status >= 500) {
+            return "SERVER_ERROR";
+        }
+        if (status >= 400) {
+            return "CLIENT_ERROR";
+        }
+        return "SUCCESS";
+    }
+
+    static String operationOf(StripeRequest request) {
+        return request.method().name() + " " + OBJECT_ID.matcher(request.url().getPath()).replaceAll("{id}");
+    }
+}
@@ -0,0 +1,240 @@
+package com.flavory.paymentservice.serviceTests;
+
+import com.flavory.paymentservice.config.PaymentProperties;
+import com.flavory.paymentservice.entity.Payment;
+import com.flavory.paymentservice.entity.PaymentOperation;
+import com.flavory.paymentservice.entity.PaymentStatus;
+import com.flavory.paymentservice.exception.StripeIntegrationException;
+import com.flavory.paymentservice.messaging.publisher.PaymentEventPublisher;
+import com.flavory.paymentservice.repository.PaymentRepository;
+import com.flavory.paymentservice.scheduler.PaymentCleanupJob;
+import com.flavory.paymentservice.service.StripeService;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.model.PaymentIntent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PaymentCleanupJob Tests")
+class PaymentCleanupJobTest {
+
+    @Mock private PaymentRepository paymentRepository;
+    @Mock private StripeService stripeService;
+    @Mock private PaymentEventPublisher eventPublisher;
+
+    private PaymentProperties paymentProperties;
+    private SimpleMeterRegistry meterRegistry;
+    private PaymentCleanupJob paymentCleanupJob;
+
+    @BeforeEach
+    void setUp() {
+        paymentProperties = new PaymentProperties();
+        paymentProperties.getCleanup().setChunkSize(2);
+        paymentProperties.getCleanup().setMaxChunksPerRun(3);
+        meterRegistry = new SimpleMeterRegistry();
+
+        paymentCleanupJob = new PaymentCleanupJob(
+                paymentRepository,
+                stripeService,
+                eventPublisher,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                Runnable::run,
+                paymentProperties,
+                meterRegistry
+        );
+
+        lenient().when(paymentRepository.saveAll(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        lenient().when(paymentRepository.save(any(Payment.class))).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    private static final LocalDateTime CREATED_AT = LocalDateTime.of(2026, 10, 19, 8, 0);
+
+    private static Payment createPayment(long id) {
+        return Payment.builder()
+                .id(id)
+                .orderId(id)
+                .customerId("customer123")
+                .cookId("cook123")
+                .amount(new BigDecimal("100.00"))
+                .status(PaymentStatus.PENDING)
+                .stripePaymentIntentId("pi_" + id)
+                .createdAt(CREATED_AT.plusSeconds(id))
+                .build();
+    }
+
+    private static PaymentIntent paymentIntent(String status) {
+        PaymentIntent paymentIntent = new PaymentIntent();
+        paymentIntent.setStatus(status);
+        return paymentIntent;
+    }
+
+    private static StripeIntegrationException rejectedCancel() {
+        return new StripeIntegrationException("Nie udało się anulować Payment Intent",
+                new InvalidRequestException("unexpected state", null, null, null, 400, null));
+    }
+
+    private double cleanedUp(String outcome) {
+        return meterRegistry.get("payment.cleanup.payments").tag("outcome", outcome).counter().count();
+    }
+
+    @Test
+    @DisplayName("Should cancel claimed payments chunk by chunk until the backlog is drained")
+    void shouldCancelInChunks() {
+        Payment first = createPayment(1);
+        Payment second = createPayment(2);
+        Payment third = createPayment(3);
+        when(paymentRepository.claimExpiredPendingPayments(any(), any(), anyLong(), eq(2)))
+                .thenReturn(List.of(first, second))
+                .thenReturn(List.of(third));
+
+        paymentCleanupJob.cancelExpiredPendingPayments();
+
+        assertThat(List.of(first, second, third)).allSatisfy(payment -> {
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.CANCELLED);
+            assertThat(payment.hasPendingOperation()).isFalse();
+        });
+        verify(paymentRepository, times(2)).claimExpiredPendingPayments(any(), any(), anyLong(), anyInt());
+        verify(stripeService).cancelPaymentIntent("pi_3");
+        verify(eventPublisher, times(3)).publishPaymentCancelled(any());
+        assertThat(cleanedUp("CANCELLED")).isEqualTo(3);
+        assertThat(meterRegistry.get("payment.cleanup.chunks").timer().count()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should mark claimed payments before calling Stripe")
+    void shouldMarkBeforeCalling() {
+        Payment payment = createPayment(1);
+        when(paymentRepository.claimExpiredPendingPayments(any(), any(), anyLong(), anyInt())).thenReturn(List.of(payment));
+        doAnswer(invocation -> {
+            assertThat(payment.getPendingOperation()).isEqualTo(PaymentOperation.CANCEL);
+            return null;
+        }).when(stripeService).cancelPaymentIntent("pi_1");
+
+        paymentCleanupJob.cancelExpiredPendingPayments();
+
+        verify(stripeService).cancelPaymentIntent("pi_1");
+    }
+
+    @Test
+    @DisplayName("Should release a payment Stripe refused to cancel because it moved on")
+    void shouldReleaseRejected() {
+        Payment payment = createPayment(1);
+        when(paymentRepository.claimExpiredPendingPayments(any(), any(), anyLong(), anyInt())).thenReturn(List.of(payment));
+        doThrow(rejectedCancel()).when(stripeService).cancelPaymentIntent("pi_1");
+        when(stripeService.retrievePaymentIntent("pi_1")).thenReturn(paymentIntent("succeeded"));
+
+        paymentCleanupJob.cancelExpiredPendingPayments();
+
+        assertThat(payment.getStatus()).isEqualTo(PaymentStatus.PENDING);
+        assertThat(payment.hasPendingOperation()).isFalse();
+        verify(eventPublisher, never()).publishPaymentCancelled(any());
+        assertThat(cleanedUp("REJECTED")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should record a refused cancellation of an intent that is already cancelled")
+    void shouldCancelWhenIntentAlreadyCancelled() {
+        Payment payment = createPayment(1);
+        when(paymentRepository.claimExpiredPendingPayments(any(), any(), anyLong(), anyInt())).thenReturn(List.of(payment));
+        doThrow(rejectedCancel()).when(stripeService).cancelPaymentIntent("pi_1");
+        when(stripeService.retrievePaymentIntent("pi_1")).thenReturn(paymentIntent("canceled"));
+
+        paymentCleanupJob.cancelExpiredPendingPayments();
+
+        assertThat(payment.getStatus()).isEqualTo(PaymentStatus.CANCELLED);
+        assertThat(payment.hasPendingOperation()).isFalse();
+        verify(eventPublisher).publishPaymentCancelled(payment);
+        assertThat(cleanedUp("CANCELLED")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should move past a fully rejected chunk instead of claiming it again")
+    void shouldMovePastRejectedChunk() {
+        Payment first = createPayment(1);
+        Payment second = createPayment(2);
+        Payment third = createPayment(3);
+        when(paymentRepository.claimExpiredPendingPayments(any(), eq(LocalDateTime.of(1970, 1, 1, 0, 0)), eq(0L), eq(2)))
+                .thenReturn(List.of(first, second));
+        when(paymentRepository.claimExpiredPendingPayments(any(), eq(second.getCreatedAt()), eq(2L), eq(2)))
+                .thenReturn(List.of(third));
+        doThrow(rejectedCancel()).when(stripeService).cancelPaymentIntent("pi_1");
+        doThrow(new StripeIntegrationException("Zbyt wiele równoczesnych żądań do systemu płatności"))
+                .when(stripeService).cancelPaymentIntent("pi_2");
+        when(stripeService.retrievePaymentIntent(anyString())).thenReturn(paymentIntent("succeeded"));
+
+        paymentCleanupJob.cancelExpiredPendingPayments();
+
+        assertThat(List.of(first, second)).allSatisfy(payment -> {
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.PENDING);
+            assertThat(payment.hasPendingOperation()).isFalse();
+        });
+        assertThat(third.getStatus()).isEqualTo(PaymentStatus.CANCELLED);
+        verify(paymentRepository, times(2)).claimExpiredPendingPayments(any(), any(), anyLong(), anyInt());
+        assertThat(cleanedUp("REJECTED")).isEqualTo(2);
+        assertThat(cleanedUp("CANCELLED")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should leave a cancellation with unknown outcome to recovery")
+    void shouldKeepUnknownForRecovery() {
+        Payment lost = createPayment(1);
+        Payment cancelled = createPayment(2);
+        when(paymentRepository.claimExpiredPendingPayments(any(), any(), anyLong(), anyInt()))
+                .thenReturn(List.of(lost, cancelled))
+                .thenReturn(List.of());
+        doThrow(new StripeIntegrationException("Nie udało się anulować Payment Intent",
+                new ApiConnectionException("timeout")))
+                .when(stripeService).cancelPaymentIntent("pi_1");
+
+        paymentCleanupJob.cancelExpiredPendingPayments();
+
+        assertThat(lost.getPendingOperation()).isEqualTo(PaymentOperation.CANCEL);
+        assertThat(lost.getStatus()).isEqualTo(PaymentStatus.PENDING);
+        assertThat(cancelled.getStatus()).isEqualTo(PaymentStatus.CANCELLED);
+        verify(paymentRepository, never()).save(lost);
+        assertThat(cleanedUp("UNKNOWN")).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should stop after the chunk limit and report the backlog")
+    void shouldStopAtChunkLimit() {
+        when(paymentRepository.claimExpiredPendingPayments(any(), any(), anyLong(), anyInt()))
+                .thenAnswer(invocation -> List.of(createPayment(1), createPayment(2)));
+        when(paymentRepository.countExpiredPendingPayments(any())).thenReturn(42L);
+
+        paymentCleanupJob.cancelExpiredPendingPayments();
+
+        verify(paymentRepository, times(3)).claimExpiredPendingPayments(any(), any(), anyLong(), anyInt());
+        assertThat(meterRegistry.get("payment.cleanup.backlog").gauge().value()).isEqualTo(42.0);
+    }
+
+    @Test
+    @DisplayName("Should do nothing when no payment has expired")
+    void shouldDoNothingWithoutExpiredPayments() {
+        when(paymentRepository.claimExpiredPendingPayments(any(), any(), anyLong(), anyInt())).thenReturn(List.of());
+
+        paymentCleanupJob.cancelExpiredPendingPayments();
+
+        verifyNoInteractions(stripeService, eventPublisher);
+    }
+}
@@ -7,6 +7,7 @@ import com.flavory.paymentservice.dto.response.PaymentResponse;
 import com.flavory.paymentservice.dto.response.RefundResponse;
 import com.flavory.paymentservice.entity.Payment;
 import com.flavory.paymentservice.entity.PaymentMethod;
+import com.flavory.paymentservice.entity.PaymentOperation;
 import com.flavory.paymentservice.entity.PaymentStatus;
 import com.flavory.paymentservice.exception.*;
 import com.flavory.paymentservice.mapper.PaymentMapper;
@@ -14,6 +15,7 @@ import com.flavory.paymentservice.messaging.publisher.PaymentEventPublisher;
 import com.flavory.paymentservice.repository.PaymentRepository;
 import com.flavory.paymentservice.service.StripeService;
 import com.flavory.paymentservice.service.impl.PaymentServiceImpl;
+import com.stripe.exception.ApiConnectionException;
 import com.stripe.model.Charge;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.Refund;
@@ -23,12 +25,14 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
-import org.mockito.MockedStatic;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -38,6 +42,8 @@ import java.util.Optional;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -48,6 +54,7 @@ class PaymentServiceImplTest {
     @Mock private StripeService stripeService;
     @Mock private PaymentMapper paymentMapper;
     @Mock private PaymentEventPublisher eventPublisher;
+    @Spy private TransactionTemplate transactionTemplate = new TransactionTemplate(mock(PlatformTransactionManager.class));
 
     @InjectMocks
     private PaymentServiceImpl paymentService;
@@ -92,6 +99,14 @@ class PaymentServiceImplTest {
                 .build();
     }
 
+    private void stubSaveAssigningId() {
+        when(paymentRepository.save(any())).thenAnswer(invocation -> {
+            Payment saved = invocation.getArgument(0);
+            saved.setId(PAYMENT_ID);
+            return saved;
+        });
+    }
+
     private PaymentIntent createMockPaymentIntent(String status) {
         PaymentIntent intent = mock(PaymentIntent.class);
         lenient().when(intent.getId()).thenReturn(PAYMENT_INTENT_ID);
@@ -143,22 +158,25 @@ class PaymentServiceImplTest {
         @DisplayName("Should create payment intent successfully")
         void shouldCreatePaymentIntent() {
             CreatePaymentIntentRequest request = createPaymentRequest();
-            Payment payment = createPayment(PaymentStatus.PENDING);
             PaymentIntent intent = createMockPaymentIntent("pending");
 
             when(paymentRepository.existsByOrderId(ORDER_ID)).thenReturn(false);
             when(stripeService.calculatePlatformFee(request.getAmount())).thenReturn(new BigDecimal("10.00"));
             when(stripeService.calculateCookPayout(any(), any())).thenReturn(new BigDecimal("90.00"));
-            when(stripeService.createPaymentIntent(any(), any(), any(), any(), any())).thenReturn(intent);
-            when(paymentRepository.save(any())).thenReturn(payment);
-            when(paymentMapper.toPaymentIntentResponse(payment)).thenReturn(createPaymentIntentResponse());
+            when(stripeService.createPaymentIntent(any(), any(), any(), any(), any(), startsWith("payment-1-create-")))
+                    .thenReturn(intent);
+            stubSaveAssigningId();
+            when(paymentMapper.toPaymentIntentResponse(any())).thenReturn(createPaymentIntentResponse());
 
             PaymentIntentResponse result = paymentService.createPaymentIntent(request);
 
             assertThat(result).isNotNull();
             assertThat(result.getOrderId()).isEqualTo(ORDER_ID);
-            verify(paymentRepository).save(any(Payment.class));
-            verify(eventPublisher).publishPaymentCreated(any());
+            verify(paymentRepository, times(2)).save(any(Payment.class));
+            verify(eventPublisher).publishPaymentCreated(argThat(payment ->
+                    PAYMENT_INTENT_ID.equals(payment.getStripePaymentIntentId())
+                            && CLIENT_SECRET.equals(payment.getStripeClientSecret())
+                            && !payment.hasPendingOperation()));
         }
 
         @Test
@@ -203,7 +221,7 @@ class PaymentServiceImplTest {
             assertThatThrownBy(() -> paymentService.createPaymentIntent(request))
                     .isInstanceOf(DuplicatePaymentException.class);
 
-            verify(stripeService, never()).createPaymentIntent(any(), any(), any(), any(), any());
+            verify(stripeService, never()).createPaymentIntent(any(), any(), any(), any(), any(), any());
         }
 
         @Test
@@ -214,12 +232,36 @@ class PaymentServiceImplTest {
             when(paymentRepository.existsByOrderId(ORDER_ID)).thenReturn(false);
             when(stripeService.calculatePlatformFee(any())).thenReturn(new BigDecimal("10.00"));
             when(stripeService.calculateCookPayout(any(), any())).thenReturn(new BigDecimal("90.00"));
-            when(stripeService.createPaymentIntent(any(), any(), any(), any(), any()))
+            when(stripeService.createPaymentIntent(any(), any(), any(), any(), any(), any()))
                     .thenThrow(new StripeIntegrationException("Stripe error"));
+            stubSaveAssigningId();
 
             assertThatThrownBy(() -> paymentService.createPaymentIntent(request))
                     .isInstanceOf(PaymentProcessingException.class)
                     .hasMessageContaining("Nie udało się przetworzyć płatności");
+
+            verify(paymentRepository).delete(argThat(payment -> ORDER_ID.equals(payment.getOrderId())));
+            verify(eventPublisher, never()).publishPaymentCreated(any());
+        }
+
+        @Test
+        @DisplayName("Should keep the reservation when the Stripe outcome is unknown")
+        void shouldKeepReservationWhenOutcomeUnknown() {
+            CreatePaymentIntentRequest request = createPaymentRequest();
+
+            when(paymentRepository.existsByOrderId(ORDER_ID)).thenReturn(false);
+            when(stripeService.calculatePlatformFee(any())).thenReturn(new BigDecimal("10.00"));
+            when(stripeService.calculateCookPayout(any(), any())).thenReturn(new BigDecimal("90.00"));
+            when(stripeService.createPaymentIntent(any(), any(), any(), any(), any(), any()))
+                    .thenThrow(new StripeIntegrationException("Timeout",
+                            new ApiConnectionException("Read timed out")));
+            stubSaveAssigningId();
+
+            assertThatThrownBy(() -> paymentService.createPaymentIntent(request))
+                    .isInstanceOf(PaymentProcessingException.class);
+
+            verify(paymentRepository, never()).delete(any());
+            verify(paymentRepository).save(argThat(payment -> payment.getPendingOperation() == PaymentOperation.CREATE));
         }
     }
 
@@ -245,19 +287,52 @@ class PaymentServiceImplTest {
             when(paymentRepository.findByStripePaymentIntentId(PAYMENT_INTENT_ID))
                     .thenReturn(Optional.of(payment));
             when(stripeService.retrievePaymentIntent(PAYMENT_INTENT_ID)).thenReturn(intent);
+            when(stripeService.retrieveCharge(CHARGE_ID)).thenReturn(mockCharge);
             when(paymentRepository.save(payment)).thenReturn(payment);
             when(paymentMapper.toPaymentResponse(payment)).thenReturn(createPaymentResponse(PaymentStatus.SUCCEEDED));
 
-            try (MockedStatic<Charge> mockedChargeStatic = mockStatic(Charge.class)) {
-                mockedChargeStatic.when(() -> Charge.retrieve(CHARGE_ID))
-                        .thenReturn(mockCharge);
+            PaymentResponse result = paymentService.confirmPayment(PAYMENT_INTENT_ID);
+
+            assertThat(result).isNotNull();
+            assertThat(result.getStatus()).isEqualTo(PaymentStatus.SUCCEEDED);
+            assertThat(payment.getCardLast4()).isEqualTo("4242");
+            assertThat(payment.getCardBrand()).isEqualTo("visa");
+            verify(eventPublisher).publishPaymentSucceeded(payment);
+        }
+
+        @Test
+        @DisplayName("Should confirm payment when the charge cannot be retrieved")
+        void shouldConfirmWithoutCardDetails() {
+            Payment payment = createPayment(PaymentStatus.PENDING);
+            PaymentIntent intent = createMockPaymentIntent("succeeded");
+
+            when(paymentRepository.findByStripePaymentIntentId(PAYMENT_INTENT_ID))
+                    .thenReturn(Optional.of(payment));
+            when(stripeService.retrievePaymentIntent(PAYMENT_INTENT_ID)).thenReturn(intent);
+            when(stripeService.retrieveCharge(CHARGE_ID)).thenThrow(new StripeIntegrationException("Stripe error"));
+            when(paymentRepository.save(payment)).thenReturn(payment);
+
+            paymentService.confirmPayment(PAYMENT_INTENT_ID);
 
-                PaymentResponse result = paymentService.confirmPayment(PAYMENT_INTENT_ID);
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.SUCCEEDED);
+            assertThat(payment.getCardLast4()).isNull();
+            verify(eventPublisher).publishPaymentSucceeded(payment);
+        }
 
-                assertThat(result).isNotNull();
-                assertThat(result.getStatus()).isEqualTo(PaymentStatus.SUCCEEDED);
-                verify(eventPublisher).publishPaymentSucceeded(payment);
-            }
+        @Test
+        @DisplayName("Should not call Stripe for a payment in a final state")
+        void shouldSkipFinalPayment() {
+            Payment payment = createPayment(PaymentStatus.REFUNDED);
+
+            when(paymentRepository.findByStripePaymentIntentId(PAYMENT_INTENT_ID))
+                    .thenReturn(Optional.of(payment));
+            when(paymentMapper.toPaymentResponse(payment)).thenReturn(createPaymentResponse(PaymentStatus.REFUNDED));
+
+            PaymentResponse result = paymentService.confirmPayment(PAYMENT_INTENT_ID);
+
+            assertThat(result.getStatus()).isEqualTo(PaymentStatus.REFUNDED);
+            verify(stripeService, never()).retrievePaymentIntent(any());
+            verify(paymentRepository, never()).save(any());
         }
 
         @Test
@@ -325,9 +400,42 @@ class PaymentServiceImplTest {
 
             assertThat(result).isNotNull();
             assertThat(payment.getStatus()).isEqualTo(PaymentStatus.CANCELLED);
+            assertThat(payment.hasPendingOperation()).isFalse();
             verify(eventPublisher).publishPaymentCancelled(payment);
         }
 
+        @Test
+        @DisplayName("Should clear the marker when Stripe rejects the cancellation")
+        void shouldClearMarkerWhenStripeRejects() {
+            Payment payment = createPayment(PaymentStatus.PENDING);
+
+            when(paymentRepository.findById(PAYMENT_ID)).thenReturn(Optional.of(payment));
+            when(stripeService.cancelPaymentIntent(PAYMENT_INTENT_ID))
+                    .thenThrow(new StripeIntegrationException("Stripe error"));
+            when(paymentRepository.save(payment)).thenReturn(payment);
+
+            assertThatThrownBy(() -> paymentService.cancelPayment(PAYMENT_ID))
+                    .isInstanceOf(StripeIntegrationException.class);
+
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.PENDING);
+            assertThat(payment.hasPendingOperation()).isFalse();
+            verify(eventPublisher, never()).publishPaymentCancelled(any());
+        }
+
+        @Test
+        @DisplayName("Should refuse to cancel while another operation is pending")
+        void shouldThrowWhenOperationPending() {
+            Payment payment = createPayment(PaymentStatus.PENDING);
+            payment.beginOperation(PaymentOperation.CANCEL);
+
+            when(paymentRepository.findById(PAYMENT_ID)).thenReturn(Optional.of(payment));
+
+            assertThatThrownBy(() -> paymentService.cancelPayment(PAYMENT_ID))
+                    .isInstanceOf(InvalidPaymentStateException.class);
+
+            verify(stripeService, never()).cancelPaymentIntent(any());
+        }
+
         @Test
         @DisplayName("Should cancel payment with REQUIRES_ACTION status")
         void shouldCancelRequiresActionPayment() {
@@ -490,7 +598,8 @@ class PaymentServiceImplTest {
             Refund refund = createMockRefund();
 
             when(paymentRepository.findById(PAYMENT_ID)).thenReturn(Optional.of(payment));
-            when(stripeService.createRefund(PAYMENT_INTENT_ID, request)).thenReturn(refund);
+            when(stripeService.createRefund(eq(PAYMENT_INTENT_ID), eq(request), startsWith("payment-1-refund-")))
+                    .thenReturn(refund);
             when(paymentRepository.save(payment)).thenReturn(payment);
 
             RefundResponse result = paymentService.refundPayment(PAYMENT_ID, request);
@@ -498,6 +607,8 @@ class PaymentServiceImplTest {
             assertThat(result).isNotNull();
             assertThat(result.getRefundAmount()).isEqualByComparingTo(new BigDecimal("50.00"));
             assertThat(payment.getStatus()).isEqualTo(PaymentStatus.REFUNDED);
+            assertThat(payment.getRefundId()).isEqualTo("re_123");
+            assertThat(payment.hasPendingOperation()).isFalse();
             verify(eventPublisher).publishPaymentRefunded(payment);
         }
 
@@ -576,4 +687,85 @@ class PaymentServiceImplTest {
             )).isInstanceOf(PaymentNotFoundException.class);
         }
     }
-}
\ No newline at end of file
+
+    @Nested
+    @DisplayName("resumeInterruptedOperation")
+    class ResumeInterruptedOperationTests {
+
+        @Test
+        @DisplayName("Should finish an interrupted creation with the original idempotency key")
+        void shouldResumeCreate() {
+            Payment payment = createPayment(PaymentStatus.PENDING);
+            payment.setStripePaymentIntentId(null);
+            payment.setStripeClientSecret(null);
+            payment.beginOperation(PaymentOperation.CREATE);
+            String idempotencyKey = payment.stripeIdempotencyKey();
+            PaymentIntent intent = createMockPaymentIntent("requires_payment_method");
+
+            when(stripeService.createPaymentIntent(any(), any(), any(), any(), any(), eq(idempotencyKey)))
+                    .thenReturn(intent);
+            when(paymentRepository.save(payment)).thenReturn(payment);
+
+            paymentService.resumeInterruptedOperation(payment);
+
+            assertThat(payment.getStripePaymentIntentId()).isEqualTo(PAYMENT_INTENT_ID);
+            assertThat(payment.hasPendingOperation()).isFalse();
+            verify(eventPublisher).publishPaymentCreated(payment);
+        }
+
+        @Test
+        @DisplayName("Should not cancel again an intent Stripe already cancelled")
+        void shouldResumeCancelWithoutSecondCall() {
+            Payment payment = createPayment(PaymentStatus.PENDING);
+            payment.beginOperation(PaymentOperation.CANCEL);
+            PaymentIntent intent = createMockPaymentIntent("canceled");
+
+            when(stripeService.retrievePaymentIntent(PAYMENT_INTENT_ID)).thenReturn(intent);
+            when(paymentRepository.save(payment)).thenReturn(payment);
+
+            paymentService.resumeInterruptedOperation(payment);
+
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.CANCELLED);
+            verify(stripeService, never()).cancelPaymentIntent(any());
+            verify(eventPublisher).publishPaymentCancelled(payment);
+        }
+
+        @Test
+        @DisplayName("Should replay an interrupted refund with the recorded amount")
+        void shouldResumeRefund() {
+            Payment payment = createPayment(PaymentStatus.SUCCEEDED);
+            payment.setPaidAt(LocalDateTime.now().minusDays(1));
+            payment.beginRefund(new BigDecimal("40.00"), "Customer requested refund");
+            Refund refund = createMockRefund();
+
+            when(stripeService.createRefund(eq(PAYMENT_INTENT_ID),
+                    eq(createRefundRequest(new BigDecimal("40.00"))), eq(payment.stripeIdempotencyKey())))
+                    .thenReturn(refund);
+            when(paymentRepository.save(payment)).thenReturn(payment);
+
+            paymentService.resumeInterruptedOperation(payment);
+
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.REFUNDED);
+            assertThat(payment.getRefundAmount()).isEqualByComparingTo(new BigDecimal("40.00"));
+            verify(eventPublisher).publishPaymentRefunded(payment);
+        }
+
+        @Test
+        @DisplayName("Should leave the marker when the outcome is still unknown")
+        void shouldLeaveMarkerWhenOutcomeUnknown() {
+            Payment payment = createPayment(PaymentStatus.SUCCEEDED);
+            payment.setPaidAt(LocalDateTime.now().minusDays(1));
+            payment.beginRefund(new BigDecimal("40.00"), "Customer requested refund");
+
+            when(stripeService.createRefund(any(), any(), any()))
+                    .thenThrow(new StripeIntegrationException("Timeout",
+                            new ApiConnectionException("Read timed out")));
+
+            paymentService.resumeInterruptedOperation(payment);
+
+            assertThat(payment.getPendingOperation()).isEqualTo(PaymentOperation.REFUND);
+            assertThat(payment.getRefundAmount()).isEqualByComparingTo(new BigDecimal("40.00"));
+            verify(paymentRepository, never()).save(any());
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.flavory.paymentservice.serviceTests;
+
+import com.flavory.paymentservice.exception.StripeIntegrationException;
+import com.flavory.paymentservice.stripe.StripeBulkhead;
+import com.flavory.paymentservice.stripe.StripeHttpClient;
+import com.stripe.exception.ApiConnectionException;
+import com.stripe.net.ApiResource;
+import com.stripe.net.RequestOptions;
+import com.stripe.net.StripeRequest;
+import com.stripe.net.StripeResponse;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.http.HttpClient;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@DisplayName("StripeHttpClient Tests")
+class StripeHttpClientTest {
+
+    private static final String PAYMENT_INTENT_ID = "pi_3NxYz123";
+
+    private HttpServer server;
+    private SimpleMeterRegistry meterRegistry;
+    private StripeBulkhead bulkhead;
+    private StripeHttpClient stripeHttpClient;
+
+    private final AtomicInteger calls = new AtomicInteger();
+    private final ConcurrentLinkedQueue<String> idempotencyKeys = new ConcurrentLinkedQueue<>();
+    private volatile List<Integer> statuses;
+    private volatile String shouldRetry;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/", this::handle);
+        server.start();
+
+        meterRegistry = new SimpleMeterRegistry();
+        bulkhead = spy(new StripeBulkhead(1, 50, meterRegistry));
+        stripeHttpClient = new StripeHttpClient(
+                HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(1)).build(),
+                Duration.ofSeconds(2),
+                3,
+                1,
+                bulkhead,
+                meterRegistry
+        );
+        statuses = List.of(200);
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        int call = calls.getAndIncrement();
+        String key = exchange.getRequestHeaders().getFirst("Idempotency-Key");
+        if (key != null) {
+            idempotencyKeys.add(key);
+        }
+        int status = statuses.get(Math.min(call, statuses.size() - 1));
+        if (shouldRetry != null) {
+            exchange.getResponseHeaders().add("Stripe-Should-Retry", shouldRetry);
+        }
+        byte[] body = "{\"id\": \"%s\", \"object\": \"payment_intent\"}".formatted(PAYMENT_INTENT_ID)
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, body.length);
+        exchange.getResponseBody().write(body);
+        exchange.close();
+    }
+
+    private StripeRequest request(ApiResource.RequestMethod method, String path) throws Exception {
+        String url = "http://127.0.0.1:" + server.getAddress().getPort() + path;
+        Map<String, Object> params = method == ApiResource.RequestMethod.POST ? Map.of("amount", 1000) : null;
+        return new StripeRequest(method, url, params, RequestOptions.builder().setApiKey("sk_test_123").build());
+    }
+
+    private long requests(String outcome) {
+        return meterRegistry.find("payment.stripe.requests").tag("outcome", outcome).timers().stream()
+                .mapToLong(timer -> timer.count())
+                .sum();
+    }
+
+    @Nested
+    @DisplayName("requestWithRetries")
+    class RequestWithRetriesTests {
+
+        @Test
+        @DisplayName("Should retry server errors with the same idempotency key")
+        void shouldRetryWithSameKey() throws Exception {
+            statuses = List.of(500, 409, 200);
+
+            StripeResponse response = stripeHttpClient.requestWithRetries(
+                    request(ApiResource.RequestMethod.POST, "/v1/payment_intents"));
+
+            assertThat(response.code()).isEqualTo(200);
+            assertThat(calls).hasValue(3);
+            assertThat(idempotencyKeys).hasSize(3);
+            assertThat(idempotencyKeys.stream().distinct()).hasSize(1);
+            assertThat(meterRegistry.get("payment.stripe.retries").counter().count()).isEqualTo(2);
+        }
+
+        @Test
+        @DisplayName("Should keep the idempotency key given by the caller")
+        void shouldKeepCallerKey() throws Exception {
+            String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1/payment_intents";
+            StripeRequest request = new StripeRequest(ApiResource.RequestMethod.POST, url, Map.of("amount", 1000),
+                    RequestOptions.builder().setApiKey("sk_test_123").setIdempotencyKey("payment-1-create").build());
+
+            stripeHttpClient.requestWithRetries(request);
+
+            assertThat(idempotencyKeys).containsExactly("payment-1-create");
+        }
+
+        @Test
+        @DisplayName("Should not retry client errors")
+        void shouldNotRetryClientErrors() throws Exception {
+            statuses = List.of(400);
+
+            StripeResponse response = stripeHttpClient.requestWithRetries(
+                    request(ApiResource.RequestMethod.POST, "/v1/payment_intents"));
+
+            assertThat(response.code()).isEqualTo(400);
+            assertThat(calls).hasValue(1);
+            assertThat(requests("CLIENT_ERROR")).isEqualTo(1);
+        }
+
+        @Test
+        @DisplayName("Should follow Stripe-Should-Retry over the status")
+        void shouldFollowShouldRetryHeader() throws Exception {
+            statuses = List.of(503);
+            shouldRetry = "false";
+
+            StripeResponse response = stripeHttpClient.requestWithRetries(
+                    request(ApiResource.RequestMethod.POST, "/v1/payment_intents/" + PAYMENT_INTENT_ID + "/cancel"));
+
+            assertThat(response.code()).isEqualTo(503);
+            assertThat(calls).hasValue(1);
+        }
+
+        @Test
+        @DisplayName("Should return the last response when attempts run out")
+        void shouldStopAfterMaxAttempts() throws Exception {
+            statuses = List.of(500);
+
+            StripeResponse response = stripeHttpClient.requestWithRetries(
+                    request(ApiResource.RequestMethod.GET, "/v1/charges/ch_1AbC"));
+
+            assertThat(response.code()).isEqualTo(500);
+            assertThat(calls).hasValue(3);
+            assertThat(requests("SERVER_ERROR")).isEqualTo(3);
+            assertThat(idempotencyKeys).isEmpty();
+        }
+
+        @Test
+        @DisplayName("Should throw ApiConnectionException when the server is unreachable")
+        void shouldThrowOnConnectionError() throws Exception {
+            StripeRequest request = request(ApiResource.RequestMethod.GET, "/v1/charges/ch_1AbC");
+            server.stop(0);
+
+            assertThatThrownBy(() -> stripeHttpClient.requestWithRetries(request))
+                    .isInstanceOf(ApiConnectionException.class);
+            assertThat(requests("CONNECTION_ERROR")).isEqualTo(3);
+        }
+    }
+
+    @Nested
+    @DisplayName("bulkhead")
+    class BulkheadTests {
+
+        @Test
+        @DisplayName("Should take a permit per attempt and hold none between attempts")
+        void shouldTakePermitPerAttempt() throws Exception {
+            statuses = List.of(500, 500, 200);
+
+            stripeHttpClient.requestWithRetries(request(ApiResource.RequestMethod.POST, "/v1/payment_intents"));
+
+            verify(bulkhead, times(3)).execute(any());
+            assertThat(bulkhead.inUse()).isZero();
+        }
+
+        @Test
+        @DisplayName("Should turn the call away when the bulkhead is full")
+        void shouldRejectWhenBulkheadFull() throws Exception {
+            CountDownLatch inFlight = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            StripeRequest request = request(ApiResource.RequestMethod.POST, "/v1/payment_intents");
+
+            try {
+                executor.submit(() -> bulkhead.execute(() -> {
+                    inFlight.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return null;
+                }));
+                inFlight.await();
+
+                assertThatThrownBy(() -> stripeHttpClient.requestWithRetries(request))
+                        .isInstanceOf(StripeIntegrationException.class)
+                        .hasMessageContaining("Zbyt wiele równoczesnych żądań");
+                assertThat(calls).hasValue(0);
+                assertThat(bulkhead.inUse()).isEqualTo(1);
+            } finally {
+                release.countDown();
+                executor.shutdown();
+            }
+        }
+
+        @Test
+        @DisplayName("Should end with the previous response when a retry is turned away")
+        void shouldReturnPreviousResponseWhenRetryRejected() throws Exception {
+            statuses = List.of(500);
+            doCallRealMethod()
+                    .doThrow(new StripeIntegrationException("Zbyt wiele równoczesnych żądań do systemu płatności"))
+                    .when(bulkhead).execute(any());
+
+            StripeResponse response = stripeHttpClient.requestWithRetries(
+                    request(ApiResource.RequestMethod.POST, "/v1/payment_intents"));
+
+            assertThat(response.code()).isEqualTo(500);
+            assertThat(calls).hasValue(1);
+        }
+
+        @Test
+        @DisplayName("Should rethrow the connection error when a retry is turned away")
+        void shouldRethrowConnectionErrorWhenRetryRejected() throws Exception {
+            StripeRequest request = request(ApiResource.RequestMethod.POST, "/v1/payment_intents");
+            server.stop(0);
+            doCallRealMethod()
+                    .doThrow(new StripeIntegrationException("Zbyt wiele równoczesnych żądań do systemu płatności"))
+                    .when(bulkhead).execute(any());
+
+            assertThatThrownBy(() -> stripeHttpClient.requestWithRetries(request))
+                    .isInstanceOf(ApiConnectionException.class);
+            assertThat(requests("CONNECTION_ERROR")).isEqualTo(1);
+        }
+    }
+
+    @Test
+    @DisplayName("Should tag requests with the operation, masking object ids")
+    void shouldMaskObjectIds() throws Exception {
+        stripeHttpClient.requestWithRetries(
+                request(ApiResource.RequestMethod.POST, "/v1/payment_intents/" + PAYMENT_INTENT_ID + "/cancel"));
+
+        assertThat(meterRegistry.find("payment.stripe.requests")
+                .tag("operation", "POST /v1/payment_intents/{id}/cancel")
+                .tag("status", "200")
+                .timer()).isNotNull();
+    }
+}
@@ -6,8 +6,10 @@ import com.flavory.paymentservice.entity.PaymentMethod;
 import com.flavory.paymentservice.exception.StripeIntegrationException;
 import com.flavory.paymentservice.service.impl.StripeServiceImpl;
 import com.stripe.exception.StripeException;
+import com.stripe.model.Charge;
 import com.stripe.model.PaymentIntent;
 import com.stripe.model.Refund;
+import com.stripe.net.RequestOptions;
 import com.stripe.param.PaymentIntentCancelParams;
 import com.stripe.param.PaymentIntentCreateParams;
 import com.stripe.param.RefundCreateParams;
@@ -16,6 +18,7 @@ import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.MockedStatic;
@@ -45,6 +48,7 @@ class StripeServiceImplTest {
     private static final Long ORDER_ID = 1L;
     private static final String PAYMENT_INTENT_ID = "pi_123456";
     private static final String CURRENCY = "PLN";
+    private static final String IDEMPOTENCY_KEY = "payment-1-create-2026-10-19T10:15:30.123";
 
     @BeforeEach
     void setUp() {
@@ -73,11 +77,11 @@ class StripeServiceImplTest {
             PaymentIntent mockIntent = mock(PaymentIntent.class);
 
             try (MockedStatic<PaymentIntent> mockedStatic = mockStatic(PaymentIntent.class)) {
-                mockedStatic.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)))
+                mockedStatic.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class), any(RequestOptions.class)))
                         .thenReturn(mockIntent);
 
                 PaymentIntent result = stripeService.createPaymentIntent(
-                        amount, CURRENCY, CUSTOMER_ID, ORDER_ID, PaymentMethod.CARD
+                        amount, CURRENCY, CUSTOMER_ID, ORDER_ID, PaymentMethod.CARD, IDEMPOTENCY_KEY
                 );
 
                 assertThat(result).isNotNull();
@@ -92,14 +96,14 @@ class StripeServiceImplTest {
             PaymentIntent mockIntent = mock(PaymentIntent.class);
 
             try (MockedStatic<PaymentIntent> mockedStatic = mockStatic(PaymentIntent.class)) {
-                mockedStatic.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)))
+                mockedStatic.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class), any(RequestOptions.class)))
                         .thenReturn(mockIntent);
 
                 stripeService.createPaymentIntent(
-                        amount, CURRENCY, CUSTOMER_ID, ORDER_ID, PaymentMethod.CARD
+                        amount, CURRENCY, CUSTOMER_ID, ORDER_ID, PaymentMethod.CARD, IDEMPOTENCY_KEY
                 );
 
-                mockedStatic.verify(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)));
+                mockedStatic.verify(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class), any(RequestOptions.class)));
             }
         }
 
@@ -109,11 +113,11 @@ class StripeServiceImplTest {
             BigDecimal amount = new BigDecimal("100.00");
 
             try (MockedStatic<PaymentIntent> mockedStatic = mockStatic(PaymentIntent.class)) {
-                mockedStatic.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)))
+                mockedStatic.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class), any(RequestOptions.class)))
                         .thenThrow(new StripeException("Stripe API error", "req_123", "code", 400) {});
 
                 assertThatThrownBy(() -> stripeService.createPaymentIntent(
-                        amount, CURRENCY, CUSTOMER_ID, ORDER_ID, PaymentMethod.CARD
+                        amount, CURRENCY, CUSTOMER_ID, ORDER_ID, PaymentMethod.CARD, IDEMPOTENCY_KEY
                 ))
                         .isInstanceOf(StripeIntegrationException.class)
                         .hasMessageContaining("Nie udało się utworzyć Payment Intent");
@@ -127,16 +131,35 @@ class StripeServiceImplTest {
             PaymentIntent mockIntent = mock(PaymentIntent.class);
 
             try (MockedStatic<PaymentIntent> mockedStatic = mockStatic(PaymentIntent.class)) {
-                mockedStatic.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class)))
+                mockedStatic.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class), any(RequestOptions.class)))
                         .thenReturn(mockIntent);
 
                 stripeService.createPaymentIntent(
-                        amount, CURRENCY, CUSTOMER_ID, ORDER_ID, PaymentMethod.BLIK
+                        amount, CURRENCY, CUSTOMER_ID, ORDER_ID, PaymentMethod.BLIK, IDEMPOTENCY_KEY
                 );
 
                 assertThat(mockIntent).isNotNull();
             }
         }
+
+        @Test
+        @DisplayName("Should send the idempotency key with the request")
+        void shouldSendIdempotencyKey() {
+            PaymentIntent mockIntent = mock(PaymentIntent.class);
+            ArgumentCaptor<RequestOptions> options = ArgumentCaptor.forClass(RequestOptions.class);
+
+            try (MockedStatic<PaymentIntent> mockedStatic = mockStatic(PaymentIntent.class)) {
+                mockedStatic.when(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class), any(RequestOptions.class)))
+                        .thenReturn(mockIntent);
+
+                stripeService.createPaymentIntent(
+                        new BigDecimal("100.00"), CURRENCY, CUSTOMER_ID, ORDER_ID, PaymentMethod.CARD, IDEMPOTENCY_KEY
+                );
+
+                mockedStatic.verify(() -> PaymentIntent.create(any(PaymentIntentCreateParams.class), options.capture()));
+                assertThat(options.getValue().getIdempotencyKey()).isEqualTo(IDEMPOTENCY_KEY);
+            }
+        }
     }
 
     @Nested
@@ -227,6 +250,37 @@ class StripeServiceImplTest {
         }
     }
 
+    @Nested
+    @DisplayName("retrieveCharge")
+    class RetrieveChargeTests {
+
+        @Test
+        @DisplayName("Should retrieve charge successfully")
+        void shouldRetrieveCharge() {
+            Charge mockCharge = mock(Charge.class);
+
+            try (MockedStatic<Charge> mockedStatic = mockStatic(Charge.class)) {
+                mockedStatic.when(() -> Charge.retrieve("ch_123"))
+                        .thenReturn(mockCharge);
+
+                assertThat(stripeService.retrieveCharge("ch_123")).isEqualTo(mockCharge);
+            }
+        }
+
+        @Test
+        @DisplayName("Should throw exception when retrieval fails")
+        void shouldThrowExceptionWhenRetrievalFails() {
+            try (MockedStatic<Charge> mockedStatic = mockStatic(Charge.class)) {
+                mockedStatic.when(() -> Charge.retrieve("ch_123"))
+                        .thenThrow(new StripeException("Not found", "req_123", "code", 404) {});
+
+                assertThatThrownBy(() -> stripeService.retrieveCharge("ch_123"))
+                        .isInstanceOf(StripeIntegrationException.class)
+                        .hasMessageContaining("Nie udało się pobrać obciążenia");
+            }
+        }
+    }
+
     @Nested
     @DisplayName("createRefund")
     class CreateRefundTests {
@@ -238,10 +292,10 @@ class StripeServiceImplTest {
             Refund mockRefund = mock(Refund.class);
 
             try (MockedStatic<Refund> mockedStatic = mockStatic(Refund.class)) {
-                mockedStatic.when(() -> Refund.create(any(RefundCreateParams.class)))
+                mockedStatic.when(() -> Refund.create(any(RefundCreateParams.class), any(RequestOptions.class)))
                         .thenReturn(mockRefund);
 
-                Refund result = stripeService.createRefund(PAYMENT_INTENT_ID, request);
+                Refund result = stripeService.createRefund(PAYMENT_INTENT_ID, request, IDEMPOTENCY_KEY);
 
                 assertThat(result).isEqualTo(mockRefund);
             }
@@ -254,12 +308,12 @@ class StripeServiceImplTest {
             Refund mockRefund = mock(Refund.class);
 
             try (MockedStatic<Refund> mockedStatic = mockStatic(Refund.class)) {
-                mockedStatic.when(() -> Refund.create(any(RefundCreateParams.class)))
+                mockedStatic.when(() -> Refund.create(any(RefundCreateParams.class), any(RequestOptions.class)))
                         .thenReturn(mockRefund);
 
-                stripeService.createRefund(PAYMENT_INTENT_ID, request);
+                stripeService.createRefund(PAYMENT_INTENT_ID, request, IDEMPOTENCY_KEY);
 
-                mockedStatic.verify(() -> Refund.create(any(RefundCreateParams.class)));
+                mockedStatic.verify(() -> Refund.create(any(RefundCreateParams.class), any(RequestOptions.class)));
             }
         }
 
@@ -269,10 +323,10 @@ class StripeServiceImplTest {
             RefundRequest request = createRefundRequest();
 
             try (MockedStatic<Refund> mockedStatic = mockStatic(Refund.class)) {
-                mockedStatic.when(() -> Refund.create(any(RefundCreateParams.class)))
+                mockedStatic.when(() -> Refund.create(any(RefundCreateParams.class), any(RequestOptions.class)))
                         .thenThrow(new StripeException("Refund failed", "req_123", "code", 400) {});
 
-                assertThatThrownBy(() -> stripeService.createRefund(PAYMENT_INTENT_ID, request))
+                assertThatThrownBy(() -> stripeService.createRefund(PAYMENT_INTENT_ID, request, IDEMPOTENCY_KEY))
                         .isInstanceOf(StripeIntegrationException.class)
                         .hasMessageContaining("Nie udało się utworzyć zwrotu");
             }
@@ -0,0 +1,243 @@
+package com.flavory.paymentservice.serviceTests;
+
+import com.flavory.paymentservice.config.PaymentProperties;
+import com.flavory.paymentservice.entity.Payment;
+import com.flavory.paymentservice.entity.PaymentOperation;
+import com.flavory.paymentservice.entity.PaymentStatus;
+import com.flavory.paymentservice.entity.StripeWebhookEvent;
+import com.flavory.paymentservice.entity.WebhookEventStatus;
+import com.flavory.paymentservice.messaging.publisher.PaymentEventPublisher;
+import com.flavory.paymentservice.repository.PaymentRepository;
+import com.flavory.paymentservice.repository.StripeWebhookEventRepository;
+import com.flavory.paymentservice.service.impl.WebhookInboxServiceImpl;
+import com.stripe.Stripe;
+import com.stripe.model.Event;
+import com.stripe.net.ApiResource;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("WebhookInboxServiceImpl Tests")
+class WebhookInboxServiceImplTest {
+
+    @Mock private StripeWebhookEventRepository webhookEventRepository;
+    @Mock private PaymentRepository paymentRepository;
+    @Mock private PaymentEventPublisher eventPublisher;
+
+    private WebhookInboxServiceImpl webhookInboxService;
+
+    private static final String PAYMENT_INTENT_ID = "pi_123456";
+    private static final String CHARGE_ID = "ch_123";
+
+    @BeforeEach
+    void setUp() {
+        webhookInboxService = new WebhookInboxServiceImpl(
+                webhookEventRepository,
+                paymentRepository,
+                eventPublisher,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)),
+                Runnable::run,
+                new PaymentProperties()
+        );
+    }
+
+    private static String payload(String eventId, String type, long created, String object) {
+        return """
+                {"id": "%s", "object": "event", "type": "%s", "created": %d, "api_version": "%s",
+                 "data": {"object": %s}}
+                """.formatted(eventId, type, created, Stripe.API_VERSION, object);
+    }
+
+    private static String paymentIntent(String status) {
+        return """
+                {"id": "%s", "object": "payment_intent", "status": "%s", "latest_charge": "%s"}
+                """.formatted(PAYMENT_INTENT_ID, status, CHARGE_ID);
+    }
+
+    private static Event event(String payload) {
+        return ApiResource.GSON.fromJson(payload, Event.class);
+    }
+
+    private static StripeWebhookEvent stored(long id, String type, String payload) {
+        return StripeWebhookEvent.builder()
+                .id(id)
+                .eventId("evt_" + id)
+                .eventType(type)
+                .paymentIntentId(PAYMENT_INTENT_ID)
+                .payload(payload)
+                .stripeCreatedAt(1_700_000_000L + id)
+                .receivedAt(LocalDateTime.now())
+                .build();
+    }
+
+    private Payment createPayment(PaymentStatus status) {
+        return Payment.builder()
+                .id(1L)
+                .orderId(1L)
+                .customerId("customer123")
+                .cookId("cook123")
+                .amount(new BigDecimal("100.00"))
+                .status(status)
+                .stripePaymentIntentId(PAYMENT_INTENT_ID)
+                .build();
+    }
+
+    private void stubWaitingEvents(Payment payment, StripeWebhookEvent... events) {
+        when(paymentRepository.findForUpdateByStripePaymentIntentId(PAYMENT_INTENT_ID))
+                .thenReturn(Optional.ofNullable(payment));
+        lenient().when(webhookEventRepository.findByPaymentIntentIdAndStatusOrderByStripeCreatedAtAscIdAsc(
+                PAYMENT_INTENT_ID, WebhookEventStatus.RECEIVED)).thenReturn(List.of(events));
+    }
+
+    @Nested
+    @DisplayName("receive")
+    class ReceiveTests {
+
+        @Test
+        @DisplayName("Should store the event and apply it from the payload")
+        void shouldStoreAndApplyEvent() {
+            String payload = payload("evt_1", "payment_intent.succeeded", 1_700_000_001L, paymentIntent("succeeded"));
+            StripeWebhookEvent stored = stored(1, "payment_intent.succeeded", payload);
+            Payment payment = createPayment(PaymentStatus.PENDING);
+
+            when(webhookEventRepository.insertIfAbsent(eq("evt_1"), eq("payment_intent.succeeded"),
+                    eq(PAYMENT_INTENT_ID), eq(payload), eq(1_700_000_001L), any())).thenReturn(1);
+            stubWaitingEvents(payment, stored);
+
+            webhookInboxService.receive(event(payload), payload);
+
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.SUCCEEDED);
+            assertThat(payment.getStripeChargeId()).isEqualTo(CHARGE_ID);
+            assertThat(stored.getStatus()).isEqualTo(WebhookEventStatus.PROCESSED);
+            verify(eventPublisher).publishPaymentSucceeded(payment);
+        }
+
+        @Test
+        @DisplayName("Should not process a redelivered event")
+        void shouldIgnoreRedelivery() {
+            String payload = payload("evt_1", "payment_intent.succeeded", 1_700_000_001L, paymentIntent("succeeded"));
+
+            when(webhookEventRepository.insertIfAbsent(anyString(), anyString(), anyString(), anyString(),
+                    anyLong(), any())).thenReturn(0);
+
+            webhookInboxService.receive(event(payload), payload);
+
+            verify(paymentRepository, never()).findForUpdateByStripePaymentIntentId(any());
+        }
+
+        @Test
+        @DisplayName("Should not store event types it does not handle")
+        void shouldSkipUnhandledTypes() {
+            String payload = payload("evt_1", "payment_intent.created", 1_700_000_001L, paymentIntent("requires_payment_method"));
+
+            webhookInboxService.receive(event(payload), payload);
+
+            verifyNoInteractions(webhookEventRepository, paymentRepository);
+        }
+    }
+
+    @Nested
+    @DisplayName("processWaitingEvents")
+    class ProcessWaitingEventsTests {
+
+        @Test
+        @DisplayName("Should apply events of an intent in order")
+        void shouldApplyInOrder() {
+            StripeWebhookEvent processing = stored(1, "payment_intent.processing",
+                    payload("evt_1", "payment_intent.processing", 1_700_000_001L, paymentIntent("processing")));
+            StripeWebhookEvent succeeded = stored(2, "payment_intent.succeeded",
+                    payload("evt_2", "payment_intent.succeeded", 1_700_000_002L, paymentIntent("succeeded")));
+            Payment payment = createPayment(PaymentStatus.PENDING);
+            stubWaitingEvents(payment, processing, succeeded);
+
+            webhookInboxService.processWaitingEvents(PAYMENT_INTENT_ID);
+
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.SUCCEEDED);
+            assertThat(processing.getStatus()).isEqualTo(WebhookEventStatus.PROCESSED);
+            assertThat(succeeded.getStatus()).isEqualTo(WebhookEventStatus.PROCESSED);
+        }
+
+        @Test
+        @DisplayName("Should not move a settled payment back")
+        void shouldKeepFinalStatus() {
+            StripeWebhookEvent requiresAction = stored(1, "payment_intent.requires_action",
+                    payload("evt_1", "payment_intent.requires_action", 1_700_000_001L, paymentIntent("requires_action")));
+            Payment payment = createPayment(PaymentStatus.REFUNDED);
+            stubWaitingEvents(payment, requiresAction);
+
+            webhookInboxService.processWaitingEvents(PAYMENT_INTENT_ID);
+
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.REFUNDED);
+            assertThat(requiresAction.getStatus()).isEqualTo(WebhookEventStatus.PROCESSED);
+            verify(paymentRepository, never()).save(any());
+        }
+
+        @Test
+        @DisplayName("Should take card details from a charge event")
+        void shouldApplyCardDetails() {
+            String charge = """
+                    {"id": "%s", "object": "charge", "payment_intent": "%s",
+                     "payment_method_details": {"type": "card", "card": {"last4": "4242", "brand": "visa"}}}
+                    """.formatted(CHARGE_ID, PAYMENT_INTENT_ID);
+            StripeWebhookEvent chargeSucceeded = stored(1, "charge.succeeded",
+                    payload("evt_1", "charge.succeeded", 1_700_000_001L, charge));
+            Payment payment = createPayment(PaymentStatus.SUCCEEDED);
+            stubWaitingEvents(payment, chargeSucceeded);
+
+            webhookInboxService.processWaitingEvents(PAYMENT_INTENT_ID);
+
+            assertThat(payment.getCardLast4()).isEqualTo("4242");
+            assertThat(payment.getCardBrand()).isEqualTo("visa");
+        }
+
+        @Test
+        @DisplayName("Should wait while a Stripe operation on the payment is in flight")
+        void shouldWaitForPendingOperation() {
+            StripeWebhookEvent canceled = stored(1, "payment_intent.canceled",
+                    payload("evt_1", "payment_intent.canceled", 1_700_000_001L, paymentIntent("canceled")));
+            Payment payment = createPayment(PaymentStatus.PENDING);
+            payment.beginOperation(PaymentOperation.CANCEL);
+            stubWaitingEvents(payment, canceled);
+
+            webhookInboxService.processWaitingEvents(PAYMENT_INTENT_ID);
+
+            assertThat(canceled.getStatus()).isEqualTo(WebhookEventStatus.RECEIVED);
+            assertThat(payment.getStatus()).isEqualTo(PaymentStatus.PENDING);
+        }
+
+        @Test
+        @DisplayName("Should count a failed attempt on the oldest waiting event")
+        void shouldRecordFailure() {
+            StripeWebhookEvent succeeded = stored(1, "payment_intent.succeeded",
+                    payload("evt_1", "payment_intent.succeeded", 1_700_000_001L, paymentIntent("succeeded")));
+            stubWaitingEvents(null);
+            when(webhookEventRepository.findFirstByPaymentIntentIdAndStatusOrderByStripeCreatedAtAscIdAsc(
+                    PAYMENT_INTENT_ID, WebhookEventStatus.RECEIVED)).thenReturn(Optional.of(succeeded));
+
+            webhookInboxService.processWaitingEvents(PAYMENT_INTENT_ID);
+
+            assertThat(succeeded.getAttempts()).isEqualTo(1);
+            assertThat(succeeded.getStatus()).isEqualTo(WebhookEventStatus.RECEIVED);
+            assertThat(succeeded.getLastError()).contains(PAYMENT_INTENT_ID);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.flavory.stripemock;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class StripeMockApplication {
+
+    public static void main(String[] args) {
+        SpringApplication.run(StripeMockApplication.class, args);
+    }
+}
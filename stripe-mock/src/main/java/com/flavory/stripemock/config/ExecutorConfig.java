@@ -0,0 +1,20 @@
+package com.flavory.stripemock.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+@Configuration
+public class ExecutorConfig {
+
+    /**
+     * Runs automatic confirmations and webhook deliveries, including their delays and retries.
+     */
+    @Bean(destroyMethod = "shutdownNow")
+    public ScheduledExecutorService stripeMockScheduler(StripeMockProperties properties) {
+        return Executors.newScheduledThreadPool(properties.getWebhooks().getSenderThreads(),
+                Thread.ofPlatform().name("stripe-mock-", 0).daemon().factory());
+    }
+}
@@ -0,0 +1,64 @@
+package com.flavory.stripemock.config;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@ConfigurationProperties(prefix = "stripe-mock")
+@Getter
+@Setter
+public class StripeMockProperties {
+
+    /**
+     * Written into every event. stripe-java only deserializes event objects of its own version.
+     */
+    private String apiVersion = "2023-10-16";
+    private Latency latency = new Latency();
+    private Faults faults = new Faults();
+    private AutoConfirm autoConfirm = new AutoConfirm();
+    private Webhooks webhooks = new Webhooks();
+
+    @Getter
+    @Setter
+    public static class Latency {
+        private Long minMillis = 0L;
+        private Long maxMillis = 0L;
+    }
+
+    /**
+     * Probabilities between 0 and 1, drawn independently for every API request.
+     */
+    @Getter
+    @Setter
+    public static class Faults {
+        private Double serverErrorRate = 0.0;
+        private Double rateLimitRate = 0.0;
+        private Double lostResponseRate = 0.0;
+        private Double stallRate = 0.0;
+        private Long stallMillis = 35000L;
+    }
+
+    /**
+     * Stands in for the customer confirming the payment in the browser.
+     */
+    @Getter
+    @Setter
+    public static class AutoConfirm {
+        private Boolean enabled = true;
+        private Long delayMillis = 500L;
+        private Double declineRate = 0.0;
+    }
+
+    @Getter
+    @Setter
+    public static class Webhooks {
+        private Boolean enabled = true;
+        private String url = "http://localhost:8085/api/webhooks/stripe";
+        private String secret = "whsec_local";
+        private Integer maxAttempts = 5;
+        private Long retryDelayMillis = 1000L;
+        private Integer senderThreads = 8;
+    }
+}
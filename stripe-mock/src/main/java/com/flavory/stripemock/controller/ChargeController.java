@@ -0,0 +1,22 @@
+package com.flavory.stripemock.controller;
+
+import com.flavory.stripemock.model.Charge;
+import com.flavory.stripemock.service.ChargeService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+@RestController
+@RequestMapping("/v1/charges")
+@RequiredArgsConstructor
+public class ChargeController {
+
+    private final ChargeService chargeService;
+
+    @GetMapping("/{id}")
+    public Charge retrieve(@PathVariable String id) {
+        return chargeService.retrieve(id);
+    }
+}
@@ -0,0 +1,55 @@
+package com.flavory.stripemock.controller;
+
+import com.flavory.stripemock.model.PaymentIntent;
+import com.flavory.stripemock.service.IdempotencyCache;
+import com.flavory.stripemock.service.PaymentIntentService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/v1/payment_intents")
+@RequiredArgsConstructor
+public class PaymentIntentController {
+
+    private final PaymentIntentService paymentIntentService;
+    private final IdempotencyCache idempotencyCache;
+
+    @PostMapping
+    public PaymentIntent create(
+            @RequestParam Map<String, String> params,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
+    ) {
+        return idempotencyCache.execute(idempotencyKey, () -> paymentIntentService.create(params));
+    }
+
+    @GetMapping("/{id}")
+    public PaymentIntent retrieve(@PathVariable String id) {
+        return paymentIntentService.retrieve(id);
+    }
+
+    @PostMapping("/{id}/confirm")
+    public PaymentIntent confirm(
+            @PathVariable String id,
+            @RequestParam Map<String, String> params,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
+    ) {
+        return idempotencyCache.execute(idempotencyKey, () -> paymentIntentService.confirm(id, params));
+    }
+
+    @PostMapping("/{id}/cancel")
+    public PaymentIntent cancel(
+            @PathVariable String id,
+            @RequestParam Map<String, String> params,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
+    ) {
+        return idempotencyCache.execute(idempotencyKey, () -> paymentIntentService.cancel(id, params));
+    }
+}
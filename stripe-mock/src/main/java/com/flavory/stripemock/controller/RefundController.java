@@ -0,0 +1,30 @@
+package com.flavory.stripemock.controller;
+
+import com.flavory.stripemock.model.Refund;
+import com.flavory.stripemock.service.IdempotencyCache;
+import com.flavory.stripemock.service.RefundService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/v1/refunds")
+@RequiredArgsConstructor
+public class RefundController {
+
+    private final RefundService refundService;
+    private final IdempotencyCache idempotencyCache;
+
+    @PostMapping
+    public Refund create(
+            @RequestParam Map<String, String> params,
+            @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey
+    ) {
+        return idempotencyCache.execute(idempotencyKey, () -> refundService.create(params));
+    }
+}
@@ -0,0 +1,30 @@
+package com.flavory.stripemock.exception;
+
+import com.flavory.stripemock.model.ApiError;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+import java.util.Map;
+
+/**
+ * Renders errors in Stripe's format, so stripe-java maps them to its own exception types.
+ */
+@Slf4j
+@RestControllerAdvice
+public class GlobalExceptionHandler {
+
+    @ExceptionHandler(StripeApiException.class)
+    public ResponseEntity<Map<String, ApiError>> handleStripeApi(StripeApiException ex) {
+        return ResponseEntity.status(ex.getStatus()).body(Map.of("error", ex.getError()));
+    }
+
+    @ExceptionHandler(Exception.class)
+    public ResponseEntity<Map<String, ApiError>> handleUnexpected(Exception ex) {
+        log.error("Nieoczekiwany błąd", ex);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                .body(Map.of("error", ApiError.of("api_error", null, "An unknown error occurred")));
+    }
+}
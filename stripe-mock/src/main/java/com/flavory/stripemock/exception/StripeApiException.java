@@ -0,0 +1,32 @@
+package com.flavory.stripemock.exception;
+
+import com.flavory.stripemock.model.ApiError;
+import lombok.Getter;
+import org.springframework.http.HttpStatus;
+
+@Getter
+public class StripeApiException extends RuntimeException {
+
+    private final HttpStatus status;
+    private final ApiError error;
+
+    public StripeApiException(HttpStatus status, ApiError error) {
+        super(error.message());
+        this.status = status;
+        this.error = error;
+    }
+
+    public static StripeApiException resourceMissing(String objectName, String id) {
+        return new StripeApiException(HttpStatus.NOT_FOUND, new ApiError("invalid_request_error", "resource_missing",
+                null, "No such " + objectName + ": '" + id + "'", "id"));
+    }
+
+    public static StripeApiException parameterMissing(String param) {
+        return new StripeApiException(HttpStatus.BAD_REQUEST, new ApiError("invalid_request_error", "parameter_missing",
+                null, "Missing required param: " + param + ".", param));
+    }
+
+    public static StripeApiException invalidRequest(String code, String message) {
+        return new StripeApiException(HttpStatus.BAD_REQUEST, ApiError.of("invalid_request_error", code, message));
+    }
+}
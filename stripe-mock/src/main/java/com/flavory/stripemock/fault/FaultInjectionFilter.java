@@ -0,0 +1,109 @@
+package com.flavory.stripemock.fault;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flavory.stripemock.config.StripeMockProperties;
+import com.flavory.stripemock.model.ApiError;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.ContentCachingResponseWrapper;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Latency and failures for API requests, as configured under {@code stripe-mock.latency} and
+ * {@code stripe-mock.faults}. A rate-limited or failed request is answered before it is
+ * handled. A lost response is handled, and its result replaced by a 500. Retrying it with the
+ * same idempotency key returns the original result.
+ */
+@Component
+@RequiredArgsConstructor
+public class FaultInjectionFilter extends OncePerRequestFilter {
+
+    private final StripeMockProperties properties;
+    private final ObjectMapper objectMapper;
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !request.getRequestURI().startsWith("/v1/");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        StripeMockProperties.Faults faults = properties.getFaults();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        sleep(latency(random));
+        if (draw(random, faults.getStallRate(), "STALL")) {
+            sleep(faults.getStallMillis());
+        }
+
+        if (draw(random, faults.getRateLimitRate(), "RATE_LIMIT")) {
+            writeError(response, HttpStatus.TOO_MANY_REQUESTS, ApiError.of("invalid_request_error", "rate_limit",
+                    "Request rate limit exceeded."));
+            return;
+        }
+        if (draw(random, faults.getServerErrorRate(), "SERVER_ERROR")) {
+            writeError(response, HttpStatus.INTERNAL_SERVER_ERROR, ApiError.of("api_error", null,
+                    "An unknown error occurred."));
+            return;
+        }
+
+        if (!draw(random, faults.getLostResponseRate(), "LOST_RESPONSE")) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        ContentCachingResponseWrapper handled = new ContentCachingResponseWrapper(response);
+        filterChain.doFilter(request, handled);
+        response.reset();
+        writeError(response, HttpStatus.INTERNAL_SERVER_ERROR, ApiError.of("api_error", null,
+                "An unknown error occurred."));
+    }
+
+    private long latency(ThreadLocalRandom random) {
+        StripeMockProperties.Latency latency = properties.getLatency();
+        if (latency.getMaxMillis() <= latency.getMinMillis()) {
+            return latency.getMinMillis();
+        }
+        return random.nextLong(latency.getMinMillis(), latency.getMaxMillis() + 1);
+    }
+
+    private boolean draw(ThreadLocalRandom random, double rate, String fault) {
+        if (rate <= 0 || random.nextDouble() >= rate) {
+            return false;
+        }
+        meterRegistry.counter("stripe.mock.faults", "fault", fault).increment();
+        return true;
+    }
+
+    private void writeError(HttpServletResponse response, HttpStatus status, ApiError error) throws IOException {
+        response.setStatus(status.value());
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setHeader("Stripe-Should-Retry", "true");
+        objectMapper.writeValue(response.getOutputStream(), Map.of("error", error));
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package com.flavory.stripemock.model;
+
+/**
+ * The {@code error} object of Stripe's error responses, also used as a payment intent's
+ * {@code last_payment_error}.
+ */
+public record ApiError(String type, String code, String declineCode, String message, String param) {
+
+    public static ApiError of(String type, String code, String message) {
+        return new ApiError(type, code, null, message, null);
+    }
+}
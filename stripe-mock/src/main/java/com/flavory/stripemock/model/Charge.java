@@ -0,0 +1,35 @@
+package com.flavory.stripemock.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class Charge {
+
+    private final String object = "charge";
+
+    private String id;
+    private Long amount;
+    private Long amountCaptured;
+    private Long amountRefunded;
+    private String currency;
+    private String paymentIntent;
+    private String status;
+    private boolean paid;
+    private boolean captured;
+    private boolean refunded;
+    private PaymentMethodDetails paymentMethodDetails;
+    private Long created;
+    private boolean livemode;
+
+    public record PaymentMethodDetails(String type, Card card) {
+    }
+
+    public record Card(String brand, String last4, String funding) {
+    }
+}
@@ -0,0 +1,26 @@
+package com.flavory.stripemock.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Event {
+
+    private final String object = "event";
+
+    private String id;
+    private String apiVersion;
+    private String type;
+    private Data data;
+    private Long created;
+    private boolean livemode;
+    private Integer pendingWebhooks;
+
+    public record Data(Object object) {
+    }
+}
@@ -0,0 +1,31 @@
+package com.flavory.stripemock.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder(toBuilder = true)
+@NoArgsConstructor
+@AllArgsConstructor
+public class PaymentIntent {
+
+    private final String object = "payment_intent";
+
+    private String id;
+    private Long amount;
+    private Long amountReceived;
+    private String currency;
+    private String status;
+    private String clientSecret;
+    private String captureMethod;
+    private String latestCharge;
+    private String cancellationReason;
+    private ApiError lastPaymentError;
+    private Map<String, String> metadata;
+    private Long created;
+    private boolean livemode;
+}
@@ -0,0 +1,27 @@
+package com.flavory.stripemock.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Map;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class Refund {
+
+    private final String object = "refund";
+
+    private String id;
+    private Long amount;
+    private String charge;
+    private String paymentIntent;
+    private String currency;
+    private String status;
+    private String reason;
+    private Map<String, String> metadata;
+    private Long created;
+}
@@ -0,0 +1,54 @@
+package com.flavory.stripemock.repository;
+
+import com.flavory.stripemock.model.Charge;
+import com.flavory.stripemock.model.PaymentIntent;
+import com.flavory.stripemock.model.Refund;
+import org.springframework.stereotype.Repository;
+
+import java.security.SecureRandom;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory objects. Nothing survives a restart, which is what a benchmark run wants.
+ */
+@Repository
+public class StripeObjectStore {
+
+    private static final String ID_ALPHABET = "0123456789ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz";
+    private static final int ID_LENGTH = 24;
+
+    private final SecureRandom random = new SecureRandom();
+    private final Map<String, PaymentIntent> paymentIntents = new ConcurrentHashMap<>();
+    private final Map<String, Charge> charges = new ConcurrentHashMap<>();
+    private final Map<String, Refund> refunds = new ConcurrentHashMap<>();
+
+    public String newId(String prefix) {
+        StringBuilder id = new StringBuilder(prefix.length() + 1 + ID_LENGTH).append(prefix).append('_');
+        for (int i = 0; i < ID_LENGTH; i++) {
+            id.append(ID_ALPHABET.charAt(random.nextInt(ID_ALPHABET.length())));
+        }
+        return id.toString();
+    }
+
+    public void save(PaymentIntent paymentIntent) {
+        paymentIntents.put(paymentIntent.getId(), paymentIntent);
+    }
+
+    public void save(Charge charge) {
+        charges.put(charge.getId(), charge);
+    }
+
+    public void save(Refund refund) {
+        refunds.put(refund.getId(), refund);
+    }
+
+    public Optional<PaymentIntent> findPaymentIntent(String id) {
+        return Optional.ofNullable(paymentIntents.get(id));
+    }
+
+    public Optional<Charge> findCharge(String id) {
+        return Optional.ofNullable(charges.get(id));
+    }
+}
@@ -0,0 +1,53 @@
+package com.flavory.stripemock.service;
+
+import com.flavory.stripemock.exception.StripeApiException;
+import com.flavory.stripemock.model.Charge;
+import com.flavory.stripemock.model.PaymentIntent;
+import com.flavory.stripemock.repository.StripeObjectStore;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+
+@Service
+@RequiredArgsConstructor
+public class ChargeService {
+
+    private static final Charge.PaymentMethodDetails TEST_CARD =
+            new Charge.PaymentMethodDetails("card", new Charge.Card("visa", "4242", "credit"));
+
+    private final StripeObjectStore store;
+
+    public Charge retrieve(String chargeId) {
+        return snapshot(find(chargeId));
+    }
+
+    Charge find(String chargeId) {
+        return store.findCharge(chargeId)
+                .orElseThrow(() -> StripeApiException.resourceMissing("charge", chargeId));
+    }
+
+    Charge createSucceeded(PaymentIntent paymentIntent) {
+        Charge charge = Charge.builder()
+                .id(store.newId("ch"))
+                .amount(paymentIntent.getAmount())
+                .amountCaptured(paymentIntent.getAmount())
+                .amountRefunded(0L)
+                .currency(paymentIntent.getCurrency())
+                .paymentIntent(paymentIntent.getId())
+                .status("succeeded")
+                .paid(true)
+                .captured(true)
+                .paymentMethodDetails(TEST_CARD)
+                .created(Instant.now().getEpochSecond())
+                .build();
+        store.save(charge);
+        return charge;
+    }
+
+    static Charge snapshot(Charge charge) {
+        synchronized (charge) {
+            return charge.toBuilder().build();
+        }
+    }
+}
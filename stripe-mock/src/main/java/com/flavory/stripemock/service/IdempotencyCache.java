@@ -0,0 +1,68 @@
+package com.flavory.stripemock.service;
+
+import com.flavory.stripemock.exception.StripeApiException;
+import com.flavory.stripemock.model.ApiError;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.function.Supplier;
+
+/**
+ * Stripe's idempotency semantics for POST requests. The first request with a key runs and its
+ * result is replayed to every later request with that key, including client errors. A server
+ * error is not kept, so the request can be retried. A request whose key is still running gets
+ * a 409, as Stripe returns for concurrent requests with the same key.
+ */
+@Component
+public class IdempotencyCache {
+
+    private final Map<String, FutureTask<Object>> results = new ConcurrentHashMap<>();
+
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String idempotencyKey, Supplier<T> action) {
+        if (idempotencyKey == null) {
+            return action.get();
+        }
+
+        FutureTask<Object> task = new FutureTask<>(action::get);
+        FutureTask<Object> existing = results.putIfAbsent(idempotencyKey, task);
+        if (existing != null) {
+            if (!existing.isDone()) {
+                throw new StripeApiException(HttpStatus.CONFLICT, ApiError.of("idempotency_error", null,
+                        "There is currently another in-progress request using this Stripe-Idempotency-Key."));
+            }
+            return (T) resultOf(existing);
+        }
+
+        task.run();
+        try {
+            return (T) resultOf(task);
+        } catch (StripeApiException e) {
+            if (e.getStatus().is5xxServerError()) {
+                results.remove(idempotencyKey, task);
+            }
+            throw e;
+        } catch (RuntimeException e) {
+            results.remove(idempotencyKey, task);
+            throw e;
+        }
+    }
+
+    private static Object resultOf(FutureTask<Object> task) {
+        try {
+            return task.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+}
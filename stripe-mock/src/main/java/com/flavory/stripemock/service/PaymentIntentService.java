@@ -0,0 +1,154 @@
+package com.flavory.stripemock.service;
+
+import com.flavory.stripemock.config.StripeMockProperties;
+import com.flavory.stripemock.exception.StripeApiException;
+import com.flavory.stripemock.model.ApiError;
+import com.flavory.stripemock.model.Charge;
+import com.flavory.stripemock.model.PaymentIntent;
+import com.flavory.stripemock.repository.StripeObjectStore;
+import com.flavory.stripemock.util.FormParams;
+import com.flavory.stripemock.webhook.WebhookDispatcher;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PaymentIntents with automatic capture. A new intent waits for a payment method, as with
+ * automatic payment methods on Stripe. It is then confirmed through {@code /confirm} or,
+ * standing in for the customer, automatically after {@code auto-confirm.delay-millis}.
+ * Confirming with {@code pm_card_chargeDeclined}, or losing the {@code decline-rate} draw
+ * when confirmed automatically, declines the card.
+ */
+@Slf4j
+@Service
+public class PaymentIntentService {
+
+    private static final Set<String> CONFIRMABLE = Set.of("requires_payment_method", "requires_confirmation", "requires_action");
+    private static final Set<String> CANCELABLE = Set.of("requires_payment_method", "requires_confirmation", "requires_action", "processing");
+    private static final Set<String> DECLINING_PAYMENT_METHODS = Set.of("pm_card_chargeDeclined", "pm_card_visa_chargeDeclined");
+
+    private final StripeObjectStore store;
+    private final ChargeService chargeService;
+    private final WebhookDispatcher webhookDispatcher;
+    private final StripeMockProperties properties;
+    private final ScheduledExecutorService scheduler;
+
+    public PaymentIntentService(StripeObjectStore store,
+                                ChargeService chargeService,
+                                WebhookDispatcher webhookDispatcher,
+                                StripeMockProperties properties,
+                                ScheduledExecutorService stripeMockScheduler) {
+        this.store = store;
+        this.chargeService = chargeService;
+        this.webhookDispatcher = webhookDispatcher;
+        this.properties = properties;
+        this.scheduler = stripeMockScheduler;
+    }
+
+    public PaymentIntent create(Map<String, String> params) {
+        Long amount = FormParams.requiredLong(params, "amount");
+        if (amount < 1) {
+            throw StripeApiException.invalidRequest("amount_too_small", "Amount must be at least 1.");
+        }
+
+        String id = store.newId("pi");
+        PaymentIntent paymentIntent = PaymentIntent.builder()
+                .id(id)
+                .amount(amount)
+                .amountReceived(0L)
+                .currency(FormParams.required(params, "currency").toLowerCase())
+                .status("requires_payment_method")
+                .clientSecret(id + "_secret_" + store.newId("cs").substring(3))
+                .captureMethod("automatic")
+                .metadata(FormParams.nested(params, "metadata"))
+                .created(Instant.now().getEpochSecond())
+                .build();
+        store.save(paymentIntent);
+
+        StripeMockProperties.AutoConfirm autoConfirm = properties.getAutoConfirm();
+        if (autoConfirm.getEnabled()) {
+            scheduler.schedule(() -> confirmAutomatically(id), autoConfirm.getDelayMillis(), TimeUnit.MILLISECONDS);
+        }
+        return snapshot(paymentIntent);
+    }
+
+    public PaymentIntent retrieve(String paymentIntentId) {
+        return snapshot(find(paymentIntentId));
+    }
+
+    public PaymentIntent confirm(String paymentIntentId, Map<String, String> params) {
+        boolean decline = DECLINING_PAYMENT_METHODS.contains(params.get("payment_method"));
+        return confirm(find(paymentIntentId), decline);
+    }
+
+    public PaymentIntent cancel(String paymentIntentId, Map<String, String> params) {
+        PaymentIntent paymentIntent = find(paymentIntentId);
+        synchronized (paymentIntent) {
+            requireStatus(paymentIntent, CANCELABLE, "cancel");
+            paymentIntent.setStatus("canceled");
+            paymentIntent.setCancellationReason(params.getOrDefault("cancellation_reason", "requested_by_customer"));
+            PaymentIntent snapshot = paymentIntent.toBuilder().build();
+            webhookDispatcher.publish("payment_intent.canceled", snapshot);
+            return snapshot;
+        }
+    }
+
+    PaymentIntent find(String paymentIntentId) {
+        return store.findPaymentIntent(paymentIntentId)
+                .orElseThrow(() -> StripeApiException.resourceMissing("payment_intent", paymentIntentId));
+    }
+
+    private PaymentIntent confirm(PaymentIntent paymentIntent, boolean decline) {
+        synchronized (paymentIntent) {
+            requireStatus(paymentIntent, CONFIRMABLE, "confirm");
+
+            if (decline) {
+                paymentIntent.setStatus("requires_payment_method");
+                paymentIntent.setLastPaymentError(new ApiError("card_error", "card_declined", "generic_decline",
+                        "Your card was declined.", null));
+                PaymentIntent snapshot = paymentIntent.toBuilder().build();
+                webhookDispatcher.publish("payment_intent.payment_failed", snapshot);
+                return snapshot;
+            }
+
+            Charge charge = chargeService.createSucceeded(paymentIntent);
+            paymentIntent.setStatus("succeeded");
+            paymentIntent.setAmountReceived(paymentIntent.getAmount());
+            paymentIntent.setLatestCharge(charge.getId());
+            paymentIntent.setLastPaymentError(null);
+            PaymentIntent snapshot = paymentIntent.toBuilder().build();
+            webhookDispatcher.publish("charge.succeeded", ChargeService.snapshot(charge));
+            webhookDispatcher.publish("payment_intent.succeeded", snapshot);
+            return snapshot;
+        }
+    }
+
+    private void confirmAutomatically(String paymentIntentId) {
+        double declineRate = properties.getAutoConfirm().getDeclineRate();
+        try {
+            confirm(find(paymentIntentId), ThreadLocalRandom.current().nextDouble() < declineRate);
+        } catch (StripeApiException e) {
+            log.debug("Pominięto automatyczne potwierdzenie {}: {}", paymentIntentId, e.getMessage());
+        }
+    }
+
+    private static void requireStatus(PaymentIntent paymentIntent, Set<String> allowed, String action) {
+        if (!allowed.contains(paymentIntent.getStatus())) {
+            throw StripeApiException.invalidRequest("payment_intent_unexpected_state",
+                    "You cannot " + action + " this PaymentIntent because it has a status of "
+                            + paymentIntent.getStatus() + ".");
+        }
+    }
+
+    private static PaymentIntent snapshot(PaymentIntent paymentIntent) {
+        synchronized (paymentIntent) {
+            return paymentIntent.toBuilder().build();
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.flavory.stripemock.service;
+
+import com.flavory.stripemock.exception.StripeApiException;
+import com.flavory.stripemock.model.Charge;
+import com.flavory.stripemock.model.PaymentIntent;
+import com.flavory.stripemock.model.Refund;
+import com.flavory.stripemock.repository.StripeObjectStore;
+import com.flavory.stripemock.util.FormParams;
+import com.flavory.stripemock.webhook.WebhookDispatcher;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Refunds of a succeeded PaymentIntent's charge, by {@code payment_intent} or {@code charge}.
+ * They succeed immediately. Without an amount, the rest of the charge is refunded.
+ */
+@Service
+@RequiredArgsConstructor
+public class RefundService {
+
+    private final StripeObjectStore store;
+    private final PaymentIntentService paymentIntentService;
+    private final ChargeService chargeService;
+    private final WebhookDispatcher webhookDispatcher;
+
+    public Refund create(Map<String, String> params) {
+        Charge charge = chargeOf(params);
+
+        synchronized (charge) {
+            long refundable = charge.getAmount() - charge.getAmountRefunded();
+            if (refundable == 0) {
+                throw StripeApiException.invalidRequest("charge_already_refunded",
+                        "Charge " + charge.getId() + " has already been refunded.");
+            }
+
+            Long amount = FormParams.optionalLong(params, "amount");
+            if (amount == null) {
+                amount = refundable;
+            }
+            if (amount < 1 || amount > refundable) {
+                throw StripeApiException.invalidRequest("amount_too_large",
+                        "Refund amount (" + amount + ") is greater than unrefunded amount on charge (" + refundable + ").");
+            }
+
+            Refund refund = Refund.builder()
+                    .id(store.newId("re"))
+                    .amount(amount)
+                    .charge(charge.getId())
+                    .paymentIntent(charge.getPaymentIntent())
+                    .currency(charge.getCurrency())
+                    .status("succeeded")
+                    .reason(params.get("reason"))
+                    .metadata(FormParams.nested(params, "metadata"))
+                    .created(Instant.now().getEpochSecond())
+                    .build();
+            store.save(refund);
+
+            charge.setAmountRefunded(charge.getAmountRefunded() + amount);
+            charge.setRefunded(charge.getAmountRefunded().equals(charge.getAmount()));
+            webhookDispatcher.publish("charge.refunded", charge.toBuilder().build());
+            return refund;
+        }
+    }
+
+    private Charge chargeOf(Map<String, String> params) {
+        String chargeId = params.get("charge");
+        if (chargeId != null) {
+            return chargeService.find(chargeId);
+        }
+
+        String paymentIntentId = params.get("payment_intent");
+        if (paymentIntentId == null) {
+            throw StripeApiException.parameterMissing("payment_intent");
+        }
+        PaymentIntent paymentIntent = paymentIntentService.find(paymentIntentId);
+        String latestCharge;
+        synchronized (paymentIntent) {
+            latestCharge = paymentIntent.getLatestCharge();
+        }
+        if (latestCharge == null) {
+            throw StripeApiException.invalidRequest("charge_not_refundable",
+                    "This PaymentIntent (" + paymentIntentId + ") does not have a successful charge to refund.");
+        }
+        return chargeService.find(latestCharge);
+    }
+}
@@ -0,0 +1,53 @@
+package com.flavory.stripemock.util;
+
+import com.flavory.stripemock.exception.StripeApiException;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Reads the form-encoded parameters stripe-java sends, where nested values are flattened
+ * into keys such as {@code metadata[orderId]}.
+ */
+public final class FormParams {
+
+    private FormParams() {
+    }
+
+    public static String required(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null || value.isBlank()) {
+            throw StripeApiException.parameterMissing(name);
+        }
+        return value;
+    }
+
+    public static Long requiredLong(Map<String, String> params, String name) {
+        return toLong(name, required(params, name));
+    }
+
+    public static Long optionalLong(Map<String, String> params, String name) {
+        String value = params.get(name);
+        return value == null || value.isBlank() ? null : toLong(name, value);
+    }
+
+    public static Map<String, String> nested(Map<String, String> params, String name) {
+        String prefix = name + "[";
+        Map<String, String> nested = new HashMap<>();
+        params.forEach((key, value) -> {
+            if (key.startsWith(prefix) && key.endsWith("]")) {
+                nested.put(key.substring(prefix.length(), key.length() - 1), value);
+            }
+        });
+        return nested;
+    }
+
+    private static Long toLong(String name, String value) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw StripeApiException.invalidRequest("parameter_invalid_integer",
+                    "Invalid integer: " + value + " for param " + name + ".");
+        }
+    }
+}
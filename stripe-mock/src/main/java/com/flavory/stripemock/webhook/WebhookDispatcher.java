@@ -0,0 +1,118 @@
+package com.flavory.stripemock.webhook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.flavory.stripemock.config.StripeMockProperties;
+import com.flavory.stripemock.model.Event;
+import com.flavory.stripemock.repository.StripeObjectStore;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Sends events to the configured endpoint, signed like Stripe signs them. Every object is
+ * serialized when the event is created, so later changes do not leak into it. A delivery
+ * that fails or gets a non-2xx answer is retried with a growing delay, up to
+ * {@code max-attempts}.
+ */
+@Slf4j
+@Component
+public class WebhookDispatcher {
+
+    private final StripeMockProperties properties;
+    private final StripeObjectStore store;
+    private final ObjectMapper objectMapper;
+    private final ScheduledExecutorService scheduler;
+    private final MeterRegistry meterRegistry;
+    private final HttpClient httpClient = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+    public WebhookDispatcher(StripeMockProperties properties,
+                             StripeObjectStore store,
+                             ObjectMapper objectMapper,
+                             ScheduledExecutorService stripeMockScheduler,
+                             MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.store = store;
+        this.objectMapper = objectMapper;
+        this.scheduler = stripeMockScheduler;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public void publish(String type, Object object) {
+        if (!properties.getWebhooks().getEnabled()) {
+            return;
+        }
+
+        Event event = Event.builder()
+                .id(store.newId("evt"))
+                .apiVersion(properties.getApiVersion())
+                .type(type)
+                .data(new Event.Data(object))
+                .created(Instant.now().getEpochSecond())
+                .pendingWebhooks(1)
+                .build();
+
+        String payload;
+        try {
+            payload = objectMapper.writeValueAsString(event);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Nie udało się zserializować zdarzenia " + type, e);
+        }
+
+        scheduler.execute(() -> deliver(event, payload, 1));
+    }
+
+    private void deliver(Event event, String payload, int attempt) {
+        StripeMockProperties.Webhooks webhooks = properties.getWebhooks();
+        String signature = WebhookSigner.signatureHeader(payload, webhooks.getSecret(), Instant.now().getEpochSecond());
+
+        HttpRequest request = HttpRequest.newBuilder(URI.create(webhooks.getUrl()))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json; charset=utf-8")
+                .header("Stripe-Signature", signature)
+                .POST(HttpRequest.BodyPublishers.ofString(payload))
+                .build();
+
+        String failure;
+        try {
+            HttpResponse<Void> response = httpClient.send(request, HttpResponse.BodyHandlers.discarding());
+            if (response.statusCode() / 100 == 2) {
+                countDelivery(event, "DELIVERED");
+                return;
+            }
+            failure = "HTTP " + response.statusCode();
+        } catch (IOException e) {
+            failure = e.getMessage();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (attempt >= webhooks.getMaxAttempts()) {
+            countDelivery(event, "FAILED");
+            log.warn("Porzucono zdarzenie {} ({}) po {} próbach: {}", event.getId(), event.getType(), attempt, failure);
+            return;
+        }
+
+        countDelivery(event, "RETRIED");
+        long delay = webhooks.getRetryDelayMillis() << Math.min(attempt - 1, 10);
+        log.debug("Ponowienie zdarzenia {} za {} ms: {}", event.getId(), delay, failure);
+        scheduler.schedule(() -> deliver(event, payload, attempt + 1), delay, TimeUnit.MILLISECONDS);
+    }
+
+    private void countDelivery(Event event, String outcome) {
+        meterRegistry.counter("stripe.mock.webhooks", "type", event.getType(), "outcome", outcome).increment();
+    }
+}
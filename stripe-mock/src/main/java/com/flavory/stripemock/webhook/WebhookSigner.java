@@ -0,0 +1,28 @@
+package com.flavory.stripemock.webhook;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.util.HexFormat;
+
+/**
+ * Builds the {@code Stripe-Signature} header: an HMAC-SHA256 of {@code timestamp.payload},
+ * keyed with the endpoint secret, which {@code Webhook.constructEvent} verifies.
+ */
+public final class WebhookSigner {
+
+    private WebhookSigner() {
+    }
+
+    public static String signatureHeader(String payload, String secret, long timestampSeconds) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256"));
+            byte[] signature = mac.doFinal((timestampSeconds + "." + payload).getBytes(StandardCharsets.UTF_8));
+            return "t=" + timestampSeconds + ",v1=" + HexFormat.of().formatHex(signature);
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Nie udało się podpisać webhooka", e);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.flavory.stripemock;
+
+import com.stripe.Stripe;
+import com.stripe.exception.InvalidRequestException;
+import com.stripe.model.Charge;
+import com.stripe.model.PaymentIntent;
+import com.stripe.model.Refund;
+import com.stripe.net.RequestOptions;
+import com.stripe.param.PaymentIntentCancelParams;
+import com.stripe.param.PaymentIntentConfirmParams;
+import com.stripe.param.PaymentIntentCreateParams;
+import com.stripe.param.RefundCreateParams;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Nested;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Drives the stand-in with the real stripe-java client, the way payment-service calls Stripe.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "stripe-mock.latency.min-millis=0",
+        "stripe-mock.latency.max-millis=0",
+        "stripe-mock.auto-confirm.enabled=false",
+        "stripe-mock.webhooks.enabled=false"
+})
+@DisplayName("Stripe stand-in Tests")
+class StripeMockApplicationTests {
+
+    @LocalServerPort
+    private int port;
+
+    @BeforeEach
+    void setUp() {
+        Stripe.apiKey = "sk_test_local";
+        Stripe.overrideApiBase("http://localhost:" + port);
+    }
+
+    @AfterEach
+    void tearDown() {
+        Stripe.overrideApiBase(Stripe.LIVE_API_BASE);
+    }
+
+    private static PaymentIntent createPaymentIntent(String idempotencyKey) throws Exception {
+        PaymentIntentCreateParams params = PaymentIntentCreateParams.builder()
+                .setAmount(5000L)
+                .setCurrency("pln")
+                .putMetadata("orderId", "1")
+                .setAutomaticPaymentMethods(PaymentIntentCreateParams.AutomaticPaymentMethods.builder()
+                        .setEnabled(true)
+                        .build())
+                .build();
+        return PaymentIntent.create(params, RequestOptions.builder().setIdempotencyKey(idempotencyKey).build());
+    }
+
+    @Nested
+    @DisplayName("PaymentIntents")
+    class PaymentIntentTests {
+
+        @Test
+        @DisplayName("Should create a PaymentIntent waiting for a payment method")
+        void shouldCreatePaymentIntent() throws Exception {
+            PaymentIntent paymentIntent = createPaymentIntent("order-1");
+
+            assertThat(paymentIntent.getId()).startsWith("pi_");
+            assertThat(paymentIntent.getAmount()).isEqualTo(5000L);
+            assertThat(paymentIntent.getStatus()).isEqualTo("requires_payment_method");
+            assertThat(paymentIntent.getClientSecret()).startsWith(paymentIntent.getId() + "_secret_");
+            assertThat(paymentIntent.getMetadata()).containsEntry("orderId", "1");
+        }
+
+        @Test
+        @DisplayName("Should replay the result for a repeated idempotency key")
+        void shouldReplayIdempotentRequest() throws Exception {
+            PaymentIntent first = createPaymentIntent("order-2");
+            PaymentIntent second = createPaymentIntent("order-2");
+
+            assertThat(second.getId()).isEqualTo(first.getId());
+        }
+
+        @Test
+        @DisplayName("Should create a charge when confirmed")
+        void shouldConfirm() throws Exception {
+            PaymentIntent created = createPaymentIntent("order-3");
+
+            PaymentIntent confirmed = created.confirm(PaymentIntentConfirmParams.builder()
+                    .setPaymentMethod("pm_card_visa")
+                    .build());
+            Charge charge = Charge.retrieve(confirmed.getLatestCharge());
+
+            assertThat(confirmed.getStatus()).isEqualTo("succeeded");
+            assertThat(charge.getPaymentIntent()).isEqualTo(created.getId());
+            assertThat(charge.getPaymentMethodDetails().getCard().getLast4()).isEqualTo("4242");
+        }
+
+        @Test
+        @DisplayName("Should decline the declining test payment method")
+        void shouldDecline() throws Exception {
+            PaymentIntent declined = createPaymentIntent("order-4").confirm(PaymentIntentConfirmParams.builder()
+                    .setPaymentMethod("pm_card_chargeDeclined")
+                    .build());
+
+            assertThat(declined.getStatus()).isEqualTo("requires_payment_method");
+            assertThat(declined.getLastPaymentError().getCode()).isEqualTo("card_declined");
+        }
+
+        @Test
+        @DisplayName("Should cancel and refuse to cancel twice")
+        void shouldCancel() throws Exception {
+            PaymentIntent paymentIntent = createPaymentIntent("order-5");
+
+            PaymentIntent canceled = PaymentIntent.retrieve(paymentIntent.getId())
+                    .cancel(PaymentIntentCancelParams.builder().build());
+
+            assertThat(canceled.getStatus()).isEqualTo("canceled");
+            assertThatThrownBy(() -> canceled.cancel(PaymentIntentCancelParams.builder().build()))
+                    .isInstanceOf(InvalidRequestException.class)
+                    .hasFieldOrPropertyWithValue("code", "payment_intent_unexpected_state");
+        }
+
+        @Test
+        @DisplayName("Should answer 404 for an unknown PaymentIntent")
+        void shouldReportMissingPaymentIntent() {
+            assertThatThrownBy(() -> PaymentIntent.retrieve("pi_missing"))
+                    .isInstanceOf(InvalidRequestException.class)
+                    .hasFieldOrPropertyWithValue("statusCode", 404)
+                    .hasFieldOrPropertyWithValue("code", "resource_missing");
+        }
+    }
+
+    @Nested
+    @DisplayName("Refunds")
+    class RefundTests {
+
+        @Test
+        @DisplayName("Should refund part of a charge, then refuse more than the rest")
+        void shouldRefund() throws Exception {
+            PaymentIntent paymentIntent = createPaymentIntent("order-6")
+                    .confirm(PaymentIntentConfirmParams.builder().setPaymentMethod("pm_card_visa").build());
+
+            Refund refund = Refund.create(RefundCreateParams.builder()
+                    .setPaymentIntent(paymentIntent.getId())
+                    .setAmount(2000L)
+                    .putMetadata("reason", "Zimne jedzenie")
+                    .build());
+
+            assertThat(refund.getStatus()).isEqualTo("succeeded");
+            assertThat(refund.getCharge()).isEqualTo(paymentIntent.getLatestCharge());
+            assertThat(Charge.retrieve(paymentIntent.getLatestCharge()).getAmountRefunded()).isEqualTo(2000L);
+            assertThatThrownBy(() -> Refund.create(RefundCreateParams.builder()
+                    .setPaymentIntent(paymentIntent.getId())
+                    .setAmount(4000L)
+                    .build()))
+                    .isInstanceOf(InvalidRequestException.class)
+                    .hasFieldOrPropertyWithValue("code", "amount_too_large");
+        }
+    }
+}
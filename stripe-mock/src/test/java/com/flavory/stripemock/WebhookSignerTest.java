@@ -0,0 +1,42 @@
+package com.flavory.stripemock;
+
+import com.flavory.stripemock.webhook.WebhookSigner;
+import com.stripe.exception.SignatureVerificationException;
+import com.stripe.model.Event;
+import com.stripe.net.Webhook;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("WebhookSigner Tests")
+class WebhookSignerTest {
+
+    private static final String SECRET = "whsec_local";
+    private static final String PAYLOAD = """
+            {"id": "evt_1", "object": "event", "type": "payment_intent.succeeded", "api_version": "2023-10-16",
+             "data": {"object": {"id": "pi_1", "object": "payment_intent", "status": "succeeded"}}}""";
+
+    @Test
+    @DisplayName("Should produce a signature stripe-java accepts")
+    void shouldBeVerifiedByStripe() throws Exception {
+        String header = WebhookSigner.signatureHeader(PAYLOAD, SECRET, Instant.now().getEpochSecond());
+
+        Event event = Webhook.constructEvent(PAYLOAD, header, SECRET);
+
+        assertThat(event.getId()).isEqualTo("evt_1");
+        assertThat(event.getDataObjectDeserializer().getObject()).isPresent();
+    }
+
+    @Test
+    @DisplayName("Should be rejected with another secret")
+    void shouldBeRejectedWithOtherSecret() {
+        String header = WebhookSigner.signatureHeader(PAYLOAD, SECRET, Instant.now().getEpochSecond());
+
+        assertThatThrownBy(() -> Webhook.constructEvent(PAYLOAD, header, "whsec_other"))
+                .isInstanceOf(SignatureVerificationException.class);
+    }
+}